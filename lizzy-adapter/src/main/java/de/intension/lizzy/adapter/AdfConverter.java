@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Utility class to convert rich text of Jira Cloud, which its API version 3 returns as a JSON tree in the
+ * <a href="https://developer.atlassian.com/cloud/jira/platform/apis/document/structure/">Atlassian document
+ * format</a>, to plain text.
+ * <p>
+ * The tree is converted while it is read from a pull parser, without building it in memory. Paragraphs,
+ * headings, list items and code blocks become lines of their own; table rows become lines with the cells
+ * separated by <code>|</code> like Gherkin data tables. Marks like bold or links are dropped. Mentions,
+ * emojis, status lozenges, dates and cards are replaced by their text. The lines are trimmed like by the
+ * {@link MultilineTrimmer}, so the result fits {@link Issue#getDescription()} without further normalization.
+ * <p>
+ * Jira writes the type of a node before its content; content of a node whose type follows it is converted
+ * like the content of an unknown block.
+ */
+public final class AdfConverter
+{
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Nodes within a line; all other nodes are blocks ending their line. */
+    private static final Set<String> INLINE       = new HashSet<>(Arrays.asList("text", "hardBreak", "mention", "emoji", "date",
+                                                                                "status", "inlineCard", "placeholder", "mediaInline",
+                                                                                "inlineExtension"));
+
+    private final JsonParser         parser;
+    private final StringBuilder      text         = new StringBuilder();
+    /** Number of table cells the current node is nested in; their blocks are joined within the row. */
+    private int                      cells;
+
+    private AdfConverter(JsonParser parser)
+    {
+        this.parser = parser;
+    }
+
+    /**
+     * Converts a document given as JSON.
+     *
+     * @param json Document in the Atlassian document format.
+     * @return Plain text or <code>null</code> if the document has no text or the JSON is no document.
+     * @throws IOException If the JSON is invalid.
+     */
+    public static String toPlainText(String json)
+        throws IOException
+    {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.nextToken();
+            return toPlainText(parser);
+        }
+    }
+
+    /**
+     * Converts the document the parser is positioned at and moves the parser to its end.
+     *
+     * @param parser Parser whose current token is the start of the document object.
+     * @return Plain text or <code>null</code> if the document has no text or the object is no document.
+     * @throws IOException If the document cannot be read.
+     */
+    public static String toPlainText(JsonParser parser)
+        throws IOException
+    {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected document but found " + parser.getCurrentToken());
+        }
+        AdfConverter converter = new AdfConverter(parser);
+        String type = converter.readNode();
+        if (!"doc".equals(type) || converter.text.length() == 0) {
+            return null;
+        }
+        StringBuilder trimmed = MultilineTrimmer.trim(converter.text, new StringBuilder(converter.text.length()));
+        return trimmed.length() == 0 ? null : trimmed.toString();
+    }
+
+    /**
+     * Reads a node whose start token was consumed and appends its text.
+     *
+     * @return Type of the node.
+     */
+    private String readNode()
+        throws IOException
+    {
+        String type = null;
+        String label = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("type".equals(name) && value == JsonToken.VALUE_STRING) {
+                type = parser.getText();
+                start(type);
+            }
+            else if ("text".equals(name) && value == JsonToken.VALUE_STRING) {
+                append(parser.getText());
+            }
+            else if ("content".equals(name) && value == JsonToken.START_ARRAY) {
+                readContent();
+            }
+            else if ("attrs".equals(name) && value == JsonToken.START_OBJECT && type != null) {
+                label = readLabel(type);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        end(type, label);
+        return type;
+    }
+
+    private void readContent()
+        throws IOException
+    {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.START_OBJECT) {
+                readNode();
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads the attributes of a node and returns the text that replaces an inline node or a card.
+     */
+    private String readLabel(String type)
+        throws IOException
+    {
+        switch (type) {
+            case "mention":
+            case "status":
+                return readAttribute("text", null);
+            case "emoji":
+                return readAttribute("text", "shortName");
+            case "inlineCard":
+            case "blockCard":
+            case "embedCard":
+                return readAttribute("url", null);
+            case "date":
+                String timestamp = readAttribute("timestamp", null);
+                return timestamp == null ? null : toDate(timestamp);
+            default:
+                parser.skipChildren();
+                return null;
+        }
+    }
+
+    /**
+     * Reads an attributes object and returns the scalar value of the attribute, or of the fallback if the
+     * attribute is missing.
+     */
+    private String readAttribute(String name, String fallback)
+        throws IOException
+    {
+        String value = null;
+        String fallbackValue = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String attribute = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                if (attribute.equals(name)) {
+                    value = parser.getText();
+                }
+                else if (attribute.equals(fallback)) {
+                    fallbackValue = parser.getText();
+                }
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        return value != null ? value : fallbackValue;
+    }
+
+    private void start(String type)
+    {
+        switch (type) {
+            case "tableRow":
+                lineBreak();
+                text.append('|');
+                break;
+            case "tableCell":
+            case "tableHeader":
+                cells++;
+                text.append(' ');
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void end(String type, String label)
+    {
+        if (label != null) {
+            append(label);
+        }
+        if (type == null) {
+            blockBreak();
+            return;
+        }
+        switch (type) {
+            case "text":
+                break;
+            case "hardBreak":
+                blockBreak();
+                break;
+            case "tableCell":
+            case "tableHeader":
+                cells--;
+                if (text.charAt(text.length() - 1) != ' ') {
+                    text.append(' ');
+                }
+                text.append('|');
+                break;
+            default:
+                if (!INLINE.contains(type)) {
+                    blockBreak();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Ends a block with a line break, or with a space within a table cell.
+     */
+    private void blockBreak()
+    {
+        if (cells > 0) {
+            int length = text.length();
+            if (length > 0 && text.charAt(length - 1) != ' ') {
+                text.append(' ');
+            }
+        }
+        else {
+            lineBreak();
+        }
+    }
+
+    private void lineBreak()
+    {
+        int length = text.length();
+        if (length > 0 && text.charAt(length - 1) != '\n') {
+            text.append('\n');
+        }
+    }
+
+    /**
+     * Appends text, replacing line breaks within table cells, e.g. of code blocks, to keep the row on one line.
+     */
+    private void append(String string)
+    {
+        if (cells == 0) {
+            text.append(string);
+            return;
+        }
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            text.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    /**
+     * Formats the timestamp of a date node, which are milliseconds since the epoch, as ISO date.
+     */
+    private static String toDate(String timestamp)
+    {
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(timestamp)).atZone(ZoneOffset.UTC).toLocalDate().toString();
+        } catch (NumberFormatException e) {
+            return timestamp;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter;
+
+/**
+ * Immutable snapshot of cache statistics.
+ */
+public class CacheStats
+{
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public CacheStats(long hitCount, long missCount, long evictionCount)
+    {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * Number of lookups answered from the cache.
+     */
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Number of lookups not answered from the cache.
+     */
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Number of entries removed to stay within the bounds of the cache.
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Ratio of hits to all lookups; <code>0</code> if there was no lookup yet.
+     */
+    public double getHitRate()
+    {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double)hitCount / lookups;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheStats[hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+    }
+}
@@ -16,6 +16,8 @@
  ******************************************************************************/
 package de.intension.lizzy.adapter;
 
+import java.time.Instant;
+
 /**
  * Wrapper object for issues from requirement management systems.
  * 
@@ -24,9 +26,12 @@ package de.intension.lizzy.adapter;
 public class Issue
 {
 
-    private String key;
-    private String title;
-    private String description;
+    private String  key;
+    private String  title;
+    private String  description;
+    private String  acceptanceCriteria;
+    private String  acceptanceCriteriaField;
+    private Instant updated;
 
     /**
      * Unique identifier of the issue.
@@ -69,4 +74,55 @@ public class Issue
         this.description = description;
         return this;
     }
+
+    /**
+     * Content of the acceptance criteria, if kept in a separate field.
+     */
+    public String getAcceptanceCriteria()
+    {
+        return acceptanceCriteria;
+    }
+
+    public Issue setAcceptanceCriteria(String acceptanceCriteria)
+    {
+        this.acceptanceCriteria = acceptanceCriteria;
+        return this;
+    }
+
+    /**
+     * Id of the field the acceptance criteria were read from, <code>null</code> if they were not requested.
+     */
+    public String getAcceptanceCriteriaField()
+    {
+        return acceptanceCriteriaField;
+    }
+
+    public Issue setAcceptanceCriteriaField(String acceptanceCriteriaField)
+    {
+        this.acceptanceCriteriaField = acceptanceCriteriaField;
+        return this;
+    }
+
+    /**
+     * Time of the last modification of the issue, if known.
+     */
+    public Instant getUpdated()
+    {
+        return updated;
+    }
+
+    public Issue setUpdated(Instant updated)
+    {
+        this.updated = updated;
+        return this;
+    }
+
+    /**
+     * Creates a copy of the issue with the same field values.
+     */
+    public Issue copy()
+    {
+        return new Issue().setKey(key).setTitle(title).setDescription(description).setAcceptanceCriteria(acceptanceCriteria)
+            .setAcceptanceCriteriaField(acceptanceCriteriaField).setUpdated(updated);
+    }
 }
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe in-memory cache of issues of a single server.
+ * <p>
+ * The cache is bounded by the number of entries and by their weight, which is the number of characters
+ * of title, description and acceptance criteria. When a bound is exceeded, the least recently used
+ * entries are evicted. Entries expire after the time to live, but an expired entry can be renewed
+ * via {@link #get(String, Instant)} with the current update timestamp of the issue instead of
+ * fetching it again. The cache keeps copies of the issues it is given and returns copies of them,
+ * so callers may change the issues they receive.
+ */
+public class IssueCache
+{
+
+    private final int                          maxEntries;
+    private final long                         maxWeight;
+    private final long                         timeToLive;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long                               weight;
+
+    private long                               hits;
+    private long                               misses;
+    private long                               evictions;
+
+    /**
+     * Cache with up to 1000 issues with 16 million characters in total, expiring after ten minutes.
+     */
+    public IssueCache()
+    {
+        this(1000, 16_000_000, 10, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param maxEntries Maximum number of cached issues.
+     * @param maxWeight Maximum number of characters of all cached issues.
+     * @param timeToLive Time after which a cached issue expires.
+     * @param unit Unit of <code>timeToLive</code>.
+     */
+    public IssueCache(int maxEntries, long maxWeight, long timeToLive, TimeUnit unit)
+    {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.timeToLive = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * Returns the cached issue if it has not expired yet.
+     *
+     * @param key Unique identifier of the issue.
+     * @return The issue or <code>null</code>.
+     */
+    public synchronized Issue get(String key)
+    {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.isExpired()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.issue.copy();
+    }
+
+    /**
+     * Returns the cached issue if it has the given update timestamp, regardless of its age,
+     * and renews it. Use it for issues that were just found by a search or whose timestamp was
+     * checked, to skip fetching or preparing them again.
+     *
+     * @param key Unique identifier of the issue.
+     * @param updated Current update timestamp of the issue.
+     * @return The issue or <code>null</code>.
+     */
+    public synchronized Issue get(String key, Instant updated)
+    {
+        Entry entry = entries.get(key);
+        if (entry == null || updated == null || !updated.equals(entry.issue.getUpdated())) {
+            misses++;
+            return null;
+        }
+        hits++;
+        entry.refresh();
+        return entry.issue.copy();
+    }
+
+    /**
+     * Returns the cached issue regardless of its age, e.g. while the server is unreachable.
+     * Neither counts as hit or miss nor renews the issue.
+     *
+     * @param key Unique identifier of the issue.
+     * @return The issue or <code>null</code> if it is not cached.
+     */
+    public synchronized Issue peek(String key)
+    {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.issue.copy();
+    }
+
+    /**
+     * Returns the update timestamp of a cached issue, including expired ones.
+     *
+     * @param key Unique identifier of the issue.
+     * @return The timestamp or <code>null</code> if the issue is not cached.
+     */
+    public synchronized Instant getUpdated(String key)
+    {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.issue.getUpdated();
+    }
+
+    /**
+     * Adds or replaces an issue. An issue is not replaced by an older version of itself.
+     */
+    public synchronized void put(Issue issue)
+    {
+        if (issue == null || issue.getKey() == null) {
+            return;
+        }
+        Entry existing = entries.get(issue.getKey());
+        if (existing != null && isOlder(issue, existing.issue)) {
+            return;
+        }
+        Entry entry = new Entry(issue.copy());
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        remove(issue.getKey());
+        entries.put(issue.getKey(), entry);
+        weight += entry.weight;
+        evict();
+    }
+
+    /**
+     * Removes an issue from the cache.
+     */
+    public synchronized void invalidate(String key)
+    {
+        remove(key);
+    }
+
+    /**
+     * Removes all issues from the cache.
+     */
+    public synchronized void invalidateAll()
+    {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Number of cached issues.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Number of characters of all cached issues.
+     */
+    public synchronized long weight()
+    {
+        return weight;
+    }
+
+    /**
+     * Snapshot of the hit, miss and eviction counts.
+     */
+    public synchronized CacheStats getStats()
+    {
+        return new CacheStats(hits, misses, evictions);
+    }
+
+    private void remove(String key)
+    {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is within its bounds.
+     */
+    private void evict()
+    {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && iterator.hasNext()) {
+            weight -= iterator.next().getValue().weight;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static boolean isOlder(Issue issue, Issue cached)
+    {
+        return issue.getUpdated() != null && cached.getUpdated() != null && issue.getUpdated().isBefore(cached.getUpdated());
+    }
+
+    private final class Entry
+    {
+
+        private final Issue issue;
+        private final long  weight;
+        private long        expires;
+
+        Entry(Issue issue)
+        {
+            this.issue = issue;
+            this.weight = length(issue.getTitle()) + length(issue.getDescription()) + length(issue.getAcceptanceCriteria());
+            refresh();
+        }
+
+        void refresh()
+        {
+            expires = System.nanoTime() + timeToLive;
+        }
+
+        boolean isExpired()
+        {
+            return System.nanoTime() - expires >= 0;
+        }
+
+        private long length(String string)
+        {
+            return string == null ? 0 : string.length();
+        }
+    }
+}
@@ -0,0 +1,628 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent store of issues in a local directory, e.g. to start warm after a restart or to work offline.
+ * <p>
+ * Issues are appended to a log file which is read through a memory mapping. Only the offset, the
+ * update timestamp and the acceptance criteria field of the latest record per key are kept in memory. The file grows in steps of at least
+ * a megabyte, doubling its size, and is padded with zeros behind the last record, so that it is mapped
+ * again only once per step rather than after every write. Every record carries its length
+ * and a CRC32 checksum, so a record torn by a crash is detected and cut off when the store is opened
+ * for writing. Superseded records are dropped by {@link #compact()}, which happens automatically once
+ * they take up more than half of the log.
+ * <p>
+ * Several processes may open the same directory. Writes are serialized by a lock file, and readers
+ * pick up records appended by other processes on the next lookup. On platforms which do not allow
+ * replacing a mapped file (Windows), compaction fails while another process has the store open and
+ * is retried later.
+ */
+public class IssueStore
+    implements Closeable
+{
+
+    private static final String     LOG_FILE          = "issues.log";
+    private static final String     LOCK_FILE         = "issues.lock";
+    private static final long       MAGIC             = 0x4C495A5A5953544FL;          // "LIZZYSTO"
+    private static final int        HEADER_SIZE       = 8;
+    private static final int        RECORD_HEADER     = 8;                            // length + checksum
+
+    /** Issue written before the acceptance criteria field was recorded; only read. */
+    private static final byte       PUT               = 1;
+    private static final byte       REMOVE            = 2;
+    /** Marks a log which was replaced by compaction; readers have to reopen the file. */
+    private static final byte       COMPACTED         = 3;
+    /** Issue with the id of its acceptance criteria field behind the update timestamp. */
+    private static final byte       PUT_WITH_FIELD    = 4;
+
+    private static final long       NO_TIMESTAMP      = Long.MIN_VALUE;
+    private static final long       MIN_COMPACT_SIZE  = 1024 * 1024;
+    private static final long       GROWTH_STEP       = 1024 * 1024;
+
+    /** File locks are held by the JVM, so stores of the same directory within it lock each other out beforehand. */
+    private static final Map<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path              directory;
+    private final Path              logFile;
+    private final Map<String, Slot> index             = new HashMap<>();
+
+    private FileChannel             channel;
+    private MappedByteBuffer        mapped;
+    /** End of the last valid record read into the index. */
+    private long                    end;
+    /** Number of bytes of superseded records. */
+    private long                    garbage;
+
+    private IssueStore(Path directory)
+    {
+        this.directory = directory;
+        this.logFile = directory.resolve(LOG_FILE);
+    }
+
+    /**
+     * Opens the store in the directory, creating it if necessary.
+     * A record torn by a crash is removed.
+     *
+     * @param directory Directory of the store; one per Jira server.
+     */
+    public static IssueStore open(Path directory)
+        throws IOException
+    {
+        Files.createDirectories(directory);
+        IssueStore store = new IssueStore(directory);
+        try (FileLock lock = store.lock()) {
+            store.openLog();
+            store.refresh();
+            store.terminate(store.end);
+        }
+        return store;
+    }
+
+    /**
+     * Returns the stored issue.
+     *
+     * @param key Unique identifier of the issue.
+     * @return The issue or <code>null</code> if it is not stored.
+     */
+    public synchronized Issue get(String key)
+        throws IOException
+    {
+        refresh();
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        ByteBuffer record = record(slot);
+        byte type = record.get();
+        readString(record); // key
+        Instant updated = toInstant(record.getLong());
+        String acceptanceCriteriaField = type == PUT_WITH_FIELD ? readString(record) : null;
+        return new Issue().setKey(key).setUpdated(updated).setAcceptanceCriteriaField(acceptanceCriteriaField).setTitle(readString(record))
+            .setDescription(readString(record)).setAcceptanceCriteria(readString(record));
+    }
+
+    /**
+     * Returns the update timestamp of a stored issue without reading the issue.
+     *
+     * @return The timestamp or <code>null</code> if the issue is not stored or has no timestamp.
+     */
+    public synchronized Instant getUpdated(String key)
+        throws IOException
+    {
+        refresh();
+        Slot slot = index.get(key);
+        return slot == null ? null : toInstant(slot.updated);
+    }
+
+    /**
+     * Stores an issue, unless the same version with the same acceptance criteria field is stored already.
+     */
+    public void put(Issue issue)
+        throws IOException
+    {
+        putAll(Collections.singleton(issue));
+    }
+
+    /**
+     * Stores issues with a single write, skipping issues whose version is stored already
+     * with the same acceptance criteria field.
+     */
+    public synchronized void putAll(Collection<Issue> issues)
+        throws IOException
+    {
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        for (Issue issue : issues) {
+            if (issue != null && issue.getKey() != null) {
+                records.put(issue.getKey(), encode(PUT_WITH_FIELD, issue.getKey(), issue));
+            }
+        }
+        try (FileLock lock = lock()) {
+            refresh();
+            for (Issue issue : issues) {
+                if (issue != null && isStored(issue)) {
+                    records.remove(issue.getKey());
+                }
+            }
+            append(records);
+        }
+        compactIfWasteful();
+    }
+
+    /**
+     * Removes an issue from the store.
+     */
+    public synchronized void remove(String key)
+        throws IOException
+    {
+        try (FileLock lock = lock()) {
+            refresh();
+            if (index.containsKey(key)) {
+                append(Collections.singletonMap(key, encode(REMOVE, key, null)));
+            }
+        }
+    }
+
+    /**
+     * Keys of all stored issues.
+     */
+    public synchronized Set<String> keys()
+        throws IOException
+    {
+        refresh();
+        return new HashSet<>(index.keySet());
+    }
+
+    /**
+     * Number of stored issues.
+     */
+    public synchronized int size()
+        throws IOException
+    {
+        refresh();
+        return index.size();
+    }
+
+    /**
+     * Rewrites the log without superseded and removed records.
+     */
+    public synchronized void compact()
+        throws IOException
+    {
+        try (FileLock lock = lock()) {
+            refresh();
+            Path compacted = directory.resolve(LOG_FILE + ".tmp");
+            Map<String, Slot> slots = new HashMap<>();
+            try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                       StandardOpenOption.WRITE)) {
+                target.write(header());
+                map(end);
+                for (Map.Entry<String, Slot> entry : index.entrySet()) {
+                    Slot slot = entry.getValue();
+                    slots.put(entry.getKey(), new Slot(target.position(), slot.updated, slot.length, slot.acceptanceCriteriaField));
+                    ByteBuffer record = slice(slot.offset, slot.length);
+                    while (record.hasRemaining()) {
+                        target.write(record);
+                    }
+                }
+                target.force(true);
+            }
+            try {
+                Files.move(compacted, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(compacted);
+                throw e;
+            }
+            // tell readers of other processes to reopen the file
+            channel.write(frame(encode(COMPACTED, "", null)), end);
+            channel.close();
+
+            openLog();
+            index.clear();
+            index.putAll(slots);
+            end = channel.size();
+            garbage = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        mapped = null;
+        channel.close();
+    }
+
+    private void compactIfWasteful()
+    {
+        if (end > MIN_COMPACT_SIZE && garbage > end / 2) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // compaction is retried with the next write
+            }
+        }
+    }
+
+    private boolean isStored(Issue issue)
+    {
+        Slot slot = index.get(issue.getKey());
+        return slot != null && slot.updated != NO_TIMESTAMP && issue.getUpdated() != null
+                && slot.updated == issue.getUpdated().toEpochMilli()
+                && Objects.equals(slot.acceptanceCriteriaField, issue.getAcceptanceCriteriaField());
+    }
+
+    /**
+     * Appends records to the log and adds them to the index. Must be called with the lock held.
+     *
+     * @param records Encoded records by key.
+     */
+    private void append(Map<String, byte[]> records)
+        throws IOException
+    {
+        if (records.isEmpty()) {
+            return;
+        }
+        long total = 0;
+        for (byte[] record : records.values()) {
+            total += RECORD_HEADER + record.length;
+        }
+        grow(end + total + RECORD_HEADER);
+        long position = end;
+        for (Map.Entry<String, byte[]> record : records.entrySet()) {
+            ByteBuffer framed = frame(record.getValue());
+            int length = framed.remaining();
+            while (framed.hasRemaining()) {
+                channel.write(framed, position + framed.position());
+            }
+            ByteBuffer body = ByteBuffer.wrap(record.getValue());
+            byte type = body.get();
+            readString(body);
+            index(type, record.getKey(), position, length, body);
+            position += length;
+        }
+        terminate(position);
+        channel.force(false);
+        end = position;
+    }
+
+    /**
+     * Extends the file by at least {@link #GROWTH_STEP}, doubling its size, if it is smaller than required.
+     * The new space is read as zeros, i.e. as the end of the log.
+     */
+    private void grow(long required)
+        throws IOException
+    {
+        long size = channel.size();
+        if (size >= required) {
+            return;
+        }
+        long grown = Math.max(required, Math.max(size * 2, size + GROWTH_STEP));
+        grown = Math.min((grown + GROWTH_STEP - 1) / GROWTH_STEP * GROWTH_STEP, Integer.MAX_VALUE);
+        if (grown < required) {
+            throw new IOException("Issue store exceeds 2 GB: " + logFile);
+        }
+        channel.write(ByteBuffer.allocate(1), grown - 1);
+    }
+
+    /**
+     * Marks the end of the log with a zero length, cutting off a record torn by a crash.
+     */
+    private void terminate(long position)
+        throws IOException
+    {
+        long size = channel.size();
+        if (size - position < RECORD_HEADER) {
+            channel.truncate(position);
+            return;
+        }
+        ByteBuffer zero = ByteBuffer.allocate(RECORD_HEADER);
+        while (zero.hasRemaining()) {
+            channel.write(zero, position + zero.position());
+        }
+    }
+
+    /**
+     * Updates the index with a record.
+     *
+     * @param body Body of the record, positioned behind the key.
+     */
+    private void index(byte type, String key, long position, int length, ByteBuffer body)
+    {
+        Slot previous = index.remove(key);
+        if (previous != null) {
+            garbage += previous.length;
+        }
+        if (type == PUT || type == PUT_WITH_FIELD) {
+            long updated = body.getLong();
+            index.put(key, new Slot(position, updated, length, type == PUT_WITH_FIELD ? readString(body) : null));
+        }
+        else {
+            garbage += length;
+        }
+    }
+
+    /**
+     * Reads records appended since the last call into the index, reopening the log if it was compacted.
+     * Stops at the first incomplete or corrupt record.
+     */
+    private void refresh()
+        throws IOException
+    {
+        long size = channel.size();
+        if (size < end + RECORD_HEADER) {
+            return;
+        }
+        map(size);
+        long position = end == 0 ? HEADER_SIZE : end;
+        if (end == 0 && size >= HEADER_SIZE && mapped.getLong(0) != MAGIC) {
+            throw new IOException("Not an issue store: " + logFile);
+        }
+        while (position + RECORD_HEADER <= size) {
+            int length = mapped.getInt((int)position);
+            if (length <= 0 || position + RECORD_HEADER + length > size) {
+                break;
+            }
+            ByteBuffer body = slice(position + RECORD_HEADER, length);
+            if (checksum(body.duplicate()) != mapped.getInt((int)position + 4)) {
+                break;
+            }
+            byte type = body.get();
+            String key = readString(body);
+            if (type == COMPACTED) {
+                reopen();
+                return;
+            }
+            index(type, key, position, RECORD_HEADER + length, body);
+            position += RECORD_HEADER + length;
+        }
+        end = position;
+    }
+
+    private void reopen()
+        throws IOException
+    {
+        channel.close();
+        index.clear();
+        end = 0;
+        garbage = 0;
+        openLog();
+        refresh();
+    }
+
+    private void openLog()
+        throws IOException
+    {
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            channel.write(header(), 0);
+        }
+        mapped = null;
+        end = 0;
+    }
+
+    private void map(long size)
+        throws IOException
+    {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Issue store exceeds 2 GB: " + logFile);
+        }
+        if (mapped == null || mapped.capacity() < size) {
+            mapped = channel.map(MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Returns the body of the record in the slot.
+     */
+    private ByteBuffer record(Slot slot)
+        throws IOException
+    {
+        map(end);
+        return slice(slot.offset + RECORD_HEADER, slot.length - RECORD_HEADER);
+    }
+
+    private ByteBuffer slice(long position, int length)
+    {
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position((int)position);
+        buffer.limit((int)position + length);
+        return buffer.slice();
+    }
+
+    /**
+     * Acquires the write lock of the store, both within this JVM and across processes.
+     */
+    private FileLock lock()
+        throws IOException
+    {
+        ReentrantLock local = LOCKS.computeIfAbsent(directory.toAbsolutePath().normalize(), path -> new ReentrantLock());
+        local.lock();
+        FileChannel lockChannel = null;
+        try {
+            lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            return new ChannelLock(lockChannel, lockChannel.lock(), local);
+        } catch (IOException | RuntimeException e) {
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+            local.unlock();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer header()
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(MAGIC);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Serializes the body of a record.
+     *
+     * @param issue The issue of a {@link #PUT_WITH_FIELD} record, otherwise <code>null</code>.
+     */
+    private static byte[] encode(byte type, String key, Issue issue)
+        throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeByte(type);
+        writeString(out, key);
+        if (issue != null) {
+            out.writeLong(issue.getUpdated() == null ? NO_TIMESTAMP : issue.getUpdated().toEpochMilli());
+            writeString(out, issue.getAcceptanceCriteriaField());
+            writeString(out, issue.getTitle());
+            writeString(out, issue.getDescription());
+            writeString(out, issue.getAcceptanceCriteria());
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Prefixes a record body with its length and checksum.
+     */
+    private static ByteBuffer frame(byte[] body)
+    {
+        ByteBuffer framed = ByteBuffer.allocate(RECORD_HEADER + body.length);
+        framed.putInt(body.length).putInt(checksum(ByteBuffer.wrap(body))).put(body);
+        framed.flip();
+        return framed;
+    }
+
+    private static int checksum(ByteBuffer body)
+    {
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        crc.update(bytes, 0, bytes.length);
+        return (int)crc.getValue();
+    }
+
+    private static void writeString(DataOutputStream out, String string)
+        throws IOException
+    {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static Instant toInstant(long millis)
+    {
+        return millis == NO_TIMESTAMP ? null : Instant.ofEpochMilli(millis);
+    }
+
+    /**
+     * Location of the latest record of an issue.
+     */
+    private static final class Slot
+    {
+
+        private final long   offset;
+        private final long   updated;
+        private final int    length;
+        private final String acceptanceCriteriaField;
+
+        Slot(long offset, long updated, int length, String acceptanceCriteriaField)
+        {
+            this.offset = offset;
+            this.updated = updated;
+            this.length = length;
+            this.acceptanceCriteriaField = acceptanceCriteriaField;
+        }
+    }
+
+    /**
+     * File lock which closes its channel and releases the lock within the JVM when released.
+     */
+    private static final class ChannelLock
+        extends FileLock
+    {
+
+        private final FileLock      lock;
+        private final ReentrantLock local;
+
+        ChannelLock(FileChannel channel, FileLock lock, ReentrantLock local)
+        {
+            super(channel, lock.position(), lock.size(), lock.isShared());
+            this.lock = lock;
+            this.local = local;
+        }
+
+        @Override
+        public boolean isValid()
+        {
+            return lock.isValid();
+        }
+
+        @Override
+        public void release()
+            throws IOException
+        {
+            try {
+                lock.release();
+                channel().close();
+            } finally {
+                local.unlock();
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.superscript.SuperscriptExtension;
 import com.vladsch.flexmark.util.options.DataHolder;
 import com.vladsch.flexmark.util.options.MutableDataSet;
+import com.vladsch.flexmark.util.sequence.CharSubSequence;
 
 import de.intension.lizzy.adapter.flexmark.CitationExtension;
 import de.intension.lizzy.adapter.flexmark.MonospaceExtension;
@@ -33,20 +34,25 @@ import de.intension.lizzy.adapter.flexmark.UnderlineExtension;
 
 /**
  * Utility class to remove markdown from a text.
- * Does not support removal of text color (e.g. <code>{color:#FF0000}test{color}</code>)
- * or tables yet.
+ * Jira wiki markup is removed by the {@link WikiMarkupStripper}; paragraphs with
+ * other markdown are parsed by flexmark.
  * 
  * @author <a href="mailto:ikuba@intension.de">Ingo Kuba</a>
  */
 public class MarkdownRemover
 {
 
-    static final DataHolder OPTIONS = new MutableDataSet()
+    static final DataHolder OPTIONS     = new MutableDataSet()
         .set(Parser.EXTENSIONS, asList(SubscriptExtension.create(), SuperscriptExtension.create(),
                                        MonospaceExtension.create(), CitationExtension.create(),
                                        UnderlineExtension.create(), StrikethroughExtension.create()));
 
-    static final Parser     PARSER  = Parser.builder(OPTIONS).build();
+    static final Parser     PARSER      = Parser.builder(OPTIONS).build();
+
+    /** Size up to which the buffer of a thread is kept for the next text. */
+    static final int        BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
 
     private MarkdownRemover()
     {
@@ -54,18 +60,40 @@ public class MarkdownRemover
     }
 
     /**
-     * Uses <a href="https://github.com/vsch/flexmark-java/wiki">Flexmark</a>
-     * to remove markdown from a text.
+     * Removes markdown from a text, in a single pass for Jira wiki markup and with
+     * <a href="https://github.com/vsch/flexmark-java/wiki">Flexmark</a> for paragraphs
+     * with other markdown.
+     * 
+     * The text is read in place, so e.g. a {@link StringBuilder} filled by
+     * {@link MultilineTrimmer#trim(CharSequence, StringBuilder)} is not copied;
+     * it must not change while parsing.
      * 
      * @param string Possibly containing markdown.
      * @return Plain text without markdown.
      */
-    public static String toPlainText(String string)
+    public static String toPlainText(CharSequence string)
     {
-        if (string == null || string.isEmpty()) {
+        if (string == null || string.length() == 0) {
             return null;
         }
-        Node document = PARSER.parse(string);
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        try {
+            WikiMarkupStripper.remove(string, buffer);
+            return buffer.toString();
+        } finally {
+            if (buffer.capacity() > BUFFER_SIZE) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    /**
+     * Uses flexmark to remove markdown from a text.
+     */
+    static String parse(CharSequence string)
+    {
+        Node document = PARSER.parse(CharSubSequence.of(string));
         TextCollectingVisitor textCollectingVisitor = new TextCollectingVisitor();
         return textCollectingVisitor.collectAndGetText(document);
     }
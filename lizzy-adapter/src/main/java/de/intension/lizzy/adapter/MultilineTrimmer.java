@@ -13,19 +13,43 @@
  *******************************************************************************/
 package de.intension.lizzy.adapter;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
 /**
  * Utility class to trim leading and trailing whitespaces from all lines of a
  * multi-line text. Removes all kinds of whitespaces, including non-breaking and
- * tabulation.
+ * tabulation, and drops lines without content.
+ * <p>
+ * The text is processed in a single pass in chunks of {@value #CHUNK_SIZE} characters without
+ * allocating per line, so long descriptions can be trimmed from a {@link Reader} or into a
+ * {@link StringBuilder} that is passed on, e.g. to {@link MarkdownRemover#toPlainText(CharSequence)}.
  * 
  * @author Ingo Kuba
  */
 public class MultilineTrimmer
 {
 
-    private MultilineTrimmer()
+    static final int      CHUNK_SIZE     = 8192;
+
+    private final char[]  chunk          = new char[CHUNK_SIZE];
+    private StringBuilder builder;
+    private Writer        writer;
+    /** Whether the text since the last line break contains any character. */
+    private boolean       inLine;
+    /** Whether the current line contains a character other than whitespace. */
+    private boolean       content;
+    /** Whether the last line with content still needs its line break. */
+    private boolean       lineBreak;
+    /** Whitespace after the content of the current line at the end of the previous chunk. */
+    private char[]        carry          = new char[64];
+    private int           carryLength;
+
+    private MultilineTrimmer(StringBuilder builder, Writer writer)
     {
-        // utility class
+        this.builder = builder;
+        this.writer = writer;
     }
 
     /**
@@ -39,54 +63,151 @@ public class MultilineTrimmer
         if (string == null || string.isEmpty()) {
             return null;
         }
-        String[] lines = string.split("\n");
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < lines.length; i++) {
-            String trimmed = trimLine(lines[i]);
-            if (!trimmed.isEmpty()) {
-                result.append(trimmed + (i == lines.length - 1 ? "" : "\n"));
-            }
+        return trim(string, new StringBuilder(string.length())).toString();
+    }
+
+    /**
+     * Removes leading and trailing whitespaces from all lines and appends the result.
+     * 
+     * @param text Multi-line text
+     * @param out Receives the formatted text.
+     * @return <code>out</code>
+     */
+    public static StringBuilder trim(CharSequence text, StringBuilder out)
+    {
+        try {
+            new MultilineTrimmer(out, null).write(text);
+        } catch (IOException e) {
+            throw new IllegalStateException("StringBuilder failed", e);
         }
-        return result.toString();
+        return out;
     }
 
     /**
-     * Removes leading and trailing whitespaces and tabulation.
+     * Removes leading and trailing whitespaces from all lines read until the end of the reader.
+     * Holds only one chunk and the whitespace at its end in memory.
      * 
-     * @return Formatted string
+     * @param reader Multi-line text, not closed.
+     * @param out Receives the formatted text, not flushed or closed.
      */
-    private static String trimLine(String string)
+    public static void trim(Reader reader, Writer out)
+        throws IOException
     {
-        char[] chars = string.toCharArray();
-        int start = 0;
-        // iterate through string from the start
-        for (char c : chars) {
-            if (isWhitespace(c)) {
-                start++;
-            }
-            else {
-                break;
-            }
+        MultilineTrimmer trimmer = new MultilineTrimmer(null, out);
+        for (int read = reader.read(trimmer.chunk); read >= 0; read = reader.read(trimmer.chunk)) {
+            trimmer.write(read);
         }
-        int end = string.length();
-        // iterate through string from the end
-        for (int i = chars.length - 1; i > start; i--) {
-            char c = chars[i];
-            if (isWhitespace(c)) {
-                end--;
+    }
+
+    private void write(CharSequence text)
+        throws IOException
+    {
+        int length = text.length();
+        for (int start = 0; start < length; start += CHUNK_SIZE) {
+            int end = Math.min(length, start + CHUNK_SIZE);
+            if (text instanceof String) {
+                ((String)text).getChars(start, end, chunk, 0);
+            }
+            else if (text instanceof StringBuilder) {
+                ((StringBuilder)text).getChars(start, end, chunk, 0);
             }
             else {
-                break;
+                for (int i = start; i < end; i++) {
+                    chunk[i - start] = text.charAt(i);
+                }
             }
+            write(end - start);
         }
-        return string.substring(start, end);
     }
 
     /**
-     * Matches any whitespace including non-breaking and tabulation.
+     * Trims the next characters of the text in {@link #chunk}. Whitespace between content is written
+     * once the next content follows, whitespace at the end of a line is dropped.
      */
-    private static boolean isWhitespace(char c)
+    private void write(int length)
+        throws IOException
     {
-        return c < 33 || c > 126;
+        // first character of the current line not written yet and end of its content
+        int start = 0;
+        int end = -1;
+        for (int i = 0; i < length; i++) {
+            char c = chunk[i];
+            if (c == '\n') {
+                append(start, end);
+                lineBreak |= content;
+                inLine = false;
+                content = false;
+                carryLength = 0;
+                start = i + 1;
+                end = -1;
+                continue;
+            }
+            if (!inLine) {
+                inLine = true;
+                if (lineBreak) {
+                    // any following line, even one of whitespaces, ends the previous line
+                    append('\n');
+                    lineBreak = false;
+                }
+            }
+            if (!Whitespace.is(c)) {
+                if (!content) {
+                    content = true;
+                    start = i;
+                }
+                end = i + 1;
+            }
+        }
+        append(start, end);
+        if (content) {
+            carry(end < 0 ? start : end, length);
+        }
+    }
+
+    private void append(int start, int end)
+        throws IOException
+    {
+        if (end <= start) {
+            return;
+        }
+        if (carryLength > 0) {
+            append(carry, 0, carryLength);
+            carryLength = 0;
+        }
+        append(chunk, start, end - start);
+    }
+
+    private void carry(int start, int end)
+    {
+        int length = end - start;
+        if (carryLength + length > carry.length) {
+            char[] grown = new char[Math.max(carry.length * 2, carryLength + length)];
+            System.arraycopy(carry, 0, grown, 0, carryLength);
+            carry = grown;
+        }
+        System.arraycopy(chunk, start, carry, carryLength, length);
+        carryLength += length;
+    }
+
+    private void append(char[] chars, int offset, int length)
+        throws IOException
+    {
+        if (builder != null) {
+            builder.append(chars, offset, length);
+        }
+        else {
+            writer.write(chars, offset, length);
+        }
+    }
+
+    private void append(char c)
+        throws IOException
+    {
+        if (builder != null) {
+            builder.append(c);
+        }
+        else {
+            writer.write(c);
+        }
     }
 }
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe memo of normalized texts, so unchanged descriptions of repeated searches and syncs are not
+ * trimmed and stripped of markdown again.
+ * <p>
+ * Entries are keyed by a 64-bit hash of the raw text and keep the raw text to verify it on a hit, so a hash
+ * collision is a miss rather than a wrong result. The memo is bounded by the number of entries and by their
+ * weight, which is the number of characters of raw and normalized text. When a bound is exceeded, the least
+ * recently used entries are evicted. Normalization does not depend on the server, so a memo can be shared by
+ * all adapters.
+ */
+public class NormalizationMemo
+{
+
+    private static final long                C1      = 0x87c37b91114253d5L;
+    private static final long                C2      = 0x4cf5ad432745937fL;
+
+    private final int                        maxEntries;
+    private final long                       maxWeight;
+    private final ToLongFunction<String>     hash;
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long                             weight;
+
+    private long                             hits;
+    private long                             misses;
+    private long                             evictions;
+    private long                             savedChars;
+
+    /**
+     * Memo with up to 10,000 texts with 16 million characters in total.
+     */
+    public NormalizationMemo()
+    {
+        this(10_000, 16_000_000);
+    }
+
+    /**
+     * @param maxEntries Maximum number of memoized texts.
+     * @param maxWeight Maximum number of characters of all raw and normalized texts.
+     */
+    public NormalizationMemo(int maxEntries, long maxWeight)
+    {
+        this(maxEntries, maxWeight, NormalizationMemo::hash);
+    }
+
+    NormalizationMemo(int maxEntries, long maxWeight, ToLongFunction<String> hash)
+    {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.hash = hash;
+    }
+
+    /**
+     * Returns the memoized normalization of the text or normalizes it and memoizes the result. The text is
+     * normalized outside of the lock, so concurrent misses of the same text may normalize it twice.
+     *
+     * @param raw Text to normalize.
+     * @param normalizer Normalization of the text, which must not depend on anything but the text. It may
+     *            return <code>null</code>.
+     * @return The normalized text.
+     */
+    public String apply(String raw, Function<String, String> normalizer)
+    {
+        if (raw == null) {
+            return normalizer.apply(null);
+        }
+        Long key = hash.applyAsLong(raw);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.raw.equals(raw)) {
+                hits++;
+                savedChars += raw.length();
+                return entry.normalized;
+            }
+            misses++;
+        }
+        String normalized = normalizer.apply(raw);
+        put(key, new Entry(raw, normalized));
+        return normalized;
+    }
+
+    /**
+     * Removes all texts from the memo.
+     */
+    public synchronized void invalidateAll()
+    {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Number of memoized texts.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Number of characters of all raw and normalized texts.
+     */
+    public synchronized long weight()
+    {
+        return weight;
+    }
+
+    /**
+     * Snapshot of the hit, miss and eviction counts.
+     */
+    public synchronized CacheStats getStats()
+    {
+        return new CacheStats(hits, misses, evictions);
+    }
+
+    /**
+     * Number of bytes of raw text whose normalization was skipped by hits, counting two bytes per UTF-16 char.
+     */
+    public synchronized long getBytesSaved()
+    {
+        return savedChars * Character.BYTES;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "NormalizationMemo[entries=" + entries.size() + ", weight=" + weight + ", hitRate="
+                + String.format(Locale.ROOT, "%.2f", getStats().getHitRate()) + ", bytesSaved=" + getBytesSaved() + "]";
+    }
+
+    private synchronized void put(Long key, Entry entry)
+    {
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        Entry removed = entries.put(key, entry);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+        weight += entry.weight;
+        evict();
+    }
+
+    /**
+     * Evicts the least recently used entries until the memo is within its bounds.
+     */
+    private void evict()
+    {
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && iterator.hasNext()) {
+            weight -= iterator.next().getValue().weight;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * 64-bit hash of the chars of a text, mixing four chars per step like the body of MurmurHash3.
+     */
+    static long hash(CharSequence text)
+    {
+        int length = text.length();
+        long h = 0x9e3779b97f4a7c15L;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long k = text.charAt(i) | (long)text.charAt(i + 1) << 16 | (long)text.charAt(i + 2) << 32
+                    | (long)text.charAt(i + 3) << 48;
+            h ^= mix(k);
+            h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+        }
+        long k = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            k |= (long)text.charAt(i) << shift;
+        }
+        h ^= mix(k);
+        h ^= length;
+        return finish(h);
+    }
+
+    private static long mix(long k)
+    {
+        return Long.rotateLeft(k * C1, 31) * C2;
+    }
+
+    private static long finish(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Entry
+    {
+
+        private final String raw;
+        private final String normalized;
+        private final long   weight;
+
+        Entry(String raw, String normalized)
+        {
+            this.raw = raw;
+            this.normalized = normalized;
+            this.weight = raw.length() + (normalized == null ? 0 : normalized.length());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter;
+
+/**
+ * Classifies characters that are trimmed from lines, looked up in a bit table over all UTF-16 chars.
+ * <p>
+ * Whitespace are all control characters, all Unicode space separators (e.g. non-breaking and
+ * ideographic space), line and paragraph separators and the invisible zero width space, word joiner
+ * and byte order mark that editors leave in pasted text. Letters like umlauts are never whitespace.
+ */
+final class Whitespace
+{
+
+    private static final long[] TABLE = new long[(Character.MAX_VALUE + 1) >>> 6];
+
+    static {
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            if (Character.isISOControl(c) || Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                set((char)c);
+            }
+        }
+        set('\u180E'); // Mongolian vowel separator, a space separator in older Unicode versions
+        set('\u200B'); // zero width space
+        set('\u2060'); // word joiner
+        set('\uFEFF'); // byte order mark, zero width no-break space
+    }
+
+    private Whitespace()
+    {
+        // utility class
+    }
+
+    private static void set(char c)
+    {
+        TABLE[c >>> 6] |= 1L << c;
+    }
+
+    /**
+     * @return Whether the character is trimmed from the start and end of lines.
+     */
+    static boolean is(char c)
+    {
+        return (TABLE[c >>> 6] & (1L << c)) != 0;
+    }
+}
@@ -0,0 +1,798 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes Jira wiki markup in a single pass without building a syntax tree. Handles:
+ * <ul>
+ * <li>text effects <code>*bold*</code>, <code>_italic_</code>, <code>+underline+</code>, <code>-strike-</code>,
+ * <code>^superscript^</code>, <code>~subscript~</code> and <code>??citation??</code>, also within a line
+ * <li><code>{{monospace}}</code> and <code>{color:red}colored{color}</code>
+ * <li><code>{code}</code> and <code>{noformat}</code> blocks, whose content is kept as is
+ * <li>links <code>[text|url]</code>, of which only the text is kept
+ * <li>bullet lists <code>*</code>, <code>-</code> and numbered lists <code>#</code>
+ * <li>tables with a <code>||heading||</code> row
+ * </ul>
+ * Lines and blocks are joined like {@link MarkdownRemover} joins them with flexmark: lines of a block are
+ * separated by a line break, blocks like list items follow each other directly.
+ * <p>
+ * Markdown specific syntax like code spans, HTML, entities, escapes, quotes, headings made of <code>#</code>,
+ * nested lists and other macros is not handled, then {@link #strip(CharSequence, StringBuilder)} returns
+ * <code>false</code>. {@link #remove(CharSequence, StringBuilder)} instead parses only the paragraph or table cell
+ * with such markdown with flexmark, so code blocks, tables and the other paragraphs are stripped alike.
+ */
+final class WikiMarkupStripper
+{
+
+    private static final String CODE        = "{code}";
+    private static final String NOFORMAT    = "{noformat}";
+    private static final String COLOR       = "{color}";
+    private static final String EFFECTS     = "*_+-^~?";
+    /** First of the private use characters that stand for text flexmark must not read. */
+    private static final char   LITERAL     = '\uE000';
+    private static final int    LITERALS    = '\uF8FF' - LITERAL + 1;
+
+    private final CharSequence  text;
+    private final StringBuilder out;
+    /** Whether markdown that is not supported is parsed by flexmark instead of declining the text. */
+    private final boolean       fallback;
+    /** Whether a line has been written. */
+    private boolean             started;
+    /** Whether the next line continues the current block and is separated by a line break. */
+    private boolean             continued;
+    /** Start of the paragraph that is parsed by flexmark if it contains markdown that is not supported, or -1. */
+    private int                 paragraph = -1;
+    /** Length of the output before the paragraph. */
+    private int                 paragraphMark;
+    private boolean             paragraphStarted;
+    private boolean             paragraphContinued;
+    /** Text flexmark must not read, in the order of their characters. */
+    private List<CharSequence>  literals;
+
+    private WikiMarkupStripper(CharSequence text, StringBuilder out, boolean fallback)
+    {
+        this.text = text;
+        this.out = out;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Appends the text without markup.
+     *
+     * @return <code>false</code> if the text contains markup that is not supported; <code>out</code> is unchanged then.
+     */
+    static boolean strip(CharSequence text, StringBuilder out)
+    {
+        int mark = out.length();
+        if (new WikiMarkupStripper(text, out, false).lines()) {
+            return true;
+        }
+        out.setLength(mark);
+        return false;
+    }
+
+    /**
+     * Appends the text without markup, also if it contains markdown that is not supported. Only the lines of such a
+     * paragraph or table cell are parsed by flexmark, after removing the wiki markup flexmark does not know, so wiki
+     * markup is removed the same way whether there is other markdown in the text or not.
+     */
+    static void remove(CharSequence text, StringBuilder out)
+    {
+        new WikiMarkupStripper(text, out, true).lines();
+    }
+
+    private boolean lines()
+    {
+        int length = text.length();
+        // closing macro of the code block the lines belong to
+        String code = null;
+        boolean table = false;
+        for (int lineStart = 0;;) {
+            if (lineStart >= length) {
+                if (code == null) {
+                    return true;
+                }
+                if (!fallback) {
+                    return false;
+                }
+                // the macro of a code block that is not closed is no macro
+                code = null;
+                lineStart = markdown();
+                continue;
+            }
+            int line = lineStart;
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            lineStart = lineEnd + 1;
+            int start = line;
+            int end = lineEnd;
+            if (code != null) {
+                if (end > start && text.charAt(end - 1) == '\r') {
+                    end--;
+                }
+                if (equals(trimStart(start, end), trimEnd(start, end), code)) {
+                    code = null;
+                    paragraph = -1;
+                }
+                else {
+                    line();
+                    out.append(text, start, end);
+                }
+                continue;
+            }
+            start = trimStart(line, end);
+            end = trimEnd(start, end);
+            if (start == end) {
+                continued = false;
+                table = false;
+                paragraph = -1;
+                continue;
+            }
+            if (paragraph < 0) {
+                mark(line);
+            }
+            if (text.charAt(line) == '\t' || startsWith(line, end, "    ")) {
+                // indented code in markdown
+                if (!fallback) {
+                    return false;
+                }
+                lineStart = markdown();
+                continue;
+            }
+            char first = text.charAt(start);
+            if (first == '{' && (macro(start, end, CODE) || macro(start, end, NOFORMAT))) {
+                code = startsWith(start, end, "{code") ? CODE : NOFORMAT;
+                // parsed by flexmark if the block is not closed
+                mark(line);
+                continue;
+            }
+            if (first == '|' && (table || startsWith(start, end, "||"))) {
+                if (!table) {
+                    line();
+                    table = true;
+                }
+                paragraph = -1;
+                if (!cells(start, end)) {
+                    return false;
+                }
+                continue;
+            }
+            table = false;
+            int item = isParagraph(start, end) ? item(start, end) : -1;
+            if (item < 0) {
+                if (!fallback) {
+                    return false;
+                }
+                lineStart = markdown();
+                continue;
+            }
+            if (item > start) {
+                // list items are blocks of their own
+                continued = false;
+            }
+            line();
+            if (!inline(item, end)) {
+                if (!fallback) {
+                    return false;
+                }
+                lineStart = markdown();
+                continue;
+            }
+            if (first == '#' && item > start) {
+                // flexmark reads '#' as a heading, which is a single line block
+                continued = false;
+            }
+        }
+    }
+
+    /**
+     * Marks the start of a paragraph.
+     */
+    private void mark(int line)
+    {
+        paragraph = line;
+        paragraphMark = out.length();
+        paragraphStarted = started;
+        paragraphContinued = continued;
+    }
+
+    /**
+     * Replaces what has been written for the marked paragraph by the text flexmark reads from it.
+     *
+     * @return Start of the line after the paragraph.
+     */
+    private int markdown()
+    {
+        int end = paragraphEnd(paragraph);
+        String plain = parse(paragraph, end);
+        paragraph = -1;
+        out.setLength(paragraphMark);
+        started = paragraphStarted;
+        continued = paragraphContinued;
+        if (!plain.isEmpty()) {
+            line();
+            out.append(plain);
+        }
+        return end + 1;
+    }
+
+    /**
+     * @return End of the last line of the paragraph, which ends before a blank line, a code block or a table that are
+     *         not within fenced code.
+     */
+    private int paragraphEnd(int from)
+    {
+        int length = text.length();
+        // character of the fence of fenced code the lines belong to
+        char fence = 0;
+        int end = from;
+        for (int line = from; line < length;) {
+            int lineEnd = lineEnd(line, length);
+            int start = trimStart(line, lineEnd);
+            int trimmed = trimEnd(start, lineEnd);
+            if (line > from && fence == 0 && (start == trimmed || startsWith(start, trimmed, "||") || macro(start, trimmed, CODE)
+                                              || macro(start, trimmed, NOFORMAT))) {
+                break;
+            }
+            fence = fence(start, trimmed, fence);
+            end = lineEnd;
+            line = lineEnd + 1;
+        }
+        return end;
+    }
+
+    /**
+     * Parses lines with flexmark without the wiki markup it does not know or reads differently: the color macro is
+     * removed, of links only the text is kept and monospace content, URLs and delimiters within words are kept as
+     * they are.
+     */
+    private String parse(int from, int to)
+    {
+        literals = new ArrayList<>();
+        for (int i = from; i < to && literals != null; i++) {
+            if (text.charAt(i) >= LITERAL && text.charAt(i) < LITERAL + LITERALS) {
+                // the text would be mistaken for a literal
+                literals = null;
+            }
+        }
+        String plain = MarkdownRemover.parse(prepare(from, to));
+        if (literals == null || literals.isEmpty()) {
+            return plain;
+        }
+        StringBuilder restored = new StringBuilder(plain.length() + 16 * literals.size());
+        for (int i = 0; i < plain.length(); i++) {
+            char c = plain.charAt(i);
+            if (c >= LITERAL && c < LITERAL + literals.size()) {
+                restored.append(literals.get(c - LITERAL));
+            }
+            else {
+                restored.append(c);
+            }
+        }
+        return restored.toString();
+    }
+
+    /**
+     * Copies lines for flexmark. Code spans, fenced and indented code are copied as they are.
+     */
+    private CharSequence prepare(int from, int to)
+    {
+        StringBuilder markdown = new StringBuilder(to - from + 16);
+        char fence = 0;
+        for (int line = from; line < to;) {
+            int lineEnd = lineEnd(line, to);
+            int start = trimStart(line, lineEnd);
+            char opened = fence;
+            fence = fence(start, trimEnd(start, lineEnd), fence);
+            if (opened != 0 || fence != 0 || text.charAt(line) == '\t' || startsWith(line, lineEnd, "    ")) {
+                markdown.append(text, line, lineEnd);
+            }
+            else {
+                prepareInline(markdown, line, lineEnd);
+            }
+            if (lineEnd < to) {
+                markdown.append('\n');
+            }
+            line = lineEnd + 1;
+        }
+        return markdown;
+    }
+
+    private void prepareInline(StringBuilder markdown, int from, int to)
+    {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            char next = i + 1 < to ? text.charAt(i + 1) : 0;
+            if (c == '`') {
+                int run = i;
+                while (run < to && text.charAt(run) == '`') {
+                    run++;
+                }
+                int close = indexOf(text.subSequence(i, run).toString(), run, to);
+                int end = close < 0 ? run : close + run - i;
+                markdown.append(text, i, end);
+                i = end - 1;
+            }
+            else if (c == '\\' && isAsciiPunctuation(next)) {
+                markdown.append(c).append(next);
+                i++;
+            }
+            else if (c == '{' && next == '{' && indexOf("}}", i + 2, to) > i + 2) {
+                int close = indexOf("}}", i + 2, to);
+                literal(markdown, i + 2, close);
+                i = close + 1;
+            }
+            else if (c == '{' && (startsWith(i, to, "{color:") || startsWith(i, to, COLOR)) && indexOf('}', i, to) > 0) {
+                i = indexOf('}', i, to);
+            }
+            else if (c == '[') {
+                int close = indexOf(']', i + 1, to);
+                int pipe = close < 0 ? -1 : indexOf('|', i + 1, close);
+                if (close < 0 || (close + 1 < text.length() && "(:[".indexOf(text.charAt(close + 1)) >= 0)) {
+                    // no link or a markdown link
+                    markdown.append(c);
+                }
+                else if (pipe >= 0) {
+                    int start = trimStart(i + 1, pipe);
+                    int end = trimEnd(start, pipe);
+                    if (start == end) {
+                        int target = trimStart(pipe + 1, close);
+                        literal(markdown, target, trimEnd(target, close));
+                    }
+                    else {
+                        prepareInline(markdown, start, end);
+                    }
+                    i = close;
+                }
+                else {
+                    // brackets are text in Jira
+                    literal(markdown, i, i + 1);
+                }
+            }
+            else if (c == ':' && next == '/' && i + 2 < to && text.charAt(i + 2) == '/') {
+                int end = i;
+                while (end < to && !Whitespace.is(text.charAt(end))) {
+                    end++;
+                }
+                int scheme = i;
+                while (scheme > from && Character.isLetter(text.charAt(scheme - 1))) {
+                    scheme--;
+                }
+                if (scheme > from && (text.charAt(scheme - 1) == '<' || text.charAt(scheme - 1) == '(')) {
+                    // autolink or destination of a markdown link
+                    markdown.append(text, i, end);
+                }
+                else {
+                    literal(markdown, i, end);
+                }
+                i = end - 1;
+            }
+            else if (c == '*' && i > from && Character.isLetterOrDigit(text.charAt(i - 1)) && Character.isLetterOrDigit(next)) {
+                // no emphasis within a word
+                literal(markdown, i, i + 1);
+            }
+            else {
+                markdown.append(c);
+            }
+        }
+    }
+
+    /**
+     * Writes a character in place of text flexmark must not read.
+     */
+    private void literal(StringBuilder markdown, int from, int to)
+    {
+        if (literals == null || literals.size() == LITERALS) {
+            markdown.append(text, from, to);
+        }
+        else {
+            markdown.append((char)(LITERAL + literals.size()));
+            literals.add(text.subSequence(from, to));
+        }
+    }
+
+    /**
+     * @return Character of the fence of fenced code after the line, or 0 if the line is not within fenced code.
+     */
+    private char fence(int start, int end, char fence)
+    {
+        if (end - start < 3) {
+            return fence;
+        }
+        char first = text.charAt(start);
+        if ((first != '`' && first != '~') || text.charAt(start + 1) != first || text.charAt(start + 2) != first) {
+            return fence;
+        }
+        if (fence == 0) {
+            return first;
+        }
+        return fence == first ? 0 : fence;
+    }
+
+    private int lineEnd(int line, int to)
+    {
+        int end = indexOf('\n', line, to);
+        return end < 0 ? to : end;
+    }
+
+    /**
+     * Starts a line of output.
+     */
+    private void line()
+    {
+        if (started && continued) {
+            out.append('\n');
+        }
+        started = true;
+        continued = true;
+    }
+
+    /**
+     * @return Whether the line is no markdown block like a quote, a fenced code block, a thematic break or an
+     *         ordered list.
+     */
+    private boolean isParagraph(int start, int end)
+    {
+        char first = text.charAt(start);
+        if (first == '>' || startsWith(start, end, "```") || startsWith(start, end, "~~~")) {
+            return false;
+        }
+        boolean markers = true;
+        for (int i = start; i < end && markers; i++) {
+            markers = "-=*_#+ \t".indexOf(text.charAt(i)) >= 0;
+        }
+        if (markers) {
+            return false;
+        }
+        if (first == '+' && start + 1 < end && text.charAt(start + 1) == ' ') {
+            return false;
+        }
+        int digits = start;
+        while (digits < end && Character.isDigit(text.charAt(digits))) {
+            digits++;
+        }
+        return digits == start || digits + 1 >= end || (text.charAt(digits) != '.' && text.charAt(digits) != ')')
+               || text.charAt(digits + 1) != ' ';
+    }
+
+    /**
+     * @return Start of the text of a list item, <code>start</code> if the line is no list item or -1 for
+     *         unsupported lists.
+     */
+    private int item(int start, int end)
+    {
+        char first = text.charAt(start);
+        if (first != '*' && first != '-' && first != '#') {
+            return start;
+        }
+        int marker = start;
+        while (marker < end && "*-#".indexOf(text.charAt(marker)) >= 0) {
+            marker++;
+        }
+        if (marker == end || text.charAt(marker) != ' ') {
+            return start;
+        }
+        if (marker > start + 1) {
+            // nested lists and headings
+            return -1;
+        }
+        return trimStart(marker, end);
+    }
+
+    /**
+     * Writes the cells of a table row one after another.
+     */
+    private boolean cells(int start, int end)
+    {
+        int cell = start;
+        while (cell < end) {
+            while (cell < end && text.charAt(cell) == '|') {
+                cell++;
+            }
+            int cellEnd = cell;
+            while (cellEnd < end && text.charAt(cellEnd) != '|') {
+                if (text.charAt(cellEnd) == '[') {
+                    int close = indexOf(']', cellEnd + 1, end);
+                    cellEnd = close < 0 ? cellEnd : close;
+                }
+                cellEnd++;
+            }
+            int cellStart = trimStart(cell, cellEnd);
+            int contentEnd = trimEnd(cellStart, cellEnd);
+            int mark = out.length();
+            if (!inline(cellStart, contentEnd)) {
+                if (!fallback) {
+                    return false;
+                }
+                out.setLength(mark);
+                out.append(parse(cellStart, contentEnd));
+            }
+            cell = cellEnd;
+        }
+        return true;
+    }
+
+    /**
+     * Writes a line or a part of it without text effects.
+     */
+    private boolean inline(int from, int to)
+    {
+        // bits of the effects without closer in the rest of the range
+        int unclosed = 0;
+        int literal = from;
+        int i = from;
+        while (i < to) {
+            char c = text.charAt(i);
+            char next = i + 1 < to ? text.charAt(i + 1) : 0;
+            switch (c) {
+            case '`':
+                return false;
+            case '\\':
+                if (isAsciiPunctuation(next)) {
+                    return false;
+                }
+                break;
+            case '<':
+                if (Character.isLetter(next) || next == '/' || next == '!' || next == '?') {
+                    return false;
+                }
+                break;
+            case '&':
+                if (isEntity(i + 1, to)) {
+                    return false;
+                }
+                break;
+            case '!':
+                if (next == '[') {
+                    return false;
+                }
+                break;
+            case ':':
+                if (next == '/' && i + 2 < to && text.charAt(i + 2) == '/') {
+                    // keep URLs as they are
+                    while (i < to && !Whitespace.is(text.charAt(i))) {
+                        i++;
+                    }
+                    continue;
+                }
+                break;
+            case '[':
+                int close = indexOf(']', i + 1, to);
+                if (close < 0) {
+                    break;
+                }
+                if (close + 1 < text.length() && "(:[".indexOf(text.charAt(close + 1)) >= 0) {
+                    // markdown link
+                    return false;
+                }
+                int pipe = indexOf('|', i + 1, close);
+                if (pipe >= 0) {
+                    out.append(text, literal, i);
+                    int label = trimStart(i + 1, pipe);
+                    int labelEnd = trimEnd(label, pipe);
+                    if (label == labelEnd) {
+                        // a link without text shows its target
+                        int target = trimStart(pipe + 1, close);
+                        out.append(text, target, trimEnd(target, close));
+                    }
+                    else if (!inline(label, labelEnd)) {
+                        return false;
+                    }
+                    i = close + 1;
+                    literal = i;
+                    continue;
+                }
+                break;
+            case '{':
+                if (next == '{') {
+                    int monospace = indexOf("}}", i + 2, to);
+                    if (monospace > i + 2) {
+                        out.append(text, literal, i).append(text, i + 2, monospace);
+                        i = monospace + 2;
+                        literal = i;
+                        continue;
+                    }
+                    return false;
+                }
+                if (startsWith(i, to, "{color:")) {
+                    int content = indexOf('}', i, to) + 1;
+                    int color = indexOf(COLOR, content, to);
+                    if (content == 0 || color < 0) {
+                        return false;
+                    }
+                    out.append(text, literal, i);
+                    if (!inline(content, color)) {
+                        return false;
+                    }
+                    i = color + COLOR.length();
+                    literal = i;
+                    continue;
+                }
+                if (Character.isLetter(next)) {
+                    // other macro
+                    return false;
+                }
+                break;
+            case '*':
+            case '_':
+            case '+':
+            case '-':
+            case '^':
+            case '~':
+            case '?':
+                int delimiter = c == '?' ? 2 : 1;
+                if (c == '?' && next != '?') {
+                    break;
+                }
+                if (c != '?' && next == c) {
+                    if (c == '*' || c == '_') {
+                        // strong emphasis in markdown
+                        return false;
+                    }
+                    // a run like '--' is no effect
+                    while (i < to && text.charAt(i) == c) {
+                        i++;
+                    }
+                    continue;
+                }
+                int effect = 1 << EFFECTS.indexOf(c);
+                if ((unclosed & effect) != 0 || !canOpen(i, delimiter, to)) {
+                    break;
+                }
+                int closer = closer(c, delimiter, i + delimiter + 1, to);
+                if (closer < 0) {
+                    // no later delimiter of this kind can be closed in the range either
+                    unclosed |= effect;
+                    break;
+                }
+                out.append(text, literal, i);
+                if (!inline(i + delimiter, closer)) {
+                    return false;
+                }
+                i = closer + delimiter;
+                literal = i;
+                continue;
+            default:
+                break;
+            }
+            i++;
+        }
+        out.append(text, literal, to);
+        return true;
+    }
+
+    /**
+     * An effect starts at a word boundary and is followed by text. Superscript and subscript may start within
+     * a word, e.g. <code>H~2~O</code>.
+     */
+    private boolean canOpen(int i, int delimiter, int to)
+    {
+        char c = text.charAt(i);
+        if (i + delimiter >= to || Whitespace.is(text.charAt(i + delimiter))) {
+            return false;
+        }
+        return c == '^' || c == '~' || i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+    }
+
+    /**
+     * @return Position of the delimiter closing an effect, which follows text and ends at a word boundary, or -1.
+     */
+    private int closer(char c, int delimiter, int from, int to)
+    {
+        for (int j = from; j + delimiter <= to; j++) {
+            if (text.charAt(j) != c || (delimiter == 2 && text.charAt(j + 1) != c) || Whitespace.is(text.charAt(j - 1))) {
+                continue;
+            }
+            int after = j + delimiter;
+            if (c == '^' || c == '~' || after >= text.length() || !Character.isLetterOrDigit(text.charAt(after))) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Whether the line is a macro like <code>{code}</code> or <code>{code:java}</code>.
+     */
+    private boolean macro(int start, int end, String name)
+    {
+        int nameEnd = start + name.length() - 1;
+        if (!startsWith(start, end, name.substring(0, name.length() - 1)) || nameEnd >= end) {
+            return false;
+        }
+        char c = text.charAt(nameEnd);
+        return (c == '}' || c == ':') && indexOf('}', nameEnd, end) == end - 1;
+    }
+
+    private boolean isEntity(int from, int to)
+    {
+        for (int i = from; i < to && i < from + 32; i++) {
+            char c = text.charAt(i);
+            if (c == ';') {
+                return i > from;
+            }
+            if (c > 127 || (!Character.isLetterOrDigit(c) && c != '#')) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiPunctuation(char c)
+    {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+
+    private int trimStart(int start, int end)
+    {
+        while (start < end && Whitespace.is(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int start, int end)
+    {
+        while (end > start && Whitespace.is(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private boolean startsWith(int start, int end, String prefix)
+    {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equals(int start, int end, String string)
+    {
+        return end - start == string.length() && startsWith(start, end, string);
+    }
+
+    private int indexOf(char c, int from, int to)
+    {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(String string, int from, int to)
+    {
+        for (int i = from; i + string.length() <= to; i++) {
+            if (startsWith(i, to, string)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,7 +1,9 @@
 package de.intension.lizzy.adapter.flexmark;
 
+import com.vladsch.flexmark.parser.delimiter.DelimiterRun;
+
 /**
- * Processor to match string surrounded by '?'.
+ * Processor to match string surrounded by '??'.
  */
 public class CitationDelimiterProcessor
         extends DefaultDelimiterProcessor
@@ -18,4 +20,16 @@ public class CitationDelimiterProcessor
     {
         return '?';
     }
+
+    @Override
+    public int getMinLength()
+    {
+        return 2;
+    }
+
+    @Override
+    public int getDelimiterUse(DelimiterRun opener, DelimiterRun closer)
+    {
+        return opener.length() >= 2 && closer.length() >= 2 ? 2 : 0;
+    }
 }
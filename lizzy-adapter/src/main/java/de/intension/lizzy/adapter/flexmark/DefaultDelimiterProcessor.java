@@ -45,7 +45,7 @@ public class DefaultDelimiterProcessor
     @Override
     public void process(Delimiter opener, Delimiter closer, int delimitersUsed)
     {
-        // only needed for html parsing
+        opener.moveNodesBetweenDelimitersTo(new Effect(opener.getTailChars(delimitersUsed), closer.getLeadChars(delimitersUsed)), closer);
     }
 
     @Override
@@ -58,14 +58,15 @@ public class DefaultDelimiterProcessor
     public boolean canBeOpener(String before, String after, boolean leftFlanking, boolean rightFlanking, boolean beforeIsPunctuation,
                                boolean afterIsPunctuation, boolean beforeIsWhitespace, boolean afterIsWhiteSpace)
     {
-        return true;
+        // like in Jira an effect starts at a word boundary and is followed by text
+        return !afterIsWhiteSpace && !isWordCharacter(before);
     }
 
     @Override
     public boolean canBeCloser(String before, String after, boolean leftFlanking, boolean rightFlanking, boolean beforeIsPunctuation,
                                boolean afterIsPunctuation, boolean beforeIsWhitespace, boolean afterIsWhiteSpace)
     {
-        return true;
+        return !beforeIsWhitespace && !isWordCharacter(after);
     }
 
     @Override
@@ -73,4 +74,9 @@ public class DefaultDelimiterProcessor
     {
         return false;
     }
+
+    private static boolean isWordCharacter(String character)
+    {
+        return !character.isEmpty() && Character.isLetterOrDigit(character.charAt(0));
+    }
 }
@@ -0,0 +1,17 @@
+package de.intension.lizzy.adapter.flexmark;
+
+import com.vladsch.flexmark.ast.DelimitedNodeImpl;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
+
+/**
+ * Text between the delimiters of a Jira text effect. The delimiters are no text of their own.
+ */
+public class Effect
+        extends DelimitedNodeImpl
+{
+
+    public Effect(BasedSequence openingMarker, BasedSequence closingMarker)
+    {
+        super(openingMarker, BasedSequence.NULL, closingMarker);
+    }
+}
@@ -18,4 +18,19 @@ public class MonospaceDelimiterProcessor
     {
         return '}';
     }
+
+    @Override
+    public boolean canBeOpener(String before, String after, boolean leftFlanking, boolean rightFlanking, boolean beforeIsPunctuation,
+                               boolean afterIsPunctuation, boolean beforeIsWhitespace, boolean afterIsWhiteSpace)
+    {
+        // monospace may start within a word
+        return true;
+    }
+
+    @Override
+    public boolean canBeCloser(String before, String after, boolean leftFlanking, boolean rightFlanking, boolean beforeIsPunctuation,
+                               boolean afterIsPunctuation, boolean beforeIsWhitespace, boolean afterIsWhiteSpace)
+    {
+        return true;
+    }
 }
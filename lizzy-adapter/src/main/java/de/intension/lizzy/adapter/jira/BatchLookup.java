@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.Response.Status;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Looks up many issues by key with as few <code>key in (...)</code> searches as possible.
+ * <p>
+ * Keys are split into chunks limited by {@link #MAX_KEYS} and {@link #MAX_JQL_LENGTH}, so the
+ * query string stays well below common URL length limits. All chunks are requested at the same time.
+ * Jira rejects a whole query if one of its keys does not exist (400), so a rejected chunk is split
+ * in halves until the unknown keys are isolated.
+ */
+class BatchLookup
+{
+
+    /** Maximum number of keys per search; also the page size requested for it. */
+    static final int             MAX_KEYS       = 100;
+    /** Maximum length of a single JQL query before URL encoding. */
+    static final int             MAX_JQL_LENGTH = 2000;
+
+    private static final Pattern KEY_PATTERN    = Pattern.compile("[A-Z][A-Z0-9_]*-[0-9]+");
+
+    private final BiFunction<String, Integer, CompletableFuture<SearchPage>> searcher;
+    private final Function<List<Issue>, List<Issue>>                         mapper;
+
+    /**
+     * @param searcher Sends a JQL query with the given maximum number of results.
+     * @param mapper Creates the issues returned to callers from the raw issues of a search.
+     */
+    BatchLookup(BiFunction<String, Integer, CompletableFuture<SearchPage>> searcher, Function<List<Issue>, List<Issue>> mapper)
+    {
+        this.searcher = searcher;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Retrieves the issues for all keys, waiting for the searches without being interrupted.
+     *
+     * @return Issues by requested key in request order; keys without a matching issue are mapped to <code>null</code>.
+     */
+    Map<String, Issue> lookup(Collection<String> keys)
+    {
+        return Promises.join(lookupAsync(keys, Runnable::run));
+    }
+
+    /**
+     * Retrieves the issues for all keys like {@link #lookup(Collection)} without blocking the calling thread,
+     * so that neither the caller nor a pool thread waits for the searches.
+     *
+     * @param executor Executor to create the issues on once all searches completed.
+     * @return Future completing with the issues by requested key in request order, or exceptionally with
+     *         the first error that is no rejected key.
+     */
+    CompletableFuture<Map<String, Issue>> lookupAsync(Collection<String> keys, Executor executor)
+    {
+        List<SearchPage> pages = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        chunk(validKeys(keys), MAX_KEYS, MAX_JQL_LENGTH).forEach(chunk -> pending.add(collect(chunk, pages)));
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()])).thenApplyAsync(done -> {
+            Map<String, Issue> found = new HashMap<>();
+            synchronized (pages) {
+                pages.forEach(page -> mapper.apply(page.getIssues()).forEach(issue -> found.put(normalize(issue.getKey()), issue)));
+            }
+            return inRequestOrder(keys, found);
+        }, executor);
+    }
+
+    /**
+     * Adds the result of a chunk to the pages, bisecting the chunk if Jira rejected one of its keys.
+     */
+    private CompletableFuture<Void> collect(List<String> chunk, List<SearchPage> pages)
+    {
+        CompletableFuture<SearchPage> page;
+        try {
+            page = searcher.apply(toJql(chunk), chunk.size());
+        } catch (RuntimeException e) {
+            page = new CompletableFuture<>();
+            page.completeExceptionally(e);
+        }
+        return Promises.compose(page, (result, error) -> {
+            if (error == null) {
+                pages.add(result);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (!isBadRequest(error)) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(error);
+                return failed;
+            }
+            if (chunk.size() == 1) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.allOf(collect(chunk.subList(0, chunk.size() / 2), pages),
+                                           collect(chunk.subList(chunk.size() / 2, chunk.size()), pages));
+        });
+    }
+
+    /**
+     * Normalizes the keys, dropping duplicates and keys Jira would reject as invalid.
+     */
+    static Set<String> validKeys(Collection<String> keys)
+    {
+        Set<String> valid = new LinkedHashSet<>();
+        for (String key : keys) {
+            String normalized = normalize(key);
+            if (isKey(normalized)) {
+                valid.add(normalized);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Maps every requested key to the issue found for it, in request order.
+     */
+    static Map<String, Issue> inRequestOrder(Collection<String> keys, Map<String, Issue> found)
+    {
+        Map<String, Issue> result = new LinkedHashMap<>();
+        keys.forEach(key -> result.put(key, found.get(normalize(key))));
+        return result;
+    }
+
+    /**
+     * Splits the keys into chunks of at most <code>maxKeys</code> keys whose JQL query does not exceed <code>maxLength</code>.
+     */
+    static List<List<String>> chunk(Collection<String> keys, int maxKeys, int maxLength)
+    {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>();
+        int length = "key in ()".length();
+        for (String key : keys) {
+            int added = key.length() + (chunk.isEmpty() ? 0 : 1);
+            if (!chunk.isEmpty() && (chunk.size() >= maxKeys || length + added > maxLength)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                length = "key in ()".length();
+                added = key.length();
+            }
+            chunk.add(key);
+            length += added;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static String toJql(List<String> keys)
+    {
+        return "key in (" + String.join(",", keys) + ")";
+    }
+
+    static String normalize(String key)
+    {
+        return key == null ? "" : key.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether a normalized key is a valid issue key, which Jira accepts in a JQL query.
+     */
+    static boolean isKey(String normalized)
+    {
+        return KEY_PATTERN.matcher(normalized).matches();
+    }
+
+    static boolean isBadRequest(Throwable t)
+    {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RestClientException) {
+                RestClientException rce = (RestClientException)cause;
+                return rce.getStatusCode().isPresent() && rce.getStatusCode().get() == Status.BAD_REQUEST.getStatusCode();
+            }
+        }
+        return false;
+    }
+}
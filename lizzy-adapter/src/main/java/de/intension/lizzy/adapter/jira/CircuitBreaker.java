@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe circuit breaker guarding the requests to a single Jira server.
+ * <p>
+ * After {@link #setFailureThreshold(int) a number of consecutive failures} the breaker opens and
+ * requests fail fast with a {@link CircuitOpenException} instead of waiting for timeouts of a dead
+ * server. Once {@link #setOpenDuration(long, TimeUnit) the open duration} elapsed, a single trial
+ * request is let through; its success closes the breaker, its failure opens it again.
+ * <p>
+ * Only errors indicating an unhealthy server count as failures, i.e. status 5xx and failed or timed out
+ * connections. Failures of requests admitted before the breaker opened do not extend the open duration.
+ */
+public class CircuitBreaker
+{
+
+    /**
+     * State of a circuit breaker.
+     */
+    public enum State
+    {
+        /** Requests pass. */
+        CLOSED,
+        /** Requests fail fast. */
+        OPEN,
+        /** A single trial request passes. */
+        HALF_OPEN
+    }
+
+    private static final Map<String, CircuitBreaker> BREAKERS         = new ConcurrentHashMap<>();
+
+    private final String                             host;
+
+    private int                                      failureThreshold = 5;
+    private long                                     openDuration     = TimeUnit.SECONDS.toNanos(30);
+
+    private State                                    state            = State.CLOSED;
+    private int                                      failures;
+    private long                                     openedAt;
+    private boolean                                  trialPending;
+
+    public CircuitBreaker(String host)
+    {
+        this.host = host;
+    }
+
+    /**
+     * Returns the breaker shared by all adapters of the server.
+     */
+    public static CircuitBreaker forHost(URI uri)
+    {
+        String host = uri.getHost() + (uri.getPort() < 0 ? "" : ":" + uri.getPort());
+        return BREAKERS.computeIfAbsent(host, CircuitBreaker::new);
+    }
+
+    /**
+     * Admits a request or fails fast while the breaker is open.
+     *
+     * @throws CircuitOpenException If the breaker is open or a trial request is pending.
+     */
+    public synchronized void acquire()
+    {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDuration) {
+            state = State.HALF_OPEN;
+            trialPending = false;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && trialPending)) {
+            throw new CircuitOpenException(host);
+        }
+        if (state == State.HALF_OPEN) {
+            trialPending = true;
+        }
+    }
+
+    /**
+     * Records the outcome of an admitted request.
+     *
+     * @param failure Error of the request or <code>null</code>. Cancelled requests are ignored.
+     */
+    public synchronized void record(Throwable failure)
+    {
+        if (RetryPolicy.isAbandoned(failure)) {
+            trialPending = false;
+            return;
+        }
+        if (!isFailure(failure)) {
+            state = State.CLOSED;
+            failures = 0;
+            trialPending = false;
+            return;
+        }
+        if (state == State.OPEN) {
+            // late failure of a request admitted before the breaker opened
+            return;
+        }
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            trialPending = false;
+        }
+    }
+
+    /**
+     * Whether an error indicates an unhealthy server.
+     */
+    static boolean isFailure(Throwable failure)
+    {
+        if (failure == null || failure instanceof CircuitOpenException || RetryPolicy.isAbandoned(failure)) {
+            return false;
+        }
+        int status = RequestScheduler.statusOf(failure);
+        return status >= 500 || (status < 0 && RetryPolicy.isConnectionFailure(failure));
+    }
+
+    public synchronized State getState()
+    {
+        return state;
+    }
+
+    /**
+     * Sets the number of consecutive failures opening the breaker. Defaults to five.
+     */
+    public synchronized CircuitBreaker setFailureThreshold(int failureThreshold)
+    {
+        this.failureThreshold = failureThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the time requests fail fast before a trial request is let through. Defaults to 30 seconds.
+     */
+    public synchronized CircuitBreaker setOpenDuration(long duration, TimeUnit unit)
+    {
+        this.openDuration = unit.toNanos(duration);
+        return this;
+    }
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+/**
+ * Thrown instead of sending a request while the {@link CircuitBreaker} of the server is open.
+ */
+public class CircuitOpenException
+    extends RestClientException
+{
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String host)
+    {
+        super("Jira server " + host + " is unavailable, requests are suspended", null);
+    }
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import de.intension.lizzy.adapter.AdfConverter;
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Issue decoded by a {@link SearchResponseDecoder}, telling which of its texts were converted from documents
+ * by the {@link AdfConverter} and are plain text already, so they are not normalized again.
+ */
+final class DecodedIssue extends Issue
+{
+
+    private boolean plainDescription;
+    private boolean plainAcceptanceCriteria;
+
+    /**
+     * Whether the description of the issue is plain text already.
+     */
+    static boolean isPlainDescription(Issue issue)
+    {
+        return issue instanceof DecodedIssue && ((DecodedIssue)issue).plainDescription;
+    }
+
+    /**
+     * Whether the acceptance criteria of the issue are plain text already.
+     */
+    static boolean isPlainAcceptanceCriteria(Issue issue)
+    {
+        return issue instanceof DecodedIssue && ((DecodedIssue)issue).plainAcceptanceCriteria;
+    }
+
+    DecodedIssue setPlainDescription(String description)
+    {
+        setDescription(description);
+        plainDescription = true;
+        return this;
+    }
+
+    DecodedIssue setPlainAcceptanceCriteria(String acceptanceCriteria)
+    {
+        setAcceptanceCriteria(acceptanceCriteria);
+        plainAcceptanceCriteria = true;
+        return this;
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Set of issue fields requested from Jira searches.
+ * <p>
+ * Without a projection Jira serializes every navigable field of every issue, although only the
+ * summary and description are mapped to an {@link de.intension.lizzy.adapter.Issue}. The Jira client
+ * cannot parse an issue without the fields in {@link #REQUIRED_FIELDS}, so these are always requested.
+ */
+public final class FieldProjection
+{
+
+    /**
+     * Fields the Jira client needs to parse an issue.
+     */
+    public static final Set<String>      REQUIRED_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(
+            Arrays.asList("summary", "issuetype", "created", "updated", "project", "status")));
+
+    private static final FieldProjection SUMMARY_ONLY    = new FieldProjection(false, null);
+    private static final FieldProjection DEFAULT         = new FieldProjection(true, null);
+
+    private final boolean                description;
+    private final String                 acceptanceCriteriaField;
+    private final Set<String>            fields;
+
+    private FieldProjection(boolean description, String acceptanceCriteriaField)
+    {
+        this.description = description;
+        this.acceptanceCriteriaField = acceptanceCriteriaField;
+        Set<String> set = new LinkedHashSet<>(REQUIRED_FIELDS);
+        if (description) {
+            set.add("description");
+        }
+        if (acceptanceCriteriaField != null) {
+            set.add(acceptanceCriteriaField);
+        }
+        this.fields = Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Requests key, summary and description.
+     */
+    public static FieldProjection defaults()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Requests key and summary only, e.g. to list search results.
+     * The description of issues fetched with this projection is <code>null</code>.
+     */
+    public static FieldProjection summaryOnly()
+    {
+        return SUMMARY_ONLY;
+    }
+
+    /**
+     * Additionally requests the custom field holding the acceptance criteria.
+     *
+     * @param fieldId Id of the custom field, e.g. <code>customfield_10100</code>.
+     */
+    public FieldProjection withAcceptanceCriteria(String fieldId)
+    {
+        return new FieldProjection(description, fieldId);
+    }
+
+    /**
+     * Whether the description is requested.
+     */
+    public boolean hasDescription()
+    {
+        return description;
+    }
+
+    /**
+     * Id of the custom field holding the acceptance criteria or <code>null</code>.
+     */
+    public String getAcceptanceCriteriaField()
+    {
+        return acceptanceCriteriaField;
+    }
+
+    /**
+     * Names of all requested fields.
+     */
+    public Set<String> getFields()
+    {
+        return fields;
+    }
+}
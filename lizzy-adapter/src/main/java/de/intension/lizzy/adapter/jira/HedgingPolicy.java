@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe policy sending a duplicate of a slow request to cut the tail latency of interactive lookups.
+ * <p>
+ * Once a request did not answer within {@link #setPercentile(double) a percentile} of the latencies of
+ * recent requests after it was dispatched, a second request is sent. The first response wins and the other
+ * request is cancelled. Duplicates are limited by {@link #setBudget(double) a budget}, a fraction of all
+ * requests, so hedging adds little load even while the server is slow for everybody. No request is hedged
+ * until {@link #MIN_SAMPLES} latencies were observed.
+ */
+public class HedgingPolicy
+{
+
+    /** Number of observed latencies required before requests are hedged. */
+    public static final int                       MIN_SAMPLES    = 20;
+
+    private static final ScheduledExecutorService TIMER          = createTimer();
+    private static final long                     NOT_DISPATCHED = Long.MIN_VALUE;
+
+    private final long[]                          latencies      = new long[128];
+    private int                                   samples;
+    private int                                   next;
+
+    private double                                percentile     = 0.95;
+    private double                                budget         = 0.05;
+    private long                                  minDelay       = TimeUnit.MILLISECONDS.toNanos(10);
+    private double                                credits;
+    private long                                  hedged;
+
+    /**
+     * Sends a request and, if it is slow, a duplicate of it.
+     *
+     * @param request Sends a request; called a second time for the duplicate.
+     * @return Future completing with the first successful response, or with the last error if all requests failed.
+     *         Cancelling it cancels all requests.
+     */
+    <T> CompletableFuture<T> hedge(Supplier<CompletableFuture<T>> request)
+    {
+        return hedge(dispatched -> {
+            dispatched.run();
+            return request.get();
+        });
+    }
+
+    /**
+     * Sends a request and, if it is slow, a duplicate of it. The latency of a request is measured from its
+     * dispatch, so time spent waiting for admission, e.g. by a {@link RequestScheduler}, neither delays
+     * the duplicate nor counts as latency of the server.
+     *
+     * @param request Sends a request and runs the given callback when it is dispatched to the server, again for
+     *            every retry; called a second time for the duplicate.
+     * @return Future completing with the first successful response, or with the last error if all requests failed.
+     *         Cancelling it cancels all requests.
+     */
+    <T> CompletableFuture<T> hedge(Function<Runnable, CompletableFuture<T>> request)
+    {
+        long delay = admit();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean dispatched = new AtomicBoolean();
+        attempt(request, result, pending, () -> {
+            if (delay < 0 || !dispatched.compareAndSet(false, true)) {
+                return;
+            }
+            ScheduledFuture<?> timer = TIMER.schedule(() -> {
+                if (!result.isDone() && tryHedge(pending)) {
+                    attempt(request, result, pending, () -> {
+                        // the duplicate is not hedged again
+                    });
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+            result.whenComplete((value, error) -> timer.cancel(false));
+        });
+        return result;
+    }
+
+    /**
+     * Sends a request for the result. Besides successful requests, the latency of a request that timed out
+     * or lost against another one is recorded as the time it took until then, so slow requests are not missing
+     * from the latencies the delay is derived from.
+     */
+    private <T> void attempt(Function<Runnable, CompletableFuture<T>> request, CompletableFuture<T> result, AtomicInteger pending,
+                             Runnable onDispatch)
+    {
+        AtomicLong dispatched = new AtomicLong(NOT_DISPATCHED);
+        CompletableFuture<T> response;
+        try {
+            response = request.apply(() -> {
+                dispatched.set(System.nanoTime());
+                onDispatch.run();
+            });
+        } catch (RuntimeException | Error e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        CompletableFuture<T> sent = response;
+        sent.whenComplete((value, error) -> {
+            if (error == null) {
+                record(dispatched);
+                result.complete(value);
+                return;
+            }
+            if (isTimeout(error)) {
+                record(dispatched);
+            }
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (!sent.isDone()) {
+                if (error == null) {
+                    // lost against the other request, it would have taken at least that long
+                    record(dispatched);
+                }
+                sent.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * Counts a request towards the budget.
+     *
+     * @return Nanoseconds to wait before hedging the request or <code>-1</code> if it must not be hedged.
+     */
+    private synchronized long admit()
+    {
+        credits = Math.min(credits + budget, Math.max(1, budget * latencies.length));
+        return getDelay(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes a credit for a duplicate. The duplicate is pending before it is {@link #getHedgedCount() counted},
+     * so a failure of the slow request does not fail the result once the duplicate was counted.
+     */
+    private synchronized boolean tryHedge(AtomicInteger pending)
+    {
+        if (credits < 1) {
+            return false;
+        }
+        credits--;
+        pending.incrementAndGet();
+        hedged++;
+        return true;
+    }
+
+    private void record(AtomicLong dispatched)
+    {
+        long at = dispatched.get();
+        if (at != NOT_DISPATCHED) {
+            record(System.nanoTime() - at);
+        }
+    }
+
+    private synchronized void record(long latency)
+    {
+        latencies[next] = latency;
+        next = (next + 1) % latencies.length;
+        samples = Math.min(samples + 1, latencies.length);
+    }
+
+    /**
+     * Time after its dispatch a request is hedged, derived from the recent latencies.
+     *
+     * @return The time or <code>-1</code> as long as too few latencies were observed.
+     */
+    public synchronized long getDelay(TimeUnit unit)
+    {
+        if (samples < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        int index = (int)Math.ceil(percentile * samples) - 1;
+        return unit.convert(Math.max(minDelay, sorted[Math.max(0, Math.min(samples - 1, index))]), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Whether a request failed because it did not answer in time.
+     */
+    private static boolean isTimeout(Throwable failure)
+    {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of duplicates sent so far.
+     */
+    public synchronized long getHedgedCount()
+    {
+        return hedged;
+    }
+
+    /**
+     * Sets the percentile of recent latencies after which a duplicate is sent. Defaults to 0.95.
+     */
+    public synchronized HedgingPolicy setPercentile(double percentile)
+    {
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of duplicates as fraction of all requests. Defaults to 0.05, i.e. at most
+     * five percent extra requests.
+     */
+    public synchronized HedgingPolicy setBudget(double budget)
+    {
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * Sets the minimum time to wait before sending a duplicate. Defaults to 10 milliseconds.
+     */
+    public synchronized HedgingPolicy setMinDelay(long delay, TimeUnit unit)
+    {
+        this.minDelay = unit.toNanos(delay);
+        return this;
+    }
+
+    private static ScheduledExecutorService createTimer()
+    {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "lizzy-jira-hedging");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
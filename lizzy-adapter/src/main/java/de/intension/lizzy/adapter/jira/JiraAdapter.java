@@ -16,21 +16,39 @@
  ******************************************************************************/
 package de.intension.lizzy.adapter.jira;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import com.atlassian.jira.rest.client.api.JiraRestClient;
 import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
-import com.atlassian.jira.rest.client.api.domain.SearchResult;
 import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
-import com.atlassian.util.concurrent.Promise;
 
 import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.IssueCache;
+import de.intension.lizzy.adapter.IssueStore;
 import de.intension.lizzy.adapter.MarkdownRemover;
 import de.intension.lizzy.adapter.MultilineTrimmer;
+import de.intension.lizzy.adapter.NormalizationMemo;
+import de.intension.lizzy.adapter.jira.RequestScheduler.Priority;
 
 /**
  * Adapter for the Jira Rest API.
@@ -40,17 +58,40 @@ import de.intension.lizzy.adapter.MultilineTrimmer;
  * <pre>
  * <code>new JiraAdapter("https://jira.atlassian.com/", "admin", "Password123!").getIssue("INT-42")</code>
  * </pre>
+ * <p>
+ * Instances are thread-safe. Jira clients are taken from a {@link JiraClientPool}, so creating
+ * several adapters for the same server and user shares one warm HTTP client. Concurrent requests of
+ * an adapter for the same issue or the same search share a single request to Jira.
  * 
  * @author <a href="mailto:ikuba@intension.de">Ingo Kuba</a>
  */
 public class JiraAdapter
 {
 
-    private final URI             uri;
-    private final String          username;
-    private final String          password;
+    private static final JiraRestClientFactory DEFAULT_FACTORY = new AsynchronousJiraRestClientFactory();
+
+    private final URI                          uri;
+    private final String                       username;
+    private final String                       password;
+
+    private volatile JiraRestClientFactory     factory         = DEFAULT_FACTORY;
+    private volatile JiraClientPool            clientPool      = JiraClientPool.getDefault();
+    private volatile Executor                  executor        = ForkJoinPool.commonPool();
+    private volatile FieldProjection           fieldProjection = FieldProjection.defaults();
+    private volatile IssueCache                issueCache;
+    private volatile IssueStore                issueStore;
+    private volatile NormalizationMemo         normalizationMemo;
+    private volatile RequestScheduler          scheduler       = RequestScheduler.getDefault();
+    private volatile RetryPolicy               retryPolicy     = RetryPolicy.defaults();
+    private volatile CircuitBreaker            circuitBreaker;
+    private volatile MicroBatcher<String, Issue> microBatcher;
+    private volatile HedgingPolicy             hedgingPolicy;
+    private volatile Priority                  priority        = Priority.INTERACTIVE;
+    private volatile JiraTransport             transport;
+    private volatile TransportSettings         transportSettings;
 
-    private JiraRestClientFactory factory;
+    private final SingleFlight<String, Issue>       issueFlights    = new SingleFlight<>();
+    private final SingleFlight<String, List<Issue>> searchFlights   = new SingleFlight<>();
 
     public JiraAdapter(String uri, String username, String password)
         throws URISyntaxException
@@ -58,6 +99,7 @@ public class JiraAdapter
         this.uri = getURI(uri);
         this.username = username;
         this.password = password;
+        this.circuitBreaker = CircuitBreaker.forHost(this.uri);
     }
 
     /**
@@ -80,7 +122,161 @@ public class JiraAdapter
     public Issue getIssue(String ticketId)
         throws InterruptedException, ExecutionException
     {
-        return createIssue(getJiraClient().getIssueClient().getIssue(ticketId).get());
+        String key = issueKey(ticketId);
+        IssueCache cache = issueCache;
+        FieldProjection projection = fieldProjection;
+        Issue cached = cache == null ? null : covering(cache.get(key), projection);
+        if (cached != null) {
+            return cached;
+        }
+        Issue local = peekLocal(key, projection);
+        Issue fallback = local;
+        if (local != null && local.getUpdated() != null) {
+            try {
+                Issue current = renewOrDiscard(local, currentUpdated(key));
+                if (current != null) {
+                    return current;
+                }
+                fallback = null;
+            } catch (RuntimeException e) {
+                if (isUnreachable(e)) {
+                    return local;
+                }
+                // fetch the whole issue instead
+            }
+        }
+        try {
+            return issueFlights.execute(key, () -> {
+                Issue batched = getBatched(ticketId);
+                if (batched != null) {
+                    return batched;
+                }
+                return createIssue(await(fetchIssue(ticketId)));
+            });
+        } catch (CircuitOpenException e) {
+            if (fallback != null) {
+                return fallback;
+            }
+            throw new ExecutionException(e);
+        } catch (ExecutionException e) {
+            if (fallback != null && isUnreachable(e)) {
+                return fallback;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up an issue with the {@link #setMicroBatching(long, TimeUnit, int) micro-batcher}.
+     *
+     * @return The issue or <code>null</code> if micro-batching is disabled or the batch search did not find it.
+     */
+    private Issue getBatched(String ticketId)
+        throws InterruptedException, ExecutionException
+    {
+        MicroBatcher<String, Issue> batcher = microBatcher;
+        if (batcher == null) {
+            return null;
+        }
+        return await(batcher.submit(issueKey(ticketId)));
+    }
+
+    /**
+     * Waits for an asynchronous request, throwing a {@link CircuitOpenException} like a blocking request.
+     */
+    private static <T> T await(CompletableFuture<T> request)
+        throws InterruptedException, ExecutionException
+    {
+        try {
+            return request.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CircuitOpenException) {
+                throw (CircuitOpenException)e.getCause();
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            request.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Asks Jira for the update timestamp of an issue, which only requires a search for its summary fields.
+     *
+     * @return The timestamp or <code>null</code> if the issue was not found.
+     */
+    private Instant currentUpdated(String ticketId)
+    {
+        for (Issue issue : searchRaw("key = " + ticketId, 1, FieldProjection.summaryOnly())) {
+            return issue.getUpdated();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the local version of an issue regardless of its age: an expired cached issue or else the stored one.
+     * It must only be served once its update timestamp was checked or if Jira cannot be reached.
+     *
+     * @return The issue or <code>null</code> if it is neither cached nor stored for the projection.
+     */
+    private Issue peekLocal(String ticketId, FieldProjection projection)
+    {
+        IssueCache cache = issueCache;
+        Issue cached = cache == null ? null : covering(cache.peek(ticketId), projection);
+        if (cached != null) {
+            return cached;
+        }
+        IssueStore store = issueStore;
+        try {
+            return store == null ? null : covering(store.get(ticketId), projection);
+        } catch (IOException e) {
+            // ask Jira instead
+            return null;
+        }
+    }
+
+    /**
+     * Renews a local issue in the cache if it has the current update timestamp,
+     * otherwise removes it from cache and store so that it is not served again.
+     *
+     * @param updated Current update timestamp of the issue as seen by Jira, <code>null</code> if it was not found.
+     * @return The renewed issue or <code>null</code> if it changed.
+     */
+    private Issue renewOrDiscard(Issue local, Instant updated)
+    {
+        IssueCache cache = issueCache;
+        if (local.getUpdated().equals(updated)) {
+            if (cache != null) {
+                cache.put(local);
+            }
+            return local;
+        }
+        if (cache != null) {
+            cache.invalidate(local.getKey());
+        }
+        IssueStore store = issueStore;
+        if (store != null) {
+            try {
+                store.remove(local.getKey());
+            } catch (IOException e) {
+                // the stale issue is replaced once the current one is fetched
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a request failed because Jira cannot be reached, i.e. the circuit breaker is open
+     * or the connection failed, so that a local issue is better than none.
+     */
+    private static boolean isUnreachable(Throwable failure)
+    {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CircuitOpenException) {
+                return true;
+            }
+        }
+        return RetryPolicy.isConnectionFailure(failure);
     }
 
     /**
@@ -90,10 +286,259 @@ public class JiraAdapter
      * @param maxResult Maximum number of issues to be returned.
      */
     public List<Issue> getIssues(String search, int maxResult)
+    {
+        return getIssues(search, maxResult, fieldProjection);
+    }
+
+    /**
+     * Retrieves a issues via a filter string, requesting only the fields of the projection.
+     * Use {@link FieldProjection#summaryOnly()} to list search results.
+     *
+     * @param search Jql filter string.
+     * @param maxResult Maximum number of issues to be returned.
+     * @param projection Fields to request.
+     */
+    public List<Issue> getIssues(String search, int maxResult, FieldProjection projection)
+    {
+        String filter = autocompleteMissingId(search);
+        Set<String> fields = projection.getFields();
+        List<Issue> issues = searchFlights.claim(searchKey(filter, maxResult, fields),
+                                                 () -> createIssues(searchRaw(filter, maxResult, projection), projection));
+        return new ArrayList<>(issues);
+    }
+
+    /**
+     * Searches the raw field values of the first issues matching a JQL query.
+     */
+    private List<Issue> searchRaw(String jql, int maxResult, FieldProjection projection)
+    {
+        JiraTransport lean = transport();
+        return requests().executeUninterruptibly(() -> Promises.join(lean.search(jql, 0, maxResult, projection))).getIssues();
+    }
+
+    /**
+     * Searches the raw field values of the first issues matching a JQL query without blocking the calling thread.
+     */
+    private CompletableFuture<List<Issue>> searchRawAsync(String jql, int maxResult, FieldProjection projection)
+    {
+        JiraTransport lean = transport();
+        CompletableFuture<SearchPage> page = requests().submit(() -> lean.search(jql, 0, maxResult, projection));
+        return Promises.cancelling(page, page.thenApply(SearchPage::getIssues));
+    }
+
+    /**
+     * Retrieves an issue without blocking the calling thread.
+     * The description is normalized on the {@link #setExecutor(Executor) executor}.
+     *
+     * @param ticketId Ticket id of the issue.
+     * @return Future completing with the issue or exceptionally with the error of the request.
+     */
+    public CompletableFuture<Issue> getIssueAsync(String ticketId)
+    {
+        String key = issueKey(ticketId);
+        IssueCache cache = issueCache;
+        FieldProjection projection = fieldProjection;
+        Issue cached = cache == null ? null : covering(cache.get(key), projection);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        Issue local = peekLocal(key, projection);
+        if (local == null || local.getUpdated() == null) {
+            return requestIssueAsync(ticketId, local);
+        }
+        CompletableFuture<List<Issue>> check = searchRawAsync("key = " + key, 1, FieldProjection.summaryOnly());
+        return Promises.compose(check, (found, error) -> {
+            if (error != null) {
+                return isUnreachable(error) ? CompletableFuture.completedFuture(local) : requestIssueAsync(ticketId, local);
+            }
+            Issue current = renewOrDiscard(local, found.isEmpty() ? null : found.get(0).getUpdated());
+            return current != null ? CompletableFuture.completedFuture(current) : requestIssueAsync(ticketId, null);
+        });
+    }
+
+    /**
+     * Requests an issue from Jira without blocking the calling thread.
+     *
+     * @param fallback Local version of the issue to complete with if Jira cannot be reached, or <code>null</code>.
+     */
+    private CompletableFuture<Issue> requestIssueAsync(String ticketId, Issue fallback)
+    {
+        CompletableFuture<Issue> issue = issueFlights.submit(issueKey(ticketId), () -> {
+            MicroBatcher<String, Issue> batcher = microBatcher;
+            if (batcher == null) {
+                return requestIssue(ticketId);
+            }
+            CompletableFuture<Issue> batched = batcher.submit(issueKey(ticketId));
+            return Promises.cancelling(batched, batched.thenCompose(found -> found != null
+                    ? CompletableFuture.completedFuture(found)
+                    : requestIssue(ticketId)));
+        });
+        CompletableFuture<Issue> result = new CompletableFuture<>();
+        issue.whenComplete((value, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause == null) {
+                result.complete(value);
+            }
+            else if (fallback != null && isUnreachable(cause)) {
+                result.complete(fallback);
+            }
+            else {
+                result.completeExceptionally(cause);
+            }
+        });
+        return Promises.cancelling(issue, result);
+    }
+
+    private CompletableFuture<Issue> requestIssue(String ticketId)
+    {
+        CompletableFuture<Issue> request = fetchIssue(ticketId);
+        return Promises.cancelling(request, request.thenApplyAsync(this::createIssue, executor));
+    }
+
+    /**
+     * Requests the raw field values of an issue, {@link #setHedgingPolicy(HedgingPolicy) hedged} if a policy is set.
+     */
+    private CompletableFuture<Issue> fetchIssue(String ticketId)
+    {
+        ResilientRequests requests = requests();
+        JiraTransport lean = transport();
+        FieldProjection projection = fieldProjection;
+        Function<Runnable, CompletableFuture<Issue>> request = dispatched -> requests.submit(() -> {
+            dispatched.run();
+            return lean.getIssue(ticketId, projection);
+        });
+        HedgingPolicy hedging = hedgingPolicy;
+        return hedging == null ? request.apply(() -> {
+            // latencies are only measured for hedging
+        }) : hedging.hedge(request);
+    }
+
+    /**
+     * Retrieves issues via a filter string without blocking the calling thread.
+     * The descriptions are normalized on the {@link #setExecutor(Executor) executor}.
+     *
+     * @param search Jql filter string.
+     * @param maxResult Maximum number of issues to be returned.
+     * @return Future completing with the issues or exceptionally with the error of the request.
+     */
+    public CompletableFuture<List<Issue>> searchAsync(String search, int maxResult)
+    {
+        String filter = autocompleteMissingId(search);
+        FieldProjection projection = fieldProjection;
+        CompletableFuture<List<Issue>> issues = searchFlights.submit(searchKey(filter, maxResult, projection.getFields()), () -> {
+            CompletableFuture<List<Issue>> request = searchRawAsync(filter, maxResult, projection);
+            return Promises.cancelling(request, request.thenApplyAsync(this::createIssues, executor));
+        });
+        return Promises.cancelling(issues, issues.thenApply(ArrayList::new));
+    }
+
+    /**
+     * Lazily streams all issues matching a filter string.
+     * Pages are requested one after another while the stream is consumed, so memory stays flat
+     * regardless of the number of matching issues. Close the stream to cancel a prefetched page.
+     *
+     * @param search Jql filter string.
+     */
+    public Stream<Issue> streamIssues(String search)
+    {
+        return streamIssues(search, new PageSizer());
+    }
+
+    /**
+     * Lazily streams all issues matching a filter string.
+     *
+     * @param search Jql filter string.
+     * @param pageSizer Determines the number of issues requested per page.
+     * @see #streamIssues(String)
+     */
+    public Stream<Issue> streamIssues(String search, PageSizer pageSizer)
+    {
+        return streamIssues(search, pageSizer, fieldProjection);
+    }
+
+    /**
+     * Lazily streams all issues matching a filter string, requesting only the fields of the projection.
+     *
+     * @param search Jql filter string.
+     * @param pageSizer Determines the number of issues requested per page.
+     * @param projection Fields to request.
+     * @see #streamIssues(String)
+     */
+    public Stream<Issue> streamIssues(String search, PageSizer pageSizer, FieldProjection projection)
+    {
+        String filter = autocompleteMissingId(search);
+        JiraTransport lean = transport();
+        ResilientRequests requests = requests(Priority.BULK);
+        PagedIssueIterator iterator = new PagedIssueIterator(
+                (startAt, maxResults, consumer) -> requests.submit(() -> lean.search(filter, startAt, maxResults, projection, consumer)),
+                raw -> createIssue(raw, projection), pageSizer);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(iterator::close);
+    }
+
+    /**
+     * Retrieves all issues matching a filter string by requesting the pages in parallel.
+     * Intended for exports of large result sets; a failing page is retried on its own with the
+     * {@link #setRetryPolicy(RetryPolicy) retry policy}.
+     *
+     * @param search Jql filter string.
+     * @param concurrency Maximum number of pages requested at the same time.
+     * @return All matching issues in search order.
+     */
+    public List<Issue> getAllIssues(String search, int concurrency)
+        throws InterruptedException
+    {
+        return getAllIssues(search, concurrency, 100);
+    }
+
+    /**
+     * Retrieves all issues matching a filter string by requesting the pages in parallel.
+     *
+     * @param search Jql filter string.
+     * @param concurrency Maximum number of pages requested at the same time.
+     * @param pageSize Number of issues per page.
+     * @see #getAllIssues(String, int)
+     */
+    public List<Issue> getAllIssues(String search, int concurrency, int pageSize)
+        throws InterruptedException
     {
         String filter = autocompleteMissingId(search);
-        Promise<SearchResult> searchResult = getJiraClient().getSearchClient().searchJql(filter, maxResult, 0, null);
-        return createIssues(searchResult.claim().getIssues());
+        JiraTransport lean = transport();
+        FieldProjection projection = fieldProjection;
+        ResilientRequests requests = requests(Priority.BULK);
+        return new ParallelSearch((startAt, maxResults) -> requests.submit(() -> lean.search(filter, startAt, maxResults, projection)),
+                raw -> createIssues(raw, projection), concurrency, pageSize).fetchAll();
+    }
+
+    /**
+     * Retrieves the issues for many ticket ids with a few <code>key in (...)</code> searches
+     * instead of one request per ticket.
+     *
+     * @param ticketIds Ticket ids of the issues.
+     * @return Issues by ticket id in the iteration order of <code>ticketIds</code>.
+     *         Ticket ids without a matching issue are contained with a <code>null</code> value.
+     */
+    public Map<String, Issue> getIssues(Collection<String> ticketIds)
+    {
+        return batchLookup().lookup(ticketIds);
+    }
+
+    /**
+     * Looks up many issues like {@link #getIssues(Collection)} without blocking the calling thread:
+     * the searches are sent through the request scheduler and only the issues are created on the {@link #executor}.
+     */
+    private CompletableFuture<Map<String, Issue>> getIssuesAsync(Collection<String> ticketIds)
+    {
+        return batchLookup().lookupAsync(ticketIds, executor);
+    }
+
+    private BatchLookup batchLookup()
+    {
+        JiraTransport lean = transport();
+        FieldProjection projection = fieldProjection;
+        ResilientRequests requests = requests();
+        return new BatchLookup((jql, maxResults) -> requests.submit(() -> lean.search(jql, 0, maxResults, projection)),
+                raw -> createIssues(raw, projection));
     }
 
     private String autocompleteMissingId(String string)
@@ -105,12 +550,74 @@ public class JiraAdapter
     }
 
     /**
-     * Creates a Jira client with the given {@link #uri}, {@link #username} and {@link #password}.
+     * Key of an issue in the {@link #issueCache}, the {@link #issueStore} and of concurrent lookups,
+     * as Jira ignores the case of issue keys.
+     */
+    private static String issueKey(String ticketId)
+    {
+        return ticketId.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Key of concurrent identical searches. Whitespace outside of quoted values does not change the
+     * meaning of a JQL query, so it is collapsed.
      */
-    private JiraRestClient getJiraClient()
+    static String searchKey(String jql, int maxResult, Set<String> fields)
     {
-        JiraRestClientFactory factory = getFactory();
-        return factory.createWithBasicHttpAuthentication(uri, username, password);
+        StringBuilder key = new StringBuilder(jql.length() + 32);
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < jql.length(); i++) {
+            char c = jql.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                space = key.length() > 0;
+                continue;
+            }
+            if (space) {
+                key.append(' ');
+                space = false;
+            }
+            key.append(c);
+            if (quote != 0 && c == '\\' && i + 1 < jql.length()) {
+                key.append(jql.charAt(++i));
+            }
+            else if (c == quote) {
+                quote = 0;
+            }
+            else if (quote == 0 && (c == '"' || c == '\'')) {
+                quote = c;
+            }
+        }
+        key.append('|').append(maxResult).append('|').append(fields == null ? "" : new TreeSet<>(fields));
+        return key.toString();
+    }
+
+    private ResilientRequests requests()
+    {
+        return requests(priority);
+    }
+
+    private ResilientRequests requests(Priority priority)
+    {
+        return new ResilientRequests(scheduler, retryPolicy, circuitBreaker, priority);
+    }
+
+    /**
+     * Returns the {@link #setTransport(JiraTransport) transport set}, the pooled transport for the
+     * {@link #setTransportSettings(TransportSettings) transport settings} or else the transport sending
+     * requests with the pooled Jira REST client.
+     */
+    private JiraTransport transport()
+    {
+        JiraTransport lean = transport;
+        if (lean != null) {
+            return lean;
+        }
+        TransportSettings settings = transportSettings;
+        if (settings != null) {
+            return clientPool.transport(settings, uri, username, password);
+        }
+        return clientPool.transport(factory, uri, username, password);
     }
 
     /**
@@ -122,30 +629,138 @@ public class JiraAdapter
         return new URI(uri);
     }
 
-    private Issue createIssue(com.atlassian.jira.rest.client.api.domain.Issue jiraIssue)
+    /**
+     * Creates an issue from raw field values requested with the {@link #fieldProjection}.
+     *
+     * @return The issue or <code>null</code> if the raw issue is <code>null</code>, i.e. it was not found.
+     */
+    private Issue createIssue(Issue raw)
+    {
+        return raw == null ? null : createIssue(raw, fieldProjection);
+    }
+
+    /**
+     * Creates an issue from the raw field values of a Jira issue, e.g. as decoded by a {@link SearchResponseDecoder}.
+     * A cached or stored issue of the same version, requested with the same acceptance criteria field, is returned
+     * instead of normalizing the description again. Texts converted from documents of Jira Cloud are plain text already and taken as they are.
+     *
+     * @param projection Fields the raw issue was requested with. Only issues with description are cached and stored.
+     */
+    private Issue createIssue(Issue raw, FieldProjection projection)
     {
-        if (jiraIssue == null) {
+        Instant updated = raw.getUpdated();
+        String key = raw.getKey() == null ? null : issueKey(raw.getKey());
+        IssueCache cache = issueCache;
+        Issue cached = cache == null ? null : covering(cache.get(key, updated), projection);
+        if (cached != null) {
+            return cached;
+        }
+        Issue stored = load(key, updated, projection);
+        if (stored != null) {
+            return stored;
+        }
+        String description = DecodedIssue.isPlainDescription(raw) ? raw.getDescription() : prepare(raw.getDescription());
+        String acceptanceCriteria = DecodedIssue.isPlainAcceptanceCriteria(raw) ? raw.getAcceptanceCriteria()
+                : prepare(raw.getAcceptanceCriteria());
+        Issue issue = new Issue().setKey(key).setTitle(raw.getTitle()).setDescription(description)
+            .setAcceptanceCriteria(acceptanceCriteria).setAcceptanceCriteriaField(projection.getAcceptanceCriteriaField()).setUpdated(updated);
+        if (projection.hasDescription()) {
+            if (cache != null) {
+                cache.put(issue);
+            }
+            store(issue);
+        }
+        else {
+            evictStale(issue);
+        }
+        return issue;
+    }
+
+    /**
+     * Loads an issue from the {@link #issueStore} if it has the given update timestamp and adds it to the {@link #issueCache}.
+     *
+     * @return The stored issue or <code>null</code> if it is not stored in that version or for the projection,
+     *         or if the store cannot be read.
+     */
+    private Issue load(String ticketId, Instant updated, FieldProjection projection)
+    {
+        IssueStore store = issueStore;
+        try {
+            if (store == null || updated == null || !updated.equals(store.getUpdated(ticketId))) {
+                return null;
+            }
+            Issue stored = covering(store.get(ticketId), projection);
+            IssueCache cache = issueCache;
+            if (stored != null && cache != null) {
+                cache.put(stored);
+            }
+            return stored;
+        } catch (IOException e) {
+            // ask Jira instead
             return null;
         }
-        return new Issue().setKey(jiraIssue.getKey()).setTitle(jiraIssue.getSummary()).setDescription(prepare(jiraIssue.getDescription()));
     }
 
-    private List<Issue> createIssues(Iterable<com.atlassian.jira.rest.client.api.domain.Issue> jiraIssues)
+    /**
+     * Returns a cached or stored issue if it can be served for the projection, i.e. if it was requested with the
+     * acceptance criteria field of the projection. Otherwise its acceptance criteria would be missing.
+     *
+     * @return The issue or <code>null</code> if it does not cover the projection.
+     */
+    private static Issue covering(Issue local, FieldProjection projection)
+    {
+        String field = projection.getAcceptanceCriteriaField();
+        return local == null || field == null || field.equals(local.getAcceptanceCriteriaField()) ? local : null;
+    }
+
+    /**
+     * Writes an issue through to the {@link #issueStore}. A failed write only costs a request later on.
+     */
+    private void store(Issue issue)
     {
-        List<Issue> issues = new ArrayList<>();
-        if (jiraIssues == null) {
-            return issues;
+        IssueStore store = issueStore;
+        if (store == null) {
+            return;
+        }
+        try {
+            store.put(issue);
+        } catch (IOException e) {
+            // the issue is requested again next time
         }
-        jiraIssues.forEach(issue -> issues.add(createIssue(issue)));
-        return issues;
     }
 
-    private JiraRestClientFactory getFactory()
+    /**
+     * Removes a stored issue which was changed since, as seen by a search without descriptions.
+     */
+    private void evictStale(Issue issue)
     {
-        if (factory == null) {
-            factory = new AsynchronousJiraRestClientFactory();
+        IssueStore store = issueStore;
+        if (store == null || issue.getUpdated() == null) {
+            return;
+        }
+        try {
+            Instant stored = store.getUpdated(issue.getKey());
+            if (stored != null && !stored.equals(issue.getUpdated())) {
+                store.remove(issue.getKey());
+            }
+        } catch (IOException e) {
+            // the stale issue is replaced when it is requested next time
         }
-        return factory;
+    }
+
+    /**
+     * Creates issues from raw field values requested with the {@link #fieldProjection}, see {@link #createIssue(Issue, FieldProjection)}.
+     */
+    private List<Issue> createIssues(List<Issue> raw)
+    {
+        return createIssues(raw, fieldProjection);
+    }
+
+    private List<Issue> createIssues(List<Issue> raw, FieldProjection projection)
+    {
+        List<Issue> issues = new ArrayList<>(raw.size());
+        raw.forEach(issue -> issues.add(createIssue(issue, projection)));
+        return issues;
     }
 
     public JiraAdapter setFactory(JiraRestClientFactory factory)
@@ -154,9 +769,190 @@ public class JiraAdapter
         return this;
     }
 
+    /**
+     * Sets the pool to take Jira clients from. Defaults to {@link JiraClientPool#getDefault()}.
+     */
+    public JiraAdapter setClientPool(JiraClientPool clientPool)
+    {
+        this.clientPool = clientPool;
+        return this;
+    }
+
+    /**
+     * Sets the fields to request with searches. Defaults to {@link FieldProjection#defaults()}.
+     * Without a {@link #setTransport(JiraTransport) transport}, single issues retrieved via {@link #getIssue(String)}
+     * always contain all fields, as the issue endpoint of the Jira client does not support a field selection.
+     */
+    public JiraAdapter setFieldProjection(FieldProjection fieldProjection)
+    {
+        this.fieldProjection = fieldProjection;
+        return this;
+    }
+
+    /**
+     * Sets the cache to look up issues in before requesting them from Jira. No cache is used by default.
+     * A cache must only be shared by adapters of the same server. Cached and stored issues are only served
+     * for a {@link #setFieldProjection(FieldProjection) projection} with the acceptance criteria field they were
+     * requested with.
+     */
+    public JiraAdapter setIssueCache(IssueCache issueCache)
+    {
+        this.issueCache = issueCache;
+        return this;
+    }
+
+    /**
+     * Sets the persistent store to look up issues in after the {@link #setIssueCache(IssueCache) cache}
+     * and before requesting them from Jira. Issues retrieved from Jira are written through to the store,
+     * so it serves them after a restart or while the server is unreachable. No store is used by default.
+     * A store must only be used by adapters of the same server.
+     */
+    public JiraAdapter setIssueStore(IssueStore issueStore)
+    {
+        this.issueStore = issueStore;
+        return this;
+    }
+
+    /**
+     * Sets the memo of normalized descriptions and acceptance criteria, so texts that did not change since
+     * they were last retrieved are not trimmed and stripped of markdown again. No memo is used by default.
+     * A memo can be shared by adapters of different servers.
+     */
+    public JiraAdapter setNormalizationMemo(NormalizationMemo normalizationMemo)
+    {
+        this.normalizationMemo = normalizationMemo;
+        return this;
+    }
+
+    /**
+     * @return The memo of normalized texts or <code>null</code> if none is used.
+     */
+    public NormalizationMemo getNormalizationMemo()
+    {
+        return normalizationMemo;
+    }
+
+    /**
+     * Sets the scheduler admitting requests to Jira. Defaults to {@link RequestScheduler#getDefault()}.
+     * Adapters of different servers should use different schedulers, as each server has its own capacity.
+     */
+    public JiraAdapter setRequestScheduler(RequestScheduler scheduler)
+    {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    /**
+     * Sets the priority of the requests of this adapter. Defaults to {@link Priority#INTERACTIVE};
+     * adapters of background jobs should use {@link Priority#BULK}. Paged searches via
+     * {@link #streamIssues(String)} and {@link #getAllIssues(String, int)} are always bulk requests.
+     */
+    public JiraAdapter setPriority(Priority priority)
+    {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Sets the transport to send requests with instead of the Jira REST client of the
+     * {@link #setClientPool(JiraClientPool) client pool}, which is the default. The adapter does not close the transport.
+     *
+     * @param transport Transport for the server of this adapter or <code>null</code> to use the Jira client.
+     */
+    public JiraAdapter setTransport(JiraTransport transport)
+    {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Sets compression, connection and TLS settings for requests to Jira. The adapter then sends its
+     * requests with an {@link UrlConnectionTransport} built with these settings and taken from the
+     * {@link #setClientPool(JiraClientPool) client pool}, as the Jira REST client always uses fixed settings.
+     * A {@link #setTransport(JiraTransport) transport set explicitly} takes precedence.
+     *
+     * @param transportSettings Settings or <code>null</code> to use the Jira REST client, which is the default.
+     */
+    public JiraAdapter setTransportSettings(TransportSettings transportSettings)
+    {
+        this.transportSettings = transportSettings == null ? null : transportSettings.copy();
+        return this;
+    }
+
+    /**
+     * Sets the policy to retry failed requests with. Defaults to {@link RetryPolicy#defaults()}.
+     * Use {@link RetryPolicy#none()} where a quick failure is preferable to a late answer.
+     */
+    public JiraAdapter setRetryPolicy(RetryPolicy retryPolicy)
+    {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the circuit breaker guarding the requests. Defaults to the breaker
+     * {@link CircuitBreaker#forHost(URI) shared by all adapters of the server}. While it is open,
+     * requests fail with a {@link CircuitOpenException}, or return an issue from the
+     * {@link #setIssueCache(IssueCache) cache} regardless of its age.
+     */
+    public JiraAdapter setCircuitBreaker(CircuitBreaker circuitBreaker)
+    {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Enables merging concurrent lookups of different issues into one <code>key in (...)</code> search.
+     * A lookup waits up to the window for further lookups, unless the batch reaches its maximum size before.
+     * Issues the search does not find are requested on their own, so callers receive the same errors as
+     * without batching. The searches are sent asynchronously through the request scheduler, so no thread waits
+     * for them; only the issues are created on the {@link #setExecutor(Executor) executor}.
+     * Disabled by default; a window of zero disables it again.
+     *
+     * @param window Time to wait for further lookups, a few milliseconds.
+     * @param maxBatchSize Number of lookups sending a batch at once, at most 100.
+     */
+    public JiraAdapter setMicroBatching(long window, TimeUnit unit, int maxBatchSize)
+    {
+        this.microBatcher = window <= 0 ? null
+                : new MicroBatcher<>(this::getIssuesAsync, unit.toNanos(window), Math.min(maxBatchSize, BatchLookup.MAX_KEYS));
+        return this;
+    }
+
+    /**
+     * Sets the policy to send a duplicate of a slow issue lookup, cutting the tail latency of interactive
+     * {@link #getIssue(String)} and {@link #getIssueAsync(String)} calls. Searches are never hedged.
+     * No requests are hedged by default; adapters of background jobs should keep it that way.
+     */
+    public JiraAdapter setHedgingPolicy(HedgingPolicy hedgingPolicy)
+    {
+        this.hedgingPolicy = hedgingPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the executor to normalize issue descriptions of asynchronous requests on.
+     * Defaults to {@link ForkJoinPool#commonPool()}.
+     */
+    public JiraAdapter setExecutor(Executor executor)
+    {
+        this.executor = executor;
+        return this;
+    }
+
     private String prepare(String string)
     {
-        String trimmed = MultilineTrimmer.trim(string);
+        if (string == null || string.isEmpty()) {
+            return null;
+        }
+        NormalizationMemo memo = normalizationMemo;
+        return memo == null ? normalize(string) : memo.apply(string, JiraAdapter::normalize);
+    }
+
+    private static String normalize(String string)
+    {
+        // trim into a buffer that markdown removal parses in place, so the text is not copied in between
+        StringBuilder trimmed = MultilineTrimmer.trim(string, new StringBuilder(string.length()));
         return MarkdownRemover.toPlainText(trimmed);
     }
 }
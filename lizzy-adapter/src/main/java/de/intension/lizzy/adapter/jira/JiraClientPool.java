@@ -0,0 +1,460 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Thread-safe pool of {@link JiraRestClient} instances keyed by factory, server {@link URI} and user,
+ * and of {@link UrlConnectionTransport} instances keyed by {@link TransportSettings}, server and user.
+ * <p>
+ * Every client owns its own HTTP connection pool and worker threads, so creating one per request
+ * wastes TLS handshakes and leaks sockets. The pool hands out the same warm client for the same key,
+ * replaces it when the password changed and removes clients that have not been used for
+ * {@link #setIdleTimeout(long, TimeUnit) the idle timeout} or that exceed {@link #setMaxClients(int) the maximum pool size}.
+ * <p>
+ * Clients are handed out as {@link Lease leases} which have to be closed once the requests sent with
+ * the client completed. A leased client never counts as idle, and a client removed from the pool
+ * is only closed once its last lease was closed.
+ */
+public class JiraClientPool
+    implements Closeable
+{
+
+    private static final JiraClientPool          DEFAULT       = new JiraClientPool();
+
+    private final Map<PoolKey, PooledClient>     clients       = new ConcurrentHashMap<>();
+
+    private volatile int                         maxClients    = 8;
+    private volatile long                        idleTimeout   = TimeUnit.MINUTES.toNanos(5);
+
+    private ScheduledExecutorService             evictor;
+
+    /**
+     * Pool shared by all {@link JiraAdapter} instances that were not given an own pool.
+     */
+    public static JiraClientPool getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Leases the pooled client for the given server and user or creates a new one with the factory.
+     * A pooled client whose password differs from the given one is replaced.
+     *
+     * @param factory Factory to create a missing client with.
+     * @param uri URI of the Jira server.
+     * @param username Name of the user to authenticate.
+     * @param password Password of the user.
+     */
+    public Lease<JiraRestClient> lease(JiraRestClientFactory factory, URI uri, String username, String password)
+    {
+        return lease(new PoolKey(factory, uri, username), password, () -> factory.createWithBasicHttpAuthentication(uri, username, password),
+                     JiraRestClient.class);
+    }
+
+    /**
+     * Returns a transport sending every request with the pooled client for the given server and user,
+     * which stays leased until the request completed. Closing the returned transport has no effect.
+     *
+     * @see #lease(JiraRestClientFactory, URI, String, String)
+     */
+    public JiraTransport transport(JiraRestClientFactory factory, URI uri, String username, String password)
+    {
+        return new RestClientTransport(() -> lease(factory, uri, username, password));
+    }
+
+    /**
+     * Leases the pooled transport for the given settings, server and user or creates a new one.
+     * A pooled transport whose password differs from the given one is replaced.
+     *
+     * @param settings Settings to create a missing transport with.
+     * @param uri URI of the Jira server.
+     * @param username Name of the user to authenticate.
+     * @param password Password of the user.
+     */
+    public Lease<UrlConnectionTransport> leaseTransport(TransportSettings settings, URI uri, String username, String password)
+    {
+        TransportSettings snapshot = settings.copy();
+        return lease(new PoolKey(snapshot, uri, username), password, () -> new UrlConnectionTransport(uri, username, password, snapshot),
+                     UrlConnectionTransport.class);
+    }
+
+    /**
+     * Returns a transport sending every request with the pooled transport for the given settings, server and user,
+     * which stays leased until the request completed. Closing the returned transport has no effect.
+     *
+     * @see #leaseTransport(TransportSettings, URI, String, String)
+     */
+    public JiraTransport transport(TransportSettings settings, URI uri, String username, String password)
+    {
+        TransportSettings snapshot = settings.copy();
+        return new LeasingTransport(() -> leaseTransport(snapshot, uri, username, password));
+    }
+
+    private <T> Lease<T> lease(PoolKey poolKey, String password, Supplier<Closeable> create, Class<T> type)
+    {
+        startEvictor();
+        List<PooledClient> stale = new ArrayList<>(1);
+        PooledClient pooled = clients.compute(poolKey, (key, existing) -> {
+            if (existing != null && Objects.equals(existing.password, password)) {
+                existing.lease();
+                return existing;
+            }
+            if (existing != null) {
+                stale.add(existing);
+            }
+            PooledClient created = new PooledClient(create.get(), password);
+            created.lease();
+            return created;
+        });
+        stale.forEach(PooledClient::retire);
+        evictOverflow();
+        return new Lease<>(pooled, type.cast(pooled.client));
+    }
+
+    /**
+     * Removes all clients that are not leased and have been idle for longer than the idle timeout,
+     * and closes them.
+     */
+    public void evictIdle()
+    {
+        long now = System.nanoTime();
+        List<PooledClient> idle = new ArrayList<>();
+        for (PoolKey key : clients.keySet()) {
+            clients.computeIfPresent(key, (k, pooled) -> {
+                if (!pooled.isIdle(now, idleTimeout)) {
+                    return pooled;
+                }
+                idle.add(pooled);
+                return null;
+            });
+        }
+        idle.forEach(PooledClient::retire);
+    }
+
+    /**
+     * Removes the least recently used clients until the pool is within {@link #getMaxClients()}.
+     * They are closed once they are no longer leased.
+     */
+    private void evictOverflow()
+    {
+        while (clients.size() > maxClients) {
+            Map.Entry<PoolKey, PooledClient> eldest = null;
+            for (Map.Entry<PoolKey, PooledClient> entry : clients.entrySet()) {
+                if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (clients.remove(eldest.getKey(), eldest.getValue())) {
+                eldest.getValue().retire();
+            }
+        }
+    }
+
+    /**
+     * Number of currently pooled clients.
+     */
+    public int size()
+    {
+        return clients.size();
+    }
+
+    /**
+     * Maximum number of clients kept open at the same time.
+     */
+    public int getMaxClients()
+    {
+        return maxClients;
+    }
+
+    public JiraClientPool setMaxClients(int maxClients)
+    {
+        if (maxClients < 1) {
+            throw new IllegalArgumentException("Pool must hold at least one client: " + maxClients);
+        }
+        this.maxClients = maxClients;
+        evictOverflow();
+        return this;
+    }
+
+    /**
+     * Time after which an unused client gets closed.
+     */
+    public long getIdleTimeout(TimeUnit unit)
+    {
+        return unit.convert(idleTimeout, TimeUnit.NANOSECONDS);
+    }
+
+    public JiraClientPool setIdleTimeout(long timeout, TimeUnit unit)
+    {
+        this.idleTimeout = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Removes all pooled clients and closes them once they are no longer leased.
+     * The pool stays usable and creates new clients on demand.
+     */
+    @Override
+    public void close()
+    {
+        clients.keySet().forEach(key -> {
+            PooledClient pooled = clients.remove(key);
+            if (pooled != null) {
+                pooled.retire();
+            }
+        });
+    }
+
+    /**
+     * Starts a daemon thread which periodically calls {@link #evictIdle()}.
+     */
+    private synchronized void startEvictor()
+    {
+        if (evictor != null) {
+            return;
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "lizzy-jira-client-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::evictIdle, 30, 30, TimeUnit.SECONDS);
+        evictor = executor;
+    }
+
+    private static void closeQuietly(Closeable client)
+    {
+        try {
+            client.close();
+        } catch (IOException | RuntimeException e) {
+            // client is discarded anyway
+        }
+    }
+
+    /**
+     * Identifies a client by the factory that created it, the server and the user,
+     * or a transport by its settings, the server and the user.
+     */
+    private static final class PoolKey
+    {
+
+        private final JiraRestClientFactory factory;
+        private final TransportSettings     settings;
+        private final URI                   uri;
+        private final String                username;
+
+        PoolKey(JiraRestClientFactory factory, URI uri, String username)
+        {
+            this.factory = factory;
+            this.settings = null;
+            this.uri = uri;
+            this.username = username;
+        }
+
+        PoolKey(TransportSettings settings, URI uri, String username)
+        {
+            this.factory = null;
+            this.settings = settings;
+            this.uri = uri;
+            this.username = username;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof PoolKey)) {
+                return false;
+            }
+            PoolKey other = (PoolKey)obj;
+            return factory == other.factory && Objects.equals(settings, other.settings) && uri.equals(other.uri)
+                    && Objects.equals(username, other.username);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(System.identityHashCode(factory), settings, uri, username);
+        }
+    }
+
+    /**
+     * Client handed out by the pool. Close the lease once the requests sent with the client completed;
+     * closing it more than once has no effect.
+     *
+     * @param <T> Type of the client.
+     */
+    public static final class Lease<T>
+        implements AutoCloseable
+    {
+
+        private final PooledClient  pooled;
+        private final T             client;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(PooledClient pooled, T client)
+        {
+            this.pooled = pooled;
+            this.client = client;
+        }
+
+        public T get()
+        {
+            return client;
+        }
+
+        @Override
+        public void close()
+        {
+            if (released.compareAndSet(false, true)) {
+                pooled.release();
+            }
+        }
+    }
+
+    /**
+     * Transport leasing a pooled transport for every request.
+     */
+    private static final class LeasingTransport
+        implements JiraTransport
+    {
+
+        private final Supplier<Lease<UrlConnectionTransport>> leases;
+
+        LeasingTransport(Supplier<Lease<UrlConnectionTransport>> leases)
+        {
+            this.leases = leases;
+        }
+
+        @Override
+        public CompletableFuture<Issue> getIssue(String key, FieldProjection projection)
+        {
+            return send(transport -> transport.getIssue(key, projection));
+        }
+
+        @Override
+        public CompletableFuture<SearchPage> search(String jql, int startAt, int maxResults, FieldProjection projection)
+        {
+            return send(transport -> transport.search(jql, startAt, maxResults, projection));
+        }
+
+        @Override
+        public CompletableFuture<Integer> search(String jql, int startAt, int maxResults, FieldProjection projection,
+                                                 Consumer<Issue> consumer)
+        {
+            return send(transport -> transport.search(jql, startAt, maxResults, projection, consumer));
+        }
+
+        private <T> CompletableFuture<T> send(Function<UrlConnectionTransport, CompletableFuture<T>> request)
+        {
+            Lease<UrlConnectionTransport> lease = leases.get();
+            CompletableFuture<T> response;
+            try {
+                response = request.apply(lease.get());
+            } catch (RuntimeException e) {
+                lease.close();
+                throw e;
+            }
+            response.whenComplete((result, error) -> lease.close());
+            return response;
+        }
+
+        @Override
+        public void close()
+        {
+            // the pool closes the leased transports
+        }
+    }
+
+    /**
+     * Pooled client with the number of its leases. A client removed from the pool is closed
+     * as soon as it is no longer leased.
+     */
+    private static final class PooledClient
+    {
+
+        private final Closeable      client;
+        private final String         password;
+        private volatile long        lastUsed = System.nanoTime();
+        private int                  leases;
+        private boolean              retired;
+
+        PooledClient(Closeable client, String password)
+        {
+            this.client = client;
+            this.password = password;
+        }
+
+        synchronized void lease()
+        {
+            leases++;
+            lastUsed = System.nanoTime();
+        }
+
+        void release()
+        {
+            synchronized (this) {
+                leases--;
+                lastUsed = System.nanoTime();
+                if (!retired || leases > 0) {
+                    return;
+                }
+            }
+            closeQuietly(client);
+        }
+
+        void retire()
+        {
+            synchronized (this) {
+                retired = true;
+                if (leases > 0) {
+                    return;
+                }
+            }
+            closeQuietly(client);
+        }
+
+        synchronized boolean isIdle(long now, long idleTimeout)
+        {
+            return leases == 0 && now - lastUsed > idleTimeout;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.IssueStore;
+import de.intension.lizzy.adapter.NormalizationMemo;
+
+/**
+ * Keeps the issues of Jira projects in an {@link IssueStore} up to date by fetching only the issues
+ * changed since the last synchronization.
+ * <p>
+ * For each project the latest update timestamp seen is kept as high-water mark. A sync searches for
+ * <code>updated &gt;= "-Nm"</code>, where N is the number of minutes since the mark plus an
+ * {@link #setOverlap(long, TimeUnit) overlap}. The relative date is evaluated by the server, so its time
+ * zone does not matter. The minutes since the mark are counted with the local clock though, so a server
+ * clock ahead of the local one shortens the window. The window is widened by the largest lead of the
+ * server clock seen in update timestamps newer than the local time; the overlap has to cover any lead
+ * beyond. Issues re-fetched due to the overlap are not written again, as the store skips versions it
+ * contains already.
+ * <p>
+ * Deleted and moved issues do not show up in such a search. They are detected by a periodic
+ * reconciliation, which lists key and update timestamp of every issue of the project, removes stored
+ * issues that no longer exist and fetches issues whose stored version differs. It also finds changes
+ * the search missed due to a skewed clock.
+ * <p>
+ * Different projects are synchronized concurrently, syncs of the same project one after another.
+ */
+public class JiraSyncEngine
+    implements Closeable
+{
+
+    private static final Logger        LOG               = Logger.getLogger(JiraSyncEngine.class.getName());
+    private static final int           BATCH_SIZE        = 100;
+
+    private final JiraAdapter          adapter;
+    private final IssueStore           store;
+    private final Clock                clock;
+
+    private final Set<String>          projects          = new LinkedHashSet<>();
+    private final Map<String, Instant> highWaterMarks    = new HashMap<>();
+    private final Map<String, Instant> lastReconciles    = new HashMap<>();
+    /** Locks the syncs of a project, so they do not hold the lock of the engine during requests. */
+    private final Map<String, Object>  locks             = new ConcurrentHashMap<>();
+
+    private volatile long              overlap           = TimeUnit.MINUTES.toMillis(2);
+    private volatile long              reconcileInterval = TimeUnit.HOURS.toMillis(1);
+    /** Largest time in milliseconds the server clock was seen ahead of the local clock. */
+    private volatile long              serverLead;
+    private Path                       stateFile;
+    private ScheduledExecutorService   scheduler;
+
+    /**
+     * @param adapter Adapter to fetch the issues with. Use an adapter with
+     *            {@link RequestScheduler.Priority#BULK bulk priority}, so the synchronization does not delay users.
+     * @param store Store to apply the changes to.
+     */
+    public JiraSyncEngine(JiraAdapter adapter, IssueStore store)
+    {
+        this(adapter, store, Clock.systemUTC());
+    }
+
+    JiraSyncEngine(JiraAdapter adapter, IssueStore store, Clock clock)
+    {
+        this.adapter = adapter;
+        this.store = store;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a project to synchronize with {@link #syncAll()}.
+     *
+     * @param projectKey Key of the project, e.g. <code>LIZZY</code>.
+     */
+    public synchronized JiraSyncEngine addProject(String projectKey)
+    {
+        projects.add(projectKey);
+        return this;
+    }
+
+    /**
+     * Synchronizes all added projects. A project that fails is retried with the next call. If the adapter
+     * uses a {@link NormalizationMemo}, its statistics are logged after the projects are synchronized.
+     *
+     * @return Results of the projects synchronized successfully.
+     */
+    public Map<String, SyncResult> syncAll()
+    {
+        List<String> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(projects);
+        }
+        Map<String, SyncResult> results = new LinkedHashMap<>();
+        for (String project : keys) {
+            try {
+                results.put(project, sync(project));
+            } catch (IOException | RuntimeException e) {
+                // the high-water mark is unchanged, so the next sync covers the changes
+                LOG.log(Level.WARNING, "Synchronizing project " + project + " failed", e);
+            }
+        }
+        NormalizationMemo memo = adapter.getNormalizationMemo();
+        if (memo != null) {
+            LOG.log(Level.INFO, "Synchronized " + results.size() + " of " + keys.size() + " projects, " + memo);
+        }
+        return results;
+    }
+
+    /**
+     * Fetches the issues of the project changed since the last sync, or all issues on the first sync,
+     * and reconciles the stored keys if the {@link #setReconcileInterval(long, TimeUnit) interval} elapsed.
+     *
+     * @param projectKey Key of the project, e.g. <code>LIZZY</code>.
+     */
+    public SyncResult sync(String projectKey)
+        throws IOException
+    {
+        synchronized (locks.computeIfAbsent(projectKey, key -> new Object())) {
+            Instant now = clock.instant();
+            Instant mark;
+            boolean reconcileDue;
+            synchronized (this) {
+                mark = highWaterMarks.get(projectKey);
+                reconcileDue = isReconcileDue(projectKey, now);
+            }
+            StringBuilder jql = new StringBuilder(project(projectKey));
+            if (mark != null) {
+                long minutes = (Math.max(0, Duration.between(mark, now).toMillis()) + overlap + serverLead + 59_999) / 60_000;
+                jql.append(" AND updated >= \"-").append(minutes).append("m\"");
+            }
+            jql.append(" ORDER BY updated ASC");
+
+            Set<String> seen = new HashSet<>();
+            int updated = 0;
+            Instant latest = mark;
+            try (Stream<Issue> issues = adapter.streamIssues(jql.toString())) {
+                Iterator<Issue> iterator = issues.iterator();
+                List<Issue> batch = new ArrayList<>(BATCH_SIZE);
+                while (iterator.hasNext()) {
+                    Issue issue = iterator.next();
+                    seen.add(issue.getKey());
+                    if (mark == null || issue.getUpdated() == null || issue.getUpdated().isAfter(mark)) {
+                        updated++;
+                    }
+                    if (issue.getUpdated() != null && (latest == null || issue.getUpdated().isAfter(latest))) {
+                        latest = issue.getUpdated();
+                    }
+                    batch.add(issue);
+                    if (batch.size() == BATCH_SIZE) {
+                        store.putAll(batch);
+                        batch.clear();
+                    }
+                }
+                store.putAll(batch);
+            }
+            Instant answered = clock.instant();
+
+            int removed = 0;
+            boolean reconciled = false;
+            if (mark == null) {
+                // a full sync lists every issue of the project
+                removed = removeAllExcept(projectKey, seen);
+                reconciled = true;
+            }
+            else if (reconcileDue) {
+                Reconciliation reconciliation = reconcile(projectKey);
+                updated += reconciliation.fetched;
+                removed = reconciliation.removed;
+                reconciled = true;
+            }
+            synchronized (this) {
+                if (reconciled) {
+                    lastReconciles.put(projectKey, now);
+                }
+                if (latest != null) {
+                    // the issue was updated before the server answered, so this is at most the lead of its clock
+                    serverLead = Math.max(serverLead, Duration.between(answered, latest).toMillis());
+                    highWaterMarks.put(projectKey, latest);
+                    saveState();
+                }
+            }
+            return new SyncResult(projectKey, updated, removed, reconciled);
+        }
+    }
+
+    /**
+     * Lists key and update timestamp of all issues of the project, removes stored issues that no longer
+     * exist and fetches issues whose stored version differs or which are not stored.
+     */
+    private Reconciliation reconcile(String projectKey)
+        throws IOException
+    {
+        Map<String, Instant> remote = new HashMap<>();
+        try (Stream<Issue> issues = adapter.streamIssues(project(projectKey), new PageSizer(50, 1000, 500), FieldProjection.summaryOnly())) {
+            issues.forEach(issue -> remote.put(issue.getKey(), issue.getUpdated()));
+        }
+        Reconciliation reconciliation = new Reconciliation();
+        reconciliation.removed = removeAllExcept(projectKey, remote.keySet());
+
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Instant> entry : remote.entrySet()) {
+            Instant stored = store.getUpdated(entry.getKey());
+            if (stored == null || !stored.equals(entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        if (!changed.isEmpty()) {
+            List<Issue> fetched = new ArrayList<>();
+            adapter.getIssues(changed).values().forEach(issue -> {
+                if (issue != null) {
+                    fetched.add(issue);
+                }
+            });
+            store.putAll(fetched);
+            reconciliation.fetched = fetched.size();
+        }
+        return reconciliation;
+    }
+
+    /**
+     * Removes the stored issues of the project except the given ones.
+     *
+     * @return Number of removed issues.
+     */
+    private int removeAllExcept(String projectKey, Set<String> keys)
+        throws IOException
+    {
+        int removed = 0;
+        String prefix = projectKey + "-";
+        for (String key : store.keys()) {
+            if (key.startsWith(prefix) && !keys.contains(key)) {
+                store.remove(key);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private boolean isReconcileDue(String projectKey, Instant now)
+    {
+        Instant last = lastReconciles.get(projectKey);
+        return last == null || Duration.between(last, now).toMillis() >= reconcileInterval;
+    }
+
+    private static String project(String projectKey)
+    {
+        return "project = \"" + projectKey.replace("\"", "") + "\"";
+    }
+
+    /**
+     * High-water mark of the project.
+     *
+     * @return Latest update timestamp seen or <code>null</code> if the project was not synchronized yet.
+     */
+    public synchronized Instant getHighWaterMark(String projectKey)
+    {
+        return highWaterMarks.get(projectKey);
+    }
+
+    /**
+     * Sets the time subtracted from the high-water mark to tolerate clock differences not seen yet and
+     * issues updated while a sync was running. Defaults to two minutes.
+     */
+    public JiraSyncEngine setOverlap(long overlap, TimeUnit unit)
+    {
+        this.overlap = unit.toMillis(overlap);
+        return this;
+    }
+
+    /**
+     * Sets the time between two reconciliations of a project. Defaults to one hour.
+     */
+    public JiraSyncEngine setReconcileInterval(long interval, TimeUnit unit)
+    {
+        this.reconcileInterval = unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * Sets the file to keep the high-water marks in across restarts and loads the marks from it.
+     * Without a state file, the first sync of each project after a restart fetches all its issues.
+     */
+    public synchronized JiraSyncEngine setStateFile(Path stateFile)
+        throws IOException
+    {
+        this.stateFile = stateFile;
+        if (Files.exists(stateFile)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(stateFile)) {
+                properties.load(in);
+            }
+            properties.stringPropertyNames()
+                .forEach(project -> highWaterMarks.put(project, Instant.ofEpochMilli(Long.parseLong(properties.getProperty(project)))));
+        }
+        return this;
+    }
+
+    private void saveState()
+        throws IOException
+    {
+        if (stateFile == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        highWaterMarks.forEach((project, mark) -> properties.setProperty(project, Long.toString(mark.toEpochMilli())));
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "High-water marks of synchronized Jira projects");
+        }
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Starts a daemon thread which calls {@link #syncAll()} periodically, beginning immediately.
+     */
+    public synchronized JiraSyncEngine start(long period, TimeUnit unit)
+    {
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "lizzy-jira-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::syncAll, 0, period, unit);
+            scheduler = executor;
+        }
+        return this;
+    }
+
+    /**
+     * Stops the periodic synchronization. Neither the adapter nor the store are closed.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static final class Reconciliation
+    {
+
+        private int fetched;
+        private int removed;
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Service provider interface for the HTTP requests of a {@link JiraAdapter}.
+ * <p>
+ * By default the adapter sends its requests with the Jira REST client of its {@link JiraClientPool}. Another
+ * transport replaces it, e.g. {@link UrlConnectionTransport} to avoid the startup time and memory of the client.
+ * Implementations are thread-safe and return the raw field values of issues; descriptions are
+ * normalized by the adapter.
+ * <p>
+ * Requests must not block the calling thread. A request answered with an error status fails with a
+ * {@link RestClientException} carrying the status, so retries and circuit breaking work as with the
+ * Jira client. Cancelling a returned future should abort the request.
+ */
+public interface JiraTransport
+    extends Closeable
+{
+
+    /**
+     * Requests a single issue.
+     *
+     * @param key Key of the issue, e.g. <code>LIZZY-42</code>.
+     * @param projection Fields to request.
+     */
+    CompletableFuture<Issue> getIssue(String key, FieldProjection projection);
+
+    /**
+     * Requests a page of a JQL search.
+     *
+     * @param jql JQL query.
+     * @param startAt Index of the first issue of the page.
+     * @param maxResults Maximum number of issues of the page; Jira may return fewer.
+     * @param projection Fields to request.
+     */
+    CompletableFuture<SearchPage> search(String jql, int startAt, int maxResults, FieldProjection projection);
+
+    /**
+     * Requests a page of a JQL search, handing each issue to the consumer as soon as it is read, so that callers
+     * can process the first issues before the whole page arrived. The consumer is called on a thread of the
+     * transport. The default implementation hands over the issues once the whole page arrived.
+     *
+     * @param jql JQL query.
+     * @param startAt Index of the first issue of the page.
+     * @param maxResults Maximum number of issues of the page; Jira may return fewer.
+     * @param projection Fields to request.
+     * @param consumer Receives the issues in search order.
+     * @return Future completing with the total number of issues matching the search once the page was read.
+     */
+    default CompletableFuture<Integer> search(String jql, int startAt, int maxResults, FieldProjection projection, Consumer<Issue> consumer)
+    {
+        CompletableFuture<SearchPage> page = search(jql, startAt, maxResults, projection);
+        return Promises.cancelling(page, page.thenApply(received -> {
+            received.getIssues().forEach(consumer);
+            return received.getTotal();
+        }));
+    }
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects lookups of single keys for a short window and loads them with one batch request.
+ * <p>
+ * A batch is sent once {@link #submit(Object) the first key} waited for the window or the batch
+ * reached its maximum size, whatever happens first. Every caller gets an own future; cancelling it
+ * withdraws the key from a batch that was not sent yet.
+ * <p>
+ * The loader is called on the thread completing the batch, the submitting thread or the timer thread,
+ * so it must send its requests asynchronously and must not block.
+ */
+final class MicroBatcher<K, V>
+{
+
+    private static final ScheduledExecutorService                       TIMER = createTimer();
+
+    private final Function<Collection<K>, CompletableFuture<Map<K, V>>> loader;
+    private final long                                                  window;
+    private final int                                                   maxBatchSize;
+
+    private Map<K, List<CompletableFuture<V>>>                          batch = new LinkedHashMap<>();
+    private ScheduledFuture<?>                                          timeout;
+
+    /**
+     * @param loader Starts loading the values of a batch of keys without blocking; keys without a value may be
+     *            missing in the result.
+     * @param window Nanoseconds to wait for further keys after the first key of a batch.
+     * @param maxBatchSize Number of keys sending a batch immediately.
+     */
+    MicroBatcher(Function<Collection<K>, CompletableFuture<Map<K, V>>> loader, long window, int maxBatchSize)
+    {
+        this.loader = loader;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Adds a key to the current batch.
+     *
+     * @return Future completing with the value of the key, with <code>null</code> if the loader returned
+     *         none or exceptionally with the error of the batch.
+     */
+    CompletableFuture<V> submit(K key)
+    {
+        CompletableFuture<V> caller = new CompletableFuture<>();
+        Map<K, List<CompletableFuture<V>>> full = null;
+        synchronized (this) {
+            batch.computeIfAbsent(key, k -> new ArrayList<>()).add(caller);
+            if (batch.size() >= maxBatchSize) {
+                full = detach();
+            }
+            else if (timeout == null) {
+                Map<K, List<CompletableFuture<V>>> current = batch;
+                timeout = TIMER.schedule(() -> expire(current), window, TimeUnit.NANOSECONDS);
+            }
+        }
+        caller.whenComplete((value, error) -> {
+            if (caller.isCancelled()) {
+                withdraw(key, caller);
+            }
+        });
+        if (full != null) {
+            dispatch(full);
+        }
+        return caller;
+    }
+
+    /**
+     * Sends the batch whose window elapsed unless it was already sent because it was full.
+     */
+    private void expire(Map<K, List<CompletableFuture<V>>> expired)
+    {
+        synchronized (this) {
+            if (batch != expired) {
+                return;
+            }
+            detach();
+        }
+        dispatch(expired);
+    }
+
+    /**
+     * Starts a new batch and returns the current one.
+     */
+    private Map<K, List<CompletableFuture<V>>> detach()
+    {
+        Map<K, List<CompletableFuture<V>>> detached = batch;
+        batch = new LinkedHashMap<>();
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+        return detached;
+    }
+
+    private synchronized void withdraw(K key, CompletableFuture<V> caller)
+    {
+        List<CompletableFuture<V>> callers = batch.get(key);
+        if (callers != null && callers.remove(caller) && callers.isEmpty()) {
+            batch.remove(key);
+        }
+    }
+
+    private void dispatch(Map<K, List<CompletableFuture<V>>> calls)
+    {
+        if (calls.isEmpty()) {
+            return;
+        }
+        CompletableFuture<Map<K, V>> load;
+        try {
+            load = loader.apply(calls.keySet());
+        } catch (RuntimeException | Error e) {
+            fail(calls, e);
+            return;
+        }
+        load.whenComplete((values, error) -> {
+            if (error != null) {
+                fail(calls, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+            else {
+                calls.forEach((key, callers) -> callers.forEach(caller -> caller.complete(values.get(key))));
+            }
+        });
+    }
+
+    private void fail(Map<K, List<CompletableFuture<V>>> calls, Throwable error)
+    {
+        calls.values().forEach(callers -> callers.forEach(caller -> caller.completeExceptionally(error)));
+    }
+
+    private static ScheduledExecutorService createTimer()
+    {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "lizzy-micro-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the size of the next search page from the latency and payload of the pages fetched so far.
+ * <p>
+ * Pages grow while requests are fast and issues are small and shrink when a page takes longer
+ * than the {@link #setTargetLatency(long, TimeUnit) target latency} or carries more text than the
+ * {@link #setTargetPayload(long) target payload}. The size never grows by more than factor two per page
+ * and stays within the given bounds. Not thread-safe; use one instance per search.
+ */
+public class PageSizer
+{
+
+    private final int  minSize;
+    private final int  maxSize;
+
+    private int        size;
+    private long       targetLatency = TimeUnit.SECONDS.toNanos(1);
+    private long       targetPayload = 1024 * 1024;
+
+    /**
+     * Page sizer starting with 50 issues per page, adapting between 10 and 500.
+     */
+    public PageSizer()
+    {
+        this(10, 500, 50);
+    }
+
+    /**
+     * @param minSize Smallest page size to request.
+     * @param maxSize Largest page size to request; Jira caps this server-side (1000 by default).
+     * @param initialSize Size of the first page.
+     */
+    public PageSizer(int minSize, int maxSize, int initialSize)
+    {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid page size bounds: " + minSize + ".." + maxSize);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.size = clamp(initialSize);
+    }
+
+    /**
+     * Number of issues to request with the next page.
+     */
+    public int nextSize()
+    {
+        return size;
+    }
+
+    /**
+     * Adapts the page size to a fetched page.
+     *
+     * @param issues Number of issues on the page.
+     * @param payload Number of characters of summaries and descriptions on the page.
+     * @param latency Time from the request of the page to its arrival in nanoseconds or a negative value if it
+     *            was not measured, in which case only the payload limits the size.
+     */
+    public void record(int issues, long payload, long latency)
+    {
+        if (issues <= 0) {
+            return;
+        }
+        double next = size * 2d;
+        if (latency > 0) {
+            next = Math.min(next, targetLatency / ((double)latency / issues));
+        }
+        if (payload > 0) {
+            next = Math.min(next, targetPayload / ((double)payload / issues));
+        }
+        size = clamp((int)Math.min(next, Integer.MAX_VALUE));
+    }
+
+    public PageSizer setTargetLatency(long latency, TimeUnit unit)
+    {
+        this.targetLatency = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * @param payload Number of characters a page should carry at most.
+     */
+    public PageSizer setTargetPayload(long payload)
+    {
+        this.targetPayload = payload;
+        return this;
+    }
+
+    private int clamp(int value)
+    {
+        return Math.max(minSize, Math.min(maxSize, value));
+    }
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Iterates over all issues of a Jira search by lazily requesting one page after another via the
+ * <code>startAt</code> offset. The issues of a page are returned while its response is still read, and the
+ * next page is requested as soon as the current one arrived, so it downloads while the caller consumes the
+ * current page. At most two pages are held in memory. The latency of a page is measured from its request to
+ * its arrival, whether it was prefetched or not.
+ */
+class PagedIssueIterator
+    implements Iterator<Issue>, AutoCloseable
+{
+
+    /**
+     * Requests a single page of a search, handing its issues to a consumer while the response is read.
+     * A retried request hands the issues over again.
+     */
+    @FunctionalInterface
+    interface PageLoader
+    {
+
+        /**
+         * @return Future completing with the total number of issues of the search once the page was read.
+         */
+        CompletableFuture<Integer> load(int startAt, int maxResults, Consumer<Issue> consumer);
+    }
+
+    private final PageLoader             loader;
+    private final PageSizer              pageSizer;
+    private final Function<Issue, Issue> mapper;
+
+    private StreamedPage                 current;
+    private StreamedPage                 following;
+    private Issue                        buffered;
+
+    /**
+     * @param loader Requests a page.
+     * @param mapper Creates the issue returned to callers from a raw issue of a page.
+     */
+    PagedIssueIterator(PageLoader loader, Function<Issue, Issue> mapper, PageSizer pageSizer)
+    {
+        this.loader = loader;
+        this.mapper = mapper;
+        this.pageSizer = pageSizer;
+        this.current = request(0);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        while (buffered == null && current != null) {
+            Issue issue = current.take();
+            prefetch();
+            if (issue != StreamedPage.END) {
+                buffered = mapper.apply(issue);
+            }
+            else {
+                // throws the error of a failed page
+                Promises.join(current.total);
+                current = following;
+                following = null;
+            }
+        }
+        return buffered != null;
+    }
+
+    @Override
+    public Issue next()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Issue issue = buffered;
+        buffered = null;
+        return issue;
+    }
+
+    /**
+     * Cancels the pending pages, if any.
+     */
+    @Override
+    public void close()
+    {
+        for (StreamedPage page : new StreamedPage[] { current, following }) {
+            if (page != null) {
+                page.total.cancel(true);
+            }
+        }
+        current = null;
+        following = null;
+        buffered = null;
+    }
+
+    private StreamedPage request(int startAt)
+    {
+        StreamedPage page = new StreamedPage(startAt);
+        page.total = loader.load(startAt, pageSizer.nextSize(), page);
+        page.total.whenComplete((total, error) -> page.complete());
+        return page;
+    }
+
+    /**
+     * Requests the following page once the current one arrived completely, so it is fetched while the
+     * issues of the current one are consumed.
+     */
+    private void prefetch()
+    {
+        StreamedPage page = current;
+        if (page == null || page.followed || !page.total.isDone() || page.total.isCompletedExceptionally()) {
+            return;
+        }
+        page.followed = true;
+        pageSizer.record(page.received, page.payload, page.latency);
+        int start = page.startAt + page.received;
+        if (page.received > 0 && start < page.total.join()) {
+            following = request(start);
+        }
+    }
+
+    /**
+     * Page whose issues are queued while its response is read, followed by {@link #END} once it completed.
+     * A retried request hands over the issues again, so issues already received are skipped.
+     */
+    private static final class StreamedPage
+        implements Consumer<Issue>
+    {
+
+        static final Issue                 END       = new Issue();
+
+        private final int                  startAt;
+        private final long                 requested = System.nanoTime();
+        private final BlockingQueue<Issue> issues    = new LinkedBlockingQueue<>();
+        private final Set<String>          keys      = new HashSet<>();
+
+        private CompletableFuture<Integer> total;
+        // written by the loader before the page completes, read by the iterator after it completed
+        private int                        received;
+        private long                       payload;
+        private volatile long              latency   = -1;
+        private boolean                    followed;
+        private boolean                    ended;
+
+        private StreamedPage(int startAt)
+        {
+            this.startAt = startAt;
+        }
+
+        @Override
+        public synchronized void accept(Issue issue)
+        {
+            if (issue.getKey() == null || keys.add(issue.getKey())) {
+                received++;
+                payload += length(issue.getTitle()) + length(issue.getDescription());
+                issues.add(issue);
+            }
+        }
+
+        private synchronized void complete()
+        {
+            latency = System.nanoTime() - requested;
+            issues.add(END);
+        }
+
+        /**
+         * Waits for the next issue without being interrupted, like waiting for a whole page.
+         *
+         * @return The issue or {@link #END}.
+         */
+        private Issue take()
+        {
+            if (ended) {
+                return END;
+            }
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        Issue issue = issues.take();
+                        ended = issue == END;
+                        return issue;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private static int length(String string)
+        {
+            return string == null ? 0 : string.length();
+        }
+    }
+}
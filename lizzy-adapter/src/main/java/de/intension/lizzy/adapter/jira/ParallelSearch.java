@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Fetches all issues of a Jira search with bounded concurrency.
+ * <p>
+ * The first page reveals the total number of issues. The remaining offsets are split into pages of
+ * equal size of which at most <code>concurrency</code> are requested at the same time; the next page
+ * is requested once the oldest pending one arrived, and the pages are reassembled in search order.
+ * No thread waits for a page except the calling one. A failing page fails the whole search, so the
+ * loader retries a failed page on its own, as {@link ResilientRequests} does for every request.
+ */
+class ParallelSearch
+{
+
+    private final PageLoader                         loader;
+    private final int                                concurrency;
+    private final int                                pageSize;
+    private final Function<List<Issue>, List<Issue>> mapper;
+
+    /**
+     * Requests a single page of a search.
+     */
+    @FunctionalInterface
+    interface PageLoader
+    {
+
+        CompletableFuture<SearchPage> load(int startAt, int maxResults);
+    }
+
+    /**
+     * @param loader Requests a page.
+     * @param mapper Creates the issues returned to callers from the raw issues of a page.
+     */
+    ParallelSearch(PageLoader loader, Function<List<Issue>, List<Issue>> mapper, int concurrency, int pageSize)
+    {
+        if (concurrency < 1 || pageSize < 1) {
+            throw new IllegalArgumentException("Concurrency and page size must be positive: " + concurrency + ", " + pageSize);
+        }
+        this.loader = loader;
+        this.mapper = mapper;
+        this.concurrency = concurrency;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Fetches all pages and returns the issues in search order. Waiting for a page can be interrupted,
+     * which cancels the pending pages.
+     */
+    List<Issue> fetchAll()
+        throws InterruptedException
+    {
+        SearchPage first = Promises.claim(fetchPage(0, pageSize));
+        List<Issue> issues = new ArrayList<>(Math.max(0, first.getTotal()));
+        issues.addAll(mapper.apply(first.getIssues()));
+        // Jira silently caps the page size, so continue with the size it actually applied
+        int size = first.getIssues().isEmpty() ? pageSize : Math.min(pageSize, first.getIssues().size());
+        Deque<CompletableFuture<SearchPage>> pending = new ArrayDeque<>();
+        try {
+            for (int startAt = size; startAt < first.getTotal(); startAt += size) {
+                if (pending.size() >= concurrency) {
+                    issues.addAll(mapper.apply(Promises.claim(pending.poll()).getIssues()));
+                }
+                pending.add(fetchPage(startAt, size));
+            }
+            while (!pending.isEmpty()) {
+                issues.addAll(mapper.apply(Promises.claim(pending.poll()).getIssues()));
+            }
+            return issues;
+        } finally {
+            pending.forEach(page -> page.cancel(true));
+        }
+    }
+
+    /**
+     * Requests a single page, turning a failure to send the request into a failed page.
+     */
+    private CompletableFuture<SearchPage> fetchPage(int startAt, int size)
+    {
+        try {
+            return loader.load(startAt, size);
+        } catch (RuntimeException e) {
+            CompletableFuture<SearchPage> page = new CompletableFuture<>();
+            page.completeExceptionally(e);
+            return page;
+        }
+    }
+}
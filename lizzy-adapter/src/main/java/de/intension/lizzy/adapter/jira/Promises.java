@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+import com.atlassian.util.concurrent.Promise;
+
+/**
+ * Utility class to bridge Atlassian {@link Promise}s to {@link CompletableFuture}s and to compose and wait for futures.
+ */
+final class Promises
+{
+
+    private Promises()
+    {
+        // utility class
+    }
+
+    /**
+     * Creates a future which completes when the promise completes, without blocking a thread while waiting.
+     * Cancelling the future cancels the promise.
+     */
+    static <T> CompletableFuture<T> toCompletableFuture(Promise<T> promise)
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        promise.addListener(() -> {
+            try {
+                future.complete(promise.get());
+            } catch (ExecutionException e) {
+                future.completeExceptionally(e.getCause());
+            } catch (CancellationException e) {
+                future.cancel(false);
+            } catch (InterruptedException e) {
+                // cannot happen as the promise is already done
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+            }
+        }, Runnable::run);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                promise.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Waits for a future, throwing its error as it is if unchecked, like {@link Promise#claim()}.
+     */
+    static <T> T join(CompletableFuture<T> future)
+    {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits interruptibly for a future like {@link #join(CompletableFuture)}, cancelling it when interrupted.
+     */
+    static <T> T claim(CompletableFuture<T> future)
+        throws InterruptedException
+    {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels the source future when the dependent future derived from it gets cancelled.
+     *
+     * @return The dependent future.
+     */
+    static <T> CompletableFuture<T> cancelling(CompletableFuture<?> source, CompletableFuture<T> dependent)
+    {
+        dependent.whenComplete((result, error) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Continues a future with a dependent request once it completed, successfully or not.
+     * Cancelling the returned future cancels the source future or, once it completed, the dependent request.
+     *
+     * @param next Creates the dependent request from the result or the error of the source future.
+     */
+    static <T, U> CompletableFuture<U> compose(CompletableFuture<T> source,
+                                               BiFunction<? super T, Throwable, CompletableFuture<U>> next)
+    {
+        CompletableFuture<U> result = new CompletableFuture<>();
+        source.whenComplete((value, error) -> {
+            CompletableFuture<U> dependent;
+            try {
+                dependent = next.apply(value, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            dependent.whenComplete((dependentValue, dependentError) -> {
+                if (dependentError == null) {
+                    result.complete(dependentValue);
+                }
+                else {
+                    result.completeExceptionally(dependentError instanceof CompletionException && dependentError.getCause() != null
+                            ? dependentError.getCause() : dependentError);
+                }
+            });
+            cancelling(dependent, result);
+        });
+        return cancelling(source, result);
+    }
+}
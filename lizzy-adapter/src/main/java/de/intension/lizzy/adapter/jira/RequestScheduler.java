@@ -0,0 +1,587 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.util.concurrent.Promise;
+
+/**
+ * Admits requests to Jira so that throughput stays as high as the server sustains without being throttled.
+ * <p>
+ * Three mechanisms apply to every request:
+ * <ul>
+ * <li>The number of concurrent requests is limited adaptively (AIMD): the limit grows by one per
+ * round trip while latencies stay near the lowest observed latency, and shrinks multiplicatively when
+ * latencies rise or the server answers with an error.</li>
+ * <li>A request answered with status 429 or 503 pauses all requests for the Retry-After time.
+ * The Jira client does not expose response headers, so {@link #setRetryAfter(long, TimeUnit) a default
+ * pause} is used unless the delay is passed to {@link #throttle(long, TimeUnit)} or the request failed with
+ * a {@link ThrottledException} carrying the header, like those of the {@link UrlConnectionTransport}.</li>
+ * <li>Each request takes a token from a {@link TokenBucket}, by default the one shared by the whole JVM.</li>
+ * </ul>
+ * Every request belongs to a {@link Priority}. Waiting requests are admitted by priority and then in
+ * arrival order, and part of the limit is {@link #setReservedConcurrency(Priority, int) reserved} for
+ * higher priorities, so a user never waits behind a queue of background requests.
+ */
+public class RequestScheduler
+{
+
+    /**
+     * Priority class of a request, from highest to lowest.
+     */
+    public enum Priority
+    {
+        /** Requests a user waits for. */
+        INTERACTIVE,
+        /** Requests for data a user will probably need soon. */
+        PREFETCH,
+        /** Background requests, e.g. of synchronizations and paged searches. */
+        BULK
+    }
+
+    /**
+     * Blocking request as issued via {@link Promise#get()}.
+     */
+    @FunctionalInterface
+    public interface Request<T>
+    {
+
+        T call()
+            throws InterruptedException, ExecutionException;
+    }
+
+    private static final RequestScheduler         DEFAULT           = new RequestScheduler();
+    private static final ScheduledExecutorService TIMER             = createTimer();
+
+    private static final int                      TOO_MANY_REQUESTS = 429;
+    private static final int                      UNAVAILABLE       = 503;
+
+    private final Map<Priority, Deque<CompletableFuture<Permit>>> waiters = new EnumMap<>(Priority.class);
+    private final Map<Priority, Integer>          reserved          = new EnumMap<>(Priority.class);
+
+    private TokenBucket                           tokenBucket       = TokenBucket.getDefault();
+    private int                                   maxConcurrency    = 32;
+    private double                                limit             = 4;
+    private double                                latencyTolerance  = 2;
+    private long                                  retryAfter        = TimeUnit.SECONDS.toNanos(5);
+
+    private int                                   inFlight;
+    /** Smoothed minimum latency in nanoseconds, <code>0</code> before the first response. */
+    private long                                  baseline;
+    private long                                  lastDecrease      = System.nanoTime();
+    private long                                  pausedUntil       = System.nanoTime();
+    private boolean                               dispatchScheduled;
+
+    public RequestScheduler()
+    {
+        for (Priority priority : Priority.values()) {
+            waiters.put(priority, new ArrayDeque<>());
+            reserved.put(priority, 0);
+        }
+        reserved.put(Priority.INTERACTIVE, 2);
+        reserved.put(Priority.PREFETCH, 1);
+    }
+
+    /**
+     * Scheduler shared by all {@link JiraAdapter} instances that were not given an own scheduler.
+     */
+    public static RequestScheduler getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Executes a blocking request once it is admitted.
+     *
+     * @throws InterruptedException If interrupted while waiting for admission or for the response.
+     */
+    public <T> T execute(Request<T> request)
+        throws InterruptedException, ExecutionException
+    {
+        return execute(Priority.INTERACTIVE, request);
+    }
+
+    /**
+     * Executes a blocking request of the given priority once it is admitted.
+     *
+     * @throws InterruptedException If interrupted while waiting for admission or for the response.
+     */
+    public <T> T execute(Priority priority, Request<T> request)
+        throws InterruptedException, ExecutionException
+    {
+        CompletableFuture<Permit> admission = acquire(priority);
+        Permit permit;
+        try {
+            permit = admission.get();
+        } catch (InterruptedException e) {
+            if (!admission.cancel(false)) {
+                admission.join().release(new CancellationException());
+            }
+            throw e;
+        }
+        Throwable failure = null;
+        try {
+            return request.call();
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            permit.release(failure);
+        }
+    }
+
+    /**
+     * Executes a blocking request once it is admitted, like {@link Promise#claim()} without
+     * throwing checked exceptions. An interrupt while waiting is restored afterwards.
+     */
+    public <T> T executeUninterruptibly(Supplier<T> request)
+    {
+        return executeUninterruptibly(Priority.INTERACTIVE, request);
+    }
+
+    /**
+     * Executes a blocking request of the given priority once it is admitted, like {@link Promise#claim()}
+     * without throwing checked exceptions. An interrupt while waiting is restored afterwards.
+     */
+    public <T> T executeUninterruptibly(Priority priority, Supplier<T> request)
+    {
+        Permit permit = awaitUninterruptibly(acquire(priority));
+        Throwable failure = null;
+        try {
+            return request.get();
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            permit.release(failure);
+        }
+    }
+
+    /**
+     * Sends a request returning a promise once it is admitted. The admission ends when the promise completes.
+     */
+    public <T> Promise<T> schedule(Supplier<Promise<T>> request)
+    {
+        return schedule(Priority.INTERACTIVE, request);
+    }
+
+    /**
+     * Sends a request of the given priority returning a promise once it is admitted.
+     * The admission ends when the promise completes.
+     */
+    public <T> Promise<T> schedule(Priority priority, Supplier<Promise<T>> request)
+    {
+        Permit permit = awaitUninterruptibly(acquire(priority));
+        Promise<T> promise;
+        try {
+            promise = request.get();
+        } catch (RuntimeException | Error e) {
+            permit.release(e);
+            throw e;
+        }
+        promise.addListener(() -> permit.release(failureOf(promise)), Runnable::run);
+        return promise;
+    }
+
+    /**
+     * Sends an asynchronous request once it is admitted, without blocking the calling thread.
+     * Cancelling the returned future withdraws a waiting request or cancels a sent one.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request)
+    {
+        return submit(Priority.INTERACTIVE, request);
+    }
+
+    /**
+     * Sends an asynchronous request of the given priority once it is admitted, without blocking the calling thread.
+     * Cancelling the returned future withdraws a waiting request or cancels a sent one.
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<CompletableFuture<T>> request)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Permit> admission = acquire(priority);
+        admission.thenAccept(permit -> {
+            if (result.isDone()) {
+                permit.release(new CancellationException());
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = request.get();
+            } catch (RuntimeException | Error e) {
+                permit.release(e);
+                result.completeExceptionally(e);
+                return;
+            }
+            future.whenComplete((value, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                permit.release(cause);
+                if (cause == null) {
+                    result.complete(value);
+                }
+                else {
+                    result.completeExceptionally(cause);
+                }
+            });
+            Promises.cancelling(future, result);
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                admission.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Pauses all requests, e.g. for the delay of a Retry-After header.
+     */
+    public void throttle(long delay, TimeUnit unit)
+    {
+        synchronized (this) {
+            long until = System.nanoTime() + unit.toNanos(delay);
+            if (until - pausedUntil > 0) {
+                pausedUntil = until;
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Current limit of concurrent requests.
+     */
+    public synchronized int getLimit()
+    {
+        return (int)limit;
+    }
+
+    /**
+     * Number of requests sent and not yet answered.
+     */
+    public synchronized int getInFlight()
+    {
+        return inFlight;
+    }
+
+    /**
+     * Number of requests waiting for admission.
+     */
+    public synchronized int getQueueLength()
+    {
+        return waiters.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    /**
+     * Number of requests of the given priority waiting for admission.
+     */
+    public synchronized int getQueueLength(Priority priority)
+    {
+        return waiters.get(priority).size();
+    }
+
+    /**
+     * Sets the upper bound of the adaptive concurrency limit. Defaults to 32.
+     */
+    public synchronized RequestScheduler setMaxConcurrency(int maxConcurrency)
+    {
+        this.maxConcurrency = maxConcurrency;
+        this.limit = Math.min(limit, maxConcurrency);
+        return this;
+    }
+
+    /**
+     * Sets the factor by which a latency may exceed the lowest observed latency before the limit is reduced. Defaults to 2.
+     */
+    public synchronized RequestScheduler setLatencyTolerance(double latencyTolerance)
+    {
+        this.latencyTolerance = latencyTolerance;
+        return this;
+    }
+
+    /**
+     * Sets the pause after a request was throttled by the server. Defaults to five seconds.
+     */
+    public synchronized RequestScheduler setRetryAfter(long delay, TimeUnit unit)
+    {
+        this.retryAfter = unit.toNanos(delay);
+        return this;
+    }
+
+    /**
+     * Reserves part of the concurrency limit for requests of the given and higher priorities.
+     * Requests of lower priorities are only admitted while more than the reserved slots are free,
+     * unless no request is in flight at all. Defaults to two slots for {@link Priority#INTERACTIVE}
+     * and one for {@link Priority#PREFETCH} requests.
+     */
+    public synchronized RequestScheduler setReservedConcurrency(Priority priority, int slots)
+    {
+        reserved.put(priority, slots);
+        return this;
+    }
+
+    /**
+     * Sets the bucket to take a token from for every request. Defaults to {@link TokenBucket#getDefault()}.
+     */
+    public synchronized RequestScheduler setTokenBucket(TokenBucket tokenBucket)
+    {
+        this.tokenBucket = tokenBucket;
+        return this;
+    }
+
+    private CompletableFuture<Permit> acquire(Priority priority)
+    {
+        CompletableFuture<Permit> admission = new CompletableFuture<>();
+        synchronized (this) {
+            waiters.get(priority).add(admission);
+        }
+        dispatch();
+        return admission;
+    }
+
+    /**
+     * Admits waiting requests while the limit, the pause and the token bucket allow it.
+     * Futures are completed outside of the lock, as their dependents run synchronously.
+     */
+    private void dispatch()
+    {
+        List<CompletableFuture<Permit>> admitted = new ArrayList<>();
+        synchronized (this) {
+            while (true) {
+                Deque<CompletableFuture<Permit>> lane = nextLane();
+                if (lane == null) {
+                    break;
+                }
+                long now = System.nanoTime();
+                long delay = pausedUntil - now;
+                if (delay <= 0) {
+                    delay = tokenBucket.tryAcquire();
+                }
+                if (delay > 0) {
+                    scheduleDispatch(delay);
+                    break;
+                }
+                inFlight++;
+                admitted.add(lane.poll());
+            }
+        }
+        for (CompletableFuture<Permit> admission : admitted) {
+            Permit permit = new Permit();
+            if (!admission.complete(permit)) {
+                // withdrawn in the meantime
+                permit.release(new CancellationException());
+            }
+        }
+    }
+
+    /**
+     * Finds the queue of the highest priority with a waiting request that fits into the limit.
+     * Lower priorities have less capacity, so they are not considered once a higher one does not fit.
+     *
+     * @return The queue or <code>null</code> if no waiting request may be admitted.
+     */
+    private Deque<CompletableFuture<Permit>> nextLane()
+    {
+        int capacity = (int)limit;
+        for (Priority priority : Priority.values()) {
+            Deque<CompletableFuture<Permit>> lane = waiters.get(priority);
+            while (!lane.isEmpty() && lane.peek().isDone()) {
+                lane.poll();
+            }
+            if (!lane.isEmpty()) {
+                return inFlight < capacity || inFlight == 0 ? lane : null;
+            }
+            capacity -= reserved.get(priority);
+        }
+        return null;
+    }
+
+    private void scheduleDispatch(long delay)
+    {
+        if (dispatchScheduled) {
+            return;
+        }
+        dispatchScheduled = true;
+        TIMER.schedule(() -> {
+            synchronized (this) {
+                dispatchScheduled = false;
+            }
+            dispatch();
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adapts the limit to the outcome of a request.
+     *
+     * @param latency Time from admission to response in nanoseconds.
+     * @param failure Error of the request or <code>null</code>. Cancelled requests do not affect the limit.
+     */
+    private synchronized void complete(long latency, Throwable failure)
+    {
+        inFlight--;
+        long now = System.nanoTime();
+        int status = statusOf(failure);
+        if (status == TOO_MANY_REQUESTS || status == UNAVAILABLE) {
+            decrease(now, 0.5);
+            long pause = retryAfterOf(failure, retryAfter);
+            if (now + pause - pausedUntil > 0) {
+                pausedUntil = now + pause;
+            }
+        }
+        else if (status >= 500 || (status < 0 && RetryPolicy.isConnectionFailure(failure))) {
+            // server errors and failed connections
+            decrease(now, 0.5);
+        }
+        else if (failure == null) {
+            baseline = baseline == 0 || latency < baseline ? latency : baseline + (latency - baseline) / 100;
+            if (latency > baseline * latencyTolerance) {
+                decrease(now, 0.9);
+            }
+            else {
+                limit = Math.min(maxConcurrency, limit + 1 / limit);
+            }
+        }
+    }
+
+    /**
+     * Reduces the limit, at most once per round trip so that a burst of errors counts once.
+     */
+    private void decrease(long now, double factor)
+    {
+        if (now - lastDecrease < baseline) {
+            return;
+        }
+        lastDecrease = now;
+        limit = Math.max(1, limit * factor);
+    }
+
+    /**
+     * Finds the HTTP status of a failed request.
+     *
+     * @return The status, or <code>-1</code> if the request did not fail with a status.
+     */
+    static int statusOf(Throwable failure)
+    {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RestClientException) {
+                RestClientException rce = (RestClientException)cause;
+                return rce.getStatusCode().isPresent() ? rce.getStatusCode().get() : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the Retry-After time of a throttled request.
+     *
+     * @return The time in nanoseconds, or <code>defaultDelay</code> if the server did not send it.
+     */
+    static long retryAfterOf(Throwable failure, long defaultDelay)
+    {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ThrottledException) {
+                return ((ThrottledException)cause).getRetryAfter(TimeUnit.NANOSECONDS);
+            }
+        }
+        return defaultDelay;
+    }
+
+    static Throwable failureOf(Future<?> future)
+    {
+        if (future.isCancelled()) {
+            return new CancellationException();
+        }
+        try {
+            future.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            // cannot happen as the future is done
+            Thread.currentThread().interrupt();
+            return e;
+        }
+    }
+
+    private static Permit awaitUninterruptibly(CompletableFuture<Permit> admission)
+    {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return admission.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ScheduledExecutorService createTimer()
+    {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "lizzy-request-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * Admission of a single request, released exactly once with the outcome of the request.
+     */
+    private final class Permit
+    {
+
+        private final long admitted = System.nanoTime();
+        private boolean    released;
+
+        void release(Throwable failure)
+        {
+            synchronized (RequestScheduler.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                complete(System.nanoTime() - admitted, failure);
+            }
+            dispatch();
+        }
+    }
+}
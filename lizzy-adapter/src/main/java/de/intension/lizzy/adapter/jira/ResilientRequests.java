@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.atlassian.util.concurrent.Promise;
+
+import de.intension.lizzy.adapter.jira.RequestScheduler.Priority;
+import de.intension.lizzy.adapter.jira.RequestScheduler.Request;
+
+/**
+ * Sends requests through the {@link CircuitBreaker} of the server and the {@link RequestScheduler},
+ * retrying failed requests according to the {@link RetryPolicy}. All requests have the same {@link Priority}.
+ */
+final class ResilientRequests
+{
+
+    private static final ScheduledExecutorService TIMER = createTimer();
+
+    private final RequestScheduler                scheduler;
+    private final RetryPolicy                     retryPolicy;
+    private final CircuitBreaker                  circuitBreaker;
+    private final Priority                        priority;
+
+    ResilientRequests(RequestScheduler scheduler, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker, Priority priority)
+    {
+        this.scheduler = scheduler;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.priority = priority;
+    }
+
+    /**
+     * Executes a blocking request, pausing the calling thread between attempts.
+     *
+     * @throws CircuitOpenException If the breaker is open.
+     */
+    <T> T execute(Request<T> request)
+        throws InterruptedException, ExecutionException
+    {
+        for (int attempt = 1;; attempt++) {
+            circuitBreaker.acquire();
+            Throwable failure;
+            try {
+                T result = scheduler.execute(priority, request);
+                circuitBreaker.record(null);
+                return result;
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+                circuitBreaker.record(failure);
+                if (!retryPolicy.shouldRetry(attempt, failure)) {
+                    throw e;
+                }
+            } catch (InterruptedException | RuntimeException | Error e) {
+                circuitBreaker.record(e);
+                if (!retryPolicy.shouldRetry(attempt, e)) {
+                    throw e;
+                }
+            }
+            TimeUnit.NANOSECONDS.sleep(retryPolicy.delay(attempt));
+        }
+    }
+
+    /**
+     * Executes a blocking request without checked exceptions, pausing the calling thread between attempts.
+     * An interrupt ends the retries and is restored.
+     *
+     * @throws CircuitOpenException If the breaker is open.
+     */
+    <T> T executeUninterruptibly(Supplier<T> request)
+    {
+        for (int attempt = 1;; attempt++) {
+            circuitBreaker.acquire();
+            try {
+                T result = scheduler.executeUninterruptibly(priority, request);
+                circuitBreaker.record(null);
+                return result;
+            } catch (RuntimeException | Error e) {
+                circuitBreaker.record(e);
+                if (!retryPolicy.shouldRetry(attempt, e) || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(retryPolicy.delay(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a request returning a promise once. Callers of paged requests retry pages on their own.
+     *
+     * @throws CircuitOpenException If the breaker is open.
+     */
+    <T> Promise<T> schedule(Supplier<Promise<T>> request)
+    {
+        circuitBreaker.acquire();
+        Promise<T> promise;
+        try {
+            promise = scheduler.schedule(priority, request);
+        } catch (RuntimeException | Error e) {
+            circuitBreaker.record(e);
+            throw e;
+        }
+        promise.addListener(() -> circuitBreaker.record(RequestScheduler.failureOf(promise)), Runnable::run);
+        return promise;
+    }
+
+    /**
+     * Sends an asynchronous request, scheduling further attempts without blocking a thread in between.
+     * Cancelling the returned future cancels the current attempt and all further ones.
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(request, 1, result);
+        return result;
+    }
+
+    private <T> void attempt(Supplier<CompletableFuture<T>> request, int attempt, CompletableFuture<T> result)
+    {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            circuitBreaker.acquire();
+        } catch (CircuitOpenException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        CompletableFuture<T> future = scheduler.submit(priority, request);
+        future.whenComplete((value, error) -> {
+            circuitBreaker.record(error);
+            if (error == null) {
+                result.complete(value);
+            }
+            else if (retryPolicy.shouldRetry(attempt, error)) {
+                TIMER.schedule(() -> attempt(request, attempt + 1, result), retryPolicy.delay(attempt), TimeUnit.NANOSECONDS);
+            }
+            else {
+                result.completeExceptionally(error);
+            }
+        });
+        Promises.cancelling(future, result);
+    }
+
+    private static ScheduledExecutorService createTimer()
+    {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "lizzy-jira-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import com.atlassian.util.concurrent.Promise;
+
+import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.jira.JiraClientPool.Lease;
+
+/**
+ * Transport sending the requests with a pooled Jira REST client, the default transport of a {@link JiraAdapter}.
+ * <p>
+ * A client is leased for every request and released once the request completed. The issue endpoint of the
+ * client does not support a field selection, so single issues always carry all fields; only the acceptance
+ * criteria field of the projection is read from them.
+ */
+final class RestClientTransport
+    implements JiraTransport
+{
+
+    private final Supplier<Lease<JiraRestClient>> leases;
+
+    /**
+     * @param leases Leases the pooled client for the server and user of the transport.
+     */
+    RestClientTransport(Supplier<Lease<JiraRestClient>> leases)
+    {
+        this.leases = leases;
+    }
+
+    @Override
+    public CompletableFuture<Issue> getIssue(String key, FieldProjection projection)
+    {
+        CompletableFuture<com.atlassian.jira.rest.client.api.domain.Issue> response = send(client -> client.getIssueClient().getIssue(key));
+        return Promises.cancelling(response, response.thenApply(issue -> issue == null ? null : toRaw(issue, projection)));
+    }
+
+    @Override
+    public CompletableFuture<SearchPage> search(String jql, int startAt, int maxResults, FieldProjection projection)
+    {
+        CompletableFuture<SearchResult> response = send(client -> client.getSearchClient()
+            .searchJql(jql, maxResults, startAt, projection.getFields()));
+        return Promises.cancelling(response, response.thenApply(result -> new SearchPage(toRaw(result.getIssues(), projection),
+                result.getTotal())));
+    }
+
+    /**
+     * Sends a request with a leased client, which stays leased until the request completed.
+     */
+    private <T> CompletableFuture<T> send(Function<JiraRestClient, Promise<T>> request)
+    {
+        Lease<JiraRestClient> lease = leases.get();
+        Promise<T> promise;
+        try {
+            promise = request.apply(lease.get());
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+        promise.addListener(lease::close, Runnable::run);
+        return Promises.toCompletableFuture(promise);
+    }
+
+    @Override
+    public void close()
+    {
+        // the pool closes the leased clients
+    }
+
+    /**
+     * Copies the raw field values of a Jira issue.
+     */
+    static Issue toRaw(com.atlassian.jira.rest.client.api.domain.Issue jiraIssue, FieldProjection projection)
+    {
+        return new Issue().setKey(jiraIssue.getKey()).setTitle(jiraIssue.getSummary()).setDescription(jiraIssue.getDescription())
+            .setAcceptanceCriteria(getAcceptanceCriteria(jiraIssue, projection.getAcceptanceCriteriaField()))
+            .setUpdated(jiraIssue.getUpdateDate() == null ? null : Instant.ofEpochMilli(jiraIssue.getUpdateDate().getMillis()));
+    }
+
+    private static List<Issue> toRaw(Iterable<com.atlassian.jira.rest.client.api.domain.Issue> jiraIssues, FieldProjection projection)
+    {
+        List<Issue> issues = new ArrayList<>();
+        if (jiraIssues != null) {
+            jiraIssues.forEach(issue -> issues.add(toRaw(issue, projection)));
+        }
+        return issues;
+    }
+
+    /**
+     * Reads the raw text of the acceptance criteria field.
+     *
+     * @param fieldId Id of the field or <code>null</code> if no field holds acceptance criteria.
+     */
+    private static String getAcceptanceCriteria(com.atlassian.jira.rest.client.api.domain.Issue jiraIssue, String fieldId)
+    {
+        if (fieldId == null) {
+            return null;
+        }
+        IssueField field = jiraIssue.getField(fieldId);
+        if (field == null || !(field.getValue() instanceof String)) {
+            return null;
+        }
+        return (String)field.getValue();
+    }
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Determines whether and when a failed request to Jira is sent again.
+ * <p>
+ * All requests of the {@link JiraAdapter} only read, so they are idempotent and safe to repeat.
+ * Requests are retried on status 429, 502, 503 and 504 and on failed or timed out connections; other client
+ * and server errors, unreadable responses and errors of the client itself would fail again. The pause before an attempt grows exponentially and is drawn at
+ * random from zero up to that bound ("full jitter"), so that clients failing together do not retry together.
+ */
+public class RetryPolicy
+{
+
+    private int  maxAttempts = 3;
+    private long baseDelay   = TimeUnit.MILLISECONDS.toNanos(200);
+    private long maxDelay    = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Policy with three attempts and pauses starting at 200 milliseconds.
+     */
+    public static RetryPolicy defaults()
+    {
+        return new RetryPolicy();
+    }
+
+    /**
+     * Policy sending each request only once.
+     */
+    public static RetryPolicy none()
+    {
+        return new RetryPolicy().setMaxAttempts(1);
+    }
+
+    /**
+     * Whether another attempt should follow the failed one.
+     *
+     * @param attempt Number of the failed attempt, starting with <code>1</code>.
+     * @param failure Error of the failed attempt.
+     */
+    public boolean shouldRetry(int attempt, Throwable failure)
+    {
+        if (attempt >= maxAttempts || failure instanceof CircuitOpenException || isAbandoned(failure)) {
+            return false;
+        }
+        int status = RequestScheduler.statusOf(failure);
+        if (status < 0) {
+            return isConnectionFailure(failure);
+        }
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Random pause in nanoseconds before the attempt following the failed one.
+     *
+     * @param attempt Number of the failed attempt, starting with <code>1</code>.
+     */
+    public long delay(int attempt)
+    {
+        long bound = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * Sets the maximum number of attempts per request, including the first one. Defaults to three.
+     */
+    public RetryPolicy setMaxAttempts(int maxAttempts)
+    {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Sets the bound of the first pause, which doubles with every attempt up to the maximum.
+     * Defaults to 200 milliseconds and five seconds.
+     */
+    public RetryPolicy setBackoff(long baseDelay, long maxDelay, TimeUnit unit)
+    {
+        this.baseDelay = unit.toNanos(baseDelay);
+        this.maxDelay = unit.toNanos(maxDelay);
+        return this;
+    }
+
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    /**
+     * Whether a request failed because its caller gave up on it.
+     */
+    static boolean isAbandoned(Throwable failure)
+    {
+        return failure instanceof CancellationException || failure instanceof InterruptedException;
+    }
+
+    /**
+     * Whether a request failed without a response because the connection failed or timed out.
+     * A response that cannot be parsed is no connection failure.
+     */
+    static boolean isConnectionFailure(Throwable failure)
+    {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonProcessingException) {
+                return false;
+            }
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Page of a JQL search returned by a {@link JiraTransport}.
+ */
+public final class SearchPage
+{
+
+    private final List<Issue> issues;
+    private final int         total;
+
+    /**
+     * @param issues Issues of the page in search order.
+     * @param total Total number of issues matching the search.
+     */
+    public SearchPage(List<Issue> issues, int total)
+    {
+        this.issues = Collections.unmodifiableList(issues);
+        this.total = total;
+    }
+
+    public List<Issue> getIssues()
+    {
+        return issues;
+    }
+
+    public int getTotal()
+    {
+        return total;
+    }
+}
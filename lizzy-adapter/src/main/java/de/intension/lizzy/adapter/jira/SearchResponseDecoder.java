@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.intension.lizzy.adapter.AdfConverter;
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Decodes the JSON body of a Jira search or issue response with a pull parser.
+ * <p>
+ * Only key, summary, description, acceptance criteria and update timestamp are read; all other
+ * fields are skipped without being materialized. Each issue is handed to the consumer as soon as it
+ * is decoded, without a tree of the response being built. Whether the issues of a page are kept in
+ * memory together is up to the consumer: a {@link SearchPage} collects them, while a
+ * {@link PagedIssueIterator} passes them on to its caller one by one.
+ * The decoded issues carry the raw field values, descriptions are not normalized. Descriptions and
+ * acceptance criteria returned as documents in the Atlassian document format, as by API version 3 of
+ * Jira Cloud, are converted to plain text while they are read, see {@link DecodedIssue}.
+ */
+final class SearchResponseDecoder
+{
+
+    private static final JsonFactory       JSON_FACTORY = new JsonFactory();
+    /** Format of Jira timestamps, e.g. <code>2018-06-12T10:15:30.000+0200</code>. */
+    private static final DateTimeFormatter TIMESTAMP    = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    private final String                   acceptanceCriteriaField;
+
+    /**
+     * @param acceptanceCriteriaField Id of the custom field holding the acceptance criteria or <code>null</code>.
+     */
+    SearchResponseDecoder(String acceptanceCriteriaField)
+    {
+        this.acceptanceCriteriaField = acceptanceCriteriaField;
+    }
+
+    /**
+     * Decodes a search response.
+     *
+     * @param body Response body; it is not closed.
+     * @param consumer Receives the issues in response order.
+     * @return Total number of issues matching the search or <code>-1</code> if the response does not tell.
+     * @throws IOException If the body cannot be read or is no valid search response.
+     */
+    int decodeSearch(InputStream body, Consumer<Issue> consumer)
+        throws IOException
+    {
+        int total = -1;
+        try (JsonParser parser = createParser(body)) {
+            expect(parser, JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("total".equals(name) && value == JsonToken.VALUE_NUMBER_INT) {
+                    total = parser.getIntValue();
+                }
+                else if ("issues".equals(name) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(readIssue(parser));
+                    }
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Decodes the response of a single issue request.
+     *
+     * @param body Response body; it is not closed.
+     * @throws IOException If the body cannot be read or is no valid issue.
+     */
+    Issue decodeIssue(InputStream body)
+        throws IOException
+    {
+        try (JsonParser parser = createParser(body)) {
+            expect(parser, JsonToken.START_OBJECT);
+            return readIssue(parser);
+        }
+    }
+
+    /**
+     * Reads an issue object whose start token was consumed.
+     */
+    private Issue readIssue(JsonParser parser)
+        throws IOException
+    {
+        DecodedIssue issue = new DecodedIssue();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("key".equals(name) && value == JsonToken.VALUE_STRING) {
+                issue.setKey(parser.getText());
+            }
+            else if ("fields".equals(name) && value == JsonToken.START_OBJECT) {
+                readFields(parser, issue);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        return issue;
+    }
+
+    private void readFields(JsonParser parser, DecodedIssue issue)
+        throws IOException
+    {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT && "description".equals(name)) {
+                issue.setPlainDescription(AdfConverter.toPlainText(parser));
+            }
+            else if (value == JsonToken.START_OBJECT && name.equals(acceptanceCriteriaField)) {
+                issue.setPlainAcceptanceCriteria(AdfConverter.toPlainText(parser));
+            }
+            else if (value != JsonToken.VALUE_STRING) {
+                parser.skipChildren();
+            }
+            else if ("summary".equals(name)) {
+                issue.setTitle(parser.getText());
+            }
+            else if ("description".equals(name)) {
+                issue.setDescription(parser.getText());
+            }
+            else if ("updated".equals(name)) {
+                issue.setUpdated(parseTimestamp(parser));
+            }
+            else if (name.equals(acceptanceCriteriaField)) {
+                issue.setAcceptanceCriteria(parser.getText());
+            }
+        }
+    }
+
+    private static Instant parseTimestamp(JsonParser parser)
+        throws IOException
+    {
+        try {
+            return OffsetDateTime.parse(parser.getText(), TIMESTAMP).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new JsonParseException(parser, "Invalid timestamp: " + parser.getText(), e);
+        }
+    }
+
+    private static JsonParser createParser(InputStream body)
+        throws IOException
+    {
+        JsonParser parser = JSON_FACTORY.createParser(body);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
+    }
+
+    private static void expect(JsonParser parser, JsonToken token)
+        throws IOException
+    {
+        if (parser.nextToken() != token) {
+            throw new JsonParseException(parser, "Expected " + token + " but found " + parser.getCurrentToken());
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import de.intension.lizzy.adapter.jira.RequestScheduler.Request;
+
+/**
+ * Coalesces concurrent requests with the same key into a single request.
+ * <p>
+ * The first caller for a key sends the request; callers arriving while it is pending share its
+ * outcome, including its error. Every asynchronous caller gets an own future, so cancelling it only
+ * withdraws that caller. The request itself is cancelled once all asynchronous callers cancelled and
+ * no blocking caller waits for it. A completed request is forgotten, so later callers send a new one.
+ * <p>
+ * A blocking caller sending the request that gets interrupted only gives up itself: the request is
+ * forgotten without an outcome and one of the callers waiting for it sends it again.
+ */
+final class SingleFlight<K, V>
+{
+
+    private final Map<K, Flight<V>> flights = new HashMap<>();
+
+    /**
+     * Executes a blocking request or waits for the pending one with the same key.
+     * Errors are thrown as the request threw them: checked errors wrapped in an {@link ExecutionException},
+     * unchecked errors as they are.
+     */
+    V execute(K key, Request<V> request)
+        throws InterruptedException, ExecutionException
+    {
+        while (true) {
+            Flight<V> flight = new Flight<>();
+            Flight<V> pending = join(key, flight);
+            if (pending != null) {
+                try {
+                    return pending.result.get();
+                } catch (CancellationException e) {
+                    // the caller sending the request gave up, take over
+                    continue;
+                } catch (ExecutionException e) {
+                    throw rethrow(pending, e);
+                } catch (InterruptedException e) {
+                    withdraw(key, pending);
+                    throw e;
+                }
+            }
+            try {
+                V value = request.call();
+                complete(key, flight, value, null);
+                return value;
+            } catch (InterruptedException e) {
+                abandon(key, flight);
+                throw e;
+            } catch (ExecutionException e) {
+                if (isInterrupted(e.getCause())) {
+                    abandon(key, flight);
+                    throw e;
+                }
+                flight.wrapped = true;
+                complete(key, flight, null, e.getCause());
+                throw e;
+            } catch (Throwable t) {
+                if (isInterrupted(t)) {
+                    abandon(key, flight);
+                    throw t;
+                }
+                complete(key, flight, null, t);
+                throw t;
+            }
+        }
+    }
+
+    /**
+     * Executes a blocking request without checked exceptions or waits uninterruptibly for the pending
+     * one with the same key, like {@link com.atlassian.util.concurrent.Promise#claim()}.
+     */
+    V claim(K key, Supplier<V> request)
+    {
+        while (true) {
+            Flight<V> flight = new Flight<>();
+            Flight<V> pending = join(key, flight);
+            if (pending != null) {
+                try {
+                    return pending.result.join();
+                } catch (CancellationException e) {
+                    // the caller sending the request gave up, take over
+                    continue;
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException)e.getCause();
+                    }
+                    throw e;
+                }
+            }
+            try {
+                V value = request.get();
+                complete(key, flight, value, null);
+                return value;
+            } catch (Throwable t) {
+                complete(key, flight, null, t);
+                throw t;
+            }
+        }
+    }
+
+    /**
+     * Sends an asynchronous request or shares the pending one with the same key.
+     *
+     * @return Future of this caller; cancelling it withdraws this caller only.
+     */
+    CompletableFuture<V> submit(K key, Supplier<CompletableFuture<V>> request)
+    {
+        Flight<V> flight = new Flight<>();
+        Flight<V> pending = join(key, flight);
+        Flight<V> shared = pending != null ? pending : flight;
+        CompletableFuture<V> caller = new CompletableFuture<>();
+        shared.result.whenComplete((value, error) -> {
+            if (error == null) {
+                caller.complete(value);
+            }
+            else if (shared.result.isCancelled() && !caller.isDone()) {
+                // the blocking caller sending the request gave up, take over
+                CompletableFuture<V> retry = submit(key, request);
+                retry.whenComplete((retried, retryError) -> {
+                    if (retryError == null) {
+                        caller.complete(retried);
+                    }
+                    else {
+                        caller.completeExceptionally(unwrap(retryError));
+                    }
+                });
+                Promises.cancelling(retry, caller);
+            }
+            else {
+                caller.completeExceptionally(error);
+            }
+        });
+        caller.whenComplete((value, error) -> {
+            if (caller.isCancelled()) {
+                withdraw(key, shared);
+            }
+        });
+        if (pending == null) {
+            CompletableFuture<V> response;
+            try {
+                response = request.get();
+            } catch (RuntimeException | Error e) {
+                response = new CompletableFuture<>();
+                response.completeExceptionally(e);
+            }
+            synchronized (this) {
+                flight.request = response;
+            }
+            response.whenComplete((value, error) -> complete(key, flight, value, unwrap(error)));
+            if (flight.result.isCancelled()) {
+                response.cancel(true);
+            }
+        }
+        return caller;
+    }
+
+    /**
+     * Number of pending requests.
+     */
+    synchronized int size()
+    {
+        return flights.size();
+    }
+
+    /**
+     * Registers a caller of the request with the given key.
+     *
+     * @return The pending flight the caller joined or <code>null</code> if the caller has to send the
+     *         request of the given new flight.
+     */
+    private synchronized Flight<V> join(K key, Flight<V> flight)
+    {
+        Flight<V> pending = flights.get(key);
+        if (pending != null) {
+            pending.callers++;
+            return pending;
+        }
+        flight.callers = 1;
+        flights.put(key, flight);
+        return null;
+    }
+
+    private void complete(K key, Flight<V> flight, V value, Throwable error)
+    {
+        synchronized (this) {
+            flights.remove(key, flight);
+        }
+        if (error == null) {
+            flight.result.complete(value);
+        }
+        else {
+            flight.result.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Forgets the flight of a blocking caller that gave up sending the request,
+     * so that the callers waiting for it send it again.
+     */
+    private void abandon(K key, Flight<V> flight)
+    {
+        synchronized (this) {
+            flights.remove(key, flight);
+        }
+        flight.result.cancel(false);
+    }
+
+    /**
+     * Whether the calling thread was interrupted while it sent the request.
+     */
+    private static boolean isInterrupted(Throwable error)
+    {
+        return RetryPolicy.isAbandoned(error) && Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Removes an asynchronous caller and cancels the request if no caller is left.
+     */
+    private void withdraw(K key, Flight<V> flight)
+    {
+        CompletableFuture<V> abandoned = null;
+        boolean cancel = false;
+        synchronized (this) {
+            flight.callers--;
+            if (flight.callers == 0 && flights.remove(key, flight)) {
+                abandoned = flight.request;
+                cancel = true;
+            }
+        }
+        if (cancel) {
+            flight.result.cancel(false);
+            if (abandoned != null) {
+                abandoned.cancel(true);
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable error)
+    {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Throws the error of a flight to a blocking caller the way the request threw it.
+     */
+    private static ExecutionException rethrow(Flight<?> flight, ExecutionException e)
+    {
+        if (flight.wrapped) {
+            return new ExecutionException(e.getCause());
+        }
+        if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException)e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+            throw (Error)e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * Pending request with its callers.
+     */
+    private static final class Flight<V>
+    {
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private CompletableFuture<V>       request;
+        private int                        callers;
+        /** Whether the request threw its error wrapped in an {@link ExecutionException}. */
+        private volatile boolean           wrapped;
+    }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+/**
+ * Immutable outcome of synchronizing a project via {@link JiraSyncEngine}.
+ */
+public class SyncResult
+{
+
+    private final String  project;
+    private final int     updatedCount;
+    private final int     removedCount;
+    private final boolean reconciled;
+
+    public SyncResult(String project, int updatedCount, int removedCount, boolean reconciled)
+    {
+        this.project = project;
+        this.updatedCount = updatedCount;
+        this.removedCount = removedCount;
+        this.reconciled = reconciled;
+    }
+
+    /**
+     * Key of the synchronized project.
+     */
+    public String getProject()
+    {
+        return project;
+    }
+
+    /**
+     * Number of issues fetched because they were changed or missing locally.
+     */
+    public int getUpdatedCount()
+    {
+        return updatedCount;
+    }
+
+    /**
+     * Number of issues removed locally because they no longer exist in the project.
+     */
+    public int getRemovedCount()
+    {
+        return removedCount;
+    }
+
+    /**
+     * Whether the local issue keys were reconciled with the project.
+     */
+    public boolean isReconciled()
+    {
+        return reconciled;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SyncResult[project=" + project + ", updated=" + updatedCount + ", removed=" + removedCount + ", reconciled=" + reconciled + "]";
+    }
+}
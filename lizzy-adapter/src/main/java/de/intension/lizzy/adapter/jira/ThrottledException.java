@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.concurrent.TimeUnit;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+/**
+ * Thrown when Jira throttled a request with status 429 or 503 and told by a Retry-After header
+ * when to send requests again. The {@link RequestScheduler} pauses for that time instead of its default pause.
+ */
+public class ThrottledException
+    extends RestClientException
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private final long        retryAfter;
+
+    /**
+     * @param retryAfter Nanoseconds to wait before the next request.
+     */
+    public ThrottledException(Throwable cause, int statusCode, long retryAfter)
+    {
+        super(cause, statusCode);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Time the server asked to wait before the next request.
+     */
+    public long getRetryAfter(TimeUnit unit)
+    {
+        return unit.convert(retryAfter, TimeUnit.NANOSECONDS);
+    }
+}
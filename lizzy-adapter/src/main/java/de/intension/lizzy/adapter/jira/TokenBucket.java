@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe token bucket limiting the rate of requests.
+ * <p>
+ * Tokens are refilled continuously at the configured rate up to the burst size. The
+ * {@link #getDefault() default bucket} is shared by all {@link RequestScheduler}s of the JVM, so
+ * concurrent jobs together stay within the request quota of a service account.
+ */
+public class TokenBucket
+{
+
+    private static final TokenBucket DEFAULT = new TokenBucket(20, 40);
+
+    private double                   rate;
+    private double                   burst;
+    private double                   tokens;
+    private long                     refilled;
+
+    /**
+     * @param permitsPerSecond Number of tokens refilled per second.
+     * @param burst Maximum number of tokens, i.e. requests that may be sent at once after a quiet period.
+     */
+    public TokenBucket(double permitsPerSecond, int burst)
+    {
+        this.rate = permitsPerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilled = System.nanoTime();
+    }
+
+    /**
+     * Bucket shared by all schedulers that were not given an own bucket.
+     * It allows 20 requests per second with bursts of 40.
+     */
+    public static TokenBucket getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return <code>0</code> if a token was taken, otherwise the nanoseconds until the next token is available.
+     */
+    public synchronized long tryAcquire()
+    {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return Math.max(1, (long)((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * Changes rate and burst size, e.g. to match the quota of the service account.
+     */
+    public synchronized TokenBucket setRate(double permitsPerSecond, int burst)
+    {
+        refill();
+        this.rate = permitsPerSecond;
+        this.burst = burst;
+        this.tokens = Math.min(tokens, burst);
+        return this;
+    }
+
+    /**
+     * Number of tokens refilled per second.
+     */
+    public synchronized double getRate()
+    {
+        return rate;
+    }
+
+    private void refill()
+    {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilled) * rate / TimeUnit.SECONDS.toNanos(1));
+        refilled = now;
+    }
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection settings for the HTTP client a {@link JiraAdapter} builds, see
+ * {@link JiraAdapter#setTransportSettings(TransportSettings)}.
+ * <p>
+ * Search responses with long descriptions are large but compress well, so compression is enabled by default.
+ * The settings are read when the client is built; changing them afterwards affects clients built later only.
+ */
+public class TransportSettings
+{
+
+    private boolean compression           = true;
+    private int     maxConnectionsPerHost = 20;
+    private long    idleTimeout           = TimeUnit.SECONDS.toMillis(30);
+    private long    connectTimeout        = TimeUnit.SECONDS.toMillis(10);
+    private long    socketTimeout         = TimeUnit.SECONDS.toMillis(60);
+    private int     tlsSessionCacheSize   = 100;
+    private long    tlsSessionTimeout     = TimeUnit.HOURS.toMillis(1);
+    private int     apiVersion            = 2;
+
+    /**
+     * Settings with compression, 20 concurrent requests per host, idle threads kept for 30 seconds, a connect timeout
+     * of ten seconds, a socket timeout of one minute and TLS sessions reused for one hour.
+     */
+    public static TransportSettings defaults()
+    {
+        return new TransportSettings();
+    }
+
+    /**
+     * Copies the current values, e.g. to keep them independent of later changes.
+     */
+    public TransportSettings copy()
+    {
+        return new TransportSettings().setCompression(compression)
+            .setMaxConnectionsPerHost(maxConnectionsPerHost)
+            .setIdleTimeout(idleTimeout, TimeUnit.MILLISECONDS)
+            .setConnectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+            .setSocketTimeout(socketTimeout, TimeUnit.MILLISECONDS)
+            .setTlsSessionCacheSize(tlsSessionCacheSize)
+            .setTlsSessionTimeout(tlsSessionTimeout, TimeUnit.MILLISECONDS)
+            .setApiVersion(apiVersion);
+    }
+
+    /**
+     * Whether responses are requested gzip or deflate compressed.
+     */
+    public boolean isCompression()
+    {
+        return compression;
+    }
+
+    public TransportSettings setCompression(boolean compression)
+    {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Maximum number of requests sent to the server at the same time, which is the number of threads of the
+     * transport; further requests wait in a queue. It does not limit the idle connections the JDK keeps for reuse,
+     * those are limited by the system property <code>http.maxConnections</code>.
+     */
+    public int getMaxConnectionsPerHost()
+    {
+        return maxConnectionsPerHost;
+    }
+
+    public TransportSettings setMaxConnectionsPerHost(int maxConnectionsPerHost)
+    {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("At least one connection is needed: " + maxConnectionsPerHost);
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        return this;
+    }
+
+    /**
+     * Time an idle thread of the transport is kept before it ends. It does not affect idle connections, which
+     * the JDK closes after the keep-alive time announced by the server, five seconds if it announces none.
+     * Zero disables keep-alive, so connections are closed after every response.
+     */
+    public long getIdleTimeout(TimeUnit unit)
+    {
+        return unit.convert(idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    public TransportSettings setIdleTimeout(long timeout, TimeUnit unit)
+    {
+        this.idleTimeout = checkTimeout(unit.toMillis(timeout));
+        return this;
+    }
+
+    /**
+     * Time to wait for a connection to be established. Zero waits infinitely.
+     */
+    public long getConnectTimeout(TimeUnit unit)
+    {
+        return unit.convert(connectTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    public TransportSettings setConnectTimeout(long timeout, TimeUnit unit)
+    {
+        this.connectTimeout = checkTimeout(unit.toMillis(timeout));
+        return this;
+    }
+
+    /**
+     * Time to wait for data of a response. Zero waits infinitely.
+     */
+    public long getSocketTimeout(TimeUnit unit)
+    {
+        return unit.convert(socketTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    public TransportSettings setSocketTimeout(long timeout, TimeUnit unit)
+    {
+        this.socketTimeout = checkTimeout(unit.toMillis(timeout));
+        return this;
+    }
+
+    /**
+     * Maximum number of TLS sessions kept to resume connections without a full handshake. Zero means no limit.
+     */
+    public int getTlsSessionCacheSize()
+    {
+        return tlsSessionCacheSize;
+    }
+
+    public TransportSettings setTlsSessionCacheSize(int tlsSessionCacheSize)
+    {
+        if (tlsSessionCacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + tlsSessionCacheSize);
+        }
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+        return this;
+    }
+
+    /**
+     * Time a TLS session may be resumed. Zero means no limit.
+     */
+    public long getTlsSessionTimeout(TimeUnit unit)
+    {
+        return unit.convert(tlsSessionTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    public TransportSettings setTlsSessionTimeout(long timeout, TimeUnit unit)
+    {
+        this.tlsSessionTimeout = checkTimeout(unit.toMillis(timeout));
+        return this;
+    }
+
+    /**
+     * Version of the Jira REST API to request. Version 3 is available on Jira Cloud only and returns rich text
+     * as documents, which are converted by the {@link de.intension.lizzy.adapter.AdfConverter} instead of
+     * removing wiki markup.
+     */
+    public int getApiVersion()
+    {
+        return apiVersion;
+    }
+
+    public TransportSettings setApiVersion(int apiVersion)
+    {
+        if (apiVersion != 2 && apiVersion != 3) {
+            throw new IllegalArgumentException("Unsupported API version: " + apiVersion);
+        }
+        this.apiVersion = apiVersion;
+        return this;
+    }
+
+    private static long checkTimeout(long millis)
+    {
+        if (millis < 0 || millis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Timeout out of range: " + millis + "ms");
+        }
+        return millis;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof TransportSettings)) {
+            return false;
+        }
+        TransportSettings other = (TransportSettings)obj;
+        return compression == other.compression && maxConnectionsPerHost == other.maxConnectionsPerHost && idleTimeout == other.idleTimeout
+                && connectTimeout == other.connectTimeout && socketTimeout == other.socketTimeout
+                && tlsSessionCacheSize == other.tlsSessionCacheSize && tlsSessionTimeout == other.tlsSessionTimeout
+                && apiVersion == other.apiVersion;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(compression, maxConnectionsPerHost, idleTimeout, connectTimeout, socketTimeout, tlsSessionCacheSize,
+                            tlsSessionTimeout, apiVersion);
+    }
+}
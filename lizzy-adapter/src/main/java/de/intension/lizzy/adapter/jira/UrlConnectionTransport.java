@@ -0,0 +1,372 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.adapter.jira;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Lightweight {@link JiraTransport} on top of {@link HttpURLConnection}.
+ * <p>
+ * It needs no other libraries than the JDK and the JSON parser of the {@link SearchResponseDecoder},
+ * so it starts fast and keeps little memory, e.g. for headless bulk runs. Responses are requested
+ * compressed and decoded while they are read. The JDK keeps connections alive and reuses them
+ * once a response was read completely; the number of idle connections kept per server is set by the
+ * system property <code>http.maxConnections</code>. Requests run on at most
+ * {@link TransportSettings#getMaxConnectionsPerHost()} daemon threads of the transport, further requests
+ * wait in a queue without occupying a thread; their concurrency is also limited by the {@link RequestScheduler}
+ * of the adapter. HTTPS connections of a transport share a TLS session cache, so reconnecting resumes the
+ * session instead of a full handshake.
+ * <p>
+ * A request answered with an error status fails with a {@link RestClientException} carrying the status,
+ * a {@link ThrottledException} if the server sent a Retry-After header with status 429 or 503. A request
+ * without a response, because the connection failed or timed out, fails with a {@link RestClientException}
+ * without status caused by the {@link IOException}, like requests of the Jira client.
+ */
+public class UrlConnectionTransport
+    implements JiraTransport
+{
+
+    private static final AtomicInteger      THREAD_COUNT    = new AtomicInteger();
+    /** Longest Retry-After time obeyed, so a wrong header does not suspend all requests for good. */
+    private static final long               MAX_RETRY_AFTER = TimeUnit.MINUTES.toNanos(10);
+
+    private final String                    baseUrl;
+    private final String                    apiPath;
+    private final String                    authorization;
+    private final ExecutorService           executor;
+    private final Set<CompletableFuture<?>> outstanding     = ConcurrentHashMap.newKeySet();
+    private final boolean                   compression;
+    private final boolean                   keepAlive;
+    private final SSLSocketFactory          sslSocketFactory;
+
+    private volatile int                    connectTimeout;
+    private volatile int                    readTimeout;
+
+    /**
+     * Creates a transport with {@link TransportSettings#defaults() the default settings}.
+     *
+     * @param uri Base URI of the Jira server.
+     */
+    public UrlConnectionTransport(URI uri, String username, String password)
+    {
+        this(uri, username, password, TransportSettings.defaults());
+    }
+
+    /**
+     * Creates a transport with the given settings. The JDK closes idle connections after the keep-alive
+     * time announced by the server, five seconds if it announces none; the idle timeout of the settings
+     * limits how long idle threads of the transport are kept, and zero disables keep-alive.
+     *
+     * @param uri Base URI of the Jira server.
+     */
+    public UrlConnectionTransport(URI uri, String username, String password, TransportSettings settings)
+    {
+        String base = uri.toString();
+        this.baseUrl = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+        this.apiPath = "/rest/api/" + settings.getApiVersion() + "/";
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        long idleTimeout = settings.getIdleTimeout(TimeUnit.MILLISECONDS);
+        int threads = settings.getMaxConnectionsPerHost();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, Math.max(idleTimeout, 1), TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "lizzy-jira-http-" + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        this.compression = settings.isCompression();
+        this.keepAlive = idleTimeout > 0;
+        this.connectTimeout = (int)settings.getConnectTimeout(TimeUnit.MILLISECONDS);
+        this.readTimeout = (int)settings.getSocketTimeout(TimeUnit.MILLISECONDS);
+        this.sslSocketFactory = "https".equalsIgnoreCase(uri.getScheme()) ? createSslSocketFactory(settings) : null;
+    }
+
+    @Override
+    public CompletableFuture<Issue> getIssue(String key, FieldProjection projection)
+    {
+        SearchResponseDecoder decoder = new SearchResponseDecoder(projection.getAcceptanceCriteriaField());
+        return send(apiPath + "issue/" + encode(key) + "?fields=" + encode(String.join(",", projection.getFields())),
+                    decoder::decodeIssue);
+    }
+
+    @Override
+    public CompletableFuture<SearchPage> search(String jql, int startAt, int maxResults, FieldProjection projection)
+    {
+        List<Issue> issues = new ArrayList<>();
+        return search(jql, startAt, maxResults, projection, issues::add, total -> new SearchPage(issues, total));
+    }
+
+    /**
+     * Hands every issue to the consumer as soon as it is decoded from the response.
+     */
+    @Override
+    public CompletableFuture<Integer> search(String jql, int startAt, int maxResults, FieldProjection projection, Consumer<Issue> consumer)
+    {
+        return search(jql, startAt, maxResults, projection, consumer, Integer::valueOf);
+    }
+
+    private <T> CompletableFuture<T> search(String jql, int startAt, int maxResults, FieldProjection projection, Consumer<Issue> consumer,
+                                            IntFunction<T> result)
+    {
+        SearchResponseDecoder decoder = new SearchResponseDecoder(projection.getAcceptanceCriteriaField());
+        return send(apiPath + "search?jql=" + encode(jql) + "&startAt=" + startAt + "&maxResults=" + maxResults + "&fields="
+                + encode(String.join(",", projection.getFields())), body -> {
+                    AtomicInteger received = new AtomicInteger();
+                    int total = decoder.decodeSearch(body, issue -> {
+                        received.incrementAndGet();
+                        consumer.accept(issue);
+                    });
+                    return result.apply(total < 0 ? startAt + received.get() : total);
+                });
+    }
+
+    /**
+     * Stops the threads of the transport. Pending requests are cancelled.
+     */
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+        outstanding.forEach(request -> request.cancel(true));
+    }
+
+    /**
+     * Sets the timeout for establishing a connection. Defaults to {@link TransportSettings#getConnectTimeout(TimeUnit)}.
+     */
+    public UrlConnectionTransport setConnectTimeout(long timeout, TimeUnit unit)
+    {
+        this.connectTimeout = (int)unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the timeout for waiting for data of a response. Defaults to {@link TransportSettings#getSocketTimeout(TimeUnit)}.
+     */
+    public UrlConnectionTransport setReadTimeout(long timeout, TimeUnit unit)
+    {
+        this.readTimeout = (int)unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sends a GET request on a thread of the transport. Cancelling the returned future disconnects the request.
+     */
+    private <T> CompletableFuture<T> send(String path, BodyReader<T> reader)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<HttpURLConnection> pending = new AtomicReference<>();
+        outstanding.add(result);
+        result.whenComplete((value, error) -> {
+            outstanding.remove(result);
+            HttpURLConnection connection = pending.getAndSet(null);
+            if (result.isCancelled() && connection != null) {
+                connection.disconnect();
+            }
+        });
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    HttpURLConnection connection = open(path);
+                    pending.set(connection);
+                    result.complete(read(connection, reader));
+                } catch (IOException e) {
+                    result.completeExceptionally(new RestClientException("Request to " + baseUrl + " failed", e));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    pending.set(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private HttpURLConnection open(String path)
+        throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection)new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setUseCaches(false);
+        connection.setRequestProperty("Authorization", authorization);
+        connection.setRequestProperty("Accept", "application/json");
+        if (compression) {
+            connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        }
+        if (!keepAlive) {
+            connection.setRequestProperty("Connection", "close");
+        }
+        if (sslSocketFactory != null && connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection)connection).setSSLSocketFactory(sslSocketFactory);
+        }
+        return connection;
+    }
+
+    /**
+     * Creates a socket factory with an own TLS session cache, so the sessions of the transport are
+     * resumed according to its settings.
+     */
+    private static SSLSocketFactory createSslSocketFactory(TransportSettings settings)
+    {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            SSLSessionContext sessions = context.getClientSessionContext();
+            sessions.setSessionCacheSize(settings.getTlsSessionCacheSize());
+            sessions.setSessionTimeout((int)settings.getTlsSessionTimeout(TimeUnit.SECONDS));
+            return context.getSocketFactory();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("TLS is not available", e);
+        }
+    }
+
+    private static <T> T read(HttpURLConnection connection, BodyReader<T> reader)
+        throws IOException
+    {
+        int status = connection.getResponseCode();
+        if (status >= 400) {
+            // read the error body completely, so the connection is kept alive
+            try (InputStream error = connection.getErrorStream()) {
+                if (error != null) {
+                    byte[] buffer = new byte[4096];
+                    while (error.read(buffer) >= 0) {
+                        // discard
+                    }
+                }
+            }
+            IOException cause = new IOException("Jira answered " + status + " " + connection.getResponseMessage());
+            long retryAfter = status == 429 || status == 503 ? parseRetryAfter(connection.getHeaderField("Retry-After"), Instant.now()) : -1;
+            throw retryAfter < 0 ? new RestClientException(cause, status) : new ThrottledException(cause, status, retryAfter);
+        }
+        try (InputStream body = decompress(connection)) {
+            T value = reader.read(body);
+            byte[] buffer = new byte[512];
+            while (body.read(buffer) >= 0) {
+                // drain trailing whitespace, so the connection is kept alive
+            }
+            return value;
+        } catch (JsonProcessingException e) {
+            // the server answered, but not with the expected JSON
+            throw new RestClientException(e, status);
+        }
+    }
+
+    /**
+     * Parses a Retry-After header, given in seconds or as HTTP date.
+     *
+     * @return Nanoseconds to wait, at most ten minutes, or <code>-1</code> without a valid header.
+     */
+    static long parseRetryAfter(String header, Instant now)
+    {
+        if (header == null || header.trim().isEmpty()) {
+            return -1;
+        }
+        String value = header.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds < 0 ? -1 : Math.min(MAX_RETRY_AFTER, TimeUnit.SECONDS.toNanos(seconds));
+        } catch (NumberFormatException e) {
+            // no seconds, so it must be a date
+        }
+        try {
+            Duration delay = Duration.between(now, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+            if (delay.isNegative()) {
+                return 0;
+            }
+            return delay.compareTo(Duration.ofNanos(MAX_RETRY_AFTER)) > 0 ? MAX_RETRY_AFTER : delay.toNanos();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static InputStream decompress(HttpURLConnection connection)
+        throws IOException
+    {
+        InputStream body = connection.getInputStream();
+        String encoding = connection.getContentEncoding();
+        if ("gzip".equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(body, 8192);
+        }
+        return "deflate".equalsIgnoreCase(encoding) ? new InflaterInputStream(body) : body;
+    }
+
+    private static String encode(String value)
+    {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes a response body.
+     */
+    @FunctionalInterface
+    private interface BodyReader<T>
+    {
+
+        T read(InputStream body)
+            throws IOException;
+    }
+}
@@ -0,0 +1,222 @@
+package de.intension.lizzy.adapter;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+public class AdfConverterTest
+{
+
+    /**
+     * GIVEN a document with a heading and paragraphs with marks and a hard break
+     * WHEN converting it
+     * THEN every block is a trimmed line of its own
+     * AND the marks are dropped
+     */
+    @Test
+    public void should_convert_paragraphs()
+        throws IOException
+    {
+        String json = doc(node("heading", "{\"level\":1}", text("Title")),
+                          node("paragraph", null, text("  Some "), "{\"type\":\"text\",\"text\":\"bold\",\"marks\":[{\"type\":\"strong\"}]}",
+                               text(" text"), "{\"type\":\"hardBreak\"}", text("next line ")),
+                          node("paragraph", null));
+
+        String text = AdfConverter.toPlainText(json);
+
+        assertThat(text, equalTo("Title\nSome bold text\nnext line"));
+    }
+
+    /**
+     * GIVEN a document with nested bullet and ordered lists
+     * WHEN converting it
+     * THEN every list item is a line without decorator
+     */
+    @Test
+    public void should_convert_lists()
+        throws IOException
+    {
+        String json = doc(node("bulletList", null, item("first"),
+                               node("listItem", null, node("paragraph", null, text("second")),
+                                    node("orderedList", "{\"order\":1}", item("nested")))),
+                          node("paragraph", null, text("after")));
+
+        String text = AdfConverter.toPlainText(json);
+
+        assertThat(text, equalTo("first\nsecond\nnested\nafter"));
+    }
+
+    /**
+     * GIVEN a document with a code block
+     * WHEN converting it
+     * THEN the code is kept with its markup
+     */
+    @Test
+    public void should_keep_code()
+        throws IOException
+    {
+        String json = doc(node("codeBlock", "{\"language\":\"java\"}", text("int *a* = b_c;\\n  return a;")));
+
+        String text = AdfConverter.toPlainText(json);
+
+        assertThat(text, equalTo("int *a* = b_c;\nreturn a;"));
+    }
+
+    /**
+     * GIVEN a document with a table
+     * WHEN converting it
+     * THEN every row is a line with the cells separated like a Gherkin data table
+     */
+    @Test
+    public void should_convert_tables()
+        throws IOException
+    {
+        String json = doc(node("table", null,
+                               node("tableRow", null, node("tableHeader", null, node("paragraph", null, text("name"))),
+                                    node("tableHeader", null, node("paragraph", null, text("role")))),
+                               node("tableRow", null, node("tableCell", null, node("paragraph", null, text("Ingo"))),
+                                    node("tableCell", null, node("paragraph", null, text("admin")), node("paragraph", null, text("dev"))))));
+
+        String text = AdfConverter.toPlainText(json);
+
+        assertThat(text, equalTo("| name | role |\n| Ingo | admin dev |"));
+    }
+
+    /**
+     * GIVEN a paragraph with mention, emoji, status, date and link card
+     * WHEN converting it
+     * THEN they are replaced by their text
+     */
+    @Test
+    public void should_convert_inline_nodes()
+        throws IOException
+    {
+        String json = doc(node("paragraph", null, node("mention", "{\"id\":\"42\",\"text\":\"@Ingo\"}"), text(" "),
+                               node("emoji", "{\"shortName\":\":smile:\"}"), text(" "),
+                               node("status", "{\"text\":\"DONE\",\"color\":\"green\"}"), text(" on "),
+                               node("date", "{\"timestamp\":\"1539856800000\"}"), text(" see "),
+                               node("inlineCard", "{\"url\":\"https://intension.de\"}")));
+
+        String text = AdfConverter.toPlainText(json);
+
+        assertThat(text, equalTo("@Ingo :smile: DONE on 2018-10-18 see https://intension.de"));
+    }
+
+    /**
+     * GIVEN a document with text that looks like wiki markup
+     * WHEN converting it
+     * THEN the text is kept as it is
+     */
+    @Test
+    public void should_keep_literal_markup()
+        throws IOException
+    {
+        String json = doc(node("paragraph", null, text("*not bold* and [no|link] for H~2~O \\u00E4")));
+
+        String text = AdfConverter.toPlainText(json);
+
+        assertThat(text, equalTo("*not bold* and [no|link] for H~2~O \u00E4"));
+    }
+
+    /**
+     * GIVEN unknown nodes and a node whose type follows its content
+     * WHEN converting the document
+     * THEN their text is converted like blocks
+     */
+    @Test
+    public void should_convert_unknown_nodes()
+        throws IOException
+    {
+        String json = doc(node("futureBlock", "{\"x\":[1,2]}", text("inner")),
+                          "{\"content\":[" + text("late") + "],\"type\":\"paragraph\"}", node("rule", null));
+
+        String text = AdfConverter.toPlainText(json);
+
+        assertThat(text, equalTo("inner\nlate"));
+    }
+
+    /**
+     * GIVEN an empty document, an object that is no document and no JSON
+     * WHEN converting them
+     * THEN <code>null</code> is returned
+     */
+    @Test
+    public void should_return_null_without_text()
+        throws IOException
+    {
+        assertThat(AdfConverter.toPlainText(doc(node("paragraph", null, text("  ")))), nullValue());
+        assertThat(AdfConverter.toPlainText("{\"value\":\"option\",\"text\":\"x\"}"), nullValue());
+        assertThat(AdfConverter.toPlainText((String)null), nullValue());
+    }
+
+    /**
+     * GIVEN a parser positioned at a document within a larger JSON object
+     * WHEN converting the document
+     * THEN the parser is positioned at the end of the document
+     */
+    @Test
+    public void should_read_document_from_parser()
+        throws IOException
+    {
+        String json = "{\"description\":" + doc(node("paragraph", null, text("text"))) + ",\"summary\":\"next\"}";
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            parser.nextToken();
+            parser.nextToken();
+            parser.nextToken();
+
+            String text = AdfConverter.toPlainText(parser);
+
+            assertThat(text, equalTo("text"));
+            assertThat(parser.nextToken(), equalTo(JsonToken.FIELD_NAME));
+            assertThat(parser.getCurrentName(), equalTo("summary"));
+        }
+    }
+
+    /**
+     * GIVEN a parser that is not positioned at an object
+     * WHEN converting the document
+     * THEN a parse exception is thrown
+     */
+    @Test(expected = JsonParseException.class)
+    public void should_reject_non_objects()
+        throws IOException
+    {
+        AdfConverter.toPlainText("[]");
+    }
+
+    private static String doc(String... content)
+    {
+        return "{\"version\":1," + node("doc", null, content).substring(1);
+    }
+
+    private static String item(String text)
+    {
+        return node("listItem", null, node("paragraph", null, text(text)));
+    }
+
+    private static String node(String type, String attrs, String... content)
+    {
+        StringBuilder json = new StringBuilder("{\"type\":\"").append(type).append('"');
+        if (attrs != null) {
+            json.append(",\"attrs\":").append(attrs);
+        }
+        if (content.length > 0) {
+            json.append(",\"content\":[").append(String.join(",", content)).append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String text(String text)
+    {
+        return "{\"type\":\"text\",\"text\":\"" + text + "\"}";
+    }
+}
@@ -0,0 +1,135 @@
+package de.intension.lizzy.adapter;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class IssueCacheTest
+{
+
+    private static final Instant UPDATED = Instant.parse("2018-10-01T10:15:30Z");
+
+    /**
+     * GIVEN a cache containing an issue
+     * WHEN looking up the issue
+     * THEN the cached issue is returned
+     * AND a hit is counted
+     */
+    @Test
+    public void should_return_cached_issue()
+    {
+        IssueCache cache = new IssueCache();
+        Issue issue = issue("LIZZY-1", "description", UPDATED);
+        cache.put(issue);
+
+        Issue cached = cache.get("LIZZY-1");
+
+        assertThat(cached.getKey(), equalTo("LIZZY-1"));
+        assertThat(cached.getDescription(), equalTo("description"));
+        assertThat(cache.getStats().getHitCount(), equalTo(1L));
+    }
+
+    /**
+     * GIVEN a cache with a time to live of zero
+     * WHEN looking up a cached issue
+     * THEN nothing is returned
+     * AND the issue can be renewed with its unchanged update timestamp
+     */
+    @Test
+    public void should_expire_issue_but_renew_unchanged_issue()
+    {
+        IssueCache cache = new IssueCache(10, 1000, 0, TimeUnit.MILLISECONDS);
+        Issue issue = issue("LIZZY-1", "description", UPDATED);
+        cache.put(issue);
+
+        assertThat(cache.get("LIZZY-1"), nullValue());
+        assertThat(cache.get("LIZZY-1", UPDATED.plusSeconds(1)), nullValue());
+        assertThat(cache.get("LIZZY-1", UPDATED).getDescription(), equalTo("description"));
+        assertThat(cache.getStats().getMissCount(), equalTo(2L));
+    }
+
+    /**
+     * GIVEN a cache containing an issue
+     * WHEN changing the added issue and an issue returned by the cache
+     * THEN the cached issue stays unchanged
+     */
+    @Test
+    public void should_keep_copies_of_issues()
+    {
+        IssueCache cache = new IssueCache();
+        Issue issue = issue("LIZZY-1", "description", UPDATED);
+        cache.put(issue);
+
+        issue.setDescription("changed");
+        cache.get("LIZZY-1").setDescription("changed");
+        cache.peek("LIZZY-1").setDescription("changed");
+
+        assertThat(cache.get("LIZZY-1", UPDATED).getDescription(), equalTo("description"));
+        assertThat(cache.get("LIZZY-1"), not(sameInstance(cache.get("LIZZY-1"))));
+    }
+
+    /**
+     * GIVEN a cache limited to two issues
+     * WHEN adding a third issue
+     * THEN the least recently used issue is evicted
+     */
+    @Test
+    public void should_evict_least_recently_used_issue()
+    {
+        IssueCache cache = new IssueCache(2, 1000, 1, TimeUnit.MINUTES);
+        cache.put(issue("LIZZY-1", "a", UPDATED));
+        cache.put(issue("LIZZY-2", "b", UPDATED));
+        cache.get("LIZZY-1");
+
+        cache.put(issue("LIZZY-3", "c", UPDATED));
+
+        assertThat(cache.get("LIZZY-2"), nullValue());
+        assertThat(cache.size(), equalTo(2));
+        assertThat(cache.getStats().getEvictionCount(), equalTo(1L));
+    }
+
+    /**
+     * GIVEN a cache limited to 10 characters
+     * WHEN adding issues with 6 characters each
+     * THEN only the latest issue is kept
+     */
+    @Test
+    public void should_evict_by_description_length()
+    {
+        IssueCache cache = new IssueCache(10, 10, 1, TimeUnit.MINUTES);
+        cache.put(issue("LIZZY-1", "123456", UPDATED));
+
+        cache.put(issue("LIZZY-2", "abcdef", UPDATED));
+
+        assertThat(cache.get("LIZZY-1"), nullValue());
+        assertThat(cache.weight(), equalTo(6L));
+    }
+
+    /**
+     * GIVEN a cache containing an issue
+     * WHEN adding an older version of the issue
+     * THEN the newer version is kept
+     */
+    @Test
+    public void should_not_replace_newer_issue()
+    {
+        IssueCache cache = new IssueCache();
+        cache.put(issue("LIZZY-1", "new", UPDATED));
+
+        cache.put(issue("LIZZY-1", "old", UPDATED.minusSeconds(60)));
+
+        assertThat(cache.get("LIZZY-1").getDescription(), equalTo("new"));
+    }
+
+    private Issue issue(String key, String description, Instant updated)
+    {
+        return new Issue().setKey(key).setDescription(description).setUpdated(updated);
+    }
+}
@@ -0,0 +1,270 @@
+package de.intension.lizzy.adapter;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IssueStoreTest
+{
+
+    private static final Instant UPDATED = Instant.parse("2018-10-01T10:15:30Z");
+
+    @Rule
+    public TemporaryFolder       folder  = new TemporaryFolder();
+
+    /**
+     * GIVEN a store containing issues
+     * WHEN reopening the store
+     * THEN the issues are read back with all fields
+     */
+    @Test
+    public void should_read_issues_after_reopening()
+        throws IOException
+    {
+        Path directory = folder.getRoot().toPath();
+        try (IssueStore store = IssueStore.open(directory)) {
+            store.putAll(Arrays.asList(issue("LIZZY-1", "first", UPDATED).setAcceptanceCriteria("criteria").setAcceptanceCriteriaField("customfield_10100"),
+                                       issue("LIZZY-2", null, null)));
+        }
+
+        try (IssueStore store = IssueStore.open(directory)) {
+            Issue issue = store.get("LIZZY-1");
+            assertThat(issue.getKey(), equalTo("LIZZY-1"));
+            assertThat(issue.getTitle(), equalTo("Title of LIZZY-1"));
+            assertThat(issue.getDescription(), equalTo("first"));
+            assertThat(issue.getAcceptanceCriteria(), equalTo("criteria"));
+            assertThat(issue.getAcceptanceCriteriaField(), equalTo("customfield_10100"));
+            assertThat(issue.getUpdated(), equalTo(UPDATED));
+            assertThat(store.get("LIZZY-2").getDescription(), nullValue());
+            assertThat(store.get("LIZZY-2").getUpdated(), nullValue());
+            assertThat(store.get("LIZZY-3"), nullValue());
+        }
+    }
+
+    /**
+     * GIVEN a store whose last record was torn by a crash
+     * WHEN reopening the store
+     * THEN the torn record is dropped
+     * AND new issues can be stored
+     */
+    @Test
+    public void should_drop_torn_record()
+        throws IOException
+    {
+        Path directory = folder.getRoot().toPath();
+        try (IssueStore store = IssueStore.open(directory)) {
+            store.put(issue("LIZZY-1", "first", UPDATED));
+            store.put(issue("LIZZY-2", "second", UPDATED));
+        }
+        Path log = directory.resolve("issues.log");
+        byte[] bytes = Files.readAllBytes(log);
+        int last = bytes.length - 1;
+        while (bytes[last] == 0) {
+            last--;
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(last - 2);
+        }
+
+        try (IssueStore store = IssueStore.open(directory)) {
+            assertThat(store.get("LIZZY-1").getDescription(), equalTo("first"));
+            assertThat(store.get("LIZZY-2"), nullValue());
+            store.put(issue("LIZZY-3", "third", UPDATED));
+        }
+        try (IssueStore store = IssueStore.open(directory)) {
+            assertThat(store.keys(), containsInAnyOrder("LIZZY-1", "LIZZY-3"));
+        }
+    }
+
+    /**
+     * GIVEN a store containing several versions of an issue and a removed issue
+     * WHEN compacting the store
+     * THEN only the latest version remains
+     * AND the log shrinks
+     */
+    @Test
+    public void should_compact_superseded_records()
+        throws IOException
+    {
+        Path directory = folder.getRoot().toPath();
+        Path log = directory.resolve("issues.log");
+        try (IssueStore store = IssueStore.open(directory)) {
+            for (int i = 0; i < 10; i++) {
+                store.put(issue("LIZZY-1", "version " + i, UPDATED.plusSeconds(i)));
+            }
+            store.put(issue("LIZZY-2", "removed", UPDATED));
+            store.remove("LIZZY-2");
+            long size = Files.size(log);
+
+            store.compact();
+
+            assertThat(Files.size(log), lessThan(size));
+            assertThat(store.get("LIZZY-1").getDescription(), equalTo("version 9"));
+            assertThat(store.keys(), containsInAnyOrder("LIZZY-1"));
+        }
+        try (IssueStore store = IssueStore.open(directory)) {
+            assertThat(store.get("LIZZY-1").getDescription(), equalTo("version 9"));
+            assertThat(store.size(), equalTo(1));
+        }
+    }
+
+    /**
+     * GIVEN an issue which is stored already
+     * WHEN storing the same version again
+     * THEN the log is not written
+     */
+    @Test
+    public void should_skip_stored_version()
+        throws IOException
+    {
+        Path directory = folder.getRoot().toPath();
+        try (IssueStore store = IssueStore.open(directory)) {
+            store.put(issue("LIZZY-1", "first", UPDATED));
+            long size = Files.size(directory.resolve("issues.log"));
+
+            store.put(issue("LIZZY-1", "first", UPDATED));
+
+            assertThat(Files.size(directory.resolve("issues.log")), equalTo(size));
+        }
+    }
+
+    /**
+     * GIVEN an issue which is stored without acceptance criteria field
+     * WHEN storing the same version read with an acceptance criteria field
+     * THEN it replaces the stored one
+     */
+    @Test
+    public void should_replace_stored_version_with_other_acceptance_criteria_field()
+        throws IOException
+    {
+        try (IssueStore store = IssueStore.open(folder.getRoot().toPath())) {
+            store.put(issue("LIZZY-1", "first", UPDATED));
+
+            store.put(issue("LIZZY-1", "first", UPDATED).setAcceptanceCriteria("criteria").setAcceptanceCriteriaField("customfield_10100"));
+
+            assertThat(store.get("LIZZY-1").getAcceptanceCriteria(), equalTo("criteria"));
+            assertThat(store.get("LIZZY-1").getAcceptanceCriteriaField(), equalTo("customfield_10100"));
+        }
+    }
+
+    /**
+     * GIVEN a log with a record written before the acceptance criteria field was recorded
+     * WHEN opening the store
+     * THEN the issue is read without acceptance criteria field
+     */
+    @Test
+    public void should_read_records_without_acceptance_criteria_field()
+        throws IOException
+    {
+        Path directory = folder.getRoot().toPath();
+        IssueStore.open(directory).close();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeByte(1);
+            writeString(out, "LIZZY-1");
+            out.writeLong(UPDATED.toEpochMilli());
+            writeString(out, "Title of LIZZY-1");
+            writeString(out, "first");
+            writeString(out, "criteria");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+        ByteBuffer record = ByteBuffer.allocate(8 + body.size()).putInt(body.size()).putInt((int)crc.getValue()).put(body.toByteArray());
+        record.flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve("issues.log"), StandardOpenOption.WRITE)) {
+            channel.write(record, channel.size());
+        }
+
+        try (IssueStore store = IssueStore.open(directory)) {
+            Issue issue = store.get("LIZZY-1");
+            assertThat(issue.getDescription(), equalTo("first"));
+            assertThat(issue.getAcceptanceCriteria(), equalTo("criteria"));
+            assertThat(issue.getAcceptanceCriteriaField(), nullValue());
+            assertThat(issue.getUpdated(), equalTo(UPDATED));
+        }
+    }
+
+    /**
+     * GIVEN a store
+     * WHEN storing many issues one by one
+     * THEN the log grows in large steps instead of with every record
+     */
+    @Test
+    public void should_grow_log_in_steps()
+        throws IOException
+    {
+        Path directory = folder.getRoot().toPath();
+        Path log = directory.resolve("issues.log");
+        try (IssueStore store = IssueStore.open(directory)) {
+            store.put(issue("LIZZY-0", "first", UPDATED));
+            long size = Files.size(log);
+
+            for (int i = 1; i < 100; i++) {
+                store.put(issue("LIZZY-" + i, "description " + i, UPDATED));
+            }
+
+            assertThat(Files.size(log), equalTo(size));
+        }
+        try (IssueStore store = IssueStore.open(directory)) {
+            assertThat(store.size(), equalTo(100));
+            assertThat(store.get("LIZZY-99").getDescription(), equalTo("description 99"));
+        }
+    }
+
+    /**
+     * GIVEN two stores opened on the same directory
+     * WHEN one of them writes and compacts
+     * THEN the other one reads the changes
+     */
+    @Test
+    public void should_share_directory_between_stores()
+        throws IOException
+    {
+        Path directory = folder.getRoot().toPath();
+        try (IssueStore writer = IssueStore.open(directory); IssueStore reader = IssueStore.open(directory)) {
+            writer.put(issue("LIZZY-1", "first", UPDATED));
+            assertThat(reader.get("LIZZY-1").getDescription(), equalTo("first"));
+
+            writer.put(issue("LIZZY-1", "second", UPDATED.plusSeconds(1)));
+            writer.compact();
+            writer.put(issue("LIZZY-2", "third", UPDATED));
+
+            assertThat(reader.get("LIZZY-1").getDescription(), equalTo("second"));
+            assertThat(reader.get("LIZZY-2").getDescription(), equalTo("third"));
+            reader.put(issue("LIZZY-3", "fourth", UPDATED));
+            assertThat(writer.get("LIZZY-3").getDescription(), equalTo("fourth"));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string)
+        throws IOException
+    {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Issue issue(String key, String description, Instant updated)
+    {
+        return new Issue().setKey(key).setTitle("Title of " + key).setDescription(description).setUpdated(updated);
+    }
+}
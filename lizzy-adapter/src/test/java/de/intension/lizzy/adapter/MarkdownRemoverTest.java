@@ -3,7 +3,6 @@ package de.intension.lizzy.adapter;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 
-import org.junit.Ignore;
 import org.junit.Test;
 
 public class MarkdownRemoverTest
@@ -60,7 +59,6 @@ public class MarkdownRemoverTest
      * Then the color is removed
      */
     @Test
-    @Ignore("Not implemented")
     public void should_remove_text_color()
     {
         String text = "{color:#FF0000}this is red{color}";
@@ -183,7 +181,6 @@ public class MarkdownRemoverTest
      * Then the table decorators are removed
      */
     @Test
-    @Ignore("Not implemented")
     public void should_remove_table_decorators()
     {
         String text = "||Heading 1||Heading 2||\n" +
@@ -191,7 +188,23 @@ public class MarkdownRemoverTest
 
         String parsed = MarkdownRemover.toPlainText(text);
 
-        assertThat(parsed, equalTo("Heading 1Heading 2Col A1ColA2"));
+        assertThat(parsed, equalTo("Heading 1Heading 2Col A1Col A2"));
+    }
+
+    /**
+     * Given text effects within a line and delimiters within words
+     * When parsing it with flexmark
+     * Then the effects are removed
+     * AND the delimiters within words are kept like in Jira
+     */
+    @Test
+    public void should_remove_effects_within_line_with_flexmark()
+    {
+        String text = "a +underlined+, -striked- and ??cited?? text of a well-known co-op, C++ and what? yes?";
+
+        String parsed = MarkdownRemover.parse(text);
+
+        assertThat(parsed, equalTo("a underlined, striked and cited text of a well-known co-op, C++ and what? yes?"));
     }
 
     /**
@@ -223,4 +236,20 @@ public class MarkdownRemoverTest
 
         assertThat(parsed, equalTo(null));
     }
+
+    /**
+     * Given a trimmed text in a string builder
+     * When parsing the builder
+     * Then the markdown is removed like from a string
+     */
+    @Test
+    public void should_parse_trimmed_builder()
+    {
+        StringBuilder text = MultilineTrimmer.trim("  +this is underlined+  \n  *this is bold*", new StringBuilder());
+
+        String parsed = MarkdownRemover.toPlainText(text);
+
+        assertThat(parsed, equalTo(MarkdownRemover.toPlainText(text.toString())));
+        assertThat(parsed, equalTo("this is underlined\nthis is bold"));
+    }
 }
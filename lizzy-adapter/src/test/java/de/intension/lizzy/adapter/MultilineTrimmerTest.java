@@ -4,6 +4,13 @@ import static de.intension.lizzy.adapter.MultilineTrimmer.trim;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
 import org.junit.Test;
 
 public class MultilineTrimmerTest
@@ -143,4 +150,142 @@ public class MultilineTrimmerTest
         
         assertThat(trimmed, equalTo("First line\n"));
     }
+
+    /**
+     * Given a text with umlauts at the start and end of lines
+     * When trimming the string
+     * Then the umlauts are kept
+     */
+    @Test
+    public void should_keep_umlauts()
+    {
+        String string = " \u00DCbersicht\u00A0\nGr\u00F6\u00DFe \u00E4ndern \u00FC ";
+
+        String trimmed = trim(string);
+
+        assertThat(trimmed, equalTo("\u00DCbersicht\nGr\u00F6\u00DFe \u00E4ndern \u00FC"));
+    }
+
+    /**
+     * Given a text with ideographic, zero width and line separator spaces around the lines
+     * When trimming the string
+     * Then these spaces are removed from all lines
+     */
+    @Test
+    public void should_remove_unicode_whitespaces()
+    {
+        String string = "\u3000\uFEFFFirst line\u200B\n\u2028Second\u2003line\u2060";
+
+        String trimmed = trim(string);
+
+        assertThat(trimmed, equalTo("First line\nSecond\u2003line"));
+    }
+
+    /**
+     * Given a text with empty lines and lines of whitespaces
+     * When trimming the string
+     * Then these lines are removed
+     */
+    @Test
+    public void should_remove_empty_lines()
+    {
+        String string = "\n\nFirst line\n\n \t\nSecond line\n\n";
+
+        String trimmed = trim(string);
+
+        assertThat(trimmed, equalTo("First line\nSecond line"));
+    }
+
+    /**
+     * Given a text with whitespace runs longer than a chunk inside and at the end of a line
+     * When trimming the string and trimming it from a reader
+     * Then the whitespaces inside the line are kept and the ones at the end are removed
+     */
+    @Test
+    public void should_trim_across_chunks()
+        throws IOException
+    {
+        String inside = repeat(' ', MultilineTrimmer.CHUNK_SIZE + 10);
+        String string = "a" + inside + "b" + repeat('\t', 2 * MultilineTrimmer.CHUNK_SIZE) + "\n" + inside + "c";
+
+        String trimmed = trim(string);
+        String read = read(new StringReader(string));
+
+        assertThat(trimmed, equalTo("a" + inside + "b\nc"));
+        assertThat(read, equalTo(trimmed));
+    }
+
+    /**
+     * Given random texts of words, whitespaces and line breaks
+     * When trimming them from a reader returning few characters at a time
+     * Then the result is the same as trimming line by line after splitting the text
+     */
+    @Test
+    public void should_trim_like_splitting_lines()
+        throws IOException
+    {
+        Random random = new Random(4711);
+        char[] alphabet = {'a', '\u00E4', ' ', '\t', '\u00A0', '\n', '\r'};
+        for (int run = 0; run < 500; run++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(40) + 1; i > 0; i--) {
+                text.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String string = text.toString();
+
+            String read = read(new FilterReader(new StringReader(string)) {
+
+                @Override
+                public int read(char[] buffer, int offset, int length)
+                    throws IOException
+                {
+                    return super.read(buffer, offset, Math.min(length, 3));
+                }
+            });
+
+            assertThat(string, trim(string), equalTo(splitAndTrim(string)));
+            assertThat(string, read, equalTo(splitAndTrim(string)));
+        }
+    }
+
+    private static String read(Reader reader)
+        throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        MultilineTrimmer.trim(reader, writer);
+        return writer.toString();
+    }
+
+    private static String repeat(char c, int count)
+    {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Trims like the trimmer did before it streamed.
+     */
+    private static String splitAndTrim(String string)
+    {
+        String[] lines = string.split("\n");
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            int start = 0;
+            int end = line.length();
+            while (start < end && Whitespace.is(line.charAt(start))) {
+                start++;
+            }
+            while (end > start && Whitespace.is(line.charAt(end - 1))) {
+                end--;
+            }
+            if (end > start) {
+                result.append(line, start, end).append(i == lines.length - 1 ? "" : "\n");
+            }
+        }
+        return result.toString();
+    }
 }
@@ -0,0 +1,150 @@
+package de.intension.lizzy.adapter;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class NormalizationMemoTest
+{
+
+    /**
+     * GIVEN a memo containing a normalized text
+     * WHEN normalizing an equal text
+     * THEN the memoized text is returned without normalizing again
+     * AND a hit and the bytes of the raw text are counted
+     */
+    @Test
+    public void should_return_memoized_text()
+    {
+        NormalizationMemo memo = new NormalizationMemo();
+        AtomicInteger calls = new AtomicInteger();
+        Function<String, String> normalizer = counting(calls);
+        String normalized = memo.apply("*raw* text", normalizer);
+
+        String memoized = memo.apply(new String("*raw* text"), normalizer);
+
+        assertThat(memoized, sameInstance(normalized));
+        assertThat(calls.get(), equalTo(1));
+        assertThat(memo.getStats().getHitCount(), equalTo(1L));
+        assertThat(memo.getStats().getMissCount(), equalTo(1L));
+        assertThat(memo.getBytesSaved(), equalTo(20L));
+    }
+
+    /**
+     * GIVEN a memo containing a text with the same hash as another text
+     * WHEN normalizing the other text
+     * THEN the other text is normalized instead of returning the memoized text
+     */
+    @Test
+    public void should_verify_text_on_hash_collision()
+    {
+        NormalizationMemo memo = new NormalizationMemo(10, 1000, text -> 42L);
+        AtomicInteger calls = new AtomicInteger();
+        memo.apply("first", counting(calls));
+
+        String normalized = memo.apply("second", counting(calls));
+
+        assertThat(normalized, equalTo("SECOND"));
+        assertThat(calls.get(), equalTo(2));
+        assertThat(memo.getStats().getHitCount(), equalTo(0L));
+        assertThat(memo.getBytesSaved(), equalTo(0L));
+    }
+
+    /**
+     * GIVEN a normalizer returning <code>null</code>
+     * WHEN normalizing the same text twice
+     * THEN the <code>null</code> result is memoized as well
+     */
+    @Test
+    public void should_memoize_null_result()
+    {
+        NormalizationMemo memo = new NormalizationMemo();
+        AtomicInteger calls = new AtomicInteger();
+        Function<String, String> normalizer = text -> {
+            calls.incrementAndGet();
+            return null;
+        };
+        memo.apply(" ", normalizer);
+
+        assertThat(memo.apply(" ", normalizer), nullValue());
+        assertThat(calls.get(), equalTo(1));
+    }
+
+    /**
+     * GIVEN a memo limited to two texts
+     * WHEN normalizing a third text
+     * THEN the least recently used text is evicted
+     */
+    @Test
+    public void should_evict_least_recently_used_text()
+    {
+        NormalizationMemo memo = new NormalizationMemo(2, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        memo.apply("a", counting(calls));
+        memo.apply("b", counting(calls));
+        memo.apply("a", counting(calls));
+
+        memo.apply("c", counting(calls));
+
+        assertThat(memo.size(), equalTo(2));
+        assertThat(memo.getStats().getEvictionCount(), equalTo(1L));
+        memo.apply("a", counting(calls));
+        assertThat(calls.get(), equalTo(3));
+        memo.apply("b", counting(calls));
+        assertThat(calls.get(), equalTo(4));
+    }
+
+    /**
+     * GIVEN a memo limited to ten characters
+     * WHEN normalizing texts heavier than the limit in total or on their own
+     * THEN texts are evicted to stay within the limit
+     * AND a text heavier than the limit is not memoized
+     */
+    @Test
+    public void should_stay_within_weight()
+    {
+        NormalizationMemo memo = new NormalizationMemo(10, 10);
+        AtomicInteger calls = new AtomicInteger();
+        memo.apply("abc", counting(calls));
+        memo.apply("def", counting(calls));
+
+        memo.apply("ghijklmnop", counting(calls));
+
+        assertThat(memo.size(), equalTo(1));
+        assertThat(memo.weight(), equalTo(6L));
+        assertThat(memo.getStats().getEvictionCount(), equalTo(1L));
+    }
+
+    /**
+     * GIVEN texts differing in a single char or only in their length
+     * WHEN hashing the texts
+     * THEN the hashes differ
+     */
+    @Test
+    public void should_hash_every_char()
+    {
+        String text = "Given a user\nWhen logging in\nThen the user is logged in";
+        for (int i = 0; i < text.length(); i++) {
+            String changed = text.substring(0, i) + '\u00E4' + text.substring(i + 1);
+
+            assertThat(changed, NormalizationMemo.hash(changed), not(equalTo(NormalizationMemo.hash(text))));
+        }
+        assertThat(NormalizationMemo.hash("a\u0000"), not(equalTo(NormalizationMemo.hash("a"))));
+        assertThat(NormalizationMemo.hash(new StringBuilder(text)), equalTo(NormalizationMemo.hash(text)));
+    }
+
+    private static Function<String, String> counting(AtomicInteger calls)
+    {
+        return text -> {
+            calls.incrementAndGet();
+            return text.toUpperCase();
+        };
+    }
+}
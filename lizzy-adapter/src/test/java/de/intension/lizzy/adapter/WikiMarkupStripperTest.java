@@ -0,0 +1,277 @@
+package de.intension.lizzy.adapter;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class WikiMarkupStripperTest
+{
+
+    /**
+     * Given text effects within a line
+     * When stripping the markup
+     * Then the effects are removed
+     */
+    @Test
+    public void should_remove_effects_within_line()
+    {
+        String text = "a *bold*, _italic_, +underlined+, -striked- and ??cited?? text with x^2^ and H~2~O";
+
+        String stripped = strip(text);
+
+        assertThat(stripped, equalTo("a bold, italic, underlined, striked and cited text with x2 and H2O"));
+    }
+
+    /**
+     * Given delimiters within words and between spaces
+     * When stripping the markup
+     * Then the delimiters are kept
+     */
+    @Test
+    public void should_keep_delimiters_within_words()
+    {
+        String text = "a well-known co-op, snake_case_name, 2*3*4, x - y -- z, C++ and what? yes?";
+
+        String stripped = strip(text);
+
+        assertThat(stripped, equalTo(text));
+    }
+
+    /**
+     * Given nested effects
+     * When stripping the markup
+     * Then all effects are removed
+     */
+    @Test
+    public void should_remove_nested_effects()
+    {
+        String text = "*_bold italic_* and _a -striked- word_";
+
+        String stripped = strip(text);
+
+        assertThat(stripped, equalTo("bold italic and a striked word"));
+    }
+
+    /**
+     * Given monospace and color
+     * When stripping the markup
+     * Then the monospace content is kept as is and the colored text is stripped
+     */
+    @Test
+    public void should_remove_monospace_and_color()
+    {
+        String text = "call {{a_b_c(*x*)}} in {color:#FF0000}*red*{color} text";
+
+        String stripped = strip(text);
+
+        assertThat(stripped, equalTo("call a_b_c(*x*) in red text"));
+    }
+
+    /**
+     * Given code and noformat blocks between lines
+     * When stripping the markup
+     * Then the block macros are removed and their content is kept as is
+     */
+    @Test
+    public void should_keep_content_of_code_blocks()
+    {
+        String text = "h3. Example\n{code:java}\nint *a* = b_c_d;\n{code}\n{noformat}\n  -raw-\n{noformat}\n*done*";
+
+        String stripped = strip(text);
+
+        assertThat(stripped, equalTo("h3. Example\nint *a* = b_c_d;\n  -raw-\ndone"));
+    }
+
+    /**
+     * Given links
+     * When stripping the markup
+     * Then the text of the links is kept
+     */
+    @Test
+    public void should_keep_text_of_links()
+    {
+        String text = "[see *wiki*|https://wiki.intension.de/a_b_c] or https://intension.de/_x_ and [plain]";
+
+        String stripped = strip(text);
+
+        assertThat(stripped, equalTo("see wiki or https://intension.de/_x_ and [plain]"));
+    }
+
+    /**
+     * Given a table with a heading row between lines
+     * When stripping the markup
+     * Then the cells are joined and the table is a line of its own
+     */
+    @Test
+    public void should_join_table_cells()
+    {
+        String text = "Fields:\n||Field||Value||\n|*name*|[link|http://x]|\nEnd";
+
+        String stripped = strip(text);
+
+        assertThat(stripped, equalTo("Fields:\nFieldValuenamelink\nEnd"));
+    }
+
+    /**
+     * Given rows of a Gherkin data table without a heading row
+     * When stripping the markup
+     * Then the rows are kept
+     */
+    @Test
+    public void should_keep_gherkin_tables()
+    {
+        String text = "Given the users\n| name | role |\n| Ingo | admin |";
+
+        String stripped = strip(text);
+
+        assertThat(stripped, equalTo(text));
+    }
+
+    /**
+     * Given links with blank or empty text
+     * When stripping the markup
+     * Then the target of the links is kept
+     */
+    @Test
+    public void should_keep_target_of_links_without_text()
+    {
+        assertThat(strip("[ |x]"), equalTo("x"));
+        assertThat(strip("[|x]"), equalTo("x"));
+        assertThat(strip("see [ |http://example.com] now"), equalTo("see http://example.com now"));
+    }
+
+    /**
+     * Given links with blank text next to markdown
+     * When removing markdown
+     * Then the target of the links is kept like without the markdown
+     */
+    @Test
+    public void should_keep_target_of_links_without_text_next_to_markdown()
+    {
+        assertThat(MarkdownRemover.toPlainText("[ |x]"), equalTo("x"));
+        assertThat(MarkdownRemover.toPlainText("see [ |http://example.com] now `code`"), equalTo("see http://example.com now code"));
+    }
+
+    /**
+     * Given texts that flexmark and the stripper handle alike
+     * When stripping the markup
+     * Then the result is the same as parsing with flexmark
+     */
+    @Test
+    public void should_join_lines_like_flexmark()
+    {
+        String[] texts = {"line1\nline2", "p1\n\np2", "text\n* a\n* b\nmore", "# a\nmore", "text\n# a", "- a\n- b", "  * a",
+                          "*bold*", "_it_\n\n+u+", "h2. Title\n-striked-\n??cited??", "trailing \n lead", "~sub~ ^sup^"};
+        for (String text : texts) {
+
+            String stripped = strip(text);
+
+            assertThat(text, stripped, equalTo(MarkdownRemover.parse(text)));
+        }
+    }
+
+    /**
+     * Given markdown that is not Jira wiki markup
+     * When stripping the markup
+     * Then the stripper declines and leaves the output untouched
+     */
+    @Test
+    public void should_decline_markdown()
+    {
+        String[] texts = {"a `code` span", "**strong**", "[text](http://x)", "> quote", "1. first", "** nested", "## heading",
+                          "a &amp; b", "a \\* b", "<b>html</b>", "---", "```\ncode\n```", "    indented", "{panel}x{panel}",
+                          "{code}\nnot closed"};
+        for (String text : texts) {
+            StringBuilder out = new StringBuilder("kept");
+
+            boolean stripped = WikiMarkupStripper.strip(text, out);
+
+            assertThat(text, stripped, equalTo(false));
+            assertThat(text, out.toString(), equalTo("kept"));
+        }
+    }
+
+    /**
+     * Given markdown that is not Jira wiki markup
+     * When removing markdown
+     * Then flexmark removes it
+     */
+    @Test
+    public void should_fall_back_to_flexmark()
+    {
+        String text = "**strong** and `code`";
+
+        String plain = MarkdownRemover.toPlainText(text);
+
+        assertThat(plain, equalTo("strong and code"));
+    }
+
+    /**
+     * Given wiki markup in a paragraph with a code span
+     * When removing markdown
+     * Then the wiki markup is removed like without the code span
+     */
+    @Test
+    public void should_remove_wiki_markup_next_to_markdown()
+    {
+        String[] texts = {"call {{a_b_c(*x*)}} in {color:#FF0000}*red*{color} text", "[see *wiki*|https://x.de/a_b] or https://x.de/_x_",
+                          "a well-known co-op, 2*3*4, C++ and what? yes?", "a *bold*, +underlined+, -striked- and ??cited?? text",
+                          "[plain] and H~2~O"};
+        for (String text : texts) {
+
+            String plain = MarkdownRemover.toPlainText(text + " `code`");
+
+            assertThat(text, plain, equalTo(strip(text) + " code"));
+        }
+    }
+
+    /**
+     * Given markdown in one paragraph and in a table cell
+     * When removing markdown
+     * Then only that paragraph and cell are parsed by flexmark
+     * AND code blocks and the other paragraphs are stripped as without the markdown
+     */
+    @Test
+    public void should_parse_only_paragraphs_with_markdown()
+    {
+        String text = "h3. Example\n{code:java}\nint *a* = b_c_d;\n{code}\n||Field||Value||\n|*name*|[link|http://x]|\n\n"
+                + "Run **mvn** first\n> quoted\n\nEnd";
+
+        String plain = MarkdownRemover.toPlainText(text.replace("*name*", "`name`"));
+
+        assertThat(plain, equalTo("h3. Example\nint *a* = b_c_d;\nFieldValuenamelinkRun mvn firstquotedEnd"));
+    }
+
+    /**
+     * Given a code block that is not closed
+     * When removing markdown
+     * Then the lines after the macro are parsed by flexmark
+     */
+    @Test
+    public void should_parse_code_block_that_is_not_closed()
+    {
+        String plain = MarkdownRemover.toPlainText("*done*\n\n{code}\nnot *closed*");
+
+        assertThat(plain, equalTo("donecode\nnot closed"));
+    }
+
+    /**
+     * Given an empty text
+     * When removing markdown
+     * Then <code>null</code> is returned like before
+     */
+    @Test
+    public void should_return_null_for_empty_text()
+    {
+        assertThat(MarkdownRemover.toPlainText(new StringBuilder()), nullValue());
+    }
+
+    private static String strip(String text)
+    {
+        StringBuilder out = new StringBuilder();
+        assertThat(text, WikiMarkupStripper.strip(text, out), equalTo(true));
+        return out.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+import de.intension.lizzy.adapter.Issue;
+
+public class BatchLookupTest
+{
+
+    private static final Pattern KEYS     = Pattern.compile("key in \\((.*)\\)");
+
+    private final Set<String>    existing = new TreeSet<>(Arrays.asList("LIZZY-1", "LIZZY-2", "LIZZY-3", "LIZZY-4"));
+    private final List<String>   queries  = new ArrayList<>();
+
+    /**
+     * GIVEN 250 ticket ids
+     * WHEN splitting them into chunks
+     * THEN no chunk has more than the maximum number of keys
+     * AND no query exceeds the maximum length
+     */
+    @Test
+    public void should_respect_key_and_length_limits()
+    {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            keys.add("LONGPROJECT-" + (10000 + i));
+        }
+
+        List<List<String>> chunks = BatchLookup.chunk(keys, 100, 1000);
+
+        chunks.forEach(chunk -> {
+            assertThat(chunk.size(), lessThanOrEqualTo(100));
+            assertThat(BatchLookup.toJql(chunk).length(), lessThanOrEqualTo(1000));
+        });
+        assertThat(chunks.stream().mapToInt(List::size).sum(), equalTo(250));
+    }
+
+    /**
+     * GIVEN existing and unknown ticket ids
+     * WHEN looking them up
+     * THEN existing issues are returned
+     * AND unknown ticket ids are contained with a null value
+     */
+    @Test
+    public void should_report_missing_keys()
+    {
+        BatchLookup lookup = new BatchLookup(this::search, Function.identity());
+
+        Map<String, Issue> issues = lookup.lookup(Arrays.asList("LIZZY-1", "lizzy-2", "UNKNOWN-9", "not a key"));
+
+        assertThat(issues.keySet(), contains("LIZZY-1", "lizzy-2", "UNKNOWN-9", "not a key"));
+        assertThat(issues.get("LIZZY-1"), notNullValue());
+        assertThat(issues.get("lizzy-2"), notNullValue());
+        assertThat(issues.get("UNKNOWN-9"), nullValue());
+        assertThat(issues.get("not a key"), nullValue());
+    }
+
+    /**
+     * GIVEN only existing ticket ids
+     * WHEN looking them up
+     * THEN a single search is sent
+     */
+    @Test
+    public void should_use_single_search_for_few_keys()
+    {
+        BatchLookup lookup = new BatchLookup(this::search, Function.identity());
+
+        Map<String, Issue> issues = lookup.lookup(existing);
+
+        assertThat(queries, contains("key in (LIZZY-1,LIZZY-2,LIZZY-3,LIZZY-4)"));
+        assertThat(issues, hasKey("LIZZY-4"));
+    }
+
+    /**
+     * GIVEN existing and unknown ticket ids
+     * WHEN looking them up asynchronously
+     * THEN the rejected chunk is bisected like with the blocking lookup
+     * AND the issues are returned in request order
+     */
+    @Test
+    public void should_isolate_unknown_keys_asynchronously()
+        throws Exception
+    {
+        BatchLookup lookup = new BatchLookup(this::search, Function.identity());
+
+        Map<String, Issue> issues = lookup.lookupAsync(Arrays.asList("LIZZY-1", "UNKNOWN-9", "lizzy-2"), Runnable::run).get();
+
+        assertThat(issues.keySet(), contains("LIZZY-1", "UNKNOWN-9", "lizzy-2"));
+        assertThat(issues.get("LIZZY-1"), notNullValue());
+        assertThat(issues.get("UNKNOWN-9"), nullValue());
+        assertThat(issues.get("lizzy-2"), notNullValue());
+        assertThat(queries, contains("key in (LIZZY-1,UNKNOWN-9,LIZZY-2)", "key in (LIZZY-1)", "key in (UNKNOWN-9,LIZZY-2)",
+                                     "key in (UNKNOWN-9)", "key in (LIZZY-2)"));
+    }
+
+    /**
+     * Simulates Jira rejecting queries with unknown keys.
+     */
+    private CompletableFuture<SearchPage> search(String jql, int maxResults)
+    {
+        queries.add(jql);
+        Matcher matcher = KEYS.matcher(jql);
+        assertThat(matcher.matches(), equalTo(true));
+        List<Issue> issues = new ArrayList<>();
+        CompletableFuture<SearchPage> page = new CompletableFuture<>();
+        for (String key : matcher.group(1).split(",")) {
+            if (!existing.contains(key)) {
+                page.completeExceptionally(new RestClientException(new IllegalArgumentException(key), 400));
+                return page;
+            }
+            issues.add(new Issue().setKey(key));
+        }
+        page.complete(new SearchPage(issues, issues.size()));
+        return page;
+    }
+}
@@ -0,0 +1,125 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.ConnectException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+import de.intension.lizzy.adapter.jira.CircuitBreaker.State;
+
+public class CircuitBreakerTest
+{
+
+    private final CircuitBreaker breaker = new CircuitBreaker("jira.example.com").setFailureThreshold(2);
+
+    /**
+     * GIVEN a closed breaker
+     * WHEN requests fail with server errors as often as the threshold
+     * THEN the breaker opens
+     * AND requests fail fast
+     */
+    @Test
+    public void should_open_after_consecutive_failures()
+    {
+        breaker.acquire();
+        breaker.record(new RestClientException(new IllegalStateException(), 503));
+        breaker.acquire();
+        breaker.record(new RestClientException(new IllegalStateException(), 500));
+
+        assertThat(breaker.getState(), equalTo(State.OPEN));
+        try {
+            breaker.acquire();
+            fail("Should fail fast while open.");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+    }
+
+    /**
+     * GIVEN a closed breaker
+     * WHEN requests fail with client errors
+     * THEN the breaker stays closed
+     */
+    @Test
+    public void should_ignore_client_errors()
+    {
+        for (int i = 0; i < 5; i++) {
+            breaker.acquire();
+            breaker.record(new RestClientException(new IllegalStateException(), 404));
+        }
+
+        assertThat(breaker.getState(), equalTo(State.CLOSED));
+    }
+
+    /**
+     * GIVEN an open breaker whose open duration elapsed
+     * WHEN a trial request is admitted
+     * THEN further requests fail fast until the trial completes
+     * AND a successful trial closes the breaker
+     */
+    @Test
+    public void should_close_after_successful_trial()
+    {
+        breaker.setOpenDuration(0, TimeUnit.MILLISECONDS);
+        breaker.record(new RestClientException("connection refused", new ConnectException()));
+        breaker.record(new RestClientException("connection refused", new ConnectException()));
+
+        breaker.acquire();
+        assertThat(breaker.getState(), equalTo(State.HALF_OPEN));
+        try {
+            breaker.acquire();
+            fail("Should admit a single trial request.");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+        breaker.record(null);
+
+        assertThat(breaker.getState(), equalTo(State.CLOSED));
+    }
+
+    /**
+     * GIVEN a closed breaker
+     * WHEN requests fail with errors of the client itself
+     * THEN the breaker stays closed
+     */
+    @Test
+    public void should_ignore_client_side_errors()
+    {
+        for (int i = 0; i < 5; i++) {
+            breaker.acquire();
+            breaker.record(new RestClientException("Request failed", new RejectedExecutionException()));
+            breaker.acquire();
+            breaker.record(new NullPointerException());
+        }
+
+        assertThat(breaker.getState(), equalTo(State.CLOSED));
+    }
+
+    /**
+     * GIVEN a breaker opened by failures
+     * WHEN requests admitted before keep failing
+     * THEN the open duration is not extended
+     */
+    @Test
+    public void should_ignore_late_failures_while_open()
+        throws InterruptedException
+    {
+        breaker.setOpenDuration(50, TimeUnit.MILLISECONDS);
+        breaker.record(new RestClientException(new IllegalStateException(), 503));
+        breaker.record(new RestClientException(new IllegalStateException(), 503));
+        Thread.sleep(30);
+        breaker.record(new RestClientException(new IllegalStateException(), 503));
+        Thread.sleep(30);
+
+        breaker.acquire();
+
+        assertThat(breaker.getState(), equalTo(State.HALF_OPEN));
+    }
+}
@@ -0,0 +1,54 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class FieldProjectionTest
+{
+
+    /**
+     * GIVEN the default projection
+     * WHEN requesting the field names
+     * THEN only the fields needed to parse an issue and the description are contained
+     */
+    @Test
+    public void should_request_description_and_required_fields_by_default()
+    {
+        FieldProjection projection = FieldProjection.defaults();
+
+        assertThat(projection.getFields(),
+                   containsInAnyOrder("summary", "issuetype", "created", "updated", "project", "status", "description"));
+    }
+
+    /**
+     * GIVEN the summary-only projection
+     * WHEN requesting the field names
+     * THEN the description is not contained
+     */
+    @Test
+    public void should_not_request_description_for_summary_only()
+    {
+        FieldProjection projection = FieldProjection.summaryOnly();
+
+        assertThat(projection.getFields(), not(hasItem("description")));
+        assertThat(projection.getFields(), hasItem("summary"));
+    }
+
+    /**
+     * GIVEN a projection with an acceptance criteria field
+     * WHEN requesting the field names
+     * THEN the custom field is contained
+     */
+    @Test
+    public void should_request_acceptance_criteria_field()
+    {
+        FieldProjection projection = FieldProjection.defaults().withAcceptanceCriteria("customfield_10100");
+
+        assertThat(projection.getFields(), hasItem("customfield_10100"));
+        assertThat(projection.getFields(), hasItem("description"));
+    }
+}
@@ -0,0 +1,181 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+public class HedgingPolicyTest
+{
+
+    private final HedgingPolicy policy = new HedgingPolicy().setMinDelay(1, TimeUnit.MILLISECONDS);
+
+    /**
+     * GIVEN a policy that observed fewer latencies than required
+     * WHEN a request does not answer
+     * THEN no duplicate is sent
+     */
+    @Test
+    public void should_not_hedge_without_latencies()
+        throws Exception
+    {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> responses = new ArrayDeque<>(Arrays.asList(slow, CompletableFuture.completedFuture("fast")));
+
+        CompletableFuture<String> result = policy.hedge(responses::poll);
+
+        try {
+            result.get(50, TimeUnit.MILLISECONDS);
+            fail("request must still be pending");
+        } catch (TimeoutException e) {
+            assertThat(policy.getHedgedCount(), equalTo(0L));
+        }
+    }
+
+    /**
+     * GIVEN a policy that observed enough fast requests
+     * WHEN a request does not answer
+     * THEN a duplicate is sent and its response wins
+     * AND the slow request is cancelled
+     */
+    @Test
+    public void should_send_duplicate_of_slow_request()
+        throws Exception
+    {
+        warmUp();
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> responses = new ArrayDeque<>(Arrays.asList(slow, CompletableFuture.completedFuture("fast")));
+
+        String result = policy.hedge(responses::poll).get(5, TimeUnit.SECONDS);
+
+        assertThat(result, equalTo("fast"));
+        assertThat(slow.isCancelled(), equalTo(true));
+        assertThat(policy.getHedgedCount(), equalTo(1L));
+    }
+
+    /**
+     * GIVEN a policy without budget for duplicates
+     * WHEN a request does not answer after enough fast requests
+     * THEN no duplicate is sent
+     */
+    @Test
+    public void should_not_exceed_budget()
+        throws Exception
+    {
+        policy.setBudget(0);
+        warmUp();
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> responses = new ArrayDeque<>(Arrays.asList(slow, CompletableFuture.completedFuture("fast")));
+
+        CompletableFuture<String> result = policy.hedge(responses::poll);
+        Thread.sleep(50);
+
+        assertThat(result.isDone(), equalTo(false));
+        assertThat(policy.getHedgedCount(), equalTo(0L));
+    }
+
+    /**
+     * GIVEN a slow request and its duplicate
+     * WHEN both fail
+     * THEN the result fails with the error of the last one
+     */
+    @Test
+    public void should_fail_when_all_requests_failed()
+        throws Exception
+    {
+        warmUp();
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> duplicate = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> responses = new ArrayDeque<>(Arrays.asList(slow, duplicate));
+
+        CompletableFuture<String> result = policy.hedge(responses::poll);
+        while (policy.getHedgedCount() == 0) {
+            Thread.sleep(1);
+        }
+        slow.completeExceptionally(new RestClientException(new IllegalStateException("unavailable"), 503));
+
+        assertThat(result.isDone(), equalTo(false));
+
+        duplicate.completeExceptionally(new RestClientException(new IllegalStateException("unavailable"), 503));
+
+        try {
+            result.get();
+            fail("error expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RestClientException.class));
+        }
+    }
+
+    /**
+     * GIVEN a policy that observed enough fast requests
+     * WHEN a request waits for its dispatch longer than the hedging delay
+     * THEN no duplicate is sent before the request was dispatched
+     * AND a duplicate is sent once the dispatched request is slow
+     */
+    @Test
+    public void should_measure_from_dispatch()
+        throws Exception
+    {
+        warmUp();
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> responses = new ArrayDeque<>(Arrays.asList(slow, CompletableFuture.completedFuture("fast")));
+        Deque<Runnable> dispatches = new ArrayDeque<>();
+
+        CompletableFuture<String> result = policy.hedge(dispatched -> {
+            dispatches.add(dispatched);
+            return responses.poll();
+        });
+        Thread.sleep(50);
+
+        assertThat(policy.getHedgedCount(), equalTo(0L));
+
+        dispatches.poll().run();
+
+        assertThat(result.get(5, TimeUnit.SECONDS), equalTo("fast"));
+        assertThat(policy.getHedgedCount(), equalTo(1L));
+    }
+
+    /**
+     * GIVEN a policy hedging at the slowest observed latency
+     * WHEN a request loses against its duplicate after 50 milliseconds
+     * THEN the time the losing request took until then is recorded as its latency
+     */
+    @Test
+    public void should_record_latency_of_losing_request()
+        throws Exception
+    {
+        policy.setPercentile(1);
+        warmUp();
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> duplicate = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> responses = new ArrayDeque<>(Arrays.asList(slow, duplicate));
+
+        CompletableFuture<String> result = policy.hedge(responses::poll);
+        Thread.sleep(50);
+        duplicate.complete("duplicate");
+
+        assertThat(result.get(), equalTo("duplicate"));
+        assertThat(slow.isCancelled(), equalTo(true));
+        assertThat(policy.getDelay(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(50L));
+    }
+
+    private void warmUp()
+    {
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.hedge(() -> CompletableFuture.completedFuture("fast"));
+        }
+    }
+}
@@ -4,24 +4,42 @@ import static com.atlassian.fugue.Iterables.iterable;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.iterableWithSize;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.core.Response.Status;
 
+import org.joda.time.DateTime;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.atlassian.jira.rest.client.api.IssueRestClient;
 import com.atlassian.jira.rest.client.api.JiraRestClient;
@@ -29,21 +47,29 @@ import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
 import com.atlassian.jira.rest.client.api.RestClientException;
 import com.atlassian.jira.rest.client.api.SearchRestClient;
 import com.atlassian.jira.rest.client.api.domain.Attachment;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
 import com.atlassian.jira.rest.client.api.domain.SearchResult;
 import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
 import com.atlassian.util.concurrent.Promise;
 
 import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.IssueCache;
+import de.intension.lizzy.adapter.IssueStore;
+import de.intension.lizzy.adapter.NormalizationMemo;
 
 public class JiraAdapterTest
 {
 
-    private static final String URI          = "https://hub.intension.de/";
-    private static final String USERNAME     = "user123";
-    private static final String PASSWORD     = "Password123!";
-    private static final String TICKET_ID    = "LIZZY-123";
-    private static final String TICKET_DESC  = "test description";
-    private static final String VALID_FILTER = "id=LIZZY-1";
+    private static final String  URI          = "https://hub.intension.de/";
+    private static final String  USERNAME     = "user123";
+    private static final String  PASSWORD     = "Password123!";
+    private static final String  TICKET_ID    = "LIZZY-123";
+    private static final String  TICKET_DESC  = "test description";
+    private static final String  VALID_FILTER = "id=LIZZY-1";
+    private static final Instant UPDATED      = Instant.parse("2018-06-12T08:15:30Z");
+
+    @Rule
+    public TemporaryFolder       folder       = new TemporaryFolder();
 
     /**
      * GIVEN Jira adapter with valid credentials
@@ -150,10 +176,526 @@ public class JiraAdapterTest
         assertThat(issues, contains(hasProperty("description", equalTo(TICKET_DESC))));
     }
 
+    /**
+     * GIVEN Jira adapter with valid credentials
+     * WHEN requesting a ticket asynchronously
+     * THEN the future completes with the normalized issue
+     */
+    @Test
+    public void should_return_issue_asynchronously()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupAsyncFactory();
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setExecutor(Runnable::run);
+
+        Issue issue = adapter.getIssueAsync(TICKET_ID).get();
+
+        assertThat(issue.getDescription(), equalTo("bold"));
+    }
+
+    /**
+     * GIVEN Jira adapter with a normalization memo
+     * WHEN requesting an unchanged ticket twice
+     * THEN the description is normalized once and memoized for the second request
+     */
+    @Test
+    public void should_memoize_normalized_description()
+        throws Exception
+    {
+        NormalizationMemo memo = new NormalizationMemo();
+        JiraRestClientFactory factory = setupAsyncFactory();
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setExecutor(Runnable::run)
+            .setNormalizationMemo(memo);
+
+        Issue first = adapter.getIssueAsync(TICKET_ID).get();
+        Issue second = adapter.getIssueAsync(TICKET_ID).get();
+
+        assertThat(second.getDescription(), sameInstance(first.getDescription()));
+        assertThat(memo.getStats().getHitCount(), equalTo(1L));
+        assertThat(memo.getBytesSaved(), greaterThan(0L));
+    }
+
+    /**
+     * GIVEN Jira adapter with a transport decoding the description from a document of Jira Cloud
+     * WHEN requesting the ticket
+     * THEN the plain text description is not stripped of markdown again
+     */
+    @Test
+    public void should_keep_description_converted_from_document()
+        throws Exception
+    {
+        JiraTransport transport = new JiraTransport() {
+
+            @Override
+            public CompletableFuture<Issue> getIssue(String key, FieldProjection projection)
+            {
+                return CompletableFuture.completedFuture(new DecodedIssue().setPlainDescription("*literal* text").setKey(key));
+            }
+
+            @Override
+            public CompletableFuture<SearchPage> search(String jql, int startAt, int maxResults, FieldProjection projection)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close()
+            {
+                // nothing to release
+            }
+        };
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setTransport(transport);
+
+        Issue issue = adapter.getIssue(TICKET_ID);
+
+        assertThat(issue.getDescription(), equalTo("*literal* text"));
+    }
+
+    /**
+     * GIVEN Jira adapter with valid credentials
+     * WHEN searching asynchronously
+     * THEN the future completes with the matching issues
+     */
+    @Test
+    public void should_search_asynchronously()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupAsyncFactory();
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setExecutor(Runnable::run);
+
+        List<Issue> issues = adapter.searchAsync(VALID_FILTER, 10).get();
+
+        assertThat(issues, contains(hasProperty("description", equalTo("bold"))));
+    }
+
+    /**
+     * GIVEN Jira adapter with a projection containing an acceptance criteria field
+     * WHEN searching for tickets
+     * THEN only the projected fields are requested
+     * AND the acceptance criteria are mapped
+     */
+    @Test
+    public void should_request_projected_fields_and_map_acceptance_criteria()
+        throws Exception
+    {
+        FieldProjection projection = FieldProjection.defaults().withAcceptanceCriteria("customfield_10100");
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        com.atlassian.jira.rest.client.api.domain.Issue issue = client.getIssueClient().getIssue(TICKET_ID).get();
+        IssueField field = mock(IssueField.class);
+        when(field.getValue()).thenReturn("  _Given_ a ticket");
+        when(issue.getField("customfield_10100")).thenReturn(field);
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setFieldProjection(projection);
+
+        List<Issue> issues = adapter.getIssues(VALID_FILTER, 10);
+
+        verify(client.getSearchClient()).searchJql(eq(VALID_FILTER), eq(10), eq(0), eq(projection.getFields()));
+        assertThat(issues, contains(hasProperty("acceptanceCriteria", equalTo("Given a ticket"))));
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue cache
+     * WHEN requesting the same ticket twice
+     * THEN the ticket is requested from Jira only once
+     */
+    @Test
+    public void should_return_cached_issue()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueCache(new IssueCache());
+
+        adapter.getIssue(TICKET_ID);
+        Issue issue = adapter.getIssue(TICKET_ID);
+
+        assertThat(issue.getDescription(), equalTo(TICKET_DESC));
+        verify(client.getIssueClient(), times(1)).getIssue(TICKET_ID);
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue cache containing an issue requested without acceptance criteria
+     * WHEN requesting the issue with a projection containing an acceptance criteria field
+     * THEN the issue is requested from Jira again
+     * AND its acceptance criteria are returned
+     */
+    @Test
+    public void should_not_serve_cached_issue_without_requested_acceptance_criteria()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        IssueField field = mock(IssueField.class);
+        when(field.getValue()).thenReturn("Given a ticket");
+        when(client.getIssueClient().getIssue(TICKET_ID).get().getField("customfield_10100")).thenReturn(field);
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueCache(new IssueCache());
+        adapter.getIssue(TICKET_ID);
+
+        adapter.setFieldProjection(FieldProjection.defaults().withAcceptanceCriteria("customfield_10100"));
+        Issue issue = adapter.getIssue(TICKET_ID);
+
+        assertThat(issue.getAcceptanceCriteria(), equalTo("Given a ticket"));
+        assertThat(adapter.getIssue(TICKET_ID).getAcceptanceCriteria(), equalTo("Given a ticket"));
+        // once for stubbing the field and twice by the adapter
+        verify(client.getIssueClient(), times(3)).getIssue(TICKET_ID);
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue store containing the current version of an issue without acceptance criteria field
+     * WHEN searching the issue with a projection containing an acceptance criteria field
+     * THEN the issue is created from the search result instead of taken from the store
+     * AND stored with its acceptance criteria field
+     */
+    @Test
+    public void should_not_serve_stored_issue_without_requested_acceptance_criteria()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        com.atlassian.jira.rest.client.api.domain.Issue jiraIssue = client.getIssueClient().getIssue(TICKET_ID).get();
+        when(jiraIssue.getUpdateDate()).thenReturn(new DateTime(UPDATED.toEpochMilli()));
+        IssueField field = mock(IssueField.class);
+        when(field.getValue()).thenReturn("Given a ticket");
+        when(jiraIssue.getField("customfield_10100")).thenReturn(field);
+        try (IssueStore store = IssueStore.open(folder.getRoot().toPath())) {
+            store.put(new Issue().setKey(TICKET_ID).setDescription("stored description").setUpdated(UPDATED));
+            JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueStore(store)
+                .setFieldProjection(FieldProjection.defaults().withAcceptanceCriteria("customfield_10100"));
+
+            List<Issue> issues = adapter.getIssues(VALID_FILTER, 10);
+
+            assertThat(issues, contains(hasProperty("acceptanceCriteria", equalTo("Given a ticket"))));
+            assertThat(store.get(TICKET_ID).getAcceptanceCriteriaField(), equalTo("customfield_10100"));
+        }
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue cache
+     * AND an issue with an empty description
+     * WHEN requesting the issue
+     * THEN the issue is cached
+     */
+    @Test
+    public void should_cache_issue_with_empty_description()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        when(client.getIssueClient().getIssue(TICKET_ID).get().getDescription()).thenReturn("  ");
+        IssueCache cache = new IssueCache();
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueCache(cache);
+
+        Issue issue = adapter.getIssue(TICKET_ID);
+
+        assertThat(cache.peek(TICKET_ID).getKey(), equalTo(issue.getKey()));
+        assertThat(cache.peek(TICKET_ID).getDescription(), equalTo(issue.getDescription()));
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue cache containing the issue
+     * WHEN requesting the issue by its key in lower case
+     * THEN the cached issue is returned without requesting it from Jira
+     */
+    @Test
+    public void should_ignore_case_of_cached_keys()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        IssueCache cache = new IssueCache();
+        cache.put(new Issue().setKey(TICKET_ID).setDescription("cached description"));
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueCache(cache);
+
+        Issue issue = adapter.getIssue(TICKET_ID.toLowerCase(Locale.ROOT));
+
+        assertThat(issue.getDescription(), equalTo("cached description"));
+        verify(client.getIssueClient(), never()).getIssue(any());
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue store containing the issue
+     * AND the issue was not changed in Jira since
+     * WHEN requesting the issue
+     * THEN the stored issue is returned without requesting it from Jira
+     */
+    @Test
+    public void should_return_stored_issue()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        stubUpdated(client, UPDATED);
+        try (IssueStore store = IssueStore.open(folder.getRoot().toPath())) {
+            store.put(new Issue().setKey(TICKET_ID).setDescription("stored description").setUpdated(UPDATED));
+            JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueStore(store);
+
+            Issue issue = adapter.getIssue(TICKET_ID);
+
+            assertThat(issue.getDescription(), equalTo("stored description"));
+            verify(client.getIssueClient(), never()).getIssue(TICKET_ID);
+        }
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue store containing the issue
+     * AND the issue was changed in Jira since
+     * WHEN requesting the issue
+     * THEN the current issue is requested from Jira
+     * AND replaces the stored issue
+     */
+    @Test
+    public void should_replace_stored_issue_changed_since()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        stubUpdated(client, UPDATED);
+        try (IssueStore store = IssueStore.open(folder.getRoot().toPath())) {
+            store.put(new Issue().setKey(TICKET_ID).setDescription("stored description").setUpdated(UPDATED.minusSeconds(60)));
+            IssueCache cache = new IssueCache();
+            JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueStore(store).setIssueCache(cache);
+
+            Issue issue = adapter.getIssue(TICKET_ID);
+
+            assertThat(issue.getDescription(), equalTo(TICKET_DESC));
+            assertThat(store.get(TICKET_ID).getDescription(), equalTo(TICKET_DESC));
+            assertThat(cache.peek(TICKET_ID).getDescription(), equalTo(TICKET_DESC));
+        }
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue store containing the issue
+     * AND the issue was changed in Jira since
+     * WHEN requesting the issue without blocking
+     * THEN the current issue is requested from Jira
+     */
+    @Test
+    public void should_not_return_stored_issue_changed_since_asynchronously()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupAsyncFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        stubUpdated(client, UPDATED);
+        try (IssueStore store = IssueStore.open(folder.getRoot().toPath())) {
+            store.put(new Issue().setKey(TICKET_ID).setDescription("stored description").setUpdated(UPDATED.minusSeconds(60)));
+            JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueStore(store)
+                .setExecutor(Runnable::run);
+
+            Issue changed = adapter.getIssueAsync(TICKET_ID).get(5, TimeUnit.SECONDS);
+            store.put(new Issue().setKey(TICKET_ID).setDescription("stored description").setUpdated(UPDATED));
+            Issue current = adapter.getIssueAsync(TICKET_ID).get(5, TimeUnit.SECONDS);
+
+            assertThat(changed.getDescription(), equalTo("bold"));
+            assertThat(current.getDescription(), equalTo("stored description"));
+            verify(client.getIssueClient(), times(1)).getIssue(TICKET_ID);
+        }
+    }
+
+    /**
+     * GIVEN Jira adapter with an issue store containing the issue
+     * AND the circuit breaker of the server is open
+     * WHEN requesting the issue
+     * THEN the stored issue is returned without requesting it from Jira
+     */
+    @Test
+    public void should_return_stored_issue_while_circuit_is_open()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        CircuitBreaker breaker = new CircuitBreaker("hub.intension.de").setFailureThreshold(1);
+        breaker.record(new RestClientException(new IllegalStateException(), 503));
+        try (IssueStore store = IssueStore.open(folder.getRoot().toPath())) {
+            store.put(new Issue().setKey(TICKET_ID).setDescription("stored description").setUpdated(UPDATED));
+            JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueStore(store).setCircuitBreaker(breaker);
+
+            Issue issue = adapter.getIssue(TICKET_ID);
+
+            assertThat(issue.getDescription(), equalTo("stored description"));
+            verify(client.getIssueClient(), never()).getIssue(TICKET_ID);
+        }
+    }
+
+    /**
+     * GIVEN Jira adapter with an expired cached issue
+     * AND the circuit breaker of the server is open
+     * WHEN requesting the issue
+     * THEN the expired cached issue is returned without requesting it from Jira
+     */
+    @Test
+    public void should_return_stale_issue_while_circuit_is_open()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraRestClient client = factory.createWithBasicHttpAuthentication(new URI(URI), USERNAME, PASSWORD);
+        IssueCache cache = new IssueCache(10, 1000, 0, TimeUnit.MILLISECONDS);
+        cache.put(new Issue().setKey(TICKET_ID).setDescription("cached description"));
+        CircuitBreaker breaker = new CircuitBreaker("hub.intension.de").setFailureThreshold(1);
+        breaker.record(new RestClientException(new IllegalStateException(), 503));
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setIssueCache(cache).setCircuitBreaker(breaker);
+
+        Issue issue = adapter.getIssue(TICKET_ID);
+
+        assertThat(issue.getDescription(), equalTo("cached description"));
+        verify(client.getIssueClient(), never()).getIssue(TICKET_ID);
+    }
+
+    /**
+     * GIVEN Jira adapter with the default transport
+     * AND a search whose second page fails once with 503
+     * WHEN retrieving all issues in parallel
+     * THEN only the failing page is requested again
+     * AND all issues are returned in search order
+     */
+    @Test
+    public void should_retry_failing_page_of_parallel_search()
+        throws Exception
+    {
+        Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        JiraRestClientFactory factory = mock(JiraRestClientFactory.class);
+        JiraRestClient client = mock(JiraRestClient.class);
+        when(factory.createWithBasicHttpAuthentication(any(URI.class), eq(USERNAME), eq(PASSWORD))).thenReturn(client);
+        SearchRestClient searchClient = mock(SearchRestClient.class);
+        when(client.getSearchClient()).thenReturn(searchClient);
+        when(searchClient.searchJql(eq("project = LIZZY"), any(), any(), any())).thenAnswer(invocation -> {
+            int startAt = (Integer)invocation.getArguments()[2];
+            int maxResults = (Integer)invocation.getArguments()[1];
+            Promise<SearchResult> promise = PromisesTest.completedPromise();
+            if (attempts.computeIfAbsent(startAt, key -> new AtomicInteger()).incrementAndGet() == 1 && startAt == 10) {
+                when(promise.get()).thenThrow(new ExecutionException(new RestClientException(new IllegalStateException(), 503)));
+                return promise;
+            }
+            List<com.atlassian.jira.rest.client.api.domain.Issue> issues = new ArrayList<>();
+            pageKeys(startAt, maxResults, 25).forEach(key -> {
+                com.atlassian.jira.rest.client.api.domain.Issue issue = mock(com.atlassian.jira.rest.client.api.domain.Issue.class);
+                when(issue.getKey()).thenReturn(key);
+                issues.add(issue);
+            });
+            SearchResult result = mock(SearchResult.class);
+            when(result.getIssues()).thenReturn(issues);
+            when(result.getTotal()).thenReturn(25);
+            when(promise.get()).thenReturn(result);
+            return promise;
+        });
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setFactory(factory).setRetryPolicy(fastRetries())
+            .setCircuitBreaker(new CircuitBreaker("hub.intension.de"));
+
+        List<Issue> issues = adapter.getAllIssues("project = LIZZY", 2, 10);
+
+        assertThat(issues.stream().map(Issue::getKey).collect(Collectors.toList()), equalTo(pageKeys(0, 25, 25)));
+        assertThat(attempts.get(0).get(), equalTo(1));
+        assertThat(attempts.get(10).get(), equalTo(2));
+        assertThat(attempts.get(20).get(), equalTo(1));
+    }
+
+    /**
+     * GIVEN Jira adapter with a transport set
+     * AND a search whose second page fails once with 503
+     * WHEN retrieving all issues in parallel
+     * THEN only the failing page is requested again, as with the default transport
+     */
+    @Test
+    public void should_retry_failing_page_of_parallel_search_with_transport()
+        throws Exception
+    {
+        Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        JiraTransport transport = new JiraTransport() {
+
+            @Override
+            public CompletableFuture<Issue> getIssue(String key, FieldProjection projection)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<SearchPage> search(String jql, int startAt, int maxResults, FieldProjection projection)
+            {
+                CompletableFuture<SearchPage> page = new CompletableFuture<>();
+                if (attempts.computeIfAbsent(startAt, key -> new AtomicInteger()).incrementAndGet() == 1 && startAt == 10) {
+                    page.completeExceptionally(new RestClientException(new IllegalStateException(), 503));
+                    return page;
+                }
+                page.complete(new SearchPage(pageKeys(startAt, maxResults, 25).stream().map(key -> new Issue().setKey(key))
+                    .collect(Collectors.toList()), 25));
+                return page;
+            }
+
+            @Override
+            public void close()
+            {
+                // nothing to release
+            }
+        };
+        JiraAdapter adapter = new JiraAdapter(URI, USERNAME, PASSWORD).setTransport(transport).setRetryPolicy(fastRetries())
+            .setCircuitBreaker(new CircuitBreaker("hub.intension.de"));
+
+        List<Issue> issues = adapter.getAllIssues("project = LIZZY", 2, 10);
+
+        assertThat(issues.stream().map(Issue::getKey).collect(Collectors.toList()), equalTo(pageKeys(0, 25, 25)));
+        assertThat(attempts.get(0).get(), equalTo(1));
+        assertThat(attempts.get(10).get(), equalTo(2));
+        assertThat(attempts.get(20).get(), equalTo(1));
+    }
+
+    private static RetryPolicy fastRetries()
+    {
+        return RetryPolicy.defaults().setBackoff(1, 1, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<String> pageKeys(int startAt, int maxResults, int total)
+    {
+        List<String> keys = new ArrayList<>();
+        for (int i = startAt; i < Math.min(total, startAt + maxResults); i++) {
+            keys.add("LIZZY-" + i);
+        }
+        return keys;
+    }
+
+    /**
+     * Lets a search for the key of the ticket find it with the given update timestamp.
+     */
+    private static void stubUpdated(JiraRestClient client, Instant updated)
+        throws Exception
+    {
+        com.atlassian.jira.rest.client.api.domain.Issue current = mock(com.atlassian.jira.rest.client.api.domain.Issue.class);
+        when(current.getKey()).thenReturn(TICKET_ID);
+        when(current.getUpdateDate()).thenReturn(new DateTime(updated.toEpochMilli()));
+        SearchResult result = mock(SearchResult.class);
+        when(result.getIssues()).thenReturn(iterable(current));
+        Promise<SearchResult> promise = PromisesTest.completedPromise();
+        when(promise.get()).thenReturn(result);
+        when(client.getSearchClient().searchJql(eq("key = " + TICKET_ID), any(), any(), any())).thenReturn(promise);
+    }
+
+    /**
+     * Setup a {@link JiraRestClientFactory} mock with promises that complete immediately.
+     */
+    private JiraRestClientFactory setupAsyncFactory()
+        throws Exception
+    {
+        JiraRestClientFactory factory = mock(JiraRestClientFactory.class);
+        JiraRestClient client = mock(JiraRestClient.class);
+        when(factory.createWithBasicHttpAuthentication(any(URI.class), eq(USERNAME), eq(PASSWORD))).thenReturn(client);
+        com.atlassian.jira.rest.client.api.domain.Issue issue = mock(com.atlassian.jira.rest.client.api.domain.Issue.class);
+        when(issue.getDescription()).thenReturn("*bold*");
+        IssueRestClient issueClient = mock(IssueRestClient.class);
+        when(client.getIssueClient()).thenReturn(issueClient);
+        Promise<com.atlassian.jira.rest.client.api.domain.Issue> promise = PromisesTest.completedPromise();
+        when(promise.get()).thenReturn(issue);
+        when(issueClient.getIssue(TICKET_ID)).thenReturn(promise);
+        SearchRestClient searchClient = mock(SearchRestClient.class);
+        when(client.getSearchClient()).thenReturn(searchClient);
+        SearchResult searchResult = mock(SearchResult.class);
+        when(searchResult.getIssues()).thenReturn(iterable(issue));
+        Promise<SearchResult> resultPromise = PromisesTest.completedPromise();
+        when(resultPromise.get()).thenReturn(searchResult);
+        when(searchClient.searchJql(eq(VALID_FILTER), any(Integer.class), any(), any())).thenReturn(resultPromise);
+        return factory;
+    }
+
     /**
      * Setup a {@link JiraRestClientFactory} mock.
      */
-    @SuppressWarnings("unchecked")
     private JiraRestClientFactory setupFactory()
         throws Exception
     {
@@ -163,14 +705,15 @@ public class JiraAdapterTest
             .thenReturn(client);
         IssueRestClient issueClient = mock(IssueRestClient.class);
         when(client.getIssueClient()).thenReturn(issueClient);
-        Promise<com.atlassian.jira.rest.client.api.domain.Issue> promise = mock(Promise.class);
+        Promise<com.atlassian.jira.rest.client.api.domain.Issue> promise = PromisesTest.completedPromise();
         when(issueClient.getIssue(TICKET_ID)).thenReturn(promise);
         ExecutionException executionException = new ExecutionException("test message", new RestClientException(mock(Throwable.class), 404));
-        Promise<com.atlassian.jira.rest.client.api.domain.Issue> errorPromise = mock(Promise.class);
+        Promise<com.atlassian.jira.rest.client.api.domain.Issue> errorPromise = PromisesTest.completedPromise();
         when(issueClient.getIssue(not(eq(TICKET_ID)))).thenReturn(errorPromise);
         when(errorPromise.get()).thenThrow(executionException);
         com.atlassian.jira.rest.client.api.domain.Issue issue = mock(com.atlassian.jira.rest.client.api.domain.Issue.class);
         when(promise.get()).thenReturn(issue);
+        when(issue.getKey()).thenReturn(TICKET_ID);
         when(issue.getDescription()).thenReturn(TICKET_DESC);
         Attachment attachment1 = mock(Attachment.class);
         when(attachment1.getFilename()).thenReturn("testFile1.txt");
@@ -181,16 +724,16 @@ public class JiraAdapterTest
         // for search:
         SearchRestClient searchClient = mock(SearchRestClient.class);
         when(client.getSearchClient()).thenReturn(searchClient);
-        Promise<SearchResult> resultPromise = mock(Promise.class);
+        Promise<SearchResult> resultPromise = PromisesTest.completedPromise();
         when(searchClient.searchJql(eq(VALID_FILTER), any(Integer.class), any(), any())).thenReturn(resultPromise);
         SearchResult searchResult = mock(SearchResult.class);
-        when(resultPromise.claim()).thenReturn(searchResult);
+        when(resultPromise.get()).thenReturn(searchResult);
         when(searchResult.getIssues()).thenReturn(iterable(issue));
         // search with empty result:
-        Promise<SearchResult> noResultPromise = mock(Promise.class);
+        Promise<SearchResult> noResultPromise = PromisesTest.completedPromise();
         when(searchClient.searchJql(not(eq(VALID_FILTER)), any(), any(), any())).thenReturn(noResultPromise);
         SearchResult noResult = mock(SearchResult.class);
-        when(noResultPromise.claim()).thenReturn(noResult);
+        when(noResultPromise.get()).thenReturn(noResult);
         when(noResult.getIssues()).thenReturn(iterable());
         return factory;
     }
@@ -0,0 +1,210 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
+
+import de.intension.lizzy.adapter.jira.JiraClientPool.Lease;
+
+public class JiraClientPoolTest
+{
+
+    private static final URI    SERVER   = URI.create("https://hub.intension.de/");
+    private static final String USERNAME = "user123";
+    private static final String PASSWORD = "Password123!";
+
+    /**
+     * GIVEN a pool with a client for a server and user
+     * WHEN acquiring a client for the same server and user again
+     * THEN the pooled client is reused
+     */
+    @Test
+    public void should_reuse_client_for_same_server_and_user()
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraClientPool pool = new JiraClientPool();
+
+        JiraRestClient first = pool.lease(factory, SERVER, USERNAME, PASSWORD).get();
+        JiraRestClient second = pool.lease(factory, SERVER, USERNAME, PASSWORD).get();
+
+        assertThat(second, sameInstance(first));
+        verify(factory, times(1)).createWithBasicHttpAuthentication(SERVER, USERNAME, PASSWORD);
+    }
+
+    /**
+     * GIVEN a pool with a client for a server and user
+     * WHEN acquiring a client with a changed password
+     * THEN the old client is closed and a new one is returned
+     */
+    @Test
+    public void should_replace_client_when_password_changed()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraClientPool pool = new JiraClientPool();
+        Lease<JiraRestClient> first = pool.lease(factory, SERVER, USERNAME, PASSWORD);
+        first.close();
+
+        JiraRestClient second = pool.lease(factory, SERVER, USERNAME, "changed").get();
+
+        assertThat(second, not(sameInstance(first.get())));
+        assertThat(pool.size(), equalTo(1));
+        verify(first.get()).close();
+    }
+
+    /**
+     * GIVEN a pool with a leased client
+     * WHEN acquiring a client with a changed password
+     * THEN the old client is closed only once its lease is closed
+     */
+    @Test
+    public void should_close_replaced_client_when_released()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraClientPool pool = new JiraClientPool();
+        Lease<JiraRestClient> first = pool.lease(factory, SERVER, USERNAME, PASSWORD);
+
+        pool.lease(factory, SERVER, USERNAME, "changed");
+
+        verify(first.get(), never()).close();
+        first.close();
+        first.close();
+        verify(first.get(), times(1)).close();
+    }
+
+    /**
+     * GIVEN a pool with a transport for transport settings, server and user
+     * WHEN acquiring transports for equal and for different settings
+     * THEN the pooled transport is reused for equal settings only
+     */
+    @Test
+    public void should_pool_transports_by_settings()
+    {
+        JiraClientPool pool = new JiraClientPool();
+        try {
+            UrlConnectionTransport first = pool.leaseTransport(TransportSettings.defaults(), SERVER, USERNAME, PASSWORD).get();
+
+            assertThat(pool.leaseTransport(TransportSettings.defaults(), SERVER, USERNAME, PASSWORD).get(), sameInstance(first));
+            assertThat(pool.leaseTransport(TransportSettings.defaults().setCompression(false), SERVER, USERNAME, PASSWORD).get(),
+                       not(sameInstance(first)));
+            assertThat(pool.size(), equalTo(2));
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * GIVEN a pool with an idle timeout of zero
+     * WHEN evicting idle clients
+     * THEN the idle client is closed and removed
+     */
+    @Test
+    public void should_close_idle_clients()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraClientPool pool = new JiraClientPool().setIdleTimeout(0, TimeUnit.MILLISECONDS);
+        Lease<JiraRestClient> lease = pool.lease(factory, SERVER, USERNAME, PASSWORD);
+        lease.close();
+        Thread.sleep(1);
+
+        pool.evictIdle();
+
+        assertThat(pool.size(), equalTo(0));
+        verify(lease.get()).close();
+    }
+
+    /**
+     * GIVEN a pool with an idle timeout of zero
+     * AND a client leased for longer than the timeout
+     * WHEN evicting idle clients
+     * THEN the leased client is kept open
+     */
+    @Test
+    public void should_keep_leased_clients()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraClientPool pool = new JiraClientPool().setIdleTimeout(0, TimeUnit.MILLISECONDS);
+        JiraRestClient client = pool.lease(factory, SERVER, USERNAME, PASSWORD).get();
+        Thread.sleep(1);
+
+        pool.evictIdle();
+
+        assertThat(pool.size(), equalTo(1));
+        verify(client, never()).close();
+    }
+
+    /**
+     * GIVEN a pool limited to one client
+     * WHEN acquiring clients for two users
+     * THEN the least recently used client is closed
+     */
+    @Test
+    public void should_close_least_recently_used_client_when_pool_is_full()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraClientPool pool = new JiraClientPool().setMaxClients(1);
+        Lease<JiraRestClient> first = pool.lease(factory, SERVER, USERNAME, PASSWORD);
+        first.close();
+        Thread.sleep(1);
+
+        JiraRestClient second = pool.lease(factory, SERVER, "otherUser", PASSWORD).get();
+
+        assertThat(pool.size(), equalTo(1));
+        verify(first.get()).close();
+        verify(second, never()).close();
+    }
+
+    /**
+     * GIVEN a pool with a client
+     * AND a leased client
+     * WHEN closing the pool
+     * THEN the client is closed
+     * AND the leased client is closed once its lease is closed
+     */
+    @Test
+    public void should_close_all_clients_on_close()
+        throws Exception
+    {
+        JiraRestClientFactory factory = setupFactory();
+        JiraClientPool pool = new JiraClientPool();
+        Lease<JiraRestClient> released = pool.lease(factory, SERVER, USERNAME, PASSWORD);
+        released.close();
+        Lease<JiraRestClient> leased = pool.lease(factory, SERVER, "otherUser", PASSWORD);
+
+        pool.close();
+
+        assertThat(pool.size(), equalTo(0));
+        verify(released.get()).close();
+        verify(leased.get(), never()).close();
+        leased.close();
+        verify(leased.get()).close();
+    }
+
+    private JiraRestClientFactory setupFactory()
+    {
+        JiraRestClientFactory factory = mock(JiraRestClientFactory.class);
+        when(factory.createWithBasicHttpAuthentication(any(URI.class), anyString(), anyString()))
+            .thenAnswer(invocation -> mock(JiraRestClient.class));
+        return factory;
+    }
+}
@@ -0,0 +1,363 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.IssueStore;
+import de.intension.lizzy.adapter.NormalizationMemo;
+
+public class JiraSyncEngineTest
+{
+
+    private static final Instant UPDATED = Instant.parse("2018-10-01T10:15:30Z");
+
+    @Rule
+    public TemporaryFolder       folder  = new TemporaryFolder();
+
+    private final JiraAdapter    adapter = mock(JiraAdapter.class);
+    private IssueStore           store;
+
+    @Before
+    public void openStore()
+        throws IOException
+    {
+        store = IssueStore.open(folder.newFolder().toPath());
+    }
+
+    @After
+    public void closeStore()
+        throws IOException
+    {
+        store.close();
+    }
+
+    /**
+     * GIVEN a store containing an issue of the project which no longer exists
+     * WHEN synchronizing the project for the first time
+     * THEN all issues of the project are fetched and stored
+     * AND the obsolete issue is removed
+     * AND the high-water mark is the latest update timestamp
+     */
+    @Test
+    public void should_fetch_all_issues_on_first_sync()
+        throws IOException
+    {
+        store.putAll(Arrays.asList(issue("LIZZY-9", UPDATED), issue("OTHER-1", UPDATED)));
+        when(adapter.streamIssues("project = \"LIZZY\" ORDER BY updated ASC"))
+            .thenReturn(Stream.of(issue("LIZZY-1", UPDATED), issue("LIZZY-2", UPDATED.plusSeconds(60))));
+        JiraSyncEngine engine = new JiraSyncEngine(adapter, store, Clock.fixed(UPDATED.plusSeconds(120), ZoneOffset.UTC));
+
+        SyncResult result = engine.sync("LIZZY");
+
+        assertThat(store.keys(), containsInAnyOrder("LIZZY-1", "LIZZY-2", "OTHER-1"));
+        assertThat(result.getUpdatedCount(), equalTo(2));
+        assertThat(result.getRemovedCount(), equalTo(1));
+        assertThat(engine.getHighWaterMark("LIZZY"), equalTo(UPDATED.plusSeconds(60)));
+    }
+
+    /**
+     * GIVEN a project synchronized five minutes ago
+     * WHEN synchronizing it again
+     * THEN only issues updated within the last five minutes plus overlap are requested
+     * AND issues seen before are not counted as updated
+     */
+    @Test
+    public void should_fetch_changed_issues_only()
+        throws IOException
+    {
+        when(adapter.streamIssues("project = \"LIZZY\" ORDER BY updated ASC")).thenReturn(Stream.of(issue("LIZZY-1", UPDATED)));
+        MutableClock clock = new MutableClock(UPDATED);
+        JiraSyncEngine engine = new JiraSyncEngine(adapter, store, clock);
+        engine.sync("LIZZY");
+        when(adapter.streamIssues("project = \"LIZZY\" AND updated >= \"-7m\" ORDER BY updated ASC"))
+            .thenReturn(Stream.of(issue("LIZZY-1", UPDATED), issue("LIZZY-2", UPDATED.plusSeconds(240))));
+        clock.instant = UPDATED.plusSeconds(300);
+
+        SyncResult result = engine.sync("LIZZY");
+
+        assertThat(result.getUpdatedCount(), equalTo(1));
+        assertThat(result.isReconciled(), equalTo(false));
+        assertThat(store.get("LIZZY-2").getUpdated(), equalTo(UPDATED.plusSeconds(240)));
+        verify(adapter, never()).getIssues(anyCollectionOf(String.class));
+    }
+
+    /**
+     * GIVEN a synchronized project whose reconcile interval elapsed
+     * AND an issue was deleted and another one changed without being found by the delta search
+     * WHEN synchronizing the project
+     * THEN the deleted issue is removed
+     * AND the changed issue is fetched
+     */
+    @Test
+    public void should_reconcile_deleted_and_missed_issues()
+        throws IOException
+    {
+        when(adapter.streamIssues("project = \"LIZZY\" ORDER BY updated ASC"))
+            .thenReturn(Stream.of(issue("LIZZY-1", UPDATED), issue("LIZZY-2", UPDATED), issue("LIZZY-3", UPDATED)));
+        MutableClock clock = new MutableClock(UPDATED);
+        JiraSyncEngine engine = new JiraSyncEngine(adapter, store, clock).setReconcileInterval(1, TimeUnit.HOURS);
+        engine.sync("LIZZY");
+        when(adapter.streamIssues(anyString())).thenReturn(Stream.empty());
+        when(adapter.streamIssues(eq("project = \"LIZZY\""), any(PageSizer.class), eq(FieldProjection.summaryOnly())))
+            .thenReturn(Stream.of(issue("LIZZY-1", UPDATED), issue("LIZZY-2", UPDATED.plusSeconds(1))));
+        when(adapter.getIssues(Collections.singletonList("LIZZY-2")))
+            .thenReturn(Collections.singletonMap("LIZZY-2", issue("LIZZY-2", UPDATED.plusSeconds(1))));
+        clock.instant = UPDATED.plusSeconds(3600);
+
+        SyncResult result = engine.sync("LIZZY");
+
+        assertThat(result.isReconciled(), equalTo(true));
+        assertThat(result.getRemovedCount(), equalTo(1));
+        assertThat(result.getUpdatedCount(), equalTo(1));
+        assertThat(store.get("LIZZY-3"), nullValue());
+        assertThat(store.getUpdated("LIZZY-2"), equalTo(UPDATED.plusSeconds(1)));
+    }
+
+    /**
+     * GIVEN a synchronized project with a state file
+     * WHEN creating a new engine with the same state file
+     * THEN the high-water mark is restored
+     */
+    @Test
+    public void should_restore_high_water_mark_from_state_file()
+        throws IOException
+    {
+        Path stateFile = folder.getRoot().toPath().resolve("sync.properties");
+        when(adapter.streamIssues(anyString())).thenReturn(Stream.of(issue("LIZZY-1", UPDATED)));
+        new JiraSyncEngine(adapter, store).setStateFile(stateFile).sync("LIZZY");
+
+        JiraSyncEngine engine = new JiraSyncEngine(adapter, store).setStateFile(stateFile);
+
+        assertThat(engine.getHighWaterMark("LIZZY"), equalTo(UPDATED));
+    }
+
+    /**
+     * GIVEN a project synchronized with an issue updated ten minutes after the local time
+     * WHEN synchronizing it again five minutes later
+     * THEN the window is widened by the ten minutes the server clock is ahead
+     */
+    @Test
+    public void should_widen_window_by_lead_of_server_clock()
+        throws IOException
+    {
+        when(adapter.streamIssues("project = \"LIZZY\" ORDER BY updated ASC"))
+            .thenReturn(Stream.of(issue("LIZZY-1", UPDATED.plusSeconds(600))));
+        MutableClock clock = new MutableClock(UPDATED);
+        JiraSyncEngine engine = new JiraSyncEngine(adapter, store, clock);
+        engine.sync("LIZZY");
+        when(adapter.streamIssues("project = \"LIZZY\" AND updated >= \"-12m\" ORDER BY updated ASC"))
+            .thenReturn(Stream.of(issue("LIZZY-2", UPDATED.plusSeconds(660))));
+        clock.instant = UPDATED.plusSeconds(300);
+
+        SyncResult result = engine.sync("LIZZY");
+
+        assertThat(result.getUpdatedCount(), equalTo(1));
+        assertThat(engine.getHighWaterMark("LIZZY"), equalTo(UPDATED.plusSeconds(660)));
+    }
+
+    /**
+     * GIVEN a sync waiting for the server
+     * WHEN reading the high-water mark and adding a project
+     * THEN both do not wait for the sync
+     */
+    @Test
+    public void should_not_block_while_waiting_for_server()
+        throws Exception
+    {
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch answered = new CountDownLatch(1);
+        when(adapter.streamIssues(anyString())).thenAnswer(invocation -> {
+            requested.countDown();
+            answered.await();
+            return Stream.of(issue("LIZZY-1", UPDATED));
+        });
+        JiraSyncEngine engine = new JiraSyncEngine(adapter, store);
+        CompletableFuture<SyncResult> sync = CompletableFuture.supplyAsync(() -> {
+            try {
+                return engine.sync("LIZZY");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        requested.await();
+
+        Instant mark = CompletableFuture.supplyAsync(() -> engine.addProject("OTHER").getHighWaterMark("LIZZY"))
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(mark, nullValue());
+        answered.countDown();
+        assertThat(sync.get(5, TimeUnit.SECONDS).getUpdatedCount(), equalTo(1));
+    }
+
+    /**
+     * GIVEN two projects of which the first one fails to synchronize
+     * WHEN synchronizing all projects
+     * THEN the second project is synchronized
+     * AND the failure is logged
+     */
+    @Test
+    public void should_log_failed_projects()
+    {
+        RuntimeException failure = new IllegalStateException("unreachable");
+        when(adapter.streamIssues("project = \"BROKEN\" ORDER BY updated ASC")).thenThrow(failure);
+        when(adapter.streamIssues("project = \"LIZZY\" ORDER BY updated ASC")).thenReturn(Stream.of(issue("LIZZY-1", UPDATED)));
+        JiraSyncEngine engine = new JiraSyncEngine(adapter, store).addProject("BROKEN").addProject("LIZZY");
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+
+            @Override
+            public void publish(LogRecord record)
+            {
+                records.add(record);
+            }
+
+            @Override
+            public void flush()
+            {
+                // nothing buffered
+            }
+
+            @Override
+            public void close()
+            {
+                // nothing to close
+            }
+        };
+        Logger logger = Logger.getLogger(JiraSyncEngine.class.getName());
+        logger.addHandler(handler);
+        try {
+
+            Map<String, SyncResult> results = engine.syncAll();
+
+            assertThat(results.keySet(), containsInAnyOrder("LIZZY"));
+            assertThat(records, hasSize(1));
+            assertThat(records.get(0).getLevel(), equalTo(Level.WARNING));
+            assertThat(records.get(0).getThrown(), sameInstance(failure));
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    /**
+     * GIVEN an adapter with a normalization memo
+     * WHEN synchronizing all projects
+     * THEN the statistics of the memo are logged
+     */
+    @Test
+    public void should_log_normalization_memo_statistics()
+    {
+        NormalizationMemo memo = new NormalizationMemo();
+        memo.apply("text", String::trim);
+        memo.apply("text", String::trim);
+        when(adapter.getNormalizationMemo()).thenReturn(memo);
+        when(adapter.streamIssues("project = \"LIZZY\" ORDER BY updated ASC")).thenReturn(Stream.of(issue("LIZZY-1", UPDATED)));
+        JiraSyncEngine engine = new JiraSyncEngine(adapter, store).addProject("LIZZY");
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+
+            @Override
+            public void publish(LogRecord record)
+            {
+                records.add(record);
+            }
+
+            @Override
+            public void flush()
+            {
+                // nothing buffered
+            }
+
+            @Override
+            public void close()
+            {
+                // nothing to close
+            }
+        };
+        Logger logger = Logger.getLogger(JiraSyncEngine.class.getName());
+        logger.addHandler(handler);
+        try {
+
+            engine.syncAll();
+
+            assertThat(records, hasSize(1));
+            assertThat(records.get(0).getLevel(), equalTo(Level.INFO));
+            assertThat(records.get(0).getMessage(), equalTo("Synchronized 1 of 1 projects, " + memo));
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    private static Issue issue(String key, Instant updated)
+    {
+        return new Issue().setKey(key).setTitle(key).setDescription("description of " + key).setUpdated(updated);
+    }
+
+    private static final class MutableClock
+        extends Clock
+    {
+
+        private Instant instant;
+
+        MutableClock(Instant instant)
+        {
+            this.instant = instant;
+        }
+
+        @Override
+        public Instant instant()
+        {
+            return instant;
+        }
+
+        @Override
+        public ZoneOffset getZone()
+        {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone)
+        {
+            return this;
+        }
+    }
+}
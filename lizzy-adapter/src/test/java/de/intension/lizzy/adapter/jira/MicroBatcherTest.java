@@ -0,0 +1,150 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+public class MicroBatcherTest
+{
+
+    private final List<List<String>> batches = new ArrayList<>();
+
+    /**
+     * GIVEN a batcher with a window of 50 milliseconds
+     * WHEN looking up three keys within the window
+     * THEN a single batch with all keys is loaded
+     * AND every caller receives the value of its key
+     */
+    @Test
+    public void should_merge_lookups_within_window()
+        throws Exception
+    {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(this::loadAsync, TimeUnit.MILLISECONDS.toNanos(50), 100);
+
+        CompletableFuture<String> first = batcher.submit("INT-1");
+        CompletableFuture<String> second = batcher.submit("INT-2");
+        CompletableFuture<String> third = batcher.submit("INT-3");
+
+        assertThat(first.get(5, TimeUnit.SECONDS), equalTo("issue INT-1"));
+        assertThat(second.get(5, TimeUnit.SECONDS), equalTo("issue INT-2"));
+        assertThat(third.get(5, TimeUnit.SECONDS), equalTo("issue INT-3"));
+        assertThat(batches, contains(contains("INT-1", "INT-2", "INT-3")));
+    }
+
+    /**
+     * GIVEN a batcher with a long window and a maximum batch size of two
+     * WHEN looking up two keys
+     * THEN the batch is loaded without waiting for the window
+     * AND a key the loader found no value for completes with null
+     */
+    @Test
+    public void should_send_full_batch_immediately()
+        throws Exception
+    {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(this::loadAsync, TimeUnit.MINUTES.toNanos(1), 2);
+
+        CompletableFuture<String> first = batcher.submit("INT-1");
+        CompletableFuture<String> missing = batcher.submit("MISSING-1");
+
+        assertThat(first.isDone(), equalTo(true));
+        assertThat(first.get(), equalTo("issue INT-1"));
+        assertThat(missing.get(), nullValue());
+    }
+
+    /**
+     * GIVEN a batch with two keys that was not sent yet
+     * WHEN the caller of one key cancels
+     * THEN only the other key is loaded
+     */
+    @Test
+    public void should_withdraw_cancelled_lookup()
+        throws Exception
+    {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(this::loadAsync, TimeUnit.MILLISECONDS.toNanos(50), 100);
+
+        CompletableFuture<String> cancelled = batcher.submit("INT-1");
+        CompletableFuture<String> second = batcher.submit("INT-2");
+        cancelled.cancel(true);
+
+        assertThat(second.get(5, TimeUnit.SECONDS), equalTo("issue INT-2"));
+        assertThat(batches, contains(contains("INT-2")));
+    }
+
+    /**
+     * GIVEN a batcher whose loader fails
+     * WHEN looking up two keys in one batch
+     * THEN both callers receive the error
+     */
+    @Test
+    public void should_propagate_error_to_all_callers()
+        throws Exception
+    {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(keys -> {
+            throw new RestClientException(new IllegalStateException("unavailable"), 503);
+        }, TimeUnit.MINUTES.toNanos(1), 2);
+
+        CompletableFuture<String> first = batcher.submit("INT-1");
+        CompletableFuture<String> second = batcher.submit("INT-2");
+
+        for (CompletableFuture<String> future : new CompletableFuture[] { first, second }) {
+            try {
+                future.get();
+                fail("error expected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(RestClientException.class));
+            }
+        }
+    }
+
+    /**
+     * GIVEN a full batch whose load has not completed yet
+     * WHEN submitting the last key
+     * THEN the submitting thread does not wait for the load
+     * AND the callers complete once the load completes
+     */
+    @Test
+    public void should_not_wait_for_load()
+        throws Exception
+    {
+        CompletableFuture<Map<String, String>> load = new CompletableFuture<>();
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(keys -> load, TimeUnit.MINUTES.toNanos(1), 2);
+
+        CompletableFuture<String> first = batcher.submit("INT-1");
+        CompletableFuture<String> second = batcher.submit("INT-2");
+
+        assertThat(first.isDone(), equalTo(false));
+        load.complete(Collections.singletonMap("INT-2", "issue INT-2"));
+        assertThat(first.get(), nullValue());
+        assertThat(second.get(), equalTo("issue INT-2"));
+    }
+
+    private CompletableFuture<Map<String, String>> loadAsync(Collection<String> keys)
+    {
+        return CompletableFuture.completedFuture(load(keys));
+    }
+
+    private synchronized Map<String, String> load(Collection<String> keys)
+    {
+        batches.add(new ArrayList<>(keys));
+        Map<String, String> values = new HashMap<>();
+        keys.stream().filter(key -> key.startsWith("INT")).forEach(key -> values.put(key, "issue " + key));
+        return values;
+    }
+}
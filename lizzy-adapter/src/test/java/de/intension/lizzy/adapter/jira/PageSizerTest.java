@@ -0,0 +1,73 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PageSizerTest
+{
+
+    /**
+     * GIVEN a page sizer starting with 50 issues per page
+     * WHEN a page of small issues arrives fast
+     * THEN the page size doubles
+     */
+    @Test
+    public void should_grow_for_fast_pages()
+    {
+        PageSizer sizer = new PageSizer(10, 500, 50);
+
+        sizer.record(50, 5_000, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(sizer.nextSize(), equalTo(100));
+    }
+
+    /**
+     * GIVEN a page sizer with a target latency of one second
+     * WHEN a page of 100 issues takes four seconds
+     * THEN the page size shrinks to 25
+     */
+    @Test
+    public void should_shrink_for_slow_pages()
+    {
+        PageSizer sizer = new PageSizer(10, 500, 100).setTargetLatency(1, TimeUnit.SECONDS);
+
+        sizer.record(100, 1_000, TimeUnit.SECONDS.toNanos(4));
+
+        assertThat(sizer.nextSize(), equalTo(25));
+    }
+
+    /**
+     * GIVEN a page sizer with a target payload of 10,000 characters
+     * WHEN a page contains issues with 1,000 characters each
+     * THEN the page size is limited to 10
+     */
+    @Test
+    public void should_limit_size_by_payload()
+    {
+        PageSizer sizer = new PageSizer(1, 500, 50).setTargetPayload(10_000);
+
+        sizer.record(50, 50_000, -1);
+
+        assertThat(sizer.nextSize(), equalTo(10));
+    }
+
+    /**
+     * GIVEN a page sizer with a maximum of 500
+     * WHEN many fast pages arrive
+     * THEN the page size never exceeds the maximum
+     */
+    @Test
+    public void should_not_exceed_maximum()
+    {
+        PageSizer sizer = new PageSizer(10, 500, 400);
+
+        sizer.record(400, 400, 1);
+        sizer.record(500, 500, 1);
+
+        assertThat(sizer.nextSize(), equalTo(500));
+    }
+}
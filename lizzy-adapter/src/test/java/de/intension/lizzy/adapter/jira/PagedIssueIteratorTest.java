@@ -0,0 +1,163 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.iterableWithSize;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import de.intension.lizzy.adapter.Issue;
+
+public class PagedIssueIteratorTest
+{
+
+    private final List<Integer> requestedStarts = new CopyOnWriteArrayList<>();
+
+    /**
+     * GIVEN a search with 5 matching issues
+     * WHEN iterating with a page size of 2
+     * THEN all issues are returned in order
+     * AND pages are requested with increasing offsets
+     */
+    @Test
+    public void should_iterate_over_all_pages()
+    {
+        PagedIssueIterator iterator = new PagedIssueIterator((startAt, maxResults, consumer) -> page(startAt, maxResults, 5, consumer),
+                Function.identity(), new PageSizer(2, 2, 2));
+
+        List<String> keys = new ArrayList<>();
+        iterator.forEachRemaining(issue -> keys.add(issue.getKey()));
+
+        assertThat(keys, contains("LIZZY-0", "LIZZY-1", "LIZZY-2", "LIZZY-3", "LIZZY-4"));
+        assertThat(requestedStarts, contains(0, 2, 4));
+    }
+
+    /**
+     * GIVEN a search without matching issues
+     * WHEN iterating
+     * THEN no issue is returned
+     */
+    @Test
+    public void should_return_nothing_for_empty_result()
+    {
+        PagedIssueIterator iterator = new PagedIssueIterator((startAt, maxResults, consumer) -> page(startAt, maxResults, 0, consumer),
+                Function.identity(), new PageSizer());
+
+        assertThat(iterator.hasNext(), equalTo(false));
+        assertThat(requestedStarts, iterableWithSize(1));
+    }
+
+    /**
+     * GIVEN a page whose response is still being read
+     * WHEN iterating over the search
+     * THEN the issues read so far are returned before the page completed
+     * AND issues handed over again by a retried request are returned once
+     */
+    @Test
+    public void should_return_issues_before_page_completed()
+    {
+        CompletableFuture<Integer> total = new CompletableFuture<>();
+        List<Consumer<Issue>> consumers = new ArrayList<>();
+        PagedIssueIterator iterator = new PagedIssueIterator((startAt, maxResults, consumer) -> {
+            consumers.add(consumer);
+            consumer.accept(new Issue().setKey("LIZZY-0"));
+            return total;
+        }, Function.identity(), new PageSizer(10, 10, 10));
+
+        assertThat(iterator.next().getKey(), equalTo("LIZZY-0"));
+        for (int i = 0; i < 3; i++) {
+            consumers.get(0).accept(new Issue().setKey("LIZZY-" + i));
+        }
+        total.complete(3);
+        List<Issue> remaining = new ArrayList<>();
+        iterator.forEachRemaining(remaining::add);
+        assertThat(remaining.stream().map(Issue::getKey).collect(Collectors.toList()), contains("LIZZY-1", "LIZZY-2"));
+        assertThat(consumers, hasSize(1));
+    }
+
+    /**
+     * GIVEN an iterator with a prefetched page
+     * WHEN closing the iterator
+     * THEN the prefetched page is cancelled
+     */
+    @Test
+    public void should_cancel_prefetched_page_on_close()
+    {
+        List<CompletableFuture<Integer>> pages = new ArrayList<>();
+        PagedIssueIterator iterator = new PagedIssueIterator((startAt, maxResults, consumer) -> {
+            CompletableFuture<Integer> page = startAt == 0 ? page(startAt, maxResults, 10, consumer) : new CompletableFuture<>();
+            pages.add(page);
+            return page;
+        }, Function.identity(), new PageSizer(2, 2, 2));
+        iterator.next();
+
+        iterator.close();
+
+        assertThat(pages.get(1).isCancelled(), equalTo(true));
+    }
+
+    /**
+     * GIVEN a search whose pages arrive after 20 milliseconds
+     * WHEN iterating slower than the pages arrive
+     * THEN the latency of every page is recorded
+     * AND a prefetched page reports the time from its request to its arrival
+     */
+    @Test
+    public void should_record_latency_of_prefetched_pages()
+        throws Exception
+    {
+        List<Long> latencies = new CopyOnWriteArrayList<>();
+        PageSizer pageSizer = new PageSizer(2, 2, 2) {
+
+            @Override
+            public void record(int issues, long payload, long latency)
+            {
+                latencies.add(latency);
+                super.record(issues, payload, latency);
+            }
+        };
+        PagedIssueIterator iterator = new PagedIssueIterator((startAt, maxResults, consumer) -> CompletableFuture.supplyAsync(() -> {
+            sleep(20);
+            return page(startAt, maxResults, 6, consumer).join();
+        }), Function.identity(), pageSizer);
+
+        while (iterator.hasNext()) {
+            iterator.next();
+            sleep(50);
+        }
+
+        assertThat(latencies, iterableWithSize(3));
+        assertThat(latencies, everyItem(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20))));
+    }
+
+    private static void sleep(long millis)
+    {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Integer> page(int startAt, int maxResults, int total, Consumer<Issue> consumer)
+    {
+        requestedStarts.add(startAt);
+        for (int i = startAt; i < Math.min(total, startAt + maxResults); i++) {
+            consumer.accept(new Issue().setKey("LIZZY-" + i));
+        }
+        return CompletableFuture.completedFuture(total);
+    }
+}
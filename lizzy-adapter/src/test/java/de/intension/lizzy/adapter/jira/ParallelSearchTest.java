@@ -0,0 +1,152 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+import de.intension.lizzy.adapter.Issue;
+
+public class ParallelSearchTest
+{
+
+    private final Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+    /**
+     * GIVEN a search with 95 matching issues
+     * WHEN fetching all issues with 10 per page and 4 concurrent requests
+     * THEN all issues are returned in search order
+     */
+    @Test
+    public void should_return_all_issues_in_order()
+        throws Exception
+    {
+        ParallelSearch search = new ParallelSearch((startAt, maxResults) -> page(startAt, maxResults, 95, 0), Function.identity(), 4, 10);
+
+        List<Issue> issues = search.fetchAll();
+
+        assertThat(keys(issues), equalTo(expectedKeys(95)));
+    }
+
+    /**
+     * GIVEN a search with 100 matching issues answered after a few milliseconds
+     * WHEN fetching all issues with 10 per page and 3 concurrent requests
+     * THEN no more than 3 pages are pending at the same time
+     * AND all issues are returned in search order
+     */
+    @Test
+    public void should_limit_pending_pages()
+        throws Exception
+    {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ExecutorService server = Executors.newCachedThreadPool();
+        try {
+            ParallelSearch search = new ParallelSearch((startAt, maxResults) -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    return page(startAt, maxResults, 100, 0).join();
+                }, server);
+            }, Function.identity(), 3, 10);
+
+            List<Issue> issues = search.fetchAll();
+
+            assertThat(keys(issues), equalTo(expectedKeys(100)));
+            assertThat(maxInFlight.get(), lessThanOrEqualTo(3));
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    /**
+     * GIVEN a server capping pages at ten issues
+     * WHEN fetching all 25 issues with pages of 50
+     * THEN the remaining pages are requested with the capped size
+     */
+    @Test
+    public void should_fetch_remaining_pages_with_capped_size()
+        throws Exception
+    {
+        List<String> queries = Collections.synchronizedList(new ArrayList<>());
+        ParallelSearch search = new ParallelSearch((startAt, maxResults) -> {
+            queries.add(startAt + "/" + maxResults);
+            return page(startAt, Math.min(10, maxResults), 25, 0);
+        }, Function.identity(), 2, 50);
+
+        List<Issue> issues = search.fetchAll();
+
+        assertThat(keys(issues), equalTo(expectedKeys(25)));
+        assertThat(queries, contains("0/50", "10/10", "20/10"));
+    }
+
+    /**
+     * GIVEN a search where a page fails
+     * WHEN fetching all issues
+     * THEN the error of the page is thrown
+     * AND the page is requested only once, as retries are up to the loader
+     */
+    @Test
+    public void should_fail_with_error_of_failing_page()
+        throws Exception
+    {
+        ParallelSearch search = new ParallelSearch((startAt, maxResults) -> page(startAt, maxResults, 30, startAt == 10 ? 1 : 0),
+                Function.identity(), 2, 10);
+
+        try {
+            search.fetchAll();
+            fail("Should fail for a failing page.");
+        } catch (RestClientException e) {
+            assertThat(attempts.get(10).get(), equalTo(1));
+        }
+    }
+
+    private CompletableFuture<SearchPage> page(int startAt, int maxResults, int total, int failures)
+    {
+        if (attempts.computeIfAbsent(startAt, key -> new AtomicInteger()).incrementAndGet() <= failures) {
+            throw new RestClientException(new IllegalStateException("page " + startAt), 503);
+        }
+        List<Issue> issues = new ArrayList<>();
+        for (int i = startAt; i < Math.min(total, startAt + maxResults); i++) {
+            issues.add(new Issue().setKey("LIZZY-" + i));
+        }
+        return CompletableFuture.completedFuture(new SearchPage(issues, total));
+    }
+
+    private List<String> keys(List<Issue> issues)
+    {
+        return issues.stream().map(Issue::getKey).collect(Collectors.toList());
+    }
+
+    private List<String> expectedKeys(int total)
+    {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            keys.add("LIZZY-" + i);
+        }
+        return keys;
+    }
+}
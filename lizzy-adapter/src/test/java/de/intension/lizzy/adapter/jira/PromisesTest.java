@@ -0,0 +1,111 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.util.concurrent.Promise;
+
+public class PromisesTest
+{
+
+    /**
+     * GIVEN a promise completing with a value
+     * WHEN converting it to a future
+     * THEN the future completes with the value
+     */
+    @Test
+    public void should_complete_with_value_of_promise()
+        throws Exception
+    {
+        Promise<String> promise = completedPromise();
+        when(promise.get()).thenReturn("value");
+
+        CompletableFuture<String> future = Promises.toCompletableFuture(promise);
+
+        assertThat(future.get(), equalTo("value"));
+    }
+
+    /**
+     * GIVEN a promise failing with an error
+     * WHEN converting it to a future
+     * THEN the future completes exceptionally with the cause of the error
+     */
+    @Test
+    public void should_complete_exceptionally_with_error_of_promise()
+        throws Exception
+    {
+        Promise<String> promise = completedPromise();
+        when(promise.get()).thenThrow(new ExecutionException(new RestClientException(new IllegalStateException(), 404)));
+
+        CompletableFuture<String> future = Promises.toCompletableFuture(promise);
+
+        try {
+            future.get();
+            fail("Should fail with the error of the promise.");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RestClientException.class));
+        }
+    }
+
+    /**
+     * GIVEN a pending promise converted to a future
+     * WHEN cancelling the future
+     * THEN the promise is cancelled
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_cancel_promise_when_future_is_cancelled()
+    {
+        Promise<String> promise = mock(Promise.class);
+        CompletableFuture<String> future = Promises.toCompletableFuture(promise);
+
+        future.cancel(true);
+
+        verify(promise).cancel(true);
+    }
+
+    /**
+     * GIVEN a future derived from a pending request
+     * WHEN cancelling the derived future
+     * THEN the request is cancelled
+     */
+    @Test
+    public void should_cancel_source_when_dependent_is_cancelled()
+    {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<Integer> dependent = Promises.cancelling(source, source.thenApply(String::length));
+
+        dependent.cancel(true);
+
+        assertThat(source.isCancelled(), equalTo(true));
+    }
+
+    /**
+     * Creates a promise mock that runs its listeners immediately.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Promise<T> completedPromise()
+    {
+        Promise<T> promise = mock(Promise.class);
+        when(promise.isDone()).thenReturn(true);
+        doAnswer(invocation -> {
+            ((Runnable)invocation.getArguments()[0]).run();
+            return null;
+        }).when(promise).addListener(any(Runnable.class), any(Executor.class));
+        return promise;
+    }
+}
@@ -0,0 +1,205 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+import de.intension.lizzy.adapter.jira.RequestScheduler.Priority;
+
+public class RequestSchedulerTest
+{
+
+    private final RequestScheduler scheduler = new RequestScheduler().setTokenBucket(new TokenBucket(10_000, 10_000));
+
+    /**
+     * GIVEN a scheduler with its initial concurrency limit of four
+     * WHEN submitting ten requests that do not complete
+     * THEN four requests are sent and six wait
+     * AND completing a request admits a waiting one
+     */
+    @Test
+    public void should_limit_concurrent_requests()
+    {
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            responses.add(response);
+            scheduler.submit(() -> response);
+        }
+
+        assertThat(scheduler.getInFlight(), equalTo(4));
+        assertThat(scheduler.getQueueLength(), equalTo(6));
+
+        responses.get(0).complete("done");
+
+        assertThat(scheduler.getInFlight(), equalTo(4));
+        assertThat(scheduler.getQueueLength(), equalTo(5));
+    }
+
+    /**
+     * GIVEN a scheduler
+     * WHEN many requests succeed within the latency tolerance
+     * THEN the concurrency limit grows
+     */
+    @Test
+    public void should_increase_limit_while_requests_succeed()
+    {
+        // latencies of requests without I/O vary by orders of magnitude
+        scheduler.setLatencyTolerance(1e9);
+        for (int i = 0; i < 50; i++) {
+            scheduler.executeUninterruptibly(() -> "done");
+        }
+
+        assertThat(scheduler.getLimit(), greaterThan(4));
+    }
+
+    /**
+     * GIVEN a scheduler
+     * WHEN a request is answered with status 429
+     * THEN the concurrency limit is halved
+     * AND further requests wait for the Retry-After pause
+     */
+    @Test
+    public void should_back_off_when_throttled()
+        throws Exception
+    {
+        scheduler.setRetryAfter(200, TimeUnit.MILLISECONDS);
+        try {
+            scheduler.executeUninterruptibly(() -> {
+                throw new RestClientException(new IllegalStateException("throttled"), 429);
+            });
+        } catch (RestClientException e) {
+            // expected
+        }
+
+        assertThat(scheduler.getLimit(), equalTo(2));
+        long start = System.nanoTime();
+        scheduler.execute(() -> "done");
+        assertThat(System.nanoTime() - start, greaterThan(TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+
+    /**
+     * GIVEN a scheduler with a long default pause
+     * WHEN a request is throttled with a Retry-After time of 200 milliseconds
+     * THEN further requests wait for the time of the server instead of the default pause
+     */
+    @Test
+    public void should_pause_for_retry_after_of_server()
+        throws Exception
+    {
+        scheduler.setRetryAfter(1, TimeUnit.MINUTES);
+        try {
+            scheduler.executeUninterruptibly(() -> {
+                throw new ThrottledException(new IllegalStateException("throttled"), 503, TimeUnit.MILLISECONDS.toNanos(200));
+            });
+        } catch (RestClientException e) {
+            // expected
+        }
+
+        long start = System.nanoTime();
+        scheduler.execute(() -> "done");
+        assertThat(System.nanoTime() - start, greaterThan(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertThat(System.nanoTime() - start, lessThan(TimeUnit.SECONDS.toNanos(30)));
+    }
+
+    /**
+     * GIVEN a scheduler whose requests are all in flight
+     * WHEN cancelling a waiting request
+     * THEN it is withdrawn and never sent
+     */
+    @Test
+    public void should_withdraw_cancelled_request()
+    {
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            responses.add(response);
+            scheduler.submit(() -> response);
+        }
+        boolean[] sent = new boolean[1];
+        CompletableFuture<String> waiting = scheduler.submit(() -> {
+            sent[0] = true;
+            return CompletableFuture.completedFuture("done");
+        });
+
+        waiting.cancel(true);
+        responses.forEach(response -> response.complete("done"));
+
+        assertThat(sent[0], equalTo(false));
+        assertThat(scheduler.getInFlight(), equalTo(0));
+    }
+
+    /**
+     * GIVEN a scheduler with its initial limit of four, reserving three slots for higher priorities
+     * WHEN submitting five bulk requests that do not complete
+     * THEN a single bulk request is sent
+     * AND an interactive request is sent without waiting
+     */
+    @Test
+    public void should_reserve_concurrency_for_interactive_requests()
+    {
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit(Priority.BULK, CompletableFuture::new);
+        }
+
+        assertThat(scheduler.getInFlight(), equalTo(1));
+        assertThat(scheduler.getQueueLength(Priority.BULK), equalTo(4));
+
+        scheduler.submit(Priority.INTERACTIVE, CompletableFuture::new);
+
+        assertThat(scheduler.getInFlight(), equalTo(2));
+        assertThat(scheduler.getQueueLength(Priority.INTERACTIVE), equalTo(0));
+    }
+
+    /**
+     * GIVEN a scheduler whose requests are all in flight
+     * AND a waiting bulk request
+     * WHEN an interactive request arrives later
+     * AND a request completes
+     * THEN the interactive request is admitted first
+     */
+    @Test
+    public void should_admit_interactive_requests_first()
+    {
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            responses.add(response);
+            scheduler.submit(() -> response);
+        }
+        CompletableFuture<String> bulk = scheduler.submit(Priority.BULK, () -> CompletableFuture.completedFuture("bulk"));
+        CompletableFuture<String> interactive = scheduler.submit(Priority.INTERACTIVE, () -> CompletableFuture.completedFuture("interactive"));
+
+        responses.get(0).complete("done");
+
+        assertThat(interactive.isDone(), equalTo(true));
+        assertThat(bulk.isDone(), equalTo(false));
+    }
+
+    /**
+     * GIVEN a token bucket with one token per second
+     * WHEN taking two tokens at once
+     * THEN the second one is available in about a second
+     */
+    @Test
+    public void should_limit_rate_with_token_bucket()
+    {
+        TokenBucket bucket = new TokenBucket(1, 1);
+
+        assertThat(bucket.tryAcquire(), equalTo(0L));
+        long wait = bucket.tryAcquire();
+
+        assertThat(wait, greaterThan(TimeUnit.MILLISECONDS.toNanos(900)));
+        assertThat(wait, lessThan(TimeUnit.MILLISECONDS.toNanos(1001)));
+    }
+}
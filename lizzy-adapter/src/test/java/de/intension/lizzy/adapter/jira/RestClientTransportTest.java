@@ -0,0 +1,73 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.IssueRestClient;
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
+import com.atlassian.util.concurrent.Promise;
+
+import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.jira.JiraClientPool.Lease;
+
+public class RestClientTransportTest
+{
+
+    private static final URI    SERVER   = URI.create("https://hub.intension.de/");
+    private static final String USERNAME = "user123";
+    private static final String PASSWORD = "Password123!";
+
+    /**
+     * GIVEN a pending request of the transport
+     * WHEN the pooled client is replaced because the password changed
+     * THEN the client is closed only once the request completed
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_keep_client_leased_until_request_completed()
+        throws Exception
+    {
+        JiraRestClientFactory factory = mock(JiraRestClientFactory.class);
+        when(factory.createWithBasicHttpAuthentication(any(URI.class), anyString(), anyString()))
+            .thenAnswer(invocation -> mock(JiraRestClient.class));
+        JiraClientPool pool = new JiraClientPool();
+        Lease<JiraRestClient> lease = pool.lease(factory, SERVER, USERNAME, PASSWORD);
+        JiraRestClient client = lease.get();
+        lease.close();
+        IssueRestClient issueClient = mock(IssueRestClient.class);
+        when(client.getIssueClient()).thenReturn(issueClient);
+        Promise<com.atlassian.jira.rest.client.api.domain.Issue> promise = mock(Promise.class);
+        List<Runnable> listeners = new ArrayList<>();
+        doAnswer(invocation -> {
+            listeners.add((Runnable)invocation.getArguments()[0]);
+            return null;
+        }).when(promise).addListener(any(Runnable.class), any(Executor.class));
+        when(issueClient.getIssue("LIZZY-42")).thenReturn(promise);
+
+        CompletableFuture<Issue> issue = pool.transport(factory, SERVER, USERNAME, PASSWORD).getIssue("LIZZY-42", FieldProjection.defaults());
+        pool.lease(factory, SERVER, USERNAME, "changed").close();
+
+        verify(client, never()).close();
+        listeners.forEach(Runnable::run);
+        verify(client).close();
+        assertThat(issue.isDone(), equalTo(true));
+        assertThat(issue.get(), nullValue());
+    }
+}
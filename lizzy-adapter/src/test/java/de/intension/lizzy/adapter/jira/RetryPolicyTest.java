@@ -0,0 +1,129 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.fasterxml.jackson.core.JsonParseException;
+
+import de.intension.lizzy.adapter.jira.RequestScheduler.Priority;
+
+public class RetryPolicyTest
+{
+
+    private final RetryPolicy       policy    = RetryPolicy.defaults().setBackoff(1, 10, TimeUnit.MILLISECONDS);
+    private final RequestScheduler  scheduler = new RequestScheduler().setTokenBucket(new TokenBucket(10_000, 10_000))
+        .setRetryAfter(1, TimeUnit.MILLISECONDS);
+    private final CircuitBreaker    breaker   = new CircuitBreaker("jira.example.com");
+    private final ResilientRequests requests  = new ResilientRequests(scheduler, policy, breaker, Priority.INTERACTIVE);
+
+    /**
+     * GIVEN a retry policy with three attempts
+     * WHEN deciding about failed attempts
+     * THEN only transient errors and failed connections are retried, up to the third attempt
+     */
+    @Test
+    public void should_retry_transient_errors_only()
+    {
+        assertThat(policy.shouldRetry(1, new RestClientException(new IllegalStateException(), 503)), equalTo(true));
+        assertThat(policy.shouldRetry(1, new RestClientException(new IllegalStateException(), 429)), equalTo(true));
+        assertThat(policy.shouldRetry(1, new RestClientException("read timed out", new SocketTimeoutException())), equalTo(true));
+        assertThat(policy.shouldRetry(1, new RestClientException("Request failed", new IllegalStateException())), equalTo(false));
+        assertThat(policy.shouldRetry(1, new NullPointerException()), equalTo(false));
+        assertThat(policy.shouldRetry(1, new JsonParseException(null, "unexpected end of input")), equalTo(false));
+        assertThat(policy.shouldRetry(1, new RestClientException(new IllegalStateException(), 404)), equalTo(false));
+        assertThat(policy.shouldRetry(1, new RestClientException(new IllegalStateException(), 500)), equalTo(false));
+        assertThat(policy.shouldRetry(3, new RestClientException(new IllegalStateException(), 503)), equalTo(false));
+    }
+
+    /**
+     * GIVEN a retry policy with a maximum pause of ten milliseconds
+     * WHEN computing pauses of late attempts
+     * THEN the pauses stay within the maximum
+     */
+    @Test
+    public void should_cap_jittered_delay()
+    {
+        for (int attempt = 1; attempt < 100; attempt++) {
+            assertThat(policy.delay(attempt), lessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10)));
+        }
+    }
+
+    /**
+     * GIVEN a request failing twice with status 503
+     * WHEN executing it
+     * THEN the result of the third attempt is returned
+     */
+    @Test
+    public void should_return_result_of_successful_retry()
+        throws Exception
+    {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = requests.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ExecutionException(new RestClientException(new IllegalStateException(), 503));
+            }
+            return "done";
+        });
+
+        assertThat(result, equalTo("done"));
+        assertThat(attempts.get(), equalTo(3));
+    }
+
+    /**
+     * GIVEN an asynchronous request failing once with status 502
+     * WHEN submitting it
+     * THEN it completes with the result of the second attempt
+     */
+    @Test
+    public void should_retry_asynchronous_request()
+        throws Exception
+    {
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = requests.submit(() -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (attempts.incrementAndGet() < 2) {
+                future.completeExceptionally(new RestClientException(new IllegalStateException(), 502));
+            }
+            else {
+                future.complete("done");
+            }
+            return future;
+        });
+
+        assertThat(result.get(5, TimeUnit.SECONDS), equalTo("done"));
+        assertThat(attempts.get(), equalTo(2));
+    }
+
+    /**
+     * GIVEN an open circuit breaker
+     * WHEN executing a request
+     * THEN it fails fast without being sent
+     */
+    @Test
+    public void should_fail_fast_while_breaker_is_open()
+        throws Exception
+    {
+        breaker.setFailureThreshold(1).record(new RestClientException(new IllegalStateException(), 500));
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            requests.execute(() -> attempts.incrementAndGet());
+            fail("Should fail fast while the breaker is open.");
+        } catch (CircuitOpenException e) {
+            assertThat(attempts.get(), equalTo(0));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+import de.intension.lizzy.adapter.Issue;
+
+public class SearchResponseDecoderTest
+{
+
+    private static final String         SEARCH_RESPONSE = "{\"expand\":\"schema,names\",\"startAt\":0,\"maxResults\":50,\"total\":2,\"issues\":["
+            + "{\"expand\":\"operations\",\"id\":\"10001\",\"self\":\"https://jira/rest/api/2/issue/10001\",\"key\":\"LIZZY-1\",\"fields\":{"
+            + "\"issuetype\":{\"id\":\"1\",\"name\":\"Story\",\"subtask\":false},"
+            + "\"summary\":\"First\",\"description\":\"h1. Title\\nSome *text*\","
+            + "\"customfield_10100\":\"Given a user\","
+            + "\"labels\":[\"a\",\"b\"],"
+            + "\"updated\":\"2018-06-12T10:15:30.000+0200\"}},"
+            + "{\"key\":\"LIZZY-2\",\"fields\":{\"summary\":\"Second\",\"description\":null,\"customfield_10100\":{\"value\":\"ignored\"}}}"
+            + "]}";
+
+    private final SearchResponseDecoder decoder         = new SearchResponseDecoder("customfield_10100");
+
+    /**
+     * GIVEN a search response with two issues and many other fields
+     * WHEN decoding it
+     * THEN both issues are passed to the consumer in order
+     * AND the total is returned
+     */
+    @Test
+    public void should_decode_search_response()
+        throws IOException
+    {
+        List<Issue> issues = new ArrayList<>();
+
+        int total = decoder.decodeSearch(stream(SEARCH_RESPONSE), issues::add);
+
+        assertThat(total, equalTo(2));
+        assertThat(issues, hasSize(2));
+        Issue first = issues.get(0);
+        assertThat(first.getKey(), equalTo("LIZZY-1"));
+        assertThat(first.getTitle(), equalTo("First"));
+        assertThat(first.getDescription(), equalTo("h1. Title\nSome *text*"));
+        assertThat(first.getAcceptanceCriteria(), equalTo("Given a user"));
+        assertThat(first.getUpdated(), equalTo(Instant.parse("2018-06-12T08:15:30Z")));
+    }
+
+    /**
+     * GIVEN an issue with a null description and a non-text acceptance criteria field
+     * WHEN decoding it
+     * THEN both values are null
+     */
+    @Test
+    public void should_skip_missing_and_structured_values()
+        throws IOException
+    {
+        List<Issue> issues = new ArrayList<>();
+
+        decoder.decodeSearch(stream(SEARCH_RESPONSE), issues::add);
+
+        Issue second = issues.get(1);
+        assertThat(second.getKey(), equalTo("LIZZY-2"));
+        assertThat(second.getDescription(), nullValue());
+        assertThat(second.getAcceptanceCriteria(), nullValue());
+        assertThat(second.getUpdated(), nullValue());
+    }
+
+    /**
+     * GIVEN an issue of API version 3 with description and acceptance criteria as documents
+     * WHEN decoding it
+     * THEN both are converted to plain text
+     * AND marked as plain text
+     */
+    @Test
+    public void should_convert_documents()
+        throws IOException
+    {
+        String document = "{\"version\":1,\"type\":\"doc\",\"content\":[{\"type\":\"paragraph\",\"content\":"
+                + "[{\"type\":\"text\",\"text\":\"*literal* %s\"}]}]}";
+        String json = "{\"key\":\"LIZZY-4\",\"fields\":{\"description\":" + String.format(document, "description")
+                + ",\"customfield_10100\":" + String.format(document, "criteria") + "}}";
+
+        Issue issue = decoder.decodeIssue(stream(json));
+
+        assertThat(issue.getDescription(), equalTo("*literal* description"));
+        assertThat(issue.getAcceptanceCriteria(), equalTo("*literal* criteria"));
+        assertThat(DecodedIssue.isPlainDescription(issue), equalTo(true));
+        assertThat(DecodedIssue.isPlainAcceptanceCriteria(issue), equalTo(true));
+    }
+
+    /**
+     * GIVEN the response of a single issue request
+     * WHEN decoding it
+     * THEN the issue is returned
+     */
+    @Test
+    public void should_decode_single_issue()
+        throws IOException
+    {
+        Issue issue = decoder.decodeIssue(stream("{\"key\":\"LIZZY-3\",\"fields\":{\"summary\":\"Third\"}}"));
+
+        assertThat(issue.getKey(), equalTo("LIZZY-3"));
+        assertThat(issue.getTitle(), equalTo("Third"));
+    }
+
+    /**
+     * GIVEN a body that is no JSON object
+     * WHEN decoding it
+     * THEN a parse exception is thrown
+     */
+    @Test(expected = JsonParseException.class)
+    public void should_reject_invalid_response()
+        throws IOException
+    {
+        decoder.decodeSearch(stream("[]"), issue -> {
+        });
+    }
+
+    private static InputStream stream(String json)
+    {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
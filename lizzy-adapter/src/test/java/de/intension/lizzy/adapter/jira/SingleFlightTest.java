@@ -0,0 +1,186 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+public class SingleFlightTest
+{
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+    /**
+     * GIVEN a pending request for a key
+     * WHEN another caller submits a request for the same key
+     * THEN only the first request is sent
+     * AND both callers receive its response
+     */
+    @Test
+    public void should_share_pending_request()
+        throws Exception
+    {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+
+        CompletableFuture<String> first = flights.submit("INT-42", () -> {
+            sent.incrementAndGet();
+            return response;
+        });
+        CompletableFuture<String> second = flights.submit("INT-42", () -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        response.complete("issue");
+
+        assertThat(sent.get(), equalTo(1));
+        assertThat(first.get(), equalTo("issue"));
+        assertThat(second.get(), equalTo("issue"));
+        assertThat(flights.size(), equalTo(0));
+    }
+
+    /**
+     * GIVEN a blocking request that is pending
+     * WHEN another thread executes a request for the same key
+     * AND the pending request fails
+     * THEN both threads receive the error
+     */
+    @Test
+    public void should_propagate_error_to_waiting_callers()
+        throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Throwable> leader = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                flights.execute("INT-42", () -> {
+                    started.countDown();
+                    release.await();
+                    throw new ExecutionException(new RestClientException(new IllegalStateException("unavailable"), 503));
+                });
+            } catch (Exception e) {
+                leader.complete(e);
+            }
+        }).start();
+        started.await();
+
+        CompletableFuture<Throwable> follower = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                flights.execute("INT-42", () -> "other");
+            } catch (Exception e) {
+                follower.complete(e);
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING && thread.isAlive()) {
+            Thread.yield();
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS), instanceOf(ExecutionException.class));
+        assertThat(follower.get(5, TimeUnit.SECONDS), instanceOf(ExecutionException.class));
+        assertThat(follower.get().getCause(), instanceOf(RestClientException.class));
+    }
+
+    /**
+     * GIVEN a blocking request that is pending
+     * AND another thread waiting for it
+     * WHEN the thread sending the request is interrupted
+     * THEN only that thread fails
+     * AND the waiting thread sends the request itself
+     */
+    @Test
+    public void should_take_over_request_of_interrupted_caller()
+        throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Throwable> leader = new CompletableFuture<>();
+        Thread leaderThread = new Thread(() -> {
+            try {
+                flights.execute("INT-42", () -> {
+                    started.countDown();
+                    new CountDownLatch(1).await();
+                    return "never";
+                });
+            } catch (Exception e) {
+                leader.complete(e);
+            }
+        });
+        leaderThread.start();
+        started.await();
+
+        CompletableFuture<String> follower = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                follower.complete(flights.execute("INT-42", () -> "issue"));
+            } catch (Exception e) {
+                follower.completeExceptionally(e);
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING && thread.isAlive()) {
+            Thread.yield();
+        }
+        CompletableFuture<String> async = flights.submit("INT-42", () -> CompletableFuture.completedFuture("async"));
+        leaderThread.interrupt();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS), instanceOf(InterruptedException.class));
+        assertThat(follower.get(5, TimeUnit.SECONDS), equalTo("issue"));
+        assertThat(async.get(5, TimeUnit.SECONDS), anyOf(equalTo("issue"), equalTo("async")));
+        assertThat(flights.size(), equalTo(0));
+    }
+
+    /**
+     * GIVEN two callers sharing a pending request
+     * WHEN one caller cancels
+     * THEN the request is still pending for the other caller
+     * AND cancelling the other caller cancels the request
+     */
+    @Test
+    public void should_cancel_request_when_all_callers_cancelled()
+    {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        Future<String> first = flights.submit("INT-42", () -> response);
+        Future<String> second = flights.submit("INT-42", () -> response);
+
+        first.cancel(true);
+
+        assertThat(response.isCancelled(), equalTo(false));
+        assertThat(second.isCancelled(), equalTo(false));
+
+        second.cancel(true);
+
+        assertThat(response.isCancelled(), equalTo(true));
+        assertThat(flights.size(), equalTo(0));
+    }
+
+    /**
+     * GIVEN searches differing only in whitespace outside of quoted values
+     * WHEN computing their keys
+     * THEN the keys are equal
+     * AND whitespace inside of quoted values is kept
+     */
+    @Test
+    public void should_normalize_search_keys()
+    {
+        String key = JiraAdapter.searchKey("project = INT  AND\n summary ~ \"a  b\"", 50, Collections.singleton("summary"));
+
+        assertThat(JiraAdapter.searchKey(" project = INT AND summary ~ \"a  b\" ", 50, Collections.singleton("summary")), equalTo(key));
+        assertThat(JiraAdapter.searchKey("project = INT AND summary ~ \"a b\"", 50, Collections.singleton("summary")).equals(key),
+                   equalTo(false));
+    }
+}
@@ -0,0 +1,275 @@
+package de.intension.lizzy.adapter.jira;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.intension.lizzy.adapter.Issue;
+
+public class UrlConnectionTransportTest
+{
+
+    private final List<String>     requests = new CopyOnWriteArrayList<>();
+    private final CountDownLatch   release  = new CountDownLatch(1);
+
+    private HttpServer             server;
+    private UrlConnectionTransport transport;
+
+    @Before
+    public void startServer()
+        throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/jira/rest/api/2/issue/", exchange -> {
+            record(exchange);
+            respond(exchange, 404, "{\"errorMessages\":[\"Issue Does Not Exist\"]}", false);
+        });
+        server.createContext("/jira/rest/api/2/search", exchange -> {
+            record(exchange);
+            respond(exchange, 200, "{\"startAt\":0,\"total\":2,\"issues\":[{\"key\":\"LIZZY-1\",\"fields\":{\"summary\":\"First\"}},"
+                    + "{\"key\":\"LIZZY-2\",\"fields\":{\"summary\":\"Second\"}}]}", true);
+        });
+        server.createContext("/busy/rest/api/2/search", exchange -> {
+            record(exchange);
+            exchange.getResponseHeaders().set("Retry-After", "7");
+            respond(exchange, 429, "{}", false);
+        });
+        server.createContext("/slow/rest/api/2/search", exchange -> {
+            record(exchange);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{\"total\":0,\"issues\":[]}", false);
+        });
+        server.createContext("/jira/rest/api/3/issue/", exchange -> {
+            record(exchange);
+            respond(exchange, 200, "{\"key\":\"LIZZY-3\",\"fields\":{\"description\":{\"version\":1,\"type\":\"doc\",\"content\":["
+                    + "{\"type\":\"paragraph\",\"content\":[{\"type\":\"text\",\"text\":\"Cloud\"}]}]}}}", false);
+        });
+        server.start();
+        transport = new UrlConnectionTransport(URI.create("http://localhost:" + server.getAddress().getPort() + "/jira/"), "admin", "secret");
+    }
+
+    @After
+    public void stopServer()
+    {
+        release.countDown();
+        transport.close();
+        server.stop(0);
+    }
+
+    /**
+     * GIVEN a server answering searches with a gzip-compressed body
+     * WHEN searching
+     * THEN the decompressed issues are returned
+     * AND the request carries query, credentials and the accepted encoding
+     */
+    @Test
+    public void should_search_with_gzip_and_basic_authentication()
+        throws Exception
+    {
+        SearchPage page = transport.search("project = LIZZY", 0, 50, FieldProjection.summaryOnly()).get(5, TimeUnit.SECONDS);
+
+        assertThat(page.getTotal(), equalTo(2));
+        assertThat(page.getIssues().stream().map(Issue::getKey).collect(Collectors.toList()), contains("LIZZY-1", "LIZZY-2"));
+        assertThat(requests.get(0), equalTo("/jira/rest/api/2/search?jql=project+%3D+LIZZY&startAt=0&maxResults=50"
+                + "&fields=summary%2Cissuetype%2Ccreated%2Cupdated%2Cproject%2Cstatus|Basic YWRtaW46c2VjcmV0|gzip, deflate|keep-alive"));
+    }
+
+    /**
+     * GIVEN a server answering searches
+     * WHEN searching with a consumer
+     * THEN every issue is handed to the consumer
+     * AND the total is returned
+     */
+    @Test
+    public void should_hand_issues_to_consumer()
+        throws Exception
+    {
+        List<String> keys = new CopyOnWriteArrayList<>();
+
+        int total = transport.search("project = LIZZY", 0, 50, FieldProjection.summaryOnly(), issue -> keys.add(issue.getKey()))
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(total, equalTo(2));
+        assertThat(keys, contains("LIZZY-1", "LIZZY-2"));
+    }
+
+    /**
+     * GIVEN a server answering with status 404
+     * WHEN requesting an issue
+     * THEN the request fails with a RestClientException carrying the status
+     */
+    @Test
+    public void should_fail_with_status_of_error_response()
+        throws Exception
+    {
+        try {
+            transport.getIssue("LIZZY-3", FieldProjection.defaults()).get(5, TimeUnit.SECONDS);
+            fail("error expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RestClientException.class));
+            assertThat(RequestScheduler.statusOf(e.getCause()), equalTo(404));
+        }
+    }
+
+    /**
+     * GIVEN a server throttling searches with status 429 and a Retry-After header
+     * WHEN searching
+     * THEN the request fails with a ThrottledException carrying status and Retry-After time
+     */
+    @Test
+    public void should_pass_on_retry_after()
+        throws Exception
+    {
+        try (UrlConnectionTransport busy = new UrlConnectionTransport(URI.create("http://localhost:" + server.getAddress().getPort() + "/busy"),
+                "admin", "secret")) {
+            busy.search("project = LIZZY", 0, 50, FieldProjection.summaryOnly()).get(5, TimeUnit.SECONDS);
+            fail("error expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ThrottledException.class));
+            assertThat(RequestScheduler.statusOf(e.getCause()), equalTo(429));
+            assertThat(((ThrottledException)e.getCause()).getRetryAfter(TimeUnit.SECONDS), equalTo(7L));
+        }
+    }
+
+    /**
+     * GIVEN Retry-After headers in seconds, as HTTP date and invalid
+     * WHEN parsing them
+     * THEN the time to wait is returned, or -1 for the invalid header
+     */
+    @Test
+    public void should_parse_retry_after()
+    {
+        Instant now = Instant.parse("2018-10-18T10:00:00Z");
+
+        assertThat(UrlConnectionTransport.parseRetryAfter("120", now), equalTo(TimeUnit.SECONDS.toNanos(120)));
+        assertThat(UrlConnectionTransport.parseRetryAfter("Thu, 18 Oct 2018 10:00:30 GMT", now), equalTo(TimeUnit.SECONDS.toNanos(30)));
+        assertThat(UrlConnectionTransport.parseRetryAfter("Thu, 18 Oct 2018 09:00:00 GMT", now), equalTo(0L));
+        assertThat(UrlConnectionTransport.parseRetryAfter("86400", now), equalTo(TimeUnit.MINUTES.toNanos(10)));
+        assertThat(UrlConnectionTransport.parseRetryAfter("soon", now), equalTo(-1L));
+        assertThat(UrlConnectionTransport.parseRetryAfter(null, now), equalTo(-1L));
+    }
+
+    /**
+     * GIVEN a transport with a single connection whose request is still waiting for the server
+     * WHEN sending a second request and closing the transport
+     * THEN the second request waits in the queue without being sent
+     * AND both requests are cancelled by closing
+     */
+    @Test
+    public void should_queue_requests_beyond_connection_limit()
+        throws Exception
+    {
+        TransportSettings settings = TransportSettings.defaults().setMaxConnectionsPerHost(1);
+        UrlConnectionTransport slow = new UrlConnectionTransport(URI.create("http://localhost:" + server.getAddress().getPort() + "/slow"),
+                "admin", "secret", settings);
+        CompletableFuture<SearchPage> first = slow.search("project = LIZZY", 0, 50, FieldProjection.summaryOnly());
+        CompletableFuture<SearchPage> second = slow.search("project = LIZZY", 50, 50, FieldProjection.summaryOnly());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.isEmpty() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+
+        slow.close();
+
+        assertThat(requests.size(), equalTo(1));
+        assertThat(first.isCancelled(), equalTo(true));
+        assertThat(second.isCancelled(), equalTo(true));
+    }
+
+    /**
+     * GIVEN settings without compression and without keep-alive
+     * WHEN searching
+     * THEN no compressed response is accepted
+     * AND the connection is closed after the response
+     */
+    @Test
+    public void should_apply_transport_settings()
+        throws Exception
+    {
+        TransportSettings settings = TransportSettings.defaults().setCompression(false).setIdleTimeout(0, TimeUnit.SECONDS);
+        try (UrlConnectionTransport plain = new UrlConnectionTransport(URI.create("http://localhost:" + server.getAddress().getPort() + "/jira"),
+                "admin", "secret", settings)) {
+            plain.search("project = LIZZY", 0, 50, FieldProjection.summaryOnly()).get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(requests.get(0), endsWith("|null|close"));
+    }
+
+    /**
+     * GIVEN settings with API version 3
+     * WHEN requesting an issue
+     * THEN the issue is requested from API version 3
+     * AND its description document is converted to plain text
+     */
+    @Test
+    public void should_request_api_version_3()
+        throws Exception
+    {
+        TransportSettings settings = TransportSettings.defaults().setApiVersion(3);
+        Issue issue;
+        try (UrlConnectionTransport cloud = new UrlConnectionTransport(URI.create("http://localhost:" + server.getAddress().getPort() + "/jira"),
+                "admin", "secret", settings)) {
+            issue = cloud.getIssue("LIZZY-3", FieldProjection.defaults()).get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(issue.getDescription(), equalTo("Cloud"));
+        assertThat(requests.get(0), startsWith("/jira/rest/api/3/issue/LIZZY-3?fields="));
+    }
+
+    private void record(HttpExchange exchange)
+    {
+        requests.add(exchange.getRequestURI() + "|" + exchange.getRequestHeaders().getFirst("Authorization") + "|"
+                + exchange.getRequestHeaders().getFirst("Accept-Encoding") + "|" + exchange.getRequestHeaders().getFirst("Connection"));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json, boolean gzip)
+        throws IOException
+    {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        if (gzip) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
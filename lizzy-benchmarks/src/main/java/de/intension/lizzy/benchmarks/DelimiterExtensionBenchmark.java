@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vladsch.flexmark.Extension;
+import com.vladsch.flexmark.ast.util.TextCollectingVisitor;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.options.MutableDataSet;
+
+import de.intension.lizzy.adapter.flexmark.CitationExtension;
+import de.intension.lizzy.adapter.flexmark.MonospaceExtension;
+import de.intension.lizzy.adapter.flexmark.StrikethroughExtension;
+import de.intension.lizzy.adapter.flexmark.UnderlineExtension;
+
+/**
+ * Measures the custom flexmark delimiter extensions one by one, each with a parser that knows only
+ * this extension and a text full of its delimiters, compared to a parser without extensions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DelimiterExtensionBenchmark
+{
+
+    /**
+     * Extension under test with an example of its markup.
+     */
+    public enum Delimiter
+    {
+
+        NONE(null, "plain"),
+        CITATION(CitationExtension.create(), "??cited??"),
+        MONOSPACE(MonospaceExtension.create(), "{{code}}"),
+        UNDERLINE(UnderlineExtension.create(), "+underlined+"),
+        STRIKETHROUGH(StrikethroughExtension.create(), "-struck-");
+
+        private final Extension extension;
+        private final String    markup;
+
+        Delimiter(Extension extension, String markup)
+        {
+            this.extension = extension;
+            this.markup = markup;
+        }
+    }
+
+    @Param({"NONE", "CITATION", "MONOSPACE", "UNDERLINE", "STRIKETHROUGH"})
+    public Delimiter    delimiter;
+
+    @Param({"SMALL", "TYPICAL", "LARGE"})
+    public Descriptions size;
+
+    private Parser      parser;
+    private String      text;
+
+    @Setup
+    public void prepare()
+    {
+        MutableDataSet options = new MutableDataSet();
+        if (delimiter.extension != null) {
+            options.set(Parser.EXTENSIONS, Collections.singletonList(delimiter.extension));
+        }
+        parser = Parser.builder(options).build();
+        // put the markup of the extension into every line, so the delimiter processor runs on every paragraph
+        StringBuilder builder = new StringBuilder();
+        for (String line : size.generate().split("\n")) {
+            builder.append(line.trim()).append(' ').append(delimiter.markup).append(" end\n");
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public String parse()
+    {
+        return new TextCollectingVisitor().collectAndGetText(parser.parse(text));
+    }
+}
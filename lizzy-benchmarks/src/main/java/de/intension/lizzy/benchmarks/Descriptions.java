@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.benchmarks;
+
+import java.util.List;
+
+import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.testsupport.IssueCorpus;
+
+/**
+ * Issue descriptions of the sizes measured by the benchmarks, generated by an {@link IssueCorpus}.
+ */
+public enum Descriptions
+{
+
+    /** A few lines, like a short bug report. */
+    SMALL(1, 1, 0),
+    /** A description with background, details, a table and two Gherkin scenarios. */
+    TYPICAL(1, 3, 2),
+    /** Several megabytes, like a specification pasted into a single issue. */
+    LARGE(1500, 6, 4);
+
+    private final int issues;
+    private final int paragraphs;
+    private final int scenarios;
+
+    Descriptions(int issues, int paragraphs, int scenarios)
+    {
+        this.issues = issues;
+        this.paragraphs = paragraphs;
+        this.scenarios = scenarios;
+    }
+
+    /**
+     * Generates the description, indented and with trailing whitespace like descriptions edited in the Jira web editor.
+     */
+    public String generate()
+    {
+        List<Issue> corpus = new IssueCorpus(42).setSize(issues).setParagraphs(paragraphs).setScenarios(scenarios).generate();
+        StringBuilder text = new StringBuilder();
+        for (Issue issue : corpus) {
+            for (String line : issue.getDescription().split("\n")) {
+                text.append(line.startsWith("*") || line.startsWith("#") ? line : "  " + line).append(" \t\n");
+            }
+        }
+        return text.toString();
+    }
+}
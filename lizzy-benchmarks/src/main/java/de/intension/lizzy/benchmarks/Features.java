@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import de.intension.lizzy.testsupport.IssueCorpus;
+
+/**
+ * Gherkin features for the conversion benchmarks, taken from the acceptance criteria of an {@link IssueCorpus}.
+ */
+final class Features
+{
+
+    static final String PACKAGE_NAME = "de.intension.lizzy.generated";
+
+    private Features()
+    {
+        // utility class
+    }
+
+    /**
+     * @return Feature with the given number of scenarios.
+     */
+    static String generate(int scenarios)
+    {
+        return new IssueCorpus(42).setSize(1).setScenarios(scenarios).generate().get(0).getAcceptanceCriteria();
+    }
+
+    /**
+     * @return Feature with the same name as <code>feature</code>, so it is converted to the same test class,
+     *         but with other scenarios.
+     */
+    static String sibling(String feature, int scenarios)
+    {
+        String other = new IssueCorpus(7).setSize(1).setScenarios(scenarios).generate().get(0).getAcceptanceCriteria();
+        String name = feature.substring(0, feature.indexOf('\n'));
+        return name + other.substring(other.indexOf('\n')).replace("Scenario: ", "Scenario: Existing ");
+    }
+
+    /**
+     * Deletes the location test classes were converted into.
+     */
+    static void delete(Path location)
+        throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(location)) {
+            for (Path path : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squareup.javapoet.JavaFile;
+
+import de.intension.lizzy.converter.CaseFormat;
+import de.intension.lizzy.converter.gherkin.GherkinGenerator;
+import de.intension.lizzy.converter.gherkin.GherkinParser;
+import gherkin.ast.Feature;
+
+/**
+ * Measures the steps of turning a feature into a test class in memory: {@link GherkinParser#parseFeature(String)}
+ * and {@link GherkinGenerator#generate(Feature, String, CaseFormat)}. Writing and appending to the file is measured
+ * by {@link GherkinConverterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GherkinConversionBenchmark
+{
+
+    @Param({"1", "50", "5000"})
+    public int        scenarios;
+
+    @Param({"CAMEL_CASE", "SNAKE_CASE"})
+    public CaseFormat methodFormat;
+
+    private String    gherkin;
+    private Feature   feature;
+
+    @Setup
+    public void prepare()
+    {
+        gherkin = Features.generate(scenarios);
+        feature = GherkinParser.parseFeature(gherkin);
+    }
+
+    @Benchmark
+    public Feature parseFeature()
+    {
+        return GherkinParser.parseFeature(gherkin);
+    }
+
+    @Benchmark
+    public JavaFile generate()
+    {
+        return GherkinGenerator.generate(feature, Features.PACKAGE_NAME, methodFormat);
+    }
+}
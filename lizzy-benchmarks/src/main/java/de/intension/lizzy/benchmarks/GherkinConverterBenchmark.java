@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squareup.javapoet.JavaFile;
+
+import de.intension.lizzy.converter.CaseFormat;
+import de.intension.lizzy.converter.gherkin.GherkinConverter;
+import de.intension.lizzy.converter.gherkin.GherkinGenerator;
+import de.intension.lizzy.converter.gherkin.GherkinParser;
+
+/**
+ * Measures {@link GherkinConverter#convert(String)} including the file access. Without existing methods the
+ * converter writes a new test class, otherwise it parses the existing class with JavaParser, appends the
+ * scenarios and prints the class again. Parsing the feature and generating the class in memory are measured
+ * on their own by {@link GherkinConversionBenchmark}.
+ * <p>
+ * The test class is restored before every call, so each call appends the same scenarios to a class of the
+ * same size. Appending is quadratic in the number of methods, so a call with 5,000 scenarios takes more than a
+ * minute. The default parameters therefore stop at 50 scenarios; large features are an opt-in run with
+ * <code>-p scenarios=5000</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class GherkinConverterBenchmark
+{
+
+    @Param({"1", "50"})
+    public int               scenarios;
+
+    @Param({"0", "10", "100", "1000"})
+    public int               existingMethods;
+
+    @Param({"CAMEL_CASE", "SNAKE_CASE"})
+    public CaseFormat        methodFormat;
+
+    private String           gherkin;
+    private byte[]           existingClass;
+    private Path             location;
+    private Path             testClass;
+    private GherkinConverter converter;
+
+    @Setup
+    public void prepare()
+        throws IOException
+    {
+        gherkin = Features.generate(scenarios);
+        location = Files.createTempDirectory("lizzy-benchmark");
+        JavaFile javaFile = GherkinGenerator.generate(GherkinParser.parseFeature(gherkin), Features.PACKAGE_NAME, methodFormat);
+        testClass = location.resolve(javaFile.packageName.replace('.', '/')).resolve(javaFile.typeSpec.name + ".java");
+        if (existingMethods > 0) {
+            String existing = Features.sibling(gherkin, existingMethods);
+            existingClass = GherkinGenerator.generate(GherkinParser.parseFeature(existing), Features.PACKAGE_NAME, methodFormat)
+                .toString().getBytes(StandardCharsets.UTF_8);
+        }
+        converter = new GherkinConverter().setLocation(location.toString()).setPackageName(Features.PACKAGE_NAME)
+            .setMethodFormat(methodFormat);
+    }
+
+    /**
+     * Restores the test class the call appends to, or removes the class written by the last call.
+     */
+    @Setup(Level.Invocation)
+    public void restoreTestClass()
+        throws IOException
+    {
+        if (existingClass == null) {
+            Files.deleteIfExists(testClass);
+        }
+        else {
+            Files.createDirectories(testClass.getParent());
+            Files.write(testClass, existingClass);
+        }
+    }
+
+    @TearDown
+    public void cleanUp()
+        throws IOException
+    {
+        Features.delete(location);
+    }
+
+    @Benchmark
+    public void convert()
+        throws IOException
+    {
+        converter.convert(gherkin);
+    }
+}
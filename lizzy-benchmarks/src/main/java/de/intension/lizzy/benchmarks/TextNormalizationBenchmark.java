@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vladsch.flexmark.ast.util.TextCollectingVisitor;
+import com.vladsch.flexmark.ext.gfm.strikethrough.SubscriptExtension;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.superscript.SuperscriptExtension;
+import com.vladsch.flexmark.util.options.MutableDataSet;
+
+import de.intension.lizzy.adapter.MarkdownRemover;
+import de.intension.lizzy.adapter.MultilineTrimmer;
+import de.intension.lizzy.adapter.flexmark.CitationExtension;
+import de.intension.lizzy.adapter.flexmark.MonospaceExtension;
+import de.intension.lizzy.adapter.flexmark.StrikethroughExtension;
+import de.intension.lizzy.adapter.flexmark.UnderlineExtension;
+
+/**
+ * Measures the normalization every issue text gets in the adapter: {@link MultilineTrimmer#trim(String)},
+ * {@link MarkdownRemover#toPlainText(CharSequence)} and both in sequence. {@link #flexmark()} removes the markup
+ * with the flexmark parser and extensions that {@link MarkdownRemover} falls back to for texts its single pass
+ * stripper does not support.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextNormalizationBenchmark
+{
+
+    @Param({"SMALL", "TYPICAL", "LARGE"})
+    public Descriptions size;
+
+    private String      description;
+    private String      trimmed;
+    private Parser      parser;
+
+    @Setup
+    public void generate()
+    {
+        description = size.generate();
+        trimmed = MultilineTrimmer.trim(description);
+        parser = Parser.builder(new MutableDataSet()
+            .set(Parser.EXTENSIONS, Arrays.asList(SubscriptExtension.create(), SuperscriptExtension.create(),
+                                                  MonospaceExtension.create(), CitationExtension.create(),
+                                                  UnderlineExtension.create(), StrikethroughExtension.create())))
+            .build();
+    }
+
+    @Benchmark
+    public String trim()
+    {
+        return MultilineTrimmer.trim(description);
+    }
+
+    @Benchmark
+    public String toPlainText()
+    {
+        return MarkdownRemover.toPlainText(trimmed);
+    }
+
+    @Benchmark
+    public String flexmark()
+    {
+        return new TextCollectingVisitor().collectAndGetText(parser.parse(trimmed));
+    }
+
+    /**
+     * Both steps like they run for every issue, trimming into a buffer that is parsed in place.
+     */
+    @Benchmark
+    public String normalize()
+    {
+        return MarkdownRemover.toPlainText(MultilineTrimmer.trim(description, new StringBuilder(description.length())));
+    }
+}
@@ -25,12 +25,18 @@ import static javax.ws.rs.core.Response.Status.FORBIDDEN;
 import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
 import static org.eclipse.e4.ui.workbench.modeling.EPartService.PartState.VISIBLE;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.ws.rs.core.Response.Status;
 
@@ -45,6 +51,7 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.List;
@@ -58,10 +65,16 @@ import org.eclipse.ui.browser.IWorkbenchBrowserSupport;
 import com.atlassian.jira.rest.client.api.RestClientException;
 
 import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.IssueCache;
+import de.intension.lizzy.adapter.IssueStore;
+import de.intension.lizzy.adapter.NormalizationMemo;
+import de.intension.lizzy.adapter.jira.FieldProjection;
+import de.intension.lizzy.adapter.jira.HedgingPolicy;
 import de.intension.lizzy.adapter.jira.JiraAdapter;
 import de.intension.lizzy.plugin.dialogs.Dialogs;
 import de.intension.lizzy.plugin.dialogs.PasswordDialog;
 import de.intension.lizzy.plugin.provider.SecureStorageNodeProvider;
+import de.intension.lizzy.plugin.provider.TransportPreferences;
 
 /**
  * Eclipse view to search for a ticket (built with SWT).
@@ -84,6 +97,14 @@ public class SearchView
     private List                  issueListView;
 
     private java.util.List<Issue> issues;
+    private JiraAdapter           adapter;
+    private IssueCache            issueCache;
+    private IssueStore            issueStore;
+    private HedgingPolicy         hedgingPolicy;
+    private String                issueCacheUri;
+    private NormalizationMemo     normalizationMemo  = new NormalizationMemo();
+    /** Issue selected last that is still being fetched. Only accessed on the UI thread. */
+    private Future<Issue>         pendingIssue;
 
     private boolean               invalidCredentials = false;
 
@@ -156,12 +177,44 @@ public class SearchView
             @Override
             public void widgetSelected(SelectionEvent e)
             {
-                context.getParent().set(ISSUE_KEY, issues.get(issueListView.getSelectionIndex()));
-                partService.showPart(DisplayView.ID, VISIBLE);
+                int index = issueListView.getSelectionIndex();
+                if (index < 0) {
+                    return;
+                }
+                if (pendingIssue != null) {
+                    pendingIssue.cancel(true);
+                }
+                // search results only contain the summary, fetch the issue without blocking the UI thread
+                CompletableFuture<Issue> pending = adapter.getIssueAsync(issues.get(index).getKey());
+                pendingIssue = pending;
+                Display display = issueListView.getDisplay();
+                pending.whenComplete((issue, error) -> {
+                    if (pending.isCancelled() || display.isDisposed()) {
+                        return;
+                    }
+                    display.asyncExec(() -> showIssue(pending, issue, error));
+                });
             }
         };
     }
 
+    /**
+     * Shows a fetched issue on {@link DisplayView} unless another issue was selected meanwhile. Runs on the UI thread.
+     */
+    private void showIssue(Future<Issue> fetched, Issue issue, Throwable error)
+    {
+        if (fetched != pendingIssue || issueListView.isDisposed()) {
+            return;
+        }
+        pendingIssue = null;
+        if (error != null) {
+            Dialogs.error(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            return;
+        }
+        context.getParent().set(ISSUE_KEY, issue);
+        partService.showPart(DisplayView.ID, VISIBLE);
+    }
+
     /**
      * Listener to search for a ticket.
      * 
@@ -198,9 +251,9 @@ public class SearchView
                 message("No search filter", "Please enter a search filter for the ticket.", SWT.ICON_WARNING | SWT.OK);
                 return;
             }
-            JiraAdapter adapter = login(url);
+            adapter = login(url);
 
-            issues = adapter.getIssues(filterString, 10);
+            issues = adapter.getIssues(filterString, 10, FieldProjection.summaryOnly());
             issueListView.setItems(getDisplayNames(issues));
             invalidCredentials = false;
         } catch (Exception ex) {
@@ -246,7 +299,57 @@ public class SearchView
                 password = SecureStorageNodeProvider.get(IDENTIFICATION);
             }
         }
-        return new JiraAdapter(uri, user, password);
+        JiraAdapter jiraAdapter = new JiraAdapter(uri, user, password).setIssueCache(getIssueCache(uri));
+        return jiraAdapter.setIssueStore(issueStore)
+            .setNormalizationMemo(normalizationMemo)
+            .setHedgingPolicy(hedgingPolicy)
+            .setTransportSettings(TransportPreferences.get());
+    }
+
+    /**
+     * Returns the issue cache for the server, discarding the cache and the latencies observed for
+     * hedging of a previously used server and opening the persistent issue store of the server.
+     */
+    private IssueCache getIssueCache(String uri)
+    {
+        if (issueCache == null || !uri.equals(issueCacheUri)) {
+            issueCache = new IssueCache();
+            issueCacheUri = uri;
+            hedgingPolicy = new HedgingPolicy();
+            closeIssueStore();
+            issueStore = openIssueStore(uri);
+        }
+        return issueCache;
+    }
+
+    /**
+     * Opens the issue store of the server in the home directory of the user, which is shared by all workspaces.
+     *
+     * @return The store or <code>null</code> if it cannot be opened.
+     */
+    private IssueStore openIssueStore(String uri)
+    {
+        String directory = uri.replaceFirst("^[a-zA-Z]+://", "").replaceAll("[^a-zA-Z0-9.-]+", "_");
+        try {
+            return IssueStore.open(Paths.get(System.getProperty("user.home"), ".lizzy", "issues", directory));
+        } catch (IOException e) {
+            // issues are only requested from the server
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void closeIssueStore()
+    {
+        if (issueStore == null) {
+            return;
+        }
+        try {
+            issueStore.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+        issueStore = null;
     }
 
     @SuppressWarnings("unchecked")
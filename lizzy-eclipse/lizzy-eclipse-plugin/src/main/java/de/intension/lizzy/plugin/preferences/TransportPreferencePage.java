@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.plugin.preferences;
+
+import static de.intension.lizzy.plugin.provider.TransportPreferences.COMPRESSION;
+import static de.intension.lizzy.plugin.provider.TransportPreferences.CONNECT_TIMEOUT;
+import static de.intension.lizzy.plugin.provider.TransportPreferences.ENABLED;
+import static de.intension.lizzy.plugin.provider.TransportPreferences.IDLE_TIMEOUT;
+import static de.intension.lizzy.plugin.provider.TransportPreferences.MAX_CONNECTIONS_PER_HOST;
+import static de.intension.lizzy.plugin.provider.TransportPreferences.SOCKET_TIMEOUT;
+import static de.intension.lizzy.plugin.provider.TransportPreferences.TLS_SESSION_CACHE_SIZE;
+import static de.intension.lizzy.plugin.provider.TransportPreferences.TLS_SESSION_TIMEOUT;
+
+import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+import de.intension.lizzy.plugin.provider.TransportPreferences;
+
+/**
+ * Preference page for the connection settings to Jira (built with SWT).
+ */
+public class TransportPreferencePage extends FieldEditorPreferencePage
+    implements IWorkbenchPreferencePage
+{
+
+    public TransportPreferencePage()
+    {
+        super(GRID);
+        setDescription("Connection settings for Jira. They apply to searches started after saving.");
+    }
+
+    @Override
+    public void init(IWorkbench workbench)
+    {
+        setPreferenceStore(TransportPreferences.createStore());
+    }
+
+    @Override
+    protected void createFieldEditors()
+    {
+        Composite parent = getFieldEditorParent();
+        addField(new BooleanFieldEditor(ENABLED, "Use lightweight HTTP client with these settings", parent));
+        addField(new BooleanFieldEditor(COMPRESSION, "Request compressed responses", parent));
+        addField(integer(MAX_CONNECTIONS_PER_HOST, "Maximum concurrent requests:", 1, 1000, parent));
+        addField(integer(IDLE_TIMEOUT, "Keep idle threads (seconds, 0 disables keep-alive):", 0, 3600, parent));
+        addField(integer(CONNECT_TIMEOUT, "Connect timeout (seconds, 0 for none):", 0, 3600, parent));
+        addField(integer(SOCKET_TIMEOUT, "Socket timeout (seconds, 0 for none):", 0, 3600, parent));
+        addField(integer(TLS_SESSION_CACHE_SIZE, "Cached TLS sessions (0 for no limit):", 0, 100000, parent));
+        addField(integer(TLS_SESSION_TIMEOUT, "Resume TLS sessions for (minutes, 0 for no limit):", 0, 1440, parent));
+    }
+
+    private IntegerFieldEditor integer(String name, String label, int min, int max, Composite parent)
+    {
+        IntegerFieldEditor editor = new IntegerFieldEditor(name, label, parent);
+        editor.setValidRange(min, max);
+        return editor;
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.plugin.provider;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.ui.preferences.ScopedPreferenceStore;
+
+import de.intension.lizzy.adapter.jira.TransportSettings;
+
+/**
+ * Provides access to the connection settings for Jira in the instance preferences of Eclipse.
+ */
+public class TransportPreferences
+{
+
+    public static final String NODE                     = "lizzy-eclipse-plugin";
+
+    public static final String ENABLED                  = "transport.enabled";
+    public static final String COMPRESSION              = "transport.compression";
+    public static final String MAX_CONNECTIONS_PER_HOST = "transport.maxConnectionsPerHost";
+    public static final String IDLE_TIMEOUT             = "transport.idleTimeoutSeconds";
+    public static final String CONNECT_TIMEOUT          = "transport.connectTimeoutSeconds";
+    public static final String SOCKET_TIMEOUT           = "transport.socketTimeoutSeconds";
+    public static final String TLS_SESSION_CACHE_SIZE   = "transport.tlsSessionCacheSize";
+    public static final String TLS_SESSION_TIMEOUT      = "transport.tlsSessionTimeoutMinutes";
+
+    private static final TransportSettings DEFAULTS     = TransportSettings.defaults();
+
+    /**
+     * Creates a preference store for the connection settings with their defaults.
+     */
+    public static IPreferenceStore createStore()
+    {
+        IPreferenceStore store = new ScopedPreferenceStore(InstanceScope.INSTANCE, NODE);
+        store.setDefault(ENABLED, false);
+        store.setDefault(COMPRESSION, DEFAULTS.isCompression());
+        store.setDefault(MAX_CONNECTIONS_PER_HOST, DEFAULTS.getMaxConnectionsPerHost());
+        store.setDefault(IDLE_TIMEOUT, DEFAULTS.getIdleTimeout(TimeUnit.SECONDS));
+        store.setDefault(CONNECT_TIMEOUT, DEFAULTS.getConnectTimeout(TimeUnit.SECONDS));
+        store.setDefault(SOCKET_TIMEOUT, DEFAULTS.getSocketTimeout(TimeUnit.SECONDS));
+        store.setDefault(TLS_SESSION_CACHE_SIZE, DEFAULTS.getTlsSessionCacheSize());
+        store.setDefault(TLS_SESSION_TIMEOUT, DEFAULTS.getTlsSessionTimeout(TimeUnit.MINUTES));
+        return store;
+    }
+
+    /**
+     * Reads the connection settings.
+     *
+     * @return The settings or <code>null</code> if the Jira REST client with its fixed settings is to be used.
+     */
+    public static TransportSettings get()
+    {
+        IEclipsePreferences node = InstanceScope.INSTANCE.getNode(NODE);
+        if (!node.getBoolean(ENABLED, false)) {
+            return null;
+        }
+        return TransportSettings.defaults()
+            .setCompression(node.getBoolean(COMPRESSION, DEFAULTS.isCompression()))
+            .setMaxConnectionsPerHost(node.getInt(MAX_CONNECTIONS_PER_HOST, DEFAULTS.getMaxConnectionsPerHost()))
+            .setIdleTimeout(node.getLong(IDLE_TIMEOUT, DEFAULTS.getIdleTimeout(TimeUnit.SECONDS)), TimeUnit.SECONDS)
+            .setConnectTimeout(node.getLong(CONNECT_TIMEOUT, DEFAULTS.getConnectTimeout(TimeUnit.SECONDS)), TimeUnit.SECONDS)
+            .setSocketTimeout(node.getLong(SOCKET_TIMEOUT, DEFAULTS.getSocketTimeout(TimeUnit.SECONDS)), TimeUnit.SECONDS)
+            .setTlsSessionCacheSize(node.getInt(TLS_SESSION_CACHE_SIZE, DEFAULTS.getTlsSessionCacheSize()))
+            .setTlsSessionTimeout(node.getLong(TLS_SESSION_TIMEOUT, DEFAULTS.getTlsSessionTimeout(TimeUnit.MINUTES)), TimeUnit.MINUTES);
+    }
+}
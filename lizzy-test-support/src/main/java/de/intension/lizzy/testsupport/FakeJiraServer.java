@@ -0,0 +1,532 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.testsupport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Embedded stand-in for a Jira server, serving the REST endpoints used by the
+ * {@link de.intension.lizzy.adapter.jira.JiraAdapter} from a fixed set of issues, e.g. of an {@link IssueCorpus}.
+ * <p>
+ * Served are <code>GET /rest/api/2/issue/{key}</code> and <code>GET</code> and <code>POST /rest/api/2/search</code>
+ * with the JQL described at {@link Jql}. Responses contain the fields the Jira client needs to parse an issue,
+ * honour the requested fields and are gzip-compressed if the client accepts it. To measure the adapter
+ * under realistic conditions, every request can be delayed and answered with errors or status 429.
+ *
+ * <pre>
+ * <code>try (FakeJiraServer server = new FakeJiraServer(new IssueCorpus(42).generate()).setLatency(20, 80, TimeUnit.MILLISECONDS).start()) {
+ *     new JiraAdapter(server.getUri().toString(), "admin", "admin").getIssue("LIZZY-1");
+ * }</code>
+ * </pre>
+ */
+public class FakeJiraServer
+    implements Closeable
+{
+
+    /**
+     * Id of the custom field holding the acceptance criteria.
+     */
+    public static final String             ACCEPTANCE_CRITERIA_FIELD = "customfield_10100";
+
+    private static final String            API                       = "/rest/api/2/";
+    private static final DateTimeFormatter DATE_TIME                 = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
+        .withZone(ZoneOffset.UTC);
+    private static final AtomicInteger     THREAD_COUNT              = new AtomicInteger();
+
+    private final Map<String, Issue>       issues                    = new LinkedHashMap<>();
+    private final JsonFactory              json                      = new JsonFactory();
+    private final Random                   random                    = new Random(0);
+
+    private final AtomicLong               requestCount              = new AtomicLong();
+    private final AtomicLong               throttledCount            = new AtomicLong();
+    private final AtomicLong               failedCount               = new AtomicLong();
+
+    private volatile String                authorization;
+    private volatile long                  minLatency;
+    private volatile long                  maxLatency;
+    private volatile double                errorRate;
+    private volatile double                throttleRate;
+    private volatile int                   retryAfter                = 1;
+    private volatile int                   maxResults                = 100;
+    private volatile boolean               compression               = true;
+
+    private volatile URI                   uri;
+    private HttpServer                     server;
+    private ExecutorService                executor;
+
+    /**
+     * @param issues Issues to serve.
+     */
+    public FakeJiraServer(Collection<Issue> issues)
+    {
+        issues.forEach(issue -> this.issues.put(issue.getKey().toUpperCase(Locale.ROOT), issue));
+    }
+
+    /**
+     * Starts the server on a free port of the loopback interface.
+     */
+    public synchronized FakeJiraServer start()
+        throws IOException
+    {
+        if (server != null) {
+            return this;
+        }
+        // without TCP_NODELAY every response waits for the delayed acknowledgement of its headers
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "lizzy-fake-jira-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 256);
+        server.setExecutor(executor);
+        server.createContext(API, this::handle);
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/");
+        return this;
+    }
+
+    /**
+     * Base URI of the running server.
+     */
+    public URI getUri()
+    {
+        URI base = uri;
+        if (base == null) {
+            throw new IllegalStateException("Server is not started");
+        }
+        return base;
+    }
+
+    /**
+     * Stops the server without waiting for pending requests.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            uri = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange)
+        throws IOException
+    {
+        try {
+            requestCount.incrementAndGet();
+            delay();
+            if (authorization != null && !authorization.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                sendError(exchange, 401, "You are not authenticated.");
+                return;
+            }
+            if (chance(throttleRate)) {
+                throttledCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+                sendError(exchange, 429, "Rate limit exceeded.");
+                return;
+            }
+            if (chance(errorRate)) {
+                failedCount.incrementAndGet();
+                sendError(exchange, 503, "Service unavailable.");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath().substring(API.length());
+            if (path.startsWith("issue/")) {
+                getIssue(exchange, path.substring("issue/".length()));
+            }
+            else if (path.equals("search")) {
+                search(exchange);
+            }
+            else {
+                sendError(exchange, 404, "Not found: " + exchange.getRequestURI().getPath());
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void getIssue(HttpExchange exchange, String key)
+        throws IOException
+    {
+        Issue issue = issues.get(key.toUpperCase(Locale.ROOT));
+        if (issue == null) {
+            sendError(exchange, 404, "Issue Does Not Exist");
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        List<String> fields = query.containsKey("fields") ? Arrays.asList(query.get("fields").split(",")) : null;
+        send(exchange, 200, generator -> writeIssue(generator, issue, fields));
+    }
+
+    private void search(HttpExchange exchange)
+        throws IOException
+    {
+        String jql;
+        int startAt;
+        int requested;
+        List<String> fields;
+        if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            Map<String, Object> body = parseBody(exchange.getRequestBody());
+            jql = (String)body.get("jql");
+            startAt = body.containsKey("startAt") ? Integer.parseInt(body.get("startAt").toString()) : 0;
+            requested = body.containsKey("maxResults") ? Integer.parseInt(body.get("maxResults").toString()) : 50;
+            @SuppressWarnings("unchecked")
+            List<String> bodyFields = (List<String>)body.get("fields");
+            fields = bodyFields;
+        }
+        else {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            jql = query.get("jql");
+            startAt = Integer.parseInt(query.getOrDefault("startAt", "0"));
+            requested = Integer.parseInt(query.getOrDefault("maxResults", "50"));
+            fields = query.containsKey("fields") ? Arrays.asList(query.get("fields").split(",")) : null;
+        }
+        List<Issue> selected = Jql.select(jql, issues);
+        int max = Math.max(0, Math.min(requested, maxResults));
+        List<Issue> page = startAt >= selected.size() ? Collections.emptyList()
+                : selected.subList(Math.max(0, startAt), Math.min(selected.size(), Math.max(0, startAt) + max));
+        send(exchange, 200, generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("expand", "names,schema");
+            generator.writeNumberField("startAt", startAt);
+            generator.writeNumberField("maxResults", max);
+            generator.writeNumberField("total", selected.size());
+            generator.writeArrayFieldStart("issues");
+            for (Issue issue : page) {
+                writeIssue(generator, issue, fields);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        });
+    }
+
+    private void writeIssue(JsonGenerator generator, Issue issue, List<String> fields)
+        throws IOException
+    {
+        String base = getUri() + "rest/api/2/";
+        String id = String.valueOf(10000 + Jql.number(issue));
+        String project = issue.getKey().substring(0, issue.getKey().lastIndexOf('-'));
+        String updated = DATE_TIME.format(issue.getUpdated());
+        generator.writeStartObject();
+        generator.writeStringField("expand", "renderedFields,names,schema");
+        generator.writeStringField("id", id);
+        generator.writeStringField("self", base + "issue/" + id);
+        generator.writeStringField("key", issue.getKey());
+        generator.writeObjectFieldStart("fields");
+        generator.writeStringField("summary", issue.getTitle());
+        if (includes(fields, "description")) {
+            generator.writeStringField("description", issue.getDescription());
+        }
+        if (includes(fields, ACCEPTANCE_CRITERIA_FIELD)) {
+            generator.writeStringField(ACCEPTANCE_CRITERIA_FIELD, issue.getAcceptanceCriteria());
+        }
+        generator.writeObjectFieldStart("issuetype");
+        generator.writeStringField("self", base + "issuetype/10001");
+        generator.writeStringField("id", "10001");
+        generator.writeStringField("description", "A user story.");
+        generator.writeStringField("iconUrl", base + "issuetype/10001/icon");
+        generator.writeStringField("name", "Story");
+        generator.writeBooleanField("subtask", false);
+        generator.writeEndObject();
+        generator.writeObjectFieldStart("project");
+        generator.writeStringField("self", base + "project/" + project);
+        generator.writeStringField("id", "10000");
+        generator.writeStringField("key", project);
+        generator.writeStringField("name", project);
+        generator.writeEndObject();
+        generator.writeObjectFieldStart("status");
+        generator.writeStringField("self", base + "status/1");
+        generator.writeStringField("id", "1");
+        generator.writeStringField("description", "The issue is open.");
+        generator.writeStringField("iconUrl", base + "status/1/icon");
+        generator.writeStringField("name", "Open");
+        generator.writeEndObject();
+        generator.writeStringField("created", updated);
+        generator.writeStringField("updated", updated);
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Whether a field is part of the response if the given fields were requested; without a field
+     * selection Jira returns all navigable fields.
+     */
+    private static boolean includes(List<String> fields, String field)
+    {
+        return fields == null || fields.contains(field) || fields.contains("*all") || fields.contains("*navigable");
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message)
+        throws IOException
+    {
+        send(exchange, status, generator -> {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("errorMessages");
+            generator.writeString(message);
+            generator.writeEndArray();
+            generator.writeObjectFieldStart("errors");
+            generator.writeEndObject();
+            generator.writeEndObject();
+        });
+    }
+
+    private void send(HttpExchange exchange, int status, JsonWriter writer)
+        throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        try (JsonGenerator generator = json.createGenerator(buffer)) {
+            writer.write(generator);
+        }
+        byte[] body = buffer.toByteArray();
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (compression && accepted != null && accepted.toLowerCase(Locale.ROOT).contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void delay()
+        throws InterruptedException
+    {
+        long min = minLatency;
+        long max = maxLatency;
+        if (max > 0) {
+            long latency;
+            synchronized (random) {
+                latency = min + (max > min ? (long)(random.nextDouble() * (max - min)) : 0);
+            }
+            TimeUnit.NANOSECONDS.sleep(latency);
+        }
+    }
+
+    private boolean chance(double rate)
+    {
+        if (rate <= 0) {
+            return false;
+        }
+        synchronized (random) {
+            return random.nextDouble() < rate;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery)
+    {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    query.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Parses the JSON body of a search, which contains strings, numbers and an array of field names.
+     */
+    private Map<String, Object> parseBody(InputStream body)
+        throws IOException
+    {
+        Map<String, Object> values = new HashMap<>();
+        try (JsonParser parser = json.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("JSON object expected");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    List<String> list = new ArrayList<>();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        list.add(parser.getText());
+                    }
+                    values.put(name, list);
+                }
+                else if (token == JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                }
+                else {
+                    values.put(name, parser.getText());
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String decode(String value)
+    {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Requires Basic authentication with the given credentials. By default every request is accepted.
+     */
+    public FakeJiraServer setCredentials(String username, String password)
+    {
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    /**
+     * Delays every request by a random time between <code>min</code> and <code>max</code>. Defaults to no delay.
+     */
+    public FakeJiraServer setLatency(long min, long max, TimeUnit unit)
+    {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid latency range: " + min + " to " + max);
+        }
+        this.minLatency = unit.toNanos(min);
+        this.maxLatency = unit.toNanos(max);
+        return this;
+    }
+
+    /**
+     * Answers the given share of requests with status 503. Defaults to none.
+     */
+    public FakeJiraServer setErrorRate(double errorRate)
+    {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Answers the given share of requests with status 429 and a Retry-After header. Defaults to none.
+     *
+     * @param retryAfter Seconds to wait announced with the Retry-After header.
+     */
+    public FakeJiraServer setThrottleRate(double throttleRate, int retryAfter)
+    {
+        this.throttleRate = throttleRate;
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Maximum number of issues in a search response, Jira caps larger requests silently. Defaults to 100.
+     */
+    public FakeJiraServer setMaxResults(int maxResults)
+    {
+        this.maxResults = maxResults;
+        return this;
+    }
+
+    /**
+     * Whether responses are gzip-compressed for clients that accept it. Defaults to <code>true</code>.
+     */
+    public FakeJiraServer setCompression(boolean compression)
+    {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Number of requests received, including throttled and failed ones.
+     */
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    /**
+     * Number of requests answered with status 429.
+     */
+    public long getThrottledCount()
+    {
+        return throttledCount.get();
+    }
+
+    /**
+     * Number of requests answered with status 503.
+     */
+    public long getFailedCount()
+    {
+        return failedCount.get();
+    }
+
+    /**
+     * Writes a JSON response.
+     */
+    @FunctionalInterface
+    private interface JsonWriter
+    {
+
+        void write(JsonGenerator generator)
+            throws IOException;
+    }
+}
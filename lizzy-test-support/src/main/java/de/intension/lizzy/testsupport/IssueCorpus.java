@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.testsupport;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Generator of synthetic Jira issues with Jira wiki markup descriptions and Gherkin acceptance criteria.
+ * <p>
+ * The same seed and settings always generate the same keys and texts, so measurements can be repeated.
+ * Issues are numbered from 1 and were updated one minute after another, the last one now.
+ */
+public class IssueCorpus
+{
+
+    private static final String[] ACTORS    = {"customer", "administrator", "clerk", "guest", "auditor", "support agent"};
+    private static final String[] ACTIONS   = {"orders", "cancels", "approves", "exports", "searches", "archives", "imports", "updates"};
+    private static final String[] OBJECTS   = {"an invoice", "the contract", "a delivery", "the report", "an account", "the ticket",
+            "a payment", "the price list"};
+    private static final String[] OUTCOMES  = {"is stored", "is rejected", "is sent by mail", "appears in the list", "is locked",
+            "is marked as done", "is visible to the team"};
+    private static final String[] WORDS     = {"the", "system", "shall", "handle", "requests", "quickly", "and", "reliably", "while",
+            "users", "expect", "consistent", "results", "for", "every", "input", "value", "given", "by", "interface", "data", "process",
+            "validation", "error", "message", "screen", "field", "rule", "of", "with", "a", "new", "existing", "record"};
+
+    private final long            seed;
+    private final Random          random     = new Random();
+
+    private String                project    = "LIZZY";
+    private int                   size       = 1000;
+    private int                   paragraphs = 3;
+    private int                   scenarios  = 2;
+
+    /**
+     * @param seed Seed of the random generator.
+     */
+    public IssueCorpus(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the issues.
+     */
+    public synchronized List<Issue> generate()
+    {
+        random.setSeed(seed);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Issue> issues = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            StringBuilder criteria = new StringBuilder();
+            String feature = pick(ACTORS) + " " + pick(ACTIONS) + " " + pick(OBJECTS);
+            criteria.append("Feature: ").append(capitalize(feature)).append('\n');
+            for (int s = 1; s <= scenarios; s++) {
+                appendScenario(criteria, s);
+            }
+            issues.add(new Issue().setKey(project + "-" + i)
+                .setTitle(capitalize(feature))
+                .setDescription(description(criteria))
+                .setAcceptanceCriteria(criteria.toString())
+                .setUpdated(now.minus(size - i, ChronoUnit.MINUTES)));
+        }
+        return issues;
+    }
+
+    private String description(CharSequence criteria)
+    {
+        StringBuilder description = new StringBuilder("h2. Background\n");
+        for (int p = 0; p < paragraphs; p++) {
+            description.append(sentence()).append(" *").append(pick(WORDS)).append("* ").append(sentence())
+                .append(" _").append(pick(WORDS)).append("_ {{").append(pick(WORDS)).append("}} ")
+                .append("[see wiki|https://wiki.intension.de/").append(pick(WORDS)).append("].\n\n");
+        }
+        description.append("h3. Details\n");
+        for (int item = 0; item < 3; item++) {
+            description.append("* ").append(sentence()).append('\n');
+        }
+        description.append("# ").append(sentence()).append("\n# ").append(sentence()).append("\n\n");
+        description.append("||Field||Value||\n");
+        for (int row = 0; row < 2; row++) {
+            description.append('|').append(pick(WORDS)).append('|').append(random.nextInt(1000)).append("|\n");
+        }
+        description.append("\nh3. Acceptance criteria\n{code:gherkin}\n").append(criteria).append("{code}\n");
+        return description.toString();
+    }
+
+    private void appendScenario(StringBuilder criteria, int number)
+    {
+        String actor = pick(ACTORS);
+        criteria.append("\n  Scenario: ").append(capitalize(actor)).append(' ').append(pick(ACTIONS)).append(' ').append(pick(OBJECTS))
+            .append(' ').append(number).append('\n');
+        criteria.append("    Given a ").append(actor).append(" is logged in\n");
+        criteria.append("    And ").append(pick(OBJECTS)).append(" exists\n");
+        criteria.append("    When the ").append(actor).append(' ').append(pick(ACTIONS)).append(' ').append(pick(OBJECTS)).append('\n');
+        criteria.append("    Then ").append(pick(OBJECTS)).append(' ').append(pick(OUTCOMES)).append('\n');
+    }
+
+    private String sentence()
+    {
+        int length = 6 + random.nextInt(10);
+        StringBuilder sentence = new StringBuilder(capitalize(pick(WORDS)));
+        for (int i = 1; i < length; i++) {
+            sentence.append(' ').append(pick(WORDS));
+        }
+        return sentence.append('.').toString();
+    }
+
+    private String pick(String[] values)
+    {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String capitalize(String text)
+    {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    /**
+     * Key of the project, the prefix of all issue keys. Defaults to <code>LIZZY</code>.
+     */
+    public String getProject()
+    {
+        return project;
+    }
+
+    public IssueCorpus setProject(String project)
+    {
+        this.project = project;
+        return this;
+    }
+
+    /**
+     * Number of issues. Defaults to 1000.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    public IssueCorpus setSize(int size)
+    {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative: " + size);
+        }
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Number of text paragraphs of every description, which sets the size of the issues. Defaults to three.
+     */
+    public IssueCorpus setParagraphs(int paragraphs)
+    {
+        this.paragraphs = paragraphs;
+        return this;
+    }
+
+    /**
+     * Number of Gherkin scenarios of every issue. Defaults to two.
+     */
+    public IssueCorpus setScenarios(int scenarios)
+    {
+        this.scenarios = scenarios;
+        return this;
+    }
+}
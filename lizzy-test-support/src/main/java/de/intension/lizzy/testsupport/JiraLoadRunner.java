@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.testsupport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import de.intension.lizzy.adapter.jira.CircuitBreaker;
+import de.intension.lizzy.adapter.jira.FieldProjection;
+import de.intension.lizzy.adapter.jira.JiraAdapter;
+import de.intension.lizzy.adapter.jira.JiraClientPool;
+import de.intension.lizzy.adapter.jira.RequestScheduler;
+import de.intension.lizzy.adapter.jira.TokenBucket;
+import de.intension.lizzy.adapter.jira.TransportSettings;
+
+/**
+ * End-to-end load test of the {@link JiraAdapter} against a {@link FakeJiraServer} on the local machine.
+ * <p>
+ * Options are given as <code>name=value</code> arguments:
+ * <ul>
+ * <li><code>issues</code> Size of the issue corpus, default 1000.</li>
+ * <li><code>operations</code> Measured operations per scenario, default 2000.</li>
+ * <li><code>concurrency</code> Concurrent callers, default 16.</li>
+ * <li><code>latency</code> Server latency in milliseconds as <code>min-max</code>, default <code>5-20</code>.</li>
+ * <li><code>errors</code> Share of requests answered with status 503, default 0.</li>
+ * <li><code>throttle</code> Share of requests answered with status 429, default 0.</li>
+ * <li><code>rate</code> Requests per second admitted by the adapter, default the rate of {@link TokenBucket#getDefault()}.</li>
+ * <li><code>client</code> <code>jira</code> for the Jira REST client or <code>lean</code> for the lightweight transport,
+ * default <code>jira</code>.</li>
+ * </ul>
+ * For every scenario the throughput and the p50 and p99 latencies are printed.
+ */
+public class JiraLoadRunner
+{
+
+    private JiraLoadRunner()
+    {
+        // command line tool
+    }
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Options must be given as name=value: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        int size = Integer.parseInt(options.getOrDefault("issues", "1000"));
+        int operations = Integer.parseInt(options.getOrDefault("operations", "2000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        String[] latency = options.getOrDefault("latency", "5-20").split("-");
+
+        IssueCorpus corpus = new IssueCorpus(42).setSize(size);
+        try (FakeJiraServer server = new FakeJiraServer(corpus.generate()).setCredentials("admin", "admin")
+            .setLatency(Long.parseLong(latency[0]), Long.parseLong(latency[latency.length - 1]), TimeUnit.MILLISECONDS)
+            .setErrorRate(Double.parseDouble(options.getOrDefault("errors", "0")))
+            .setThrottleRate(Double.parseDouble(options.getOrDefault("throttle", "0")), 1)
+            .start();
+                JiraClientPool pool = new JiraClientPool()) {
+            JiraAdapter adapter = new JiraAdapter(server.getUri().toString(), "admin", "admin").setClientPool(pool)
+                .setRequestScheduler(new RequestScheduler())
+                .setCircuitBreaker(new CircuitBreaker(server.getUri().getHost()))
+                .setFieldProjection(FieldProjection.defaults().withAcceptanceCriteria(FakeJiraServer.ACCEPTANCE_CRITERIA_FIELD));
+            if (options.containsKey("rate")) {
+                double rate = Double.parseDouble(options.get("rate"));
+                adapter.setRequestScheduler(new RequestScheduler().setTokenBucket(new TokenBucket(rate, (int)Math.max(1, rate))));
+            }
+            if ("lean".equals(options.get("client"))) {
+                adapter.setTransportSettings(TransportSettings.defaults());
+            }
+            for (LoadReport report : run(adapter, corpus.getProject(), size, operations, concurrency)) {
+                System.out.println(report);
+            }
+            System.out.println(server.getRequestCount() + " requests, " + server.getThrottledCount() + " throttled, "
+                    + server.getFailedCount() + " failed");
+        }
+    }
+
+    /**
+     * Runs the scenarios single issue, search page and batch lookup.
+     */
+    static List<LoadReport> run(JiraAdapter adapter, String project, int size, int operations, int concurrency)
+        throws InterruptedException
+    {
+        LoadDriver driver = new LoadDriver().setConcurrency(concurrency).setWarmup(Math.min(operations, 100));
+        List<LoadReport> reports = new ArrayList<>();
+        reports.add(driver.run("getIssue", operations, index -> adapter.getIssue(project + "-" + (index * 7919 % size + 1))));
+        reports.add(driver.run("search", operations / 10, index -> adapter
+            .getIssues("project = " + project + " AND updated >= \"-" + (index % size + 1) + "m\"", 50, FieldProjection.summaryOnly())));
+        reports.add(driver.run("batch", operations / 10, index -> {
+            List<String> keys = new ArrayList<>(50);
+            for (int i = 0; i < 50; i++) {
+                keys.add(project + "-" + ((index * 50 + i) % size + 1));
+            }
+            adapter.getIssues(keys);
+        }));
+        reports.add(driver.run("stream", Math.max(1, operations / 200), index -> adapter.getAllIssues("project = " + project, 4)));
+        return reports;
+    }
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.testsupport;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.intension.lizzy.adapter.Issue;
+
+/**
+ * Evaluates the subset of JQL the adapter sends: <code>project = X</code>, <code>key in (...)</code>,
+ * <code>key = X</code> and <code>updated &gt;= "-Nm"</code> joined with <code>AND</code>, optionally
+ * followed by <code>ORDER BY key|updated [ASC|DESC]</code>.
+ */
+final class Jql
+{
+
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)\\s*ORDER\\s+BY\\s+(key|updated)(?:\\s+(ASC|DESC))?\\s*$");
+    private static final Pattern AND      = Pattern.compile("(?i)\\s+AND\\s+");
+    private static final Pattern PROJECT  = Pattern.compile("(?i)project\\s*=\\s*\"?([^\"\\s]+)\"?");
+    private static final Pattern KEYS     = Pattern.compile("(?i)(?:issue)?key\\s+in\\s*\\(([^)]*)\\)");
+    private static final Pattern KEY      = Pattern.compile("(?i)(?:issue)?key\\s*=\\s*\"?([^\"\\s]+)\"?");
+    private static final Pattern UPDATED  = Pattern.compile("(?i)updated\\s*>=\\s*\"?-(\\d+)([mhd])\"?");
+
+    private Jql()
+    {
+        // utility class
+    }
+
+    /**
+     * Selects the matching issues in query order.
+     *
+     * @param issues Issues by upper case key.
+     * @throws IllegalArgumentException The query is not supported or names an unknown issue, which Jira answers with status 400.
+     */
+    static List<Issue> select(String jql, Map<String, Issue> issues)
+    {
+        String query = jql == null ? "" : jql.trim();
+        Comparator<Issue> order = null;
+        Matcher orderBy = ORDER_BY.matcher(query);
+        if (orderBy.find()) {
+            order = "key".equalsIgnoreCase(orderBy.group(1)) ? Comparator.comparing(Jql::number) : Comparator.comparing(Issue::getUpdated);
+            if ("DESC".equalsIgnoreCase(orderBy.group(2))) {
+                order = order.reversed();
+            }
+            query = query.substring(0, orderBy.start()).trim();
+        }
+        Predicate<Issue> filter = issue -> true;
+        if (!query.isEmpty()) {
+            for (String condition : AND.split(query)) {
+                filter = filter.and(condition(condition.trim(), issues));
+            }
+        }
+        List<Issue> selected = new ArrayList<>();
+        for (Issue issue : issues.values()) {
+            if (filter.test(issue)) {
+                selected.add(issue);
+            }
+        }
+        selected.sort(order == null ? Comparator.comparing(Jql::number) : order);
+        return selected;
+    }
+
+    private static Predicate<Issue> condition(String condition, Map<String, Issue> issues)
+    {
+        Matcher matcher = PROJECT.matcher(condition);
+        if (matcher.matches()) {
+            String prefix = matcher.group(1).toUpperCase(Locale.ROOT) + "-";
+            return issue -> issue.getKey().startsWith(prefix);
+        }
+        matcher = KEYS.matcher(condition);
+        if (matcher.matches()) {
+            Set<String> keys = new HashSet<>();
+            for (String key : matcher.group(1).split(",")) {
+                keys.add(known(key.trim().replace("\"", ""), issues));
+            }
+            return issue -> keys.contains(issue.getKey());
+        }
+        matcher = KEY.matcher(condition);
+        if (matcher.matches()) {
+            String key = known(matcher.group(1), issues);
+            return issue -> issue.getKey().equals(key);
+        }
+        matcher = UPDATED.matcher(condition);
+        if (matcher.matches()) {
+            long amount = Long.parseLong(matcher.group(1));
+            Duration duration = "m".equalsIgnoreCase(matcher.group(2)) ? Duration.ofMinutes(amount)
+                    : "h".equalsIgnoreCase(matcher.group(2)) ? Duration.ofHours(amount) : Duration.ofDays(amount);
+            Instant since = Instant.now().minus(duration);
+            return issue -> !issue.getUpdated().isBefore(since);
+        }
+        throw new IllegalArgumentException("Error in the JQL Query: Unsupported condition '" + condition + "'.");
+    }
+
+    private static String known(String key, Map<String, Issue> issues)
+    {
+        String normalized = key.toUpperCase(Locale.ROOT);
+        if (!issues.containsKey(normalized)) {
+            throw new IllegalArgumentException("An issue with key '" + key + "' does not exist for field 'key'.");
+        }
+        return normalized;
+    }
+
+    /**
+     * Number of an issue key, e.g. 42 for <code>LIZZY-42</code>.
+     */
+    static int number(Issue issue)
+    {
+        String key = issue.getKey();
+        return Integer.parseInt(key.substring(key.lastIndexOf('-') + 1));
+    }
+}
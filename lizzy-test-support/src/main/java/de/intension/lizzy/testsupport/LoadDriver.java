@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.testsupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an operation from several threads and measures throughput and latency of every call.
+ * <p>
+ * Each thread runs its share of the operations one after another, so the number of threads is the
+ * number of concurrent callers. Warm-up operations run before the measurement, e.g. to load classes
+ * and open connections. An operation that is interrupted counts as failed and stops its thread;
+ * operations no thread got to are left out of the report.
+ */
+public class LoadDriver
+{
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private int                        concurrency  = 8;
+    private int                        warmup       = 0;
+
+    /**
+     * Operation measured by the driver.
+     */
+    @FunctionalInterface
+    public interface Operation
+    {
+
+        /**
+         * @param index Number of the call, from zero to the number of operations of the run.
+         */
+        void run(int index)
+            throws Exception;
+    }
+
+    /**
+     * Runs the warm-up and then the given number of measured operations.
+     *
+     * @param name Name of the run shown in the report.
+     * @param operations Number of measured operations.
+     */
+    public LoadReport run(String name, int operations, Operation operation)
+        throws InterruptedException
+    {
+        if (warmup > 0) {
+            measure(name, warmup, operation);
+        }
+        return measure(name, operations, operation);
+    }
+
+    private LoadReport measure(String name, int operations, Operation operation)
+        throws InterruptedException
+    {
+        long[] latencies = new long[operations];
+        Arrays.fill(latencies, -1);
+        boolean[] failed = new boolean[operations];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "lizzy-load-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> callers = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                callers.add(executor.submit(() -> {
+                    for (int index = next.getAndIncrement(); index < operations; index = next.getAndIncrement()) {
+                        long begin = System.nanoTime();
+                        try {
+                            operation.run(index);
+                        } catch (InterruptedException e) {
+                            failed[index] = true;
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            failed[index] = true;
+                        }
+                        latencies[index] = System.nanoTime() - begin;
+                    }
+                }));
+            }
+            for (Future<?> caller : callers) {
+                try {
+                    caller.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Load thread failed", e.getCause());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            int errors = 0;
+            long[] succeeded = new long[operations];
+            int count = 0;
+            for (int index = 0; index < operations; index++) {
+                if (failed[index]) {
+                    errors++;
+                }
+                else if (latencies[index] >= 0) {
+                    succeeded[count++] = latencies[index];
+                }
+            }
+            long[] measured = new long[count];
+            System.arraycopy(succeeded, 0, measured, 0, count);
+            return new LoadReport(name, measured, errors, elapsed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Number of threads calling the operation concurrently. Defaults to eight.
+     */
+    public LoadDriver setConcurrency(int concurrency)
+    {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Number of operations run before the measurement. Defaults to none.
+     */
+    public LoadDriver setWarmup(int warmup)
+    {
+        this.warmup = warmup;
+        return this;
+    }
+}
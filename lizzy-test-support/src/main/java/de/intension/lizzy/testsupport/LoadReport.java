@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2018 Intension GmbH (https://www.intension.de)
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Eclipse Public License - v 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.eclipse.org/legal/epl-2.0/
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.intension.lizzy.testsupport;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency distribution of a run of the {@link LoadDriver}.
+ */
+public final class LoadReport
+{
+
+    private final String name;
+    private final long[] latencies;
+    private final int    errors;
+    private final long   elapsed;
+
+    /**
+     * @param latencies Latencies of the successful operations in nanoseconds.
+     * @param elapsed Duration of the run in nanoseconds.
+     */
+    LoadReport(String name, long[] latencies, int errors, long elapsed)
+    {
+        this.name = name;
+        this.latencies = latencies.clone();
+        this.errors = errors;
+        this.elapsed = elapsed;
+        Arrays.sort(this.latencies);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Number of successful operations.
+     */
+    public int getOperations()
+    {
+        return latencies.length;
+    }
+
+    /**
+     * Number of failed operations.
+     */
+    public int getErrors()
+    {
+        return errors;
+    }
+
+    /**
+     * Successful operations per second.
+     */
+    public double getThroughput()
+    {
+        return elapsed == 0 ? 0 : latencies.length * (double)TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * Latency below which the given share of the successful operations completed, using the nearest rank.
+     *
+     * @param percentile Share between 0 and 1, e.g. 0.99 for the 99th percentile.
+     * @return Latency or zero if no operation succeeded.
+     */
+    public long getLatency(double percentile, TimeUnit unit)
+    {
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1: " + percentile);
+        }
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int rank = (int)Math.ceil(percentile * latencies.length);
+        return unit.convert(latencies[Math.max(0, rank - 1)], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Duration of the run.
+     */
+    public long getElapsed(TimeUnit unit)
+    {
+        return unit.convert(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "%s: %d ops in %.2f s, %.1f ops/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d errors", name,
+                             latencies.length, elapsed / 1e9, getThroughput(), millis(0.5), millis(0.99), millis(1), errors);
+    }
+
+    private double millis(double percentile)
+    {
+        return getLatency(percentile, TimeUnit.MICROSECONDS) / 1000d;
+    }
+}
@@ -0,0 +1,140 @@
+package de.intension.lizzy.testsupport;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+
+import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.jira.CircuitBreaker;
+import de.intension.lizzy.adapter.jira.FieldProjection;
+import de.intension.lizzy.adapter.jira.JiraAdapter;
+import de.intension.lizzy.adapter.jira.RequestScheduler;
+import de.intension.lizzy.adapter.jira.RetryPolicy;
+import de.intension.lizzy.adapter.jira.UrlConnectionTransport;
+
+public class FakeJiraServerTest
+{
+
+    private FakeJiraServer         server;
+    private UrlConnectionTransport transport;
+    private JiraAdapter            adapter;
+
+    @Before
+    public void startServer()
+        throws Exception
+    {
+        server = new FakeJiraServer(new IssueCorpus(1).setSize(250).generate()).setCredentials("admin", "secret").start();
+        transport = new UrlConnectionTransport(server.getUri(), "admin", "secret");
+        adapter = new JiraAdapter(server.getUri().toString(), "admin", "secret").setTransport(transport)
+            .setRequestScheduler(new RequestScheduler())
+            .setCircuitBreaker(new CircuitBreaker(server.getUri().getHost()))
+            .setRetryPolicy(RetryPolicy.none());
+    }
+
+    @After
+    public void stopServer()
+    {
+        transport.close();
+        server.close();
+    }
+
+    /**
+     * GIVEN a server with 250 issues returning at most 100 issues per page
+     * WHEN fetching all issues of the project
+     * THEN all issues are returned in key order
+     */
+    @Test
+    public void should_page_through_search_results()
+        throws Exception
+    {
+        List<Issue> issues = adapter.getAllIssues("project = \"LIZZY\"", 2, 500);
+
+        assertThat(issues, hasSize(250));
+        assertThat(issues.get(249).getKey(), equalTo("LIZZY-250"));
+        assertThat(issues.get(0).getDescription().startsWith("h2. Background"), equalTo(true));
+    }
+
+    /**
+     * GIVEN a server answering unknown keys with status 400
+     * WHEN looking up known and unknown keys
+     * THEN the known issues are returned and the unknown key is mapped to null
+     */
+    @Test
+    public void should_reject_unknown_keys()
+        throws Exception
+    {
+        Map<String, Issue> issues = adapter.getIssues(Arrays.asList("LIZZY-3", "LIZZY-999", "LIZZY-7"));
+
+        assertThat(issues.get("LIZZY-3").getKey(), equalTo("LIZZY-3"));
+        assertThat(issues.get("LIZZY-999"), nullValue());
+        assertThat(issues.get("LIZZY-7").getKey(), equalTo("LIZZY-7"));
+    }
+
+    /**
+     * GIVEN a search ordered by update time descending
+     * WHEN searching with the summary only
+     * THEN the latest issues are returned first without description
+     */
+    @Test
+    public void should_order_and_project_search_results()
+        throws Exception
+    {
+        List<Issue> issues = adapter.getIssues("project = LIZZY ORDER BY updated DESC", 3, FieldProjection.summaryOnly());
+
+        assertThat(issues.stream().map(Issue::getKey).collect(Collectors.toList()), contains("LIZZY-250", "LIZZY-249", "LIZZY-248"));
+        assertThat(issues.get(0).getDescription(), nullValue());
+    }
+
+    /**
+     * GIVEN a server throttling every request
+     * WHEN requesting an issue
+     * THEN the request fails with status 429
+     */
+    @Test
+    public void should_throttle_requests()
+        throws Exception
+    {
+        server.setThrottleRate(1, 2);
+
+        try {
+            transport.getIssue("LIZZY-1", FieldProjection.defaults()).get(5, TimeUnit.SECONDS);
+            fail("error expected");
+        } catch (ExecutionException e) {
+            assertThat(((RestClientException)e.getCause()).getStatusCode().get(), equalTo(429));
+        }
+        assertThat(server.getThrottledCount(), equalTo(1L));
+    }
+
+    /**
+     * GIVEN a server requiring credentials
+     * WHEN requesting an issue with a wrong password
+     * THEN the request fails with status 401
+     */
+    @Test
+    public void should_require_credentials()
+        throws Exception
+    {
+        try (UrlConnectionTransport wrong = new UrlConnectionTransport(server.getUri(), "admin", "wrong")) {
+            wrong.getIssue("LIZZY-1", FieldProjection.defaults()).get(5, TimeUnit.SECONDS);
+            fail("error expected");
+        } catch (ExecutionException e) {
+            assertThat(((RestClientException)e.getCause()).getStatusCode().get(), equalTo(401));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package de.intension.lizzy.testsupport;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import de.intension.lizzy.adapter.Issue;
+
+public class IssueCorpusTest
+{
+
+    /**
+     * GIVEN a corpus with a seed and a size
+     * WHEN generating the issues twice
+     * THEN the same number of issues with the same texts is generated
+     */
+    @Test
+    public void should_generate_repeatable_issues()
+    {
+        IssueCorpus corpus = new IssueCorpus(7).setProject("DEMO").setSize(20);
+
+        List<Issue> first = corpus.generate();
+        List<Issue> second = corpus.generate();
+
+        assertThat(first, hasSize(20));
+        assertThat(first.get(19).getKey(), equalTo("DEMO-20"));
+        assertThat(second.get(19).getDescription(), equalTo(first.get(19).getDescription()));
+        assertThat(first.get(0).getUpdated().compareTo(first.get(1).getUpdated()), lessThan(0));
+    }
+
+    /**
+     * GIVEN a corpus with three scenarios per issue
+     * WHEN generating an issue
+     * THEN its acceptance criteria are a Gherkin feature
+     * AND its description is Jira markup containing the feature
+     */
+    @Test
+    public void should_generate_gherkin_and_jira_markup()
+    {
+        Issue issue = new IssueCorpus(7).setSize(1).setScenarios(3).generate().get(0);
+
+        assertThat(issue.getAcceptanceCriteria(), startsWith("Feature: "));
+        assertThat(issue.getAcceptanceCriteria(), containsString("  Scenario: "));
+        assertThat(issue.getAcceptanceCriteria(), containsString("    Given a "));
+        assertThat(issue.getAcceptanceCriteria().split("Scenario: ").length, equalTo(4));
+        assertThat(issue.getDescription(), startsWith("h2. Background\n"));
+        assertThat(issue.getDescription(), containsString("||Field||Value||"));
+        assertThat(issue.getDescription(), containsString("{code:gherkin}\n" + issue.getAcceptanceCriteria() + "{code}"));
+    }
+}
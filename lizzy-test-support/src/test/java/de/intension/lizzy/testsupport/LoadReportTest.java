@@ -0,0 +1,79 @@
+package de.intension.lizzy.testsupport;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class LoadReportTest
+{
+
+    /**
+     * GIVEN 100 latencies from 1 to 100 milliseconds within one second
+     * WHEN reading the report
+     * THEN the percentiles are the nearest ranks
+     * AND the throughput is 100 operations per second
+     */
+    @Test
+    public void should_compute_percentiles_and_throughput()
+    {
+        long[] latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = TimeUnit.MILLISECONDS.toNanos(100 - i);
+        }
+
+        LoadReport report = new LoadReport("test", latencies, 2, TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(report.getLatency(0.5, TimeUnit.MILLISECONDS), equalTo(50L));
+        assertThat(report.getLatency(0.99, TimeUnit.MILLISECONDS), equalTo(99L));
+        assertThat(report.getLatency(1, TimeUnit.MILLISECONDS), equalTo(100L));
+        assertThat(report.getThroughput(), closeTo(100, 0.001));
+        assertThat(report.getErrors(), equalTo(2));
+    }
+
+    /**
+     * GIVEN a driver with four callers
+     * WHEN running 200 operations of which every tenth fails
+     * THEN 180 successful and 20 failed operations are reported
+     */
+    @Test
+    public void should_count_failed_operations()
+        throws InterruptedException
+    {
+        LoadReport report = new LoadDriver().setConcurrency(4).run("test", 200, index -> {
+            if (index % 10 == 0) {
+                throw new IllegalStateException("failed");
+            }
+        });
+
+        assertThat(report.getOperations(), equalTo(180));
+        assertThat(report.getErrors(), equalTo(20));
+    }
+
+    /**
+     * GIVEN a driver with a single caller
+     * WHEN the third of 10 operations is interrupted
+     * THEN 2 successful operations and 1 failed operation are reported
+     * AND the operations after the interruption are not run
+     */
+    @Test
+    public void should_count_interrupted_operation_as_failed()
+        throws InterruptedException
+    {
+        AtomicInteger calls = new AtomicInteger();
+        LoadReport report = new LoadDriver().setConcurrency(1).run("test", 10, index -> {
+            calls.incrementAndGet();
+            if (index == 2) {
+                throw new InterruptedException();
+            }
+        });
+
+        assertThat(report.getOperations(), equalTo(2));
+        assertThat(report.getErrors(), equalTo(1));
+        assertThat(calls.get(), equalTo(3));
+    }
+}
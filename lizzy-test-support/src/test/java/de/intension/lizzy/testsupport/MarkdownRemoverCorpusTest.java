@@ -0,0 +1,54 @@
+package de.intension.lizzy.testsupport;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import de.intension.lizzy.adapter.Issue;
+import de.intension.lizzy.adapter.MarkdownRemover;
+
+public class MarkdownRemoverCorpusTest
+{
+
+    private final List<Issue> issues = new IssueCorpus(11).setSize(200).generate();
+
+    /**
+     * GIVEN the descriptions of a corpus with a code span at the end of every paragraph
+     * WHEN removing markdown
+     * THEN the paragraphs parsed by flexmark are the same as the ones stripped in a single pass without code span
+     */
+    @Test
+    public void should_remove_markdown_like_wiki_markup()
+    {
+        for (Issue issue : issues) {
+            String description = issue.getDescription();
+            String markdown = description.replace("].\n", "] `code`.\n");
+            assertThat(markdown, containsString("`code`"));
+
+            String plain = MarkdownRemover.toPlainText(markdown);
+
+            assertThat(issue.getKey(), plain, equalTo(MarkdownRemover.toPlainText(description.replace("].\n", "] code.\n"))));
+        }
+    }
+
+    /**
+     * GIVEN the descriptions of a corpus after a paragraph with markdown
+     * WHEN removing markdown
+     * THEN the descriptions are stripped the same way as without that paragraph
+     */
+    @Test
+    public void should_not_depend_on_other_paragraphs()
+    {
+        for (Issue issue : issues) {
+            String description = issue.getDescription();
+
+            String plain = MarkdownRemover.toPlainText("Run `mvn verify` **first**.\n\n" + description);
+
+            assertThat(issue.getKey(), plain, equalTo("Run mvn verify first." + MarkdownRemover.toPlainText(description)));
+        }
+    }
+}